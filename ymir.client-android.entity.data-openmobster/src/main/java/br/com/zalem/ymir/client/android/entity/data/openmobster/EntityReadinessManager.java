@@ -0,0 +1,210 @@
+package br.com.zalem.ymir.client.android.entity.data.openmobster;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObject;
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObjectDatabase;
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObjectDatabase.IMobileObjectDatabaseListener;
+import org.openmobster.core.mobileCloud.android.service.Registry;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import br.com.zalem.ymir.client.android.entity.data.IEntityDataManager.AbstractReadyListener;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.util.OpenMobsterUtils;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.util.OpenMobsterUtils.ChannelsBootListener;
+
+/**
+ * Gerenciador das esperas pela prontidão dos registros das entidades ({@link MobileBeanEntityDAO#isReady()}).<br>
+ * A prontidão das entidades aguardadas é reavaliada apenas quando ocorrem eventos que podem alterá-la: o início do OpenMobster,
+ * a inicialização dos canais feita pelo {@link OpenMobsterUtils} (ativação offline e atualização das populações) e a chegada de
+ * dados nos canais (como na sincronização inicial com a nuvem). Como o OpenMobster não notifica o término da inicialização
+ * dos canais feita pela sincronização, após cada evento também são feitas algumas poucas reavaliações em seguida, cobrindo a
+ * inicialização que ocorre logo após a chegada dos últimos dados. Além disto, como um canal pode ser inicializado sem gerar
+ * nenhum evento (como um canal vazio), as esperas pendentes continuam sendo reavaliadas em um intervalo maior até que terminem.<br>
+ * <br>
+ * As reavaliações são agrupadas e feitas em uma Thread de background própria do gerenciador, na qual os listeners também são notificados.
+ *
+ * @author Thiago Gesser
+ */
+final class EntityReadinessManager implements IMobileObjectDatabaseListener, ChannelsBootListener {
+
+	//Tempo aguardado antes da reavaliação, agrupando os eventos próximos (como os de uma sincronização).
+	private static final long CHECK_DELAY = 100;
+	//Intervalo e quantidade das reavaliações feitas após o último evento, que cobrem a inicialização dos canais feita pela sincronização.
+	private static final long FALLBACK_CHECK_DELAY = 250;
+	private static final int MAX_FALLBACK_CHECKS = 4;
+	//Intervalo das reavaliações feitas enquanto houverem esperas pendentes, após as reavaliações seguintes ao último evento.
+	private static final long PERIODIC_CHECK_DELAY = 2000;
+
+	//As esperas podem ser adicionadas enquanto os eventos são recebidos.
+	private final List<ReadinessWait> waits;
+	private final Handler handler;
+	private final Runnable checkRunnable;
+	//Reavaliações restantes após o último evento.
+	private volatile int remainingFallbackChecks;
+
+	EntityReadinessManager() {
+		waits = new CopyOnWriteArrayList<>();
+
+		HandlerThread checkThread = new HandlerThread(EntityReadinessManager.class.getSimpleName(), Process.THREAD_PRIORITY_BACKGROUND);
+		checkThread.start();
+		handler = new Handler(checkThread.getLooper());
+		checkRunnable = new Runnable() {
+			@Override
+			public void run() {
+				check();
+			}
+		};
+	}
+
+	/**
+	 * Inicia o acompanhamento dos eventos. Se o OpenMobster ainda não foi iniciado, os eventos dos canais serão acompanhados logo após o seu início.
+	 */
+	void start() {
+		OpenMobsterUtils.addChannelsBootListener(this);
+
+		if (Registry.isActiveAndStarted()) {
+			register();
+		} else {
+			Registry.executeAfterStart(new Runnable() {
+				@Override
+				public void run() {
+					register();
+					scheduleCheck();
+				}
+			}, true);
+		}
+	}
+
+	/**
+	 * Aguarda até que os registros de todos os DAOs estejam prontos. Se eles já estiverem prontos, o listener é notificado imediatamente.
+	 *
+	 * @param daos os DAOs aguardados.
+	 * @param listener o listener que será notificado.
+	 */
+	void await(MobileBeanEntityDAO[] daos, AbstractReadyListener listener) {
+		if (listener.isCanceled()) {
+			return;
+		}
+		if (isReady(daos)) {
+			listener.onReady();
+			return;
+		}
+
+		waits.add(new ReadinessWait(daos, listener));
+		//Os DAOs podem ter ficado prontos entre a verificação e a adição da espera.
+		scheduleCheck();
+	}
+
+
+	@Override
+	public void onChannelsBootChanged() {
+		scheduleCheck();
+	}
+
+	@Override
+	public void onMobileObjectCreated(MobileObject mo, String id) {
+		scheduleCheck();
+	}
+
+	@Override
+	public void onMobileObjectUpdated(MobileObject mo) {
+		scheduleCheck();
+	}
+
+	@Override
+	public void onMobileObjectDeleted(MobileObject mo) {
+	}
+
+	@Override
+	public void onAllMobileObjectsDeleted(String channel) {
+	}
+
+	@Override
+	public void beforeMobileObjectCreated(MobileObject mobileObject) {
+	}
+
+	@Override
+	public void beforeMobileObjectDeleted(MobileObject mobileObject) {
+	}
+
+	@Override
+	public void beforeMobileObjectUpdated(MobileObject mobileObject) {
+	}
+
+
+	/*
+	 * Métodos/classes auxiliares
+	 */
+
+	private void register() {
+		MobileObjectDatabase moDB = MobileObjectDatabase.getInstance();
+		//Pode ser chamado a cada início do OpenMobster, então garante que não será registrado mais de uma vez.
+		moDB.removeListener(this);
+		moDB.addListener(this);
+	}
+
+	private void scheduleCheck() {
+		//Sem esperas pendentes, os eventos não precisam ser tratados.
+		if (waits.isEmpty()) {
+			return;
+		}
+
+		//Adia a reavaliação pendente a cada novo evento, agrupando os eventos próximos.
+		remainingFallbackChecks = MAX_FALLBACK_CHECKS;
+		handler.removeCallbacks(checkRunnable);
+		handler.postDelayed(checkRunnable, CHECK_DELAY);
+	}
+
+	private void check() {
+		for (ReadinessWait wait : waits) {
+			if (wait.listener.isCanceled()) {
+				waits.remove(wait);
+				continue;
+			}
+
+			if (isReady(wait.daos)) {
+				waits.remove(wait);
+				wait.listener.onReady();
+			}
+		}
+
+		if (waits.isEmpty()) {
+			return;
+		}
+		//Após as reavaliações seguintes ao último evento, continua reavaliando lentamente, pois a prontidão pode mudar sem nenhum evento.
+		if (remainingFallbackChecks > 0) {
+			remainingFallbackChecks--;
+			handler.postDelayed(checkRunnable, FALLBACK_CHECK_DELAY);
+		} else {
+			handler.postDelayed(checkRunnable, PERIODIC_CHECK_DELAY);
+		}
+	}
+
+	private static boolean isReady(MobileBeanEntityDAO[] daos) {
+		for (MobileBeanEntityDAO dao : daos) {
+			if (!dao.isReady()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Espera pela prontidão de um conjunto de DAOs.
+	 */
+	private static final class ReadinessWait {
+
+		private final MobileBeanEntityDAO[] daos;
+		private final AbstractReadyListener listener;
+
+		ReadinessWait(MobileBeanEntityDAO[] daos, AbstractReadyListener listener) {
+			this.daos = daos;
+			this.listener = listener;
+		}
+	}
+}
@@ -2,6 +2,7 @@ package br.com.zalem.ymir.client.android.entity.data.openmobster;
 
 import android.annotation.SuppressLint;
 import android.database.Cursor;
+import android.graphics.Bitmap;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.support.v4.app.AndroidBugsUtils;
@@ -11,55 +12,86 @@ import android.util.Log;
 import org.openmobster.android.api.sync.BeanList;
 import org.openmobster.android.api.sync.CommitException;
 import org.openmobster.android.api.sync.MobileBean;
-
+import org.openmobster.core.mobileCloud.android.service.Registry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
 import br.com.zalem.ymir.client.android.entity.data.IEntityDAO;
+import br.com.zalem.ymir.client.android.entity.data.IEntityDataManager.AbstractReadyListener;
 import br.com.zalem.ymir.client.android.entity.data.IEntityRecord;
 import br.com.zalem.ymir.client.android.entity.data.RelationshipViolationException;
 import br.com.zalem.ymir.client.android.entity.data.cursor.IEntityRecordCursor;
 import br.com.zalem.ymir.client.android.entity.data.metadata.IEntityMetadata;
 import br.com.zalem.ymir.client.android.entity.data.metadata.IEntityRelationship;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.MobileBeanEntityRecord.RelationshipBufferEntry;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.cache.IEntityRecordCache;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.cursor.InternalMobileBeanEntityRecordCursor;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.cursor.MobileBeanEntityRecordCursor;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.cursor.MobileBeanSelectionCursor;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityAttribute;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityMetadata;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityRelationship;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.query.CompiledQueryCache;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.query.InternalMobileBeanSelectQuery;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.query.MobileBeanQueryBuilder;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.query.MobileBeanSelectQuery;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.query.SQLiteQueryBuilder;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.query.SelectFromQueryBuilder;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.util.InternalMobileBeanEntityRecordSerializer;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.util.OpenMobsterUtils;
 import br.com.zalem.ymir.client.android.entity.data.query.select.ISelectBuilder;
 import br.com.zalem.ymir.client.android.entity.data.query.select.ISelectFromStatement;
 import br.com.zalem.ymir.client.android.entity.data.query.select.ISelectQuery;
 import br.com.zalem.ymir.client.android.entity.data.query.select.ISelectQuery.ISelectField;
 import br.com.zalem.ymir.client.android.entity.data.query.select.NonUniqueResultException;
+import br.com.zalem.ymir.client.android.entity.data.query.select.QueryCancellationSignal;
 import br.com.zalem.ymir.client.android.entity.data.util.MetadataUtils;
 import br.com.zalem.ymir.client.android.util.PendingFeatureException;
 
+import static br.com.zalem.ymir.client.android.entity.data.openmobster.util.OpenMobsterUtils.MAX_IDS_PER_QUERY;
+import static br.com.zalem.ymir.client.android.entity.data.openmobster.util.OpenMobsterUtils.quote;
+
 /**
  * Provê a manipulação de registros de uma entidade de dados baseada no {@link org.openmobster.android.api.sync.MobileBean} do OpenMobster.
  *
  * @author Thiago Gesser
  */
 public class MobileBeanEntityDAO implements IEntityDAO {
+
+	//Quantidade de formatos de query distintos mantidos compilados por DAO.
+	private static final int QUERY_CACHE_SIZE = 32;
+	//Savepoint utilizado para isolar o salvamento de cada registro no saveAll().
+	private static final String SAVE_ALL_SAVEPOINT = "ymir_save_all";
 	
-	private boolean isReady;
+	private volatile boolean isReady;
+	//Canais que precisam estar inicializados para que os registros estejam prontos, obtidos na primeira verificação.
+	private String[] readinessChannels;
 	protected final EntityMetadata metadata;
 	protected final MobileBeanEntityDataManager entityManager;
+	private final CompiledQueryCache queryCache;
 	
 	/**
 	 * Cria um MobileBeanEntityDAO para uma entidade, de acordo com seus metadados.
@@ -69,6 +101,7 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 	MobileBeanEntityDAO(EntityMetadata metadata, MobileBeanEntityDataManager entityManager) {
 		this.metadata = metadata;
 		this.entityManager = entityManager;
+		this.queryCache = new CompiledQueryCache(QUERY_CACHE_SIZE);
 	}
 	
 	@Override
@@ -80,10 +113,34 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 	public final EntityMetadata getEntityMetadata() {
 		return metadata;
 	}
+
+	/**
+	 * Obtém o cache das queries compiladas sobre a entidade deste DAO, utilizado pelo {@link MobileBeanQueryBuilder} para
+	 * reaproveitar o SQL dos formatos de query já executados.
+	 *
+	 * @return o cache obtido.
+	 */
+	public final CompiledQueryCache getQueryCache() {
+		return queryCache;
+	}
 	
 	@Override
 	public boolean isReady() {
-		return isReady(null);
+		if (isReady) {
+			return true;
+		}
+
+		for (String channel : getReadinessChannels()) {
+			if (!MobileBean.isBooted(channel)) {
+				return false;
+			}
+		}
+		return isReady = true;
+	}
+
+	@Override
+	public void awaitReady(AbstractReadyListener listener) {
+		entityManager.awaitReady(listener, metadata.getName());
 	}
 
 	@Override
@@ -108,9 +165,9 @@ public class MobileBeanEntityDAO implements IEntityDAO {
         MobileBeanEntityRecord beanRecord = (MobileBeanEntityRecord) record;
         checkRecordMetadata(beanRecord);
 
-        MobileBean.beginTransaction();
+        entityManager.beginWriteTransaction();
         try {
-            internalSave(beanRecord, sync, scheduleSyncTask);
+            internalSave(beanRecord, sync, scheduleSyncTask, newSavedRecordsSet());
 
             MobileBean.setTransactionSuccessful();
             return true;
@@ -121,8 +178,62 @@ public class MobileBeanEntityDAO implements IEntityDAO {
             Log.e(MobileBeanEntityDAO.class.getSimpleName(), String.format("RelationshipViolationException at save(). Record id = %s, Violated entities = %s, Message = %s.", record.getId(), Arrays.toString(e.getSourceEntities()), e.getMessage()));
             return false;
         } finally {
-            MobileBean.endTransaction();
+            entityManager.endWriteTransaction();
+        }
+    }
+
+    @Override
+    public List<IEntityRecord> saveAll(Collection<? extends IEntityRecord> records, boolean sync) {
+        checkIsReady();
+        checkNotInternal();
+        for (IEntityRecord record : records) {
+            checkNotDeleted(record);
+            checkRecordMetadata((MobileBeanEntityRecord) record);
+        }
+
+        //Os registros relacionados compartilhados por vários registros do lote são salvos apenas uma vez.
+        SavedRecordsJournal savedRecords = new SavedRecordsJournal();
+        List<IEntityRecord> failedRecords = new ArrayList<>();
+        boolean hasSavedRecords = false;
+        entityManager.beginWriteTransaction();
+        try {
+            for (IEntityRecord record : records) {
+                //Cada registro é salvo em um savepoint próprio, de forma que a falha de um não mantenha as suas alterações parciais
+                //nem desfaça as alterações dos demais.
+                OpenMobsterUtils.executeSQL("SAVEPOINT " + SAVE_ALL_SAVEPOINT);
+                boolean saved = false;
+                try {
+                    //A sincronização é agendada apenas uma vez, depois que todos os registros forem salvos.
+                    internalSave((MobileBeanEntityRecord) record, sync, false, savedRecords);
+                    saved = true;
+                } catch (CommitException e) {
+                    Log.e(MobileBeanEntityDAO.class.getSimpleName(), String.format("CommitException at saveAll(). Record id = %s, Message = %s.", record.getId(), e.getMessage()));
+                } catch (RelationshipViolationException e) {
+                    Log.e(MobileBeanEntityDAO.class.getSimpleName(), String.format("RelationshipViolationException at saveAll(). Record id = %s, Violated entities = %s, Message = %s.", record.getId(), Arrays.toString(e.getSourceEntities()), e.getMessage()));
+                }
+
+                if (saved) {
+                    savedRecords.commit();
+                    hasSavedRecords = true;
+                } else {
+                    //O Android trata os comandos iniciados por "ROLLBACK" como o fim da transação corrente, então o comentário faz com que
+                    //o comando seja repassado diretamente ao SQLite.
+                    OpenMobsterUtils.executeSQL("/* savepoint */ ROLLBACK TO " + SAVE_ALL_SAVEPOINT);
+                    savedRecords.rollback();
+                    failedRecords.add(record);
+                }
+                OpenMobsterUtils.executeSQL("RELEASE " + SAVE_ALL_SAVEPOINT);
+            }
+
+            MobileBean.setTransactionSuccessful();
+        } finally {
+            entityManager.endWriteTransaction();
+        }
+
+        if (sync && hasSavedRecords) {
+            entityManager.scheduleSync();
         }
+        return failedRecords;
     }
 
     @Override
@@ -137,7 +248,7 @@ public class MobileBeanEntityDAO implements IEntityDAO {
             throw new PendingFeatureException("delete with sync == false");
         }
 
-        MobileBean.beginTransaction();
+        entityManager.beginWriteTransaction();
         try {
             internalDelete(beanRecord);
 
@@ -147,10 +258,65 @@ public class MobileBeanEntityDAO implements IEntityDAO {
             Log.e(MobileBeanEntityDAO.class.getSimpleName(), String.format("CommitException at delete(). Record id = %s, Message = %s.", record.getId(), e.getMessage()));
             return false;
         } finally {
-            MobileBean.endTransaction();
+            entityManager.endWriteTransaction();
         }
 	}
 
+    @Override
+    public boolean deleteAll(Collection<? extends IEntityRecord> records, boolean sync) throws RelationshipViolationException {
+        checkIsReady();
+        checkNotInternal();
+        List<MobileBeanEntityRecord> beanRecords = new ArrayList<>(records.size());
+        for (IEntityRecord record : records) {
+            checkNotDeleted(record);
+            MobileBeanEntityRecord beanRecord = (MobileBeanEntityRecord) record;
+            checkRecordMetadata(beanRecord);
+            beanRecords.add(beanRecord);
+        }
+        if (!sync) {
+            throw new PendingFeatureException("deleteAll with sync == false");
+        }
+
+        entityManager.beginWriteTransaction();
+        try {
+            MobileBeanEntityRecordsDeletion deletion = new MobileBeanEntityRecordsDeletion(entityManager);
+            deletion.plan(beanRecords);
+            deletion.checkReferences();
+            deletion.execute();
+
+            MobileBean.setTransactionSuccessful();
+            return true;
+        } catch (CommitException e) {
+            Log.e(MobileBeanEntityDAO.class.getSimpleName(), String.format("CommitException at deleteAll(). Records count = %d, Message = %s.", beanRecords.size(), e.getMessage()));
+            return false;
+        } finally {
+            entityManager.endWriteTransaction();
+        }
+    }
+
+    @Override
+    public boolean deleteWhere(ISelectQuery query, boolean sync) throws RelationshipViolationException {
+        checkIsReady();
+        checkNotInternal();
+        if (query.getFields().length > 0) {
+            throw new IllegalArgumentException("The query must select the whole records, not fields.");
+        }
+
+        //Seleciona e exclui os registros na mesma transação para que nenhum registro que atenda à query fique de fora.
+        entityManager.beginWriteTransaction();
+        try {
+            List<IEntityRecord> records = executeListSelect(query);
+            if (!deleteAll(records, sync)) {
+                return false;
+            }
+
+            MobileBean.setTransactionSuccessful();
+            return true;
+        } finally {
+            entityManager.endWriteTransaction();
+        }
+    }
+
 	@Override
 	public boolean refresh(IEntityRecord record) {
 		checkIsReady();
@@ -163,8 +329,21 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 			return true;
 		}
 		
+		//Se o registro compartilhava o MobileBean do cache de registros, o MobileBean próprio já é lido atualizado da fonte de dados.
+		if (beanRecord.isSharedBean()) {
+			MobileBean ownBean = MobileBean.readById(metadata.getChannel(), beanRecord.getBean().getId());
+			//Se o registro não existe mais, o MobileBean compartilhado não pode ser atualizado.
+			if (ownBean == null) {
+				return false;
+			}
+			beanRecord.setOwnBean(ownBean);
+		} else {
+			beanRecord.getBean().refresh();
+		}
 		MobileBean bean = beanRecord.getBean();
-		bean.refresh();
+		beanRecord.clearDecodedValues();
+		beanRecord.clearIncludedRelationships();
+		beanRecord.clearPendingImages();
 		return !bean.isDeleted();
 	}
 
@@ -188,7 +367,8 @@ public class MobileBeanEntityDAO implements IEntityDAO {
         if (record.isNew()) {
             copy = create();
         } else {
-            copy = get(record.getId());
+            //Lê diretamente da fonte de dados pois a cópia não pode ser uma instância compartilhada pelo cache de registros.
+            copy = readRecord(record.getId());
         }
         //As tags fazem parte de um campo especial, por isto n é tratado junto com os demais.
         copy.setTags(beanRecord.getTags());
@@ -201,7 +381,13 @@ public class MobileBeanEntityDAO implements IEntityDAO {
         Set<String> dirtyFields = beanRecord.getDirtyFields();
         if (dirtyFields != null) {
             for (String dirtyField : dirtyFields) {
-                copy.setBeanValue(dirtyField, beanRecord.getBeanValue(dirtyField));
+                //As imagens que ainda não foram codificadas são copiadas como estão, deixando a codificação para o salvamento da cópia.
+                Bitmap pendingImage = beanRecord.getPendingImage(dirtyField);
+                if (pendingImage != null) {
+                    copy.setImageValue(dirtyField, pendingImage);
+                } else {
+                    copy.setBeanValue(dirtyField, beanRecord.getBeanValue(dirtyField));
+                }
             }
         }
 
@@ -243,12 +429,27 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 	public MobileBeanEntityRecord get(Serializable id) {
 		checkIsReady();
 		checkNotInternal();
-		
-		MobileBean bean = MobileBean.readById(metadata.getChannel(), id.toString());
-		if (bean == null) {
-			return null;
+
+		//Se houver um cache de registros, tenta reaproveitar o registro antes de lê-lo da fonte de dados.
+		IEntityRecordCache recordCache = entityManager.getRecordCache();
+		if (recordCache == null) {
+			return readRecord(id);
+		}
+
+		String recordId = id.toString();
+		MobileBeanEntityRecord record = recordCache.getRecord(metadata.getChannel(), recordId);
+		if (record == null) {
+			//As marcas são obtidas antes da leitura para que o registro não seja cacheado se for invalidado durante ela.
+			long stamp = entityManager.getWriteTransactionsStamp();
+			long generation = recordCache.getGeneration(metadata.getChannel(), recordId);
+			record = readRecord(recordId);
+			if (record == null) {
+				return null;
+			}
+			cacheRecord(recordCache, record, stamp, generation);
 		}
-		return new MobileBeanEntityRecord(bean, metadata, entityManager);
+		//O registro mantido no cache nunca é repassado diretamente, para que as alterações de quem o obteve não afetem os demais.
+		return record.newSharedRecord();
 	}
 
 	@Override
@@ -259,11 +460,84 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 		return adaptBeans(MobileBean.readAll(metadata.getChannel()));
 	}
 
+    /**
+     * Obtém os registros referentes aos identificadores de forma agrupada. Assim como no {@link #getBatch(String...)}, os registros
+     * que não estão no cache são montados diretamente das linhas da tabela do canal, lidas em uma única query por grupo de
+     * identificadores (as queries são divididas em partes para respeitar o limite de parâmetros do SQLite).<br>
+     * Os registros não encontrados simplesmente não estarão presentes no mapa retornado.
+     *
+     * @param ids identificadores dos registros.
+     * @return um mapa com os registros encontrados, indexados pelo identificador.
+     */
+    public Map<String, MobileBeanEntityRecord> getAll(Collection<? extends Serializable> ids) {
+        checkIsReady();
+        checkNotInternal();
+
+        //Remove os identificadores repetidos mantendo a ordem original.
+        Set<String> distinctIds = new LinkedHashSet<>(ids.size());
+        for (Serializable id : ids) {
+            if (id != null) {
+                distinctIds.add(id.toString());
+            }
+        }
+
+        //Lê as linhas dos registros diretamente, sem passar pelo "readById" do OpenMobster para cada registro.
+        Map<String, MobileBeanEntityRecord> result = new HashMap<>(distinctIds.size());
+        MobileBeanEntityRecord[] records = readRecords(distinctIds.toArray(new String[distinctIds.size()]), null);
+        for (MobileBeanEntityRecord record : records) {
+            if (record != null) {
+                result.put(record.getBeanId(), record);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Obtém os registros referentes aos identificadores em lote. Os registros que não estão no cache são lidos diretamente
+     * das linhas da tabela do canal, em uma única query por grupo de identificadores, ao invés de uma query por registro
+     * como no {@link #get(Serializable)}.
+     *
+     * @param ids identificadores dos registros.
+     * @return os registros na mesma ordem dos identificadores, com <code>null</code> nas posições dos registros não encontrados.
+     */
+    public MobileBeanEntityRecord[] getBatch(String... ids) {
+        checkIsReady();
+        checkNotInternal();
+
+        return readRecords(ids, null);
+    }
+
+    /**
+     * Obtém antecipadamente os registros relacionados aos registros de acordo com os caminhos de relacionamentos,
+     * deixando-os disponíveis nos métodos de obtenção de relacionamentos dos registros.
+     *
+     * @param records registros desta entidade. Pode conter posições nulas.
+     * @param relationshipsPaths caminhos de relacionamentos que partem desta entidade.
+     */
+    public void includeRelationships(MobileBeanEntityRecord[] records, String[][] relationshipsPaths) {
+        checkIsReady();
+        checkNotInternal();
+
+        new MobileBeanEntityRecordsInclusion(entityManager).include(records, relationshipsPaths);
+    }
+
     @Override
     public boolean isEmpty() {
         return MobileBean.isEmpty(metadata.getChannel());
     }
 
+    @Override
+    public void enableSearch(String[]... attributesPaths) {
+        checkNotInternal();
+
+        entityManager.enableSearch(metadata, attributesPaths);
+    }
+
+    @Override
+    public boolean isSearchEnabled() {
+        return metadata.getSearchIndex() != null;
+    }
+
     @Override
 	public Parcelable toSavedState(IEntityRecord record) {
 		MobileBeanEntityRecord beanRecord = (MobileBeanEntityRecord) record;
@@ -310,31 +584,61 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 	}
 
 	@Override
-	@SuppressWarnings("unchecked")
 	public <T> List<T> executeListSelect(ISelectQuery query) {
-		//Simplesmente itera pelo cursor e obtém os valores de acordo com a seleção.
-		IEntityRecordCursor cursor = executeCursorSelect(query);
+		return executeListSelect(query, null);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> List<T> executeListSelect(ISelectQuery query, QueryCancellationSignal cancellationSignal) {
+		//Simplesmente itera pelo cursor e obtém os valores de acordo com a seleção, verificando o cancelamento a cada linha.
+		IEntityRecordCursor cursor = executeCursorSelect(query, cancellationSignal);
 		try {
 			List<T> result = new ArrayList<>();
 			ISelectField[] fields = query.getFields();
 			
 			if (fields.length == 0) {
 				//Se não possui campos, se trata de uma seleção do registro inteiro.
-				while (cursor.moveToNext()) {
-					IEntityRecord entityRecord = cursor.getEntityRecord();
-					if (entityRecord != null) {
-						result.add((T) entityRecord);
+				if (cursor instanceof MobileBeanEntityRecordCursor) {
+					//Obtém todos os identificadores primeiro para ler os registros em lote, mantendo a ordem da query.
+					MobileBeanEntityRecordCursor recordCursor = (MobileBeanEntityRecordCursor) cursor;
+					String[] ids = new String[recordCursor.getCount()];
+					while (recordCursor.moveToNext()) {
+						ids[recordCursor.getPosition()] = recordCursor.getEntityRecordId();
+					}
+
+					MobileBeanEntityRecord[] records = readRecords(ids, cancellationSignal);
+					String[][] includes = ((MobileBeanSelectQuery) query).getIncludes();
+					if (includes != null) {
+						checkCanceled(cancellationSignal);
+						includeRelationships(records, includes);
+					}
+
+					for (MobileBeanEntityRecord entityRecord : records) {
+						if (entityRecord != null) {
+							result.add((T) entityRecord);
+						}
+					}
+				} else {
+					while (cursor.moveToNext()) {
+						checkCanceled(cancellationSignal);
+						IEntityRecord entityRecord = cursor.getEntityRecord();
+						if (entityRecord != null) {
+							result.add((T) entityRecord);
+						}
 					}
 				}
 			} else if (fields.length == 1) {
 				//Se possui apenas um campo, retorna uma lista diretamente do tipo campo.
 				while (cursor.moveToNext()) {
+					checkCanceled(cancellationSignal);
 					result.add((T) cursor.getValue(0));
 				}
 			} else {
 				//Coloca os valores de cada linha em tuplas (array de objetos)
 				int tupleLength = fields.length;
 				while (cursor.moveToNext()) {
+					checkCanceled(cancellationSignal);
 					Object[] tuple = new Object[tupleLength];
 					for (int i = 0; i < tupleLength; i++) {
 						tuple[i] = cursor.getValue(i);
@@ -350,8 +654,13 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 	}
 	
 	@Override
-	@SuppressWarnings("resource")
 	public IEntityRecordCursor executeCursorSelect(ISelectQuery query) {
+		return executeCursorSelect(query, null);
+	}
+
+	@Override
+	@SuppressWarnings("resource")
+	public IEntityRecordCursor executeCursorSelect(ISelectQuery query, QueryCancellationSignal cancellationSignal) {
 		checkIsReady();
 		
 		MobileBeanSelectQuery mbQuery = (MobileBeanSelectQuery) query;
@@ -359,7 +668,17 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 			throw new IllegalArgumentException(String.format("The query source entity is not the same of this DAO. Query source entity = %s, DAO entity = %s.", mbQuery.getEntityName(), metadata.getName()));
 		}
 
+		checkCanceled(cancellationSignal);
 		Cursor cursor = MobileBean.rawQuery(mbQuery.getQuery(), mbQuery.getParameters());
+		if (cancellationSignal != null) {
+			//O OpenMobster não permite passar um sinal de cancelamento para o SQLite, então força a execução da query (que só ocorre
+			//quando o cursor é acessado pela primeira vez) para verificar o cancelamento logo após ela.
+			cursor.getCount();
+			if (cancellationSignal.isCanceled()) {
+				cursor.close();
+				cancellationSignal.throwIfCanceled();
+			}
+		}
 		ISelectField[] selectFields = query.getFields();
 		//Se não possui campos, se trata de uma seleção do registro inteiro.
 		if (selectFields.length == 0) {
@@ -368,10 +687,10 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 				InternalMobileBeanSelectQuery imbQuery = (InternalMobileBeanSelectQuery) mbQuery;
 				return new InternalMobileBeanEntityRecordCursor(cursor, entityManager, metadata, imbQuery.getOwnerId(), imbQuery.getOwnerEntityName(), imbQuery.getRelFullname());
 			}
-			return new MobileBeanEntityRecordCursor(cursor, this);
+			return new MobileBeanEntityRecordCursor(cursor, this, mbQuery.getIncludes(), cancellationSignal);
 		}
 		
-		return new MobileBeanSelectionCursor(cursor, selectFields, metadata, entityManager);
+		return new MobileBeanSelectionCursor(cursor, selectFields, metadata, entityManager, entityManager.getBlobStore());
 	}
 	
 
@@ -408,6 +727,141 @@ public class MobileBeanEntityDAO implements IEntityDAO {
         }
     }
 
+    private static void checkCanceled(QueryCancellationSignal cancellationSignal) {
+        if (cancellationSignal != null) {
+            cancellationSignal.throwIfCanceled();
+        }
+    }
+
+    private static Set<MobileBeanEntityRecord> newSavedRecordsSet() {
+        //Os registros são comparados pela instância pois registros com o mesmo id podem possuir alterações diferentes.
+        return Collections.newSetFromMap(new IdentityHashMap<MobileBeanEntityRecord, Boolean>());
+    }
+
+    private MobileBeanEntityRecord readRecord(Serializable id) {
+        MobileBean bean = MobileBean.readById(metadata.getChannel(), id.toString());
+        if (bean == null) {
+            return null;
+        }
+        return new MobileBeanEntityRecord(bean, metadata, entityManager);
+    }
+
+    private MobileBeanEntityRecord[] readRecords(String[] ids, QueryCancellationSignal cancellationSignal) {
+        MobileBeanEntityRecord[] records = new MobileBeanEntityRecord[ids.length];
+        if (ids.length == 0) {
+            return records;
+        }
+
+        //Se houver um cache de registros, tenta reaproveitar os registros antes de lê-los da fonte de dados.
+        String channel = metadata.getChannel();
+        IEntityRecordCache recordCache = entityManager.getRecordCache();
+        Map<String, MobileBeanEntityRecord> readRecords = new HashMap<>();
+        Set<String> missingIds = new LinkedHashSet<>();
+        for (int i = 0; i < ids.length; i++) {
+            String id = ids[i];
+            if (recordCache != null) {
+                //O registro mantido no cache nunca é repassado diretamente, para que as alterações de quem o obteve não afetem os demais.
+                MobileBeanEntityRecord cachedRecord = recordCache.getRecord(channel, id);
+                if (cachedRecord != null) {
+                    records[i] = cachedRecord.newSharedRecord();
+                }
+            }
+            if (records[i] == null) {
+                missingIds.add(id);
+            }
+        }
+        if (missingIds.isEmpty()) {
+            return records;
+        }
+
+        //As marcas são obtidas antes da leitura para que os registros não sejam cacheados se forem invalidados durante ela.
+        long stamp = entityManager.getWriteTransactionsStamp();
+        Map<String, Long> generations = null;
+        if (recordCache != null) {
+            generations = new HashMap<>(missingIds.size());
+            for (String id : missingIds) {
+                generations.put(id, recordCache.getGeneration(channel, id));
+            }
+        }
+
+        String[] allMissingIds = missingIds.toArray(new String[missingIds.size()]);
+        for (int start = 0; start < allMissingIds.length; start += MAX_IDS_PER_QUERY) {
+            String[] chunk = Arrays.copyOfRange(allMissingIds, start, Math.min(start + MAX_IDS_PER_QUERY, allMissingIds.length));
+            readRecords(chunk, readRecords, cancellationSignal);
+        }
+
+        for (int i = 0; i < ids.length; i++) {
+            if (records[i] == null) {
+                MobileBeanEntityRecord record = readRecords.get(ids[i]);
+                records[i] = record == null || recordCache == null ? record : record.newSharedRecord();
+            }
+        }
+        if (recordCache != null) {
+            for (Map.Entry<String, MobileBeanEntityRecord> entry : readRecords.entrySet()) {
+                Long generation = generations.get(entry.getKey());
+                if (generation != null) {
+                    cacheRecord(recordCache, entry.getValue(), stamp, generation);
+                }
+            }
+        }
+        return records;
+    }
+
+    private void readRecords(String[] ids, Map<String, MobileBeanEntityRecord> readRecords, QueryCancellationSignal cancellationSignal) {
+        //Lê todas as linhas dos registros de uma vez, ordenadas pelo id para que cada registro seja montado assim que suas linhas terminam.
+        //Ex: SELECT recordid, name, value FROM "X" WHERE recordid IN (?, ?) ORDER BY recordid
+        String[] parameters = new String[ids.length];
+        Arrays.fill(parameters, "?");
+        String sql = String.format("SELECT recordid, name, value FROM %s WHERE recordid IN (%s) ORDER BY recordid",
+                                   quote(metadata.getChannel()), TextUtils.join(", ", parameters));
+
+        checkCanceled(cancellationSignal);
+        Cursor cursor = MobileBean.rawQuery(sql, ids);
+        try {
+            String currentId = null;
+            Map<String, String> state = null;
+            while (cursor.moveToNext()) {
+                String id = cursor.getString(0);
+                if (!id.equals(currentId)) {
+                    checkCanceled(cancellationSignal);
+                    addRecord(currentId, state, readRecords);
+                    currentId = id;
+                    state = new HashMap<>();
+                }
+
+                //Mantém todas as linhas (inclusive a de controle do OpenMobster, "om:json"), assim como na leitura do próprio OpenMobster.
+                state.put(cursor.getString(1), cursor.getString(2));
+            }
+            addRecord(currentId, state, readRecords);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void addRecord(String id, Map<String, String> state, Map<String, MobileBeanEntityRecord> readRecords) {
+        if (id == null) {
+            return;
+        }
+
+        //Se o MobileBean não pode ser montado a partir das linhas lidas, recorre à leitura do próprio OpenMobster.
+        MobileBean bean = OpenMobsterUtils.newMobileBean(state);
+        if (bean == null || !id.equals(bean.getId())) {
+            bean = MobileBean.readById(metadata.getChannel(), id);
+            if (bean == null) {
+                return;
+            }
+        }
+        readRecords.put(id, new MobileBeanEntityRecord(bean, metadata, entityManager));
+    }
+
+    private void cacheRecord(IEntityRecordCache recordCache, MobileBeanEntityRecord record, long stamp, long generation) {
+        //Registros lidos durante uma transação de escrita (desta ou de outra thread) podem conter dados que ainda serão desfeitos.
+        if (stamp == -1 || stamp != entityManager.getWriteTransactionsStamp()) {
+            return;
+        }
+        recordCache.addRecord(record, generation);
+    }
+
     private MobileBeanEntityRecord create(MobileBean bean) {
         MobileBeanEntityRecord record;
         if (metadata.isInternal()) {
@@ -419,37 +873,30 @@ public class MobileBeanEntityDAO implements IEntityDAO {
         return record;
     }
 	
-	private boolean isReady(Set<String> currentEntities) {
-		if (isReady) {
-			return true;
+	private synchronized String[] getReadinessChannels() {
+		if (readinessChannels == null) {
+			Set<String> channels = new LinkedHashSet<>();
+			addReadinessChannels(metadata, new HashSet<String>(), channels);
+			readinessChannels = channels.toArray(new String[channels.size()]);
 		}
-		
-		//Entidades internas não possuem canal, então avalia apenas os canais relacioandos.
-		if (!metadata.isInternal() && !MobileBean.isBooted(metadata.getChannel())) {
-			return false;
+		return readinessChannels;
+	}
+
+	private static void addReadinessChannels(EntityMetadata entity, Set<String> visitedEntities, Set<String> channels) {
+		//Evita a recursividade infinita nos relacionamentos cíclicos.
+		if (!visitedEntities.add(entity.getName())) {
+			return;
 		}
-		
-		//Se possui relacionamentos com outras entidades, elas devem estar prontas também.
-		for (IEntityRelationship relationship : metadata.getRelationships()) {
-			String targetEntityName = relationship.getTarget().getName();
-			MobileBeanEntityDAO relationshipEntityDAO = entityManager.getEntityDAO(targetEntityName);
-
-			//Verifica se a entidade alvo já não está sendo verificada (por uma chamada anterior) nesta execução.
-			//Isto é necessário para evitar recursivadade infinita.
-			if (currentEntities == null) {
-				currentEntities = new HashSet<>();
-			} else if (currentEntities.contains(targetEntityName)) {
-				continue;
-			}
-			//Adiciona a entidade na lista de entidades corrents para evitar que ela seja verificada novamente nesta execução.
-			currentEntities.add(metadata.getName());
 
-			if (!relationshipEntityDAO.isReady(currentEntities)) {
-				return false;
-			}
+		//Entidades internas não possuem canal, então avalia apenas os canais relacioandos.
+		if (!entity.isInternal()) {
+			channels.add(entity.getChannel());
 		}
 
-		return isReady = true;
+		//Se possui relacionamentos com outras entidades, elas devem estar prontas também.
+		for (EntityRelationship relationship : entity.getRelationships()) {
+			addReadinessChannels(relationship.getTarget(), visitedEntities, channels);
+		}
 	}
 	
 	private List<IEntityRecord> adaptBeans(MobileBean[] beans) {
@@ -466,7 +913,12 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 	}
 
 
-    private void internalSave(MobileBeanEntityRecord beanRecord, boolean sync, boolean scheduleSyncTask) throws CommitException, RelationshipViolationException {
+    private void internalSave(MobileBeanEntityRecord beanRecord, boolean sync, boolean scheduleSyncTask, Set<MobileBeanEntityRecord> savedRecords) throws CommitException, RelationshipViolationException {
+        //Um mesmo registro pode ser alcançado várias vezes através dos relacionamentos. Se ele já foi salvo e não possui novas alterações, não precisa ser salvo novamente.
+        if (!savedRecords.add(beanRecord) && !beanRecord.isNew() && !beanRecord.isDirty()) {
+            return;
+        }
+
         //Salva os registros relacionados pela fonte antes pois eles devem possuir um id para serem salvos na fonte.
         EntityRelationship[] relationships = metadata.getRelationships();
         for (EntityRelationship relationship : relationships) {
@@ -474,9 +926,12 @@ public class MobileBeanEntityDAO implements IEntityDAO {
                 continue;
             }
 
-            saveSourceRelatedRecords(beanRecord, relationship, sync, scheduleSyncTask);
+            saveSourceRelatedRecords(beanRecord, relationship, sync, scheduleSyncTask, savedRecords);
         }
 
+        //As imagens definidas no registro só são codificadas agora, fora da Thread de UI.
+        beanRecord.encodePendingImages();
+
         //Só precisa salvar se for novo, se possuir campos sujos (as alterações do buffer de relacionamentos são consumidas
         //no "saveSourceRelatedRecords" e "saveTargetRelatedRecords") ou se for um registro local sendo enviado.
         if (beanRecord.isNew() || beanRecord.hasDirtyFields() ||  (beanRecord.isLocal() && sync)) {
@@ -502,21 +957,21 @@ public class MobileBeanEntityDAO implements IEntityDAO {
                 continue;
             }
 
-            saveTargetRelatedRecords(beanRecord, relationship, sync, scheduleSyncTask);
+            saveTargetRelatedRecords(beanRecord, relationship, sync, scheduleSyncTask, savedRecords);
         }
     }
 	
-	private void saveSourceRelatedRecords(MobileBeanEntityRecord sourceRecord, EntityRelationship relationship, boolean sync, boolean scheduleSyncTask) throws CommitException, RelationshipViolationException {
+	private void saveSourceRelatedRecords(MobileBeanEntityRecord sourceRecord, EntityRelationship relationship, boolean sync, boolean scheduleSyncTask, Set<MobileBeanEntityRecord> savedRecords) throws CommitException, RelationshipViolationException {
 		EntityMetadata relationshipEntity = relationship.getTarget();
 		
 		if (relationshipEntity.isInternal()) {
-			serializeSourceRelatedInternalRecords(sourceRecord, relationship, sync, scheduleSyncTask);
+			serializeSourceRelatedInternalRecords(sourceRecord, relationship, sync, scheduleSyncTask, savedRecords);
 		} else {
-			saveSourceRelatedNormalRecords(sourceRecord, relationship, sync, scheduleSyncTask);
+			saveSourceRelatedNormalRecords(sourceRecord, relationship, sync, scheduleSyncTask, savedRecords);
 		}
 	}
 
-	private void saveSourceRelatedNormalRecords(MobileBeanEntityRecord sourceRecord, EntityRelationship relationship, boolean sync, boolean scheduleSyncTask) throws CommitException, RelationshipViolationException {
+	private void saveSourceRelatedNormalRecords(MobileBeanEntityRecord sourceRecord, EntityRelationship relationship, boolean sync, boolean scheduleSyncTask, Set<MobileBeanEntityRecord> savedRecords) throws CommitException, RelationshipViolationException {
 		String compositionName = relationship.getName();
 		boolean isComposition = MetadataUtils.isComposition(relationship);
 		
@@ -524,7 +979,7 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 		if (bufferEntry == null) {
 			//Se não está no buffer, só é necessário salvar as alterações das composições.
 			if (isComposition) {
-				saveCompositionRecords(sourceRecord, relationship, sync, scheduleSyncTask);
+				saveCompositionRecords(sourceRecord, relationship, sync, scheduleSyncTask, savedRecords);
 			}
 			return;
 		}
@@ -545,7 +1000,7 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 					continue;
 				}
 				
-				dao.internalSave(compositionRecord, sync, scheduleSyncTask);
+				dao.internalSave(compositionRecord, sync, scheduleSyncTask, savedRecords);
                 oldRecordsIds.remove(compositionRecord.getBeanId());
 			}
 			
@@ -566,7 +1021,7 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 	}
 	
 	@SuppressWarnings("SuspiciousToArrayCall")
-    private void serializeSourceRelatedInternalRecords(MobileBeanEntityRecord sourceRecord, EntityRelationship relationship, boolean sync, boolean scheduleSyncTask) throws CommitException, RelationshipViolationException {
+    private void serializeSourceRelatedInternalRecords(MobileBeanEntityRecord sourceRecord, EntityRelationship relationship, boolean sync, boolean scheduleSyncTask, Set<MobileBeanEntityRecord> savedRecords) throws CommitException, RelationshipViolationException {
 		//Se não está no buffer, não há objetos internos para serializar.
 		RelationshipBufferEntry bufferEntry = sourceRecord.consumeRelationshipsBufferEntry(relationship.getName());
 		if (bufferEntry == null) {
@@ -576,7 +1031,7 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 		//Salva todos os relacionamentos não internos do registro interno antes de serializar.
 		List<MobileBeanEntityRecord> internalRecords = bufferEntry.getRelationships();
 		for (MobileBeanEntityRecord internalRecord : internalRecords) {
-			saveSourceRelatedInternalRecords(internalRecord, sync, scheduleSyncTask);
+			saveSourceRelatedInternalRecords(internalRecord, sync, scheduleSyncTask, savedRecords);
 		}
 		
 		//Serializa os dados dos registros internos dentro do próprio MobileBean fonte.
@@ -588,30 +1043,33 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 		}
 	}
 	
-	private void saveSourceRelatedInternalRecords(MobileBeanEntityRecord sourceRecord, boolean sync, boolean scheduleSyncTask) throws CommitException, RelationshipViolationException {
+	private void saveSourceRelatedInternalRecords(MobileBeanEntityRecord sourceRecord, boolean sync, boolean scheduleSyncTask, Set<MobileBeanEntityRecord> savedRecords) throws CommitException, RelationshipViolationException {
 		if (sourceRecord == null) {
 			return;
 		}
+
+		//As imagens do registro interno precisam estar codificadas no MobileBean antes da serialização dele no registro dono.
+		sourceRecord.encodePendingImages();
 		
 		EntityMetadata entityMetadata = sourceRecord.getEntityMetadata();
 		for (EntityRelationship rel : entityMetadata.getRelationshipsMap().values()) {
 			if (rel.getTarget().isInternal()) {
 				//Associação para registro interno representa apenas uma referência para seu dono, então não precisam ser salvo.
 				if (MetadataUtils.isComposition(rel)) {
-					saveSourceRelatedInternalRecords(sourceRecord, rel, sync, scheduleSyncTask);
+					saveSourceRelatedInternalRecords(sourceRecord, rel, sync, scheduleSyncTask, savedRecords);
 				}
 				continue;
 			}
 			
-			saveSourceRelatedNormalRecords(sourceRecord, rel, sync, scheduleSyncTask);
+			saveSourceRelatedNormalRecords(sourceRecord, rel, sync, scheduleSyncTask, savedRecords);
 		}
 	}
 
-	private void saveSourceRelatedInternalRecords(MobileBeanEntityRecord sourceRecord, EntityRelationship relationship, boolean sync, boolean scheduleSyncTask) throws CommitException, RelationshipViolationException {
+	private void saveSourceRelatedInternalRecords(MobileBeanEntityRecord sourceRecord, EntityRelationship relationship, boolean sync, boolean scheduleSyncTask, Set<MobileBeanEntityRecord> savedRecords) throws CommitException, RelationshipViolationException {
 		String relName = relationship.getName();
 		if (MetadataUtils.isSingleRelationship(relationship)) {
 			MobileBeanEntityRecord value = sourceRecord.getRelationshipValue(relName);
-			saveSourceRelatedInternalRecords(value, sync, scheduleSyncTask);
+			saveSourceRelatedInternalRecords(value, sync, scheduleSyncTask, savedRecords);
 		} else {
 			MobileBeanEntityRecord[] values = sourceRecord.getRelationshipArrayValue(relName);
 			if (values == null) {
@@ -619,12 +1077,12 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 			}
 			
 			for (MobileBeanEntityRecord value : values) {
-				saveSourceRelatedInternalRecords(value, sync, scheduleSyncTask);
+				saveSourceRelatedInternalRecords(value, sync, scheduleSyncTask, savedRecords);
 			}
 		}
 	}
 
-	private void saveTargetRelatedRecords(MobileBeanEntityRecord sourceRecord, EntityRelationship relationship, boolean sync, boolean scheduleSyncTask) throws CommitException, RelationshipViolationException {
+	private void saveTargetRelatedRecords(MobileBeanEntityRecord sourceRecord, EntityRelationship relationship, boolean sync, boolean scheduleSyncTask, Set<MobileBeanEntityRecord> savedRecords) throws CommitException, RelationshipViolationException {
 		EntityMetadata relationshipEntity = relationship.getTarget();
 		//Relacionamentos para entidades internas não podem ser referenciadas pelo alvo. 
 		if (BuildConfig.DEBUG && relationshipEntity.isInternal()) {
@@ -637,7 +1095,7 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 		if (bufferEntry == null) {
 			//Se não está no buffer, só é necessário salvar os registros se forem de uma composição.
 			if (isComposition) {
-				saveCompositionRecords(sourceRecord, relationship, sync, scheduleSyncTask);
+				saveCompositionRecords(sourceRecord, relationship, sync, scheduleSyncTask, savedRecords);
 			}
 			return;
 		}
@@ -681,7 +1139,7 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 			} else {
 				//Remove a referência do registro alvo para o fonte.
 				oldRecord.setRelationshipValue(mappedByRelationship, null, false);
-				dao.internalSave(oldRecord, sync, scheduleSyncTask);
+				dao.internalSave(oldRecord, sync, scheduleSyncTask, savedRecords);
 			}
 		}
 		
@@ -706,22 +1164,22 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 				//Seta a referência do registro fonte no registro alvo e salva-o.
 				targetRecord.setRelationshipValue(mappedByRelationship, sourceRecord, false);
 			}
-			dao.internalSave(targetRecord, sync, scheduleSyncTask);
+			dao.internalSave(targetRecord, sync, scheduleSyncTask, savedRecords);
 		}
 	}
 	
-	private void saveCompositionRecords(MobileBeanEntityRecord record, IEntityRelationship composition, boolean sync, boolean scheduleSyncTask) throws CommitException, RelationshipViolationException {
+	private void saveCompositionRecords(MobileBeanEntityRecord record, IEntityRelationship composition, boolean sync, boolean scheduleSyncTask, Set<MobileBeanEntityRecord> savedRecords) throws CommitException, RelationshipViolationException {
 		String compositionName = composition.getName();
 		if (MetadataUtils.isSingleRelationship(composition)) {
             MobileBeanEntityRecord compositionRecord = record.getRelationshipValue(compositionName);
-			saveCompositionRecords(composition, sync, scheduleSyncTask, compositionRecord);
+			saveCompositionRecords(composition, sync, scheduleSyncTask, savedRecords, compositionRecord);
 		} else {
             MobileBeanEntityRecord[] compositionRecords = record.getRelationshipArrayValue(compositionName);
-			saveCompositionRecords(composition, sync, scheduleSyncTask, compositionRecords);
+			saveCompositionRecords(composition, sync, scheduleSyncTask, savedRecords, compositionRecords);
 		}
 	}
 	
-	private void saveCompositionRecords(IEntityRelationship composition, boolean sync, boolean scheduleSyncTask, MobileBeanEntityRecord... records) throws CommitException, RelationshipViolationException {
+	private void saveCompositionRecords(IEntityRelationship composition, boolean sync, boolean scheduleSyncTask, Set<MobileBeanEntityRecord> savedRecords, MobileBeanEntityRecord... records) throws CommitException, RelationshipViolationException {
 		if (records == null) {
 			return;
 		}
@@ -732,7 +1190,7 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 			if (record == null) {
 				continue;
 			}
-			dao.internalSave(record, sync, scheduleSyncTask);
+			dao.internalSave(record, sync, scheduleSyncTask, savedRecords);
 		}
 	}
 
@@ -877,7 +1335,10 @@ public class MobileBeanEntityDAO implements IEntityDAO {
         MobileBeanEntityRecord copy = create();
         for (EntityAttribute attr : metadata.getAttributesMap().values()) {
             String attrName = attr.getName();
-            if (MetadataUtils.isSingleAttribute(attr)) {
+            Bitmap pendingImage = beanRecord.getPendingImage(attrName);
+            if (pendingImage != null) {
+                copy.setImageValue(attrName, pendingImage);
+            } else if (MetadataUtils.isSingleAttribute(attr)) {
                 copy.setBeanValue(attrName, beanRecord.getBeanValue(attrName));
             } else {
                 BeanList listValue = beanRecord.getBeanListValue(attrName);
@@ -933,6 +1394,51 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 	/*
 	 * Classes auxiliares
 	 */
+
+	/**
+	 * Conjunto de registros salvos que registra os adicionados na tentativa corrente do {@link #saveAll(Collection, boolean)}, permitindo
+	 * descartá-los caso a tentativa falhe. Os registros são comparados pela instância, assim como no {@link #newSavedRecordsSet()}.
+	 */
+	private static final class SavedRecordsJournal extends AbstractSet<MobileBeanEntityRecord> {
+
+		private final Set<MobileBeanEntityRecord> records = newSavedRecordsSet();
+		private final List<MobileBeanEntityRecord> attemptRecords = new ArrayList<>();
+
+		@Override
+		public boolean add(MobileBeanEntityRecord record) {
+			if (!records.add(record)) {
+				return false;
+			}
+			attemptRecords.add(record);
+			return true;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return records.contains(o);
+		}
+
+		@Override
+		public Iterator<MobileBeanEntityRecord> iterator() {
+			return records.iterator();
+		}
+
+		@Override
+		public int size() {
+			return records.size();
+		}
+
+		void commit() {
+			attemptRecords.clear();
+		}
+
+		void rollback() {
+			for (MobileBeanEntityRecord record : attemptRecords) {
+				records.remove(record);
+			}
+			attemptRecords.clear();
+		}
+	}
 	
 	/**
 	 * Define as responsabilidades que um estado salvo de registro deve atender.
@@ -1069,6 +1575,7 @@ public class MobileBeanEntityDAO implements IEntityDAO {
         private final boolean isNew;
         private final byte tags;
 		private final StringValueEntry[] fields;
+		private final ImageValueEntry[] images;
 		private final RecordArrayValueEntry[] relationships;
 		
 		//Exclusivo de registros internos.
@@ -1077,13 +1584,22 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 		public RecordBufferSavedState(MobileBeanEntityRecord record) {
 			//Salva todos os campos (atributos e relacionamentos) alterados.
 			StringValueEntry[] fields = null;
+			ImageValueEntry[] images = null;
 			Set<String> dirtyFields = record.getDirtyFields();
 			if (dirtyFields != null) {
-				fields = new StringValueEntry[dirtyFields.size()];
-				int i = 0;
-				for (String dirtyField : dirtyFields) { 
-					fields[i++] = new StringValueEntry(dirtyField, record.getBeanValue(dirtyField));
+				//As imagens ainda não codificadas são mantidas como Bitmap, evitando a codificação delas na thread de UI.
+				List<StringValueEntry> fieldsList = new ArrayList<>(dirtyFields.size());
+				List<ImageValueEntry> imagesList = new ArrayList<>();
+				for (String dirtyField : dirtyFields) {
+					Bitmap pendingImage = record.getPendingImage(dirtyField);
+					if (pendingImage != null) {
+						imagesList.add(new ImageValueEntry(dirtyField, pendingImage));
+					} else {
+						fieldsList.add(new StringValueEntry(dirtyField, record.getBeanValue(dirtyField)));
+					}
 				}
+				fields = fieldsList.toArray(new StringValueEntry[fieldsList.size()]);
+				images = imagesList.toArray(new ImageValueEntry[imagesList.size()]);
 			}
 			
 			//Salva as alterações (se houverem) de cada registro dos relacionamentos presentes no buffer.
@@ -1110,6 +1626,7 @@ public class MobileBeanEntityDAO implements IEntityDAO {
             this.isNew = record.isNew();
             this.tags = record.getTags();
 			this.fields = fields;
+			this.images = images;
 			this.relationships = relationships;
 			
 			InternalOwnerRecordInfo internalOwnerInfo = null;
@@ -1123,11 +1640,12 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 			this.internalOwnerInfo = internalOwnerInfo;
 		}
 		
-		public RecordBufferSavedState(String recordId, boolean isNew, byte tags, StringValueEntry[] fields, RecordArrayValueEntry[] relationshipsBuffer, InternalOwnerRecordInfo internalOwnerInfo) {
+		public RecordBufferSavedState(String recordId, boolean isNew, byte tags, StringValueEntry[] fields, ImageValueEntry[] images, RecordArrayValueEntry[] relationshipsBuffer, InternalOwnerRecordInfo internalOwnerInfo) {
 			this.recordId = recordId;
             this.isNew = isNew;
             this.tags = tags;
             this.fields = fields;
+			this.images = images;
 			this.relationships = relationshipsBuffer;
 			this.internalOwnerInfo = internalOwnerInfo;
 		}
@@ -1143,6 +1661,7 @@ public class MobileBeanEntityDAO implements IEntityDAO {
             AndroidBugsUtils.applyWorkaroundForBug5973_write(dest, isNew);
 			dest.writeByte(tags);
 			dest.writeTypedArray(fields, flags);
+			dest.writeTypedArray(images, flags);
 			dest.writeTypedArray(relationships, flags);
 			dest.writeParcelable(internalOwnerInfo, flags);
 		}
@@ -1155,6 +1674,7 @@ public class MobileBeanEntityDAO implements IEntityDAO {
                                                   AndroidBugsUtils.applyWorkaroundForBug5973_read(source),
                                                   source.readByte(),
 												  source.createTypedArray(StringValueEntry.CREATOR),
+												  source.createTypedArray(ImageValueEntry.CREATOR),
 												  source.createTypedArray(RecordArrayValueEntry.CREATOR),
 												  (InternalOwnerRecordInfo) AndroidBugsUtils.applyWorkaroundForParcelableDefaultClassloaderBug(source));
 			}
@@ -1176,7 +1696,8 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 				    record = dao.create(recordId);
                 }
             } else {
-				record = dao.get(recordId);
+				//Os valores alterados serão setados no registro, então ele não pode ser uma instância compartilhada pelo cache de registros.
+				record = dao.readRecord(recordId);
 				//Se o registro deixou de existir durante o tempo que a aplicação estava destruída, simplesmente ignora-o.
 				if (record == null) {
 					return null;
@@ -1205,6 +1726,15 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 					record.setBeanValue(field.getKey(), field.getValue());
 				}
 			}
+
+			if (images != null) {
+				for (ImageValueEntry image : images) {
+					Bitmap value = image.getValue();
+					if (value != null) {
+						record.setImageValue(image.getKey(), value);
+					}
+				}
+			}
 			
 			if (relationships != null) {
 				Map<String, RelationshipBufferEntry> relationshipsBuffer = new HashMap<>();
@@ -1284,10 +1814,151 @@ public class MobileBeanEntityDAO implements IEntityDAO {
 		};
 	}
 	
+	/**
+	 * Entrada de imagem ainda não codificada de um estado salvo de um registro.<br>
+	 * Os pixels da imagem são gravados em um arquivo temporário no parcelamento, sendo parcelado apenas o caminho dele, pois uma imagem
+	 * grande parcelada diretamente poderia ultrapassar o limite das transações do Binder. O arquivo é excluído quando a imagem é recuperada.
+	 */
+	private static final class ImageValueEntry implements Parcelable {
+		private static final String PENDING_IMAGES_DIRECTORY = "ymir_pending_images";
+		private static final String TEMP_FILE_PREFIX = "image";
+		//Quantidade de linhas de pixels gravadas/lidas por vez, para não precisar de um buffer do tamanho da imagem inteira.
+		private static final int ROWS_PER_BAND = 64;
+
+		private final String key;
+		private Bitmap value;
+		private String path;
+
+		public ImageValueEntry(String key, Bitmap value) {
+			this.key = key;
+			this.value = value;
+		}
+
+		private ImageValueEntry(String key, String path) {
+			this.key = key;
+			this.path = path;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		/**
+		 * Obtém a imagem, lendo-a do arquivo temporário se a entrada foi recuperada de um parcelamento.
+		 *
+		 * @return a imagem obtida ou <code>null</code> se ela não pode ser recuperada.
+		 */
+		public Bitmap getValue() {
+			if (value == null && path != null) {
+				File file = new File(path);
+				value = readImage(file);
+				//noinspection ResultOfMethodCallIgnored
+				file.delete();
+				path = null;
+			}
+			return value;
+		}
+
+		@Override
+		public int describeContents() {
+			return 0;
+		}
+
+		@Override
+		public void writeToParcel(Parcel dest, int flags) {
+			//O mesmo estado salvo pode ser parcelado várias vezes, então a imagem é gravada apenas uma vez.
+			if (path == null && value != null) {
+				path = writeImage(value);
+			}
+			dest.writeString(key);
+			dest.writeString(path);
+		}
+
+		public static final Creator<ImageValueEntry> CREATOR = new Creator<ImageValueEntry>() {
+			@Override
+			public ImageValueEntry createFromParcel(Parcel source) {
+				return new ImageValueEntry(source.readString(), source.readString());
+			}
+
+			@Override
+			public ImageValueEntry[] newArray(int size) {
+				return new ImageValueEntry[size];
+			}
+		};
+
+		private static String writeImage(Bitmap image) {
+			try {
+				File directory = new File(Registry.getActiveInstance().getContext().getCacheDir(), PENDING_IMAGES_DIRECTORY);
+				if (!directory.isDirectory() && !directory.mkdirs()) {
+					throw new IOException("Could not create the directory: " + directory);
+				}
+
+				File file = File.createTempFile(TEMP_FILE_PREFIX, null, directory);
+				int width = image.getWidth();
+				int height = image.getHeight();
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+				try {
+					out.writeInt(width);
+					out.writeInt(height);
+					out.writeBoolean(image.hasAlpha());
+
+					//Grava os pixels em faixas de linhas, no formato ARGB.
+					int[] pixels = new int[width * Math.min(ROWS_PER_BAND, height)];
+					ByteBuffer bytes = ByteBuffer.allocate(pixels.length * 4);
+					for (int y = 0; y < height; y += ROWS_PER_BAND) {
+						int rows = Math.min(ROWS_PER_BAND, height - y);
+						int count = width * rows;
+						image.getPixels(pixels, 0, width, 0, y, width, rows);
+						bytes.clear();
+						bytes.asIntBuffer().put(pixels, 0, count);
+						out.write(bytes.array(), 0, count * 4);
+					}
+				} finally {
+					out.close();
+				}
+				return file.getPath();
+			} catch (IOException e) {
+				Log.e(MobileBeanEntityDAO.class.getSimpleName(), "Error writing a pending image of the record saved state, it will be discarded.", e);
+				return null;
+			}
+		}
+
+		private static Bitmap readImage(File file) {
+			try {
+				DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+				try {
+					int width = in.readInt();
+					int height = in.readInt();
+					boolean hasAlpha = in.readBoolean();
+
+					Bitmap image = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+					int[] pixels = new int[width * Math.min(ROWS_PER_BAND, height)];
+					ByteBuffer bytes = ByteBuffer.allocate(pixels.length * 4);
+					for (int y = 0; y < height; y += ROWS_PER_BAND) {
+						int rows = Math.min(ROWS_PER_BAND, height - y);
+						int count = width * rows;
+						in.readFully(bytes.array(), 0, count * 4);
+						bytes.clear();
+						bytes.asIntBuffer().get(pixels, 0, count);
+						image.setPixels(pixels, 0, width, 0, y, width, rows);
+					}
+					image.setHasAlpha(hasAlpha);
+					return image;
+				} finally {
+					in.close();
+				}
+			} catch (IOException e) {
+				//O arquivo pode ter sido excluído pelo sistema, já que fica no diretório de cache da aplicação.
+				Log.e(MobileBeanEntityDAO.class.getSimpleName(), "Error reading a pending image of the record saved state, it will be discarded.", e);
+				return null;
+			}
+		}
+	}
+
 	/**
 	 * Entrada de valor string de um estado salvo de um registro.
 	 */
-	private static final class StringValueEntry implements Parcelable { 
+	private static final class StringValueEntry implements Parcelable {  
 		private final String key;
 		private final String value;
 
@@ -17,23 +17,38 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import br.com.zalem.ymir.client.android.entity.data.IEntityDAO;
 import br.com.zalem.ymir.client.android.entity.data.IEntityDataManager;
 import br.com.zalem.ymir.client.android.entity.data.metadata.EntityAttributeType;
 import br.com.zalem.ymir.client.android.entity.data.metadata.IEntityAttribute;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.blob.EntityBlobStore;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.cache.IEntityRecordCache;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.cache.IEntityRecordImageCache;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.index.EntityIndexManager;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityMetadata;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityMetadataConfig;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityMetadataConfigValidator;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityMetadataException;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityProjectionConfig;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityRelationship;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.projection.EntityProjection;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.projection.EntityProjectionManager;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.query.EntityQueryObserverManager;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.query.MobileBeanQueryBuilder;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.query.MobileBeanSelectQuery;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.search.EntitySearchIndex;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.search.EntitySearchManager;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.util.OpenMobsterUtils;
 import br.com.zalem.ymir.client.android.entity.data.query.IQueryBuilder;
 import br.com.zalem.ymir.client.android.entity.data.query.IQueryStatement;
+import br.com.zalem.ymir.client.android.entity.data.query.select.ISelectQuery;
 import br.com.zalem.ymir.client.android.entity.data.util.MetadataUtils;
 import br.com.zalem.ymir.client.android.entity.data.view.RelationshipArrayView;
 import br.com.zalem.ymir.client.android.util.SafeAsyncTask;
@@ -49,6 +64,16 @@ public final class MobileBeanEntityDataManager implements IEntityDataManager {
 	
 	private final Map<String, MobileBeanEntityDAO> daos;
 	private IEntityRecordImageCache imageCache;
+	private IEntityRecordCache recordCache;
+	private EntityBlobStore blobStore;
+	private EntityProjectionManager projectionManager;
+	private EntityIndexManager indexManager;
+	private EntitySearchManager searchManager;
+	private EntityQueryObserverManager queryObserverManager;
+	private EntityReadinessManager readinessManager;
+	//Transações de escrita abertas e quantidade de aberturas/fechamentos delas, para que o cache de registros não receba dados não confirmados.
+	private final AtomicInteger openWriteTransactions = new AtomicInteger();
+	private final AtomicLong writeTransactionsStamp = new AtomicLong();
 	
 	public MobileBeanEntityDataManager(EntityMetadataConfig... metadatasConfigs) throws EntityMetadataException {
 		EntityMetadataConfigValidator.validate(metadatasConfigs);
@@ -101,6 +126,37 @@ public final class MobileBeanEntityDataManager implements IEntityDataManager {
             EntityRelationship[] relatioshipsToEntity = referencesToEntityList == null ? new EntityRelationship[0] : referencesToEntityList.toArray(new EntityRelationship[referencesToEntityList.size()]);
             entityMetadata.setReferencesToMe(relatioshipsToEntity);
         }
+
+		//Cria as projeções das entidades que as declararam. Precisa ser feito por último pois elas dependem dos relacionamentos.
+		List<EntityProjection> projections = new ArrayList<>();
+		for (EntityMetadataConfig metadataConfig : metadatasConfigs) {
+			EntityProjectionConfig projectionConfig = metadataConfig.getProjection();
+			if (projectionConfig == null) {
+				continue;
+			}
+
+			EntityMetadata metadata = getEntityMetadata(metadataConfig.getName());
+			EntityProjection projection = new EntityProjection(metadata, projectionConfig);
+			metadata.setProjection(projection);
+			projections.add(projection);
+		}
+		if (!projections.isEmpty()) {
+			projectionManager = new EntityProjectionManager(projections.toArray(new EntityProjection[projections.size()]));
+			projectionManager.start();
+		}
+
+		//Cria os índices declarados pelas entidades.
+		List<EntityMetadata> indexedEntities = new ArrayList<>();
+		for (MobileBeanEntityDAO dao : daos.values()) {
+			EntityMetadata metadata = dao.getEntityMetadata();
+			if (!metadata.getIndexedFields().isEmpty()) {
+				indexedEntities.add(metadata);
+			}
+		}
+		if (!indexedEntities.isEmpty()) {
+			indexManager = new EntityIndexManager(indexedEntities.toArray(new EntityMetadata[indexedEntities.size()]));
+			indexManager.start();
+		}
 	}
 
 	@Override
@@ -164,6 +220,31 @@ public final class MobileBeanEntityDataManager implements IEntityDataManager {
         return new MobileBeanQueryBuilder(this);
     }
 
+    @Override
+    public void observe(ISelectQuery query, AbstractQueryObserver observer) {
+        //Queries de outras implementações (como as do MemoryEntityDAO) não leem os canais, então não há o que observar.
+        if (!(query instanceof MobileBeanSelectQuery)) {
+            return;
+        }
+
+        getQueryObserverManager().observe((MobileBeanSelectQuery) query, observer);
+    }
+
+    @Override
+    public void awaitReady(AbstractReadyListener listener, String... entitiesNames) {
+        MobileBeanEntityDAO[] entitiesDAOs;
+        if (entitiesNames.length == 0) {
+            entitiesDAOs = daos.values().toArray(new MobileBeanEntityDAO[daos.size()]);
+        } else {
+            entitiesDAOs = new MobileBeanEntityDAO[entitiesNames.length];
+            for (int i = 0; i < entitiesNames.length; i++) {
+                entitiesDAOs[i] = getMobileBeanEntityDAO(entitiesNames[i]);
+            }
+        }
+
+        getReadinessManager().await(entitiesDAOs, listener);
+    }
+
     @Override
     public void deleteAll(AbstractEntityRecordDeletionMonitor monitor, String... entitiesNames) {
         new EntityRecordDeletionAsyncTask(monitor).execute(entitiesNames);
@@ -182,11 +263,49 @@ public final class MobileBeanEntityDataManager implements IEntityDataManager {
         Daemon.getInstance().scheduleSyncInitiation();
     }
 
+    /**
+     * Inicia uma transação de escrita do OpenMobster. Enquanto houver transações de escrita abertas, os registros lidos não são
+     * adicionados no cache de registros, pois podem conter alterações que ainda serão desfeitas.<br>
+     * Deve ser finalizada através do {@link #endWriteTransaction()}.
+     */
+    void beginWriteTransaction() {
+        MobileBean.beginTransaction();
+        openWriteTransactions.incrementAndGet();
+        writeTransactionsStamp.incrementAndGet();
+    }
+
+    /**
+     * Finaliza uma transação de escrita iniciada através do {@link #beginWriteTransaction()}.
+     */
+    void endWriteTransaction() {
+        try {
+            MobileBean.endTransaction();
+        } finally {
+            openWriteTransactions.decrementAndGet();
+            writeTransactionsStamp.incrementAndGet();
+        }
+    }
+
+    /**
+     * Obtém a marca das transações de escrita, que muda sempre que uma transação de escrita é iniciada ou finalizada.<br>
+     * Um registro lido só pode ser adicionado no cache se a marca obtida antes da leitura for igual à obtida depois dela.
+     *
+     * @return a marca obtida ou <code>-1</code> se há uma transação de escrita aberta.
+     */
+    long getWriteTransactionsStamp() {
+        if (openWriteTransactions.get() > 0) {
+            return -1;
+        }
+        return writeTransactionsStamp.get();
+    }
+
     /**
 	 * Define o cache de imagens de registros que será utilizado por este gerenciador entidades de dados.<br>
 	 * O cache será utilizado no acesso de dados dos tipos {@link EntityAttributeType#IMAGE} e {@link EntityAttributeType#IMAGE_ARRAY}.
 	 * Ao tentar obter um dado de um destes tipos, será verificado antes se ele não está no cache. Em caso negativo, a imagem
-	 * ou o array de imagens será obtido da maneira normal e depois colocado no cache.
+	 * ou o array de imagens será obtido da maneira normal e depois colocado no cache.<br>
+	 * Para manter as imagens também entre as execuções da aplicação, pode ser utilizado o
+	 * {@link br.com.zalem.ymir.client.android.entity.data.openmobster.cache.impl.TieredImageCache}.
 	 * 
 	 * @param imageCache o cache de imagens que será utilizado pelo gerenciador.
 	 */
@@ -208,6 +327,143 @@ public final class MobileBeanEntityDataManager implements IEntityDataManager {
 		return imageCache;
 	}
 
+	/**
+	 * Define o cache de registros que será utilizado por este gerenciador de entidades de dados.<br>
+	 * O cache será utilizado na obtenção de registros através do {@link MobileBeanEntityDAO#get(java.io.Serializable)},
+	 * de forma que os registros limpos possam ser reaproveitados ao invés de lidos novamente da fonte de dados.
+	 * Pode ser <code>null</code> para deixar de utilizar o cache.
+	 *
+	 * @param recordCache o cache de registros que será utilizado pelo gerenciador.
+	 */
+	public void setRecordCache(IEntityRecordCache recordCache) {
+		if (this.recordCache != null) {
+			this.recordCache.onDetach(this);
+		}
+
+		this.recordCache = recordCache;
+		if (recordCache != null) {
+			recordCache.onAttach(this);
+		}
+	}
+
+	/**
+	 * Obtém o cache de registros utilizado por este gerenciador de entidades de dados.
+	 *
+	 * @return o cache obtido ou <code>null</code> se não há um cache designado.
+	 */
+	public IEntityRecordCache getRecordCache() {
+		return recordCache;
+	}
+
+	/**
+	 * Define o armazenamento de blobs que será utilizado por este gerenciador de entidades de dados.<br>
+	 * A partir daí, os valores dos tipos {@link EntityAttributeType#IMAGE} e {@link EntityAttributeType#IMAGE_ARRAY} definidos nos registros
+	 * são armazenados como blobs, ficando nos canais apenas as referências para eles. Os valores já existentes continuam sendo suportados
+	 * e podem ser migrados através do {@link #migrateImagesToBlobStore(String)}.<br>
+	 * Como os blobs não são enviados à nuvem pela sincronização, o armazenamento deve ser utilizado apenas em aplicações offline ou
+	 * cujo servidor também resolva as referências.
+	 *
+	 * @param blobStore o armazenamento de blobs que será utilizado pelo gerenciador.
+	 * @throws IllegalStateException se um armazenamento de blobs já foi definido.
+	 */
+	public void setBlobStore(EntityBlobStore blobStore) {
+		if (this.blobStore != null) {
+			throw new IllegalStateException("The blob store is already defined.");
+		}
+
+		//Apenas os canais que possuem imagens (diretamente ou nos registros internos) podem referenciar blobs.
+		List<String> imagesChannels = new ArrayList<>();
+		for (MobileBeanEntityDAO dao : daos.values()) {
+			EntityMetadata metadata = dao.getEntityMetadata();
+			if (!metadata.isInternal() && !getImageAttributesNames(metadata).isEmpty()) {
+				imagesChannels.add(metadata.getChannel());
+			}
+		}
+
+		this.blobStore = blobStore;
+		blobStore.start(imagesChannels.toArray(new String[imagesChannels.size()]));
+	}
+
+	/**
+	 * Obtém o armazenamento de blobs utilizado por este gerenciador de entidades de dados.
+	 *
+	 * @return o armazenamento obtido ou <code>null</code> se não há um armazenamento designado.
+	 */
+	public EntityBlobStore getBlobStore() {
+		return blobStore;
+	}
+
+	/**
+	 * Migra as imagens da entidade armazenadas diretamente no seu canal (em Base64) para o armazenamento de blobs, incluindo as
+	 * imagens dos seus registros internos. Pode demorar bastante, então deve ser chamado em background.
+	 *
+	 * @param entityName nome da entidade.
+	 * @return a quantidade de imagens migradas.
+	 * @throws IllegalStateException se não há um armazenamento de blobs designado.
+	 * @throws IllegalArgumentException se a entidade é interna.
+	 * @see EntityBlobStore#migrate(String, String...)
+	 */
+	public int migrateImagesToBlobStore(String entityName) {
+		if (blobStore == null) {
+			throw new IllegalStateException("There is no blob store defined.");
+		}
+		EntityMetadata metadata = getEntityMetadata(entityName);
+		if (metadata.isInternal()) {
+			throw new IllegalArgumentException("The images of internal entities are stored in the channels of their owners: " + entityName);
+		}
+
+		Set<String> attributesNames = getImageAttributesNames(metadata);
+		return blobStore.migrate(metadata.getChannel(), attributesNames.toArray(new String[attributesNames.size()]));
+	}
+
+	/**
+	 * Reconstrói a projeção da entidade a partir dos dados atuais do seu canal.
+	 *
+	 * @param entityName nome da entidade.
+	 * @throws IllegalArgumentException se a entidade não declara uma projeção.
+	 * @see EntityProjectionManager#rebuild(EntityProjection)
+	 */
+	public void rebuildProjection(String entityName) {
+		EntityProjection projection = getEntityMetadata(entityName).getProjection();
+		if (projection == null) {
+			throw new IllegalArgumentException("The entity does not declare a projection: " + entityName);
+		}
+
+		projectionManager.rebuild(projection);
+	}
+
+	/**
+	 * Reconstrói os índices declarados pela entidade, excluindo-os e criando-os novamente.
+	 *
+	 * @param entityName nome da entidade.
+	 * @throws IllegalArgumentException se a entidade não declara índices.
+	 * @see EntityIndexManager#rebuild(EntityMetadata)
+	 */
+	public void rebuildIndexes(String entityName) {
+		EntityMetadata metadata = getEntityMetadata(entityName);
+		if (metadata.getIndexedFields().isEmpty()) {
+			throw new IllegalArgumentException("The entity does not declare indexes: " + entityName);
+		}
+
+		indexManager.rebuild(metadata);
+	}
+
+	/**
+	 * Reconstrói o índice de busca textual da entidade a partir dos dados atuais dos canais.
+	 *
+	 * @param entityName nome da entidade.
+	 * @throws IllegalArgumentException se a busca não foi habilitada para a entidade.
+	 * @see EntitySearchManager#rebuild(EntitySearchIndex)
+	 */
+	public void rebuildSearchIndex(String entityName) {
+		EntitySearchIndex searchIndex = getEntityMetadata(entityName).getSearchIndex();
+		if (searchIndex == null) {
+			throw new IllegalArgumentException("The search is not enabled for the entity: " + entityName);
+		}
+
+		searchManager.rebuild(searchIndex);
+	}
+
 	/**
 	 * Cria um MobileBeanEntityManager a partir de metadados de entidades obtidos através de recursos no formato json.
 	 * 
@@ -244,7 +500,66 @@ public final class MobileBeanEntityDataManager implements IEntityDataManager {
 	/*
 	 * Métodos/classes auxiliares
 	 */
-	
+
+	//Utilizado pelo MobileBeanEntityDAO. O gerenciador dos índices de busca só é criado quando a busca é habilitada para alguma entidade.
+	synchronized void enableSearch(EntityMetadata metadata, String[]... attributesPaths) {
+		if (metadata.getSearchIndex() != null) {
+			throw new IllegalStateException("The search is already enabled for the entity: " + metadata.getName());
+		}
+
+		EntitySearchIndex searchIndex = new EntitySearchIndex(metadata, attributesPaths);
+		if (searchManager == null) {
+			searchManager = new EntitySearchManager();
+			searchManager.start();
+		}
+		searchManager.addIndex(searchIndex);
+		metadata.setSearchIndex(searchIndex);
+	}
+
+	//O gerenciador das observações só é criado quando a primeira query é observada.
+	private synchronized EntityQueryObserverManager getQueryObserverManager() {
+		if (queryObserverManager == null) {
+			queryObserverManager = new EntityQueryObserverManager();
+			queryObserverManager.start();
+		}
+		return queryObserverManager;
+	}
+
+	//O gerenciador das esperas só é criado quando a prontidão é aguardada pela primeira vez.
+	private synchronized EntityReadinessManager getReadinessManager() {
+		if (readinessManager == null) {
+			readinessManager = new EntityReadinessManager();
+			readinessManager.start();
+		}
+		return readinessManager;
+	}
+
+	private static Set<String> getImageAttributesNames(EntityMetadata metadata) {
+		Set<String> names = new HashSet<>();
+		addImageAttributesNames(metadata, new HashSet<String>(), names);
+		return names;
+	}
+
+	private static void addImageAttributesNames(EntityMetadata metadata, Set<String> visitedEntities, Set<String> names) {
+		if (!visitedEntities.add(metadata.getName())) {
+			return;
+		}
+
+		for (IEntityAttribute attribute : metadata.getAttributes()) {
+			if (attribute.getType() == EntityAttributeType.IMAGE || attribute.getType() == EntityAttributeType.IMAGE_ARRAY) {
+				names.add(attribute.getName());
+			}
+		}
+
+		//Os registros internos são armazenados no canal do dono, então as suas imagens também.
+		for (EntityRelationship relationship : metadata.getRelationships()) {
+			EntityMetadata target = relationship.getTarget();
+			if (target.isInternal()) {
+				addImageAttributesNames(target, visitedEntities, names);
+			}
+		}
+	}
+
 	private MobileBeanEntityDAO getMobileBeanEntityDAO(String entityName) {
 		MobileBeanEntityDAO dao = daos.get(entityName);
 		if (dao == null) {
@@ -336,7 +651,7 @@ public final class MobileBeanEntityDataManager implements IEntityDataManager {
 
         @Override
         protected Void safeDoInBackground(String... entitiesNames) throws Exception {
-            MobileBean.beginTransaction();
+            beginWriteTransaction();
             try {
                 MobileObjectDatabase db = MobileObjectDatabase.getInstance();
                 for (String entityName : entitiesNames) {
@@ -371,7 +686,7 @@ public final class MobileBeanEntityDataManager implements IEntityDataManager {
                     handler = null;
                 }
 
-                MobileBean.endTransaction();
+                endWriteTransaction();
             }
         }
 
@@ -1,9 +1,9 @@
 package br.com.zalem.ymir.client.android.entity.data.openmobster;
 
 import android.graphics.Bitmap;
-import android.graphics.Bitmap.CompressFormat;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.os.Build;
 import android.support.v4.app.AndroidBugsUtils;
 import android.util.Log;
 
@@ -19,29 +19,40 @@ import java.sql.Time;
 import java.sql.Timestamp;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import br.com.zalem.ymir.client.android.entity.data.IEntityRecord;
 import br.com.zalem.ymir.client.android.entity.data.SyncStatus;
 import br.com.zalem.ymir.client.android.entity.data.metadata.EntityAttributeType;
 import br.com.zalem.ymir.client.android.entity.data.metadata.IEntityAttribute;
 import br.com.zalem.ymir.client.android.entity.data.metadata.IEntityRelationship;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.blob.EntityBlobStore;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.blob.EntityBlobStore.BlobReference;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.cache.IEntityRecordImageCache;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityAttribute;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityMetadata;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityRelationship;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.ImageEncoding;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.util.InternalMobileBeanEntityRecordSerializer;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.util.ImageUtils;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.util.TypeUtils;
 import br.com.zalem.ymir.client.android.entity.data.query.select.ITerminalStatement;
 import br.com.zalem.ymir.client.android.entity.data.query.select.NonUniqueResultException;
 import br.com.zalem.ymir.client.android.entity.data.util.MetadataUtils;
 
 /**
- * Registro de entidade de dados baseada no {@link org.openmobster.android.api.sync.MobileBean} do OpenMobster.
+ * Registro de entidade de dados baseada no {@link org.openmobster.android.api.sync.MobileBean} do OpenMobster.<br>
+ * As imagens definidas nos campos do tipo {@link EntityAttributeType#IMAGE} são mantidas como {@link Bitmap} até que o registro seja salvo,
+ * sendo codificadas (de acordo com a {@link ImageEncoding codificação} do campo) apenas no salvamento. Desta forma, a definição das imagens
+ * na Thread de UI (como nos editores) não precisa aguardar a compressão. O registro não copia as imagens definidas, então quem as definiu
+ * não deve reciclá-las antes do salvamento.
  *
  * @author Thiago Gesser
  */
@@ -51,16 +62,28 @@ public class MobileBeanEntityRecord implements IEntityRecord {
 	public static final byte DESYNCHRONIZED_TAG = 1;
 	public static final byte SYNCHRONIZING_TAG = 2;
 	public static final byte LOCAL_TAG = 4;
+
+	//Marca um valor decodificado nulo, para diferenciá-lo de um valor que ainda não foi decodificado.
+	private static final Object NULL_DECODED_VALUE = new Object();
 	
-	private final MobileBean bean;
+	private MobileBean bean;
+	//Indica se o MobileBean é compartilhado com o registro mantido no cache de registros, até a primeira alteração deste registro.
+	private boolean sharedBean;
 	private final EntityMetadata metadata;
 	private final MobileBeanEntityDataManager entityManager;
 	
 	private byte tags;
 	//Buffer de registros. Armazena os registros definidos nos relacionamentos deste registro até que ele seja salvo.
 	private Map<String, RelationshipBufferEntry> relationshipsBuffer;
+	//Registros dos relacionamentos obtidos antecipadamente pela query (include). Ao contrário do buffer, não representam alterações no registro.
+	private Map<String, Object> includedRelationships;
 	//Marcadores de alterações nos campos. Só são criados quando necessários, assim só haverá gasto de memória com os sets quando um registro for alterado.
 	private Set<String> dirtyFields;
+	//Valores já convertidos dos atributos, indexados pelo slot do atributo. Só é criado quando algum valor é obtido e pode ser
+	//compartilhado (junto com o MobileBean) entre Threads diferentes, por isto os slots são atômicos.
+	private volatile AtomicReferenceArray<Object> decodedValues;
+	//Imagens definidas que ainda não foram codificadas no MobileBean, indexadas pelo nome do atributo. Só é criado quando alguma imagem é definida.
+	private Map<String, Bitmap> pendingImages;
 	
 	MobileBeanEntityRecord(MobileBean bean, EntityMetadata metadata, MobileBeanEntityDataManager entityManager) {
 		this.bean = bean;
@@ -123,6 +146,9 @@ public class MobileBeanEntityRecord implements IEntityRecord {
 	@Override
 	public final boolean isNull(String fieldName) {
 		metadata.checkFieldName(fieldName);
+		if (pendingImages != null && pendingImages.containsKey(fieldName)) {
+			return false;
+		}
 		
 		return bean.isNull(fieldName);
 	}
@@ -159,85 +185,79 @@ public class MobileBeanEntityRecord implements IEntityRecord {
             return getImageValue(attributeName);
         }
 
-        return convertTo(bean.getValue(attributeName), attribute);
+        return getDecodedValue(metadata.getAttributeSlot(attributeName), attribute);
     }
 
     @Override
 	public Integer getIntegerValue(String attribute) {
-		checkAttribute(attribute, EntityAttributeType.INTEGER);
-		
-		return convertToInteger(bean.getValue(attribute), attribute);
+		return (Integer) getDecodedValue(attribute, EntityAttributeType.INTEGER);
 	}
 
 	@Override
 	public Double getDecimalValue(String attribute) {
-		checkAttribute(attribute, EntityAttributeType.DECIMAL);
-		
-		return convertToDouble(bean.getValue(attribute), attribute);
+		return (Double) getDecodedValue(attribute, EntityAttributeType.DECIMAL);
 	}
 
 	@Override
 	public String getTextValue(String attribute) {
-		checkAttribute(attribute, EntityAttributeType.TEXT);
-		
-		return bean.getValue(attribute);
+		return (String) getDecodedValue(attribute, EntityAttributeType.TEXT);
 	}
 
 	@Override
 	public Boolean getBooleanValue(String attribute) {
-		checkAttribute(attribute, EntityAttributeType.BOOLEAN);
-		
-		return convertToBoolean(bean.getValue(attribute), attribute);
+		return (Boolean) getDecodedValue(attribute, EntityAttributeType.BOOLEAN);
 	}
 
 	@Override
 	public Date getDateValue(String attribute) {
-		checkAttribute(attribute, EntityAttributeType.DATE);
-		
-		return convertToDate(bean.getValue(attribute), attribute);
+		return (Date) getDecodedValue(attribute, EntityAttributeType.DATE);
 	}
 
 	@Override
 	public Time getTimeValue(String attribute) {
-		checkAttribute(attribute, EntityAttributeType.TIME);
-		
-		return convertToTime(bean.getValue(attribute), attribute);
+		return (Time) getDecodedValue(attribute, EntityAttributeType.TIME);
 	}
 
     @Override
     public Timestamp getDatetimeValue(String attribute) {
-        checkAttribute(attribute, EntityAttributeType.DATETIME);
-
-        return convertToDatetime(bean.getValue(attribute), attribute);
+        return (Timestamp) getDecodedValue(attribute, EntityAttributeType.DATETIME);
     }
 
     @Override
 	public Character getCharacterValue(String attribute) {
-		checkAttribute(attribute, EntityAttributeType.CHARACTER);
-		
-		return convertToCharacter(bean.getValue(attribute), attribute);
+		return (Character) getDecodedValue(attribute, EntityAttributeType.CHARACTER);
 	}
 
 	@Override
 	public Bitmap getImageValue(String attribute) {
 		checkAttribute(attribute, EntityAttributeType.IMAGE);
+		//A imagem que ainda não foi codificada já está em memória.
+		Bitmap pendingImage = getPendingImage(attribute);
+		if (pendingImage != null) {
+			return pendingImage;
+		}
 		
 		IEntityRecordImageCache imageCache = entityManager.getImageCache();
 		//Registros novos não usam o cache devido à falta de ID.
 		boolean canUseCache = imageCache != null && !isNew();
+		String strValue = bean.getValue(attribute);
+		int contentVersion = getContentVersion(strValue);
 		
 		//Se a imagem estiver no cache, retorna-a. Se não, obtém ela do registro.
 		if (canUseCache) {
-			Bitmap cacheImage = imageCache.getImage(metadata.getChannel(), getBeanId(), attribute);
+			Bitmap cacheImage = imageCache.getImage(metadata.getChannel(), getBeanId(), attribute, contentVersion);
+			if (cacheImage == null) {
+				cacheImage = imageCache.loadImage(metadata.getChannel(), getBeanId(), attribute, contentVersion);
+			}
 			if (cacheImage != null) {
 				return cacheImage;
 			}
 		}
 		
 		//Obtém a imagem do registro e coloca-a no cache se possível.
-		Bitmap image = convertToBitmap(bean.getValue(attribute), attribute);
+		Bitmap image = convertToBitmap(strValue, attribute);
 		if (image != null && canUseCache) {
-			imageCache.addImage(metadata.getChannel(), getBeanId(), attribute, image);
+			imageCache.addImage(metadata.getChannel(), getBeanId(), attribute, contentVersion, image);
 		}
 		return image;
 	}
@@ -245,21 +265,106 @@ public class MobileBeanEntityRecord implements IEntityRecord {
 	@Override
 	public Bitmap getImageValue(String attribute, boolean fromCache) {
 		checkAttribute(attribute, EntityAttributeType.IMAGE);
+		//A imagem que ainda não foi codificada já está em memória.
+		Bitmap pendingImage = getPendingImage(attribute);
+		if (pendingImage != null) {
+			return pendingImage;
+		}
 		
 		IEntityRecordImageCache imageCache = entityManager.getImageCache();
 		boolean canUseCache = imageCache != null && !isNew();
+		String strValue = bean.getValue(attribute);
+		int contentVersion = getContentVersion(strValue);
 		if (fromCache) {
 			if (!canUseCache) {
 				return null;
 			}
 			
-			return imageCache.getImage(metadata.getChannel(), getBeanId(), attribute);
+			return imageCache.getImage(metadata.getChannel(), getBeanId(), attribute, contentVersion);
+		}
+
+		//Antes de obter a imagem do registro, tenta carregá-la das camadas mais lentas do cache.
+		if (canUseCache) {
+			Bitmap cacheImage = imageCache.loadImage(metadata.getChannel(), getBeanId(), attribute, contentVersion);
+			if (cacheImage != null) {
+				return cacheImage;
+			}
 		}
 		
 		//Obtém a imagem do registro e coloca-a no cache se possível.
-		Bitmap image = convertToBitmap(bean.getValue(attribute), attribute);
+		Bitmap image = convertToBitmap(strValue, attribute);
 		if (image != null && canUseCache) {
-			imageCache.addImage(metadata.getChannel(), getBeanId(), attribute, image);
+			imageCache.addImage(metadata.getChannel(), getBeanId(), attribute, contentVersion, image);
+		}
+		return image;
+	}
+
+	@Override
+	public Bitmap getImageValue(String attribute, int targetWidth, int targetHeight) {
+		checkAttribute(attribute, EntityAttributeType.IMAGE);
+		ImageUtils.checkTargetSize(targetWidth, targetHeight);
+		Bitmap pendingImage = getPendingImage(attribute);
+		if (pendingImage != null) {
+			return pendingImage;
+		}
+
+		IEntityRecordImageCache imageCache = entityManager.getImageCache();
+		boolean canUseCache = imageCache != null && !isNew();
+		String strValue = bean.getValue(attribute);
+		int contentVersion = getContentVersion(strValue);
+
+		//Se a imagem reduzida estiver no cache, retorna-a. Se não, obtém ela do registro.
+		if (canUseCache) {
+			Bitmap cacheImage = imageCache.getImage(metadata.getChannel(), getBeanId(), attribute, contentVersion, targetWidth, targetHeight);
+			if (cacheImage == null) {
+				cacheImage = imageCache.loadImage(metadata.getChannel(), getBeanId(), attribute, contentVersion, targetWidth, targetHeight);
+			}
+			if (cacheImage != null) {
+				return cacheImage;
+			}
+		}
+
+		//Obtém a imagem reduzida do registro e coloca-a no cache se possível.
+		Bitmap image = convertToReducedBitmap(strValue, attribute, targetWidth, targetHeight);
+		if (image != null && canUseCache) {
+			imageCache.addImage(metadata.getChannel(), getBeanId(), attribute, contentVersion, targetWidth, targetHeight, image);
+		}
+		return image;
+	}
+
+	@Override
+	public Bitmap getImageValue(String attribute, int targetWidth, int targetHeight, boolean fromCache) {
+		checkAttribute(attribute, EntityAttributeType.IMAGE);
+		ImageUtils.checkTargetSize(targetWidth, targetHeight);
+		Bitmap pendingImage = getPendingImage(attribute);
+		if (pendingImage != null) {
+			return pendingImage;
+		}
+
+		IEntityRecordImageCache imageCache = entityManager.getImageCache();
+		boolean canUseCache = imageCache != null && !isNew();
+		String strValue = bean.getValue(attribute);
+		int contentVersion = getContentVersion(strValue);
+		if (fromCache) {
+			if (!canUseCache) {
+				return null;
+			}
+
+			return imageCache.getImage(metadata.getChannel(), getBeanId(), attribute, contentVersion, targetWidth, targetHeight);
+		}
+
+		//Antes de obter a imagem reduzida do registro, tenta carregá-la das camadas mais lentas do cache.
+		if (canUseCache) {
+			Bitmap cacheImage = imageCache.loadImage(metadata.getChannel(), getBeanId(), attribute, contentVersion, targetWidth, targetHeight);
+			if (cacheImage != null) {
+				return cacheImage;
+			}
+		}
+
+		//Obtém a imagem reduzida do registro e coloca-a no cache se possível.
+		Bitmap image = convertToReducedBitmap(strValue, attribute, targetWidth, targetHeight);
+		if (image != null && canUseCache) {
+			imageCache.addImage(metadata.getChannel(), getBeanId(), attribute, contentVersion, targetWidth, targetHeight, image);
 		}
 		return image;
 	}
@@ -272,6 +377,9 @@ public class MobileBeanEntityRecord implements IEntityRecord {
 		if (bufferEntry != null) {
 			return bufferEntry.getRelationshipAsSingle();
 		}
+		if (hasIncludedRelationship(relationshipName)) {
+			return (MobileBeanEntityRecord) includedRelationships.get(relationshipName);
+		}
 		
 		if (entityRelationship.isRelatedBySource()) {
 			return getSourceRelatedRecord(entityRelationship);
@@ -389,6 +497,11 @@ public class MobileBeanEntityRecord implements IEntityRecord {
 			}
 			return relationships.toArray(new MobileBeanEntityRecord[relationships.size()]);
 		}
+		if (hasIncludedRelationship(relationshipName)) {
+			//Retorna uma cópia para que o array incluído não seja alterado por quem o obteve.
+			MobileBeanEntityRecord[] includedRecords = (MobileBeanEntityRecord[]) includedRelationships.get(relationshipName);
+			return includedRecords == null ? null : includedRecords.clone();
+		}
 		
 		if (entityRelationship.isRelatedBySource()) {
 			return getSourceRelatedRecords(entityRelationship);
@@ -397,7 +510,9 @@ public class MobileBeanEntityRecord implements IEntityRecord {
 	}
 	
 	/**
-	 * Obtém um valor diretamente do {@link org.openmobster.android.api.sync.MobileBean} do registro.
+	 * Obtém um valor diretamente do {@link org.openmobster.android.api.sync.MobileBean} do registro.<br>
+	 * As imagens que ainda não foram codificadas não são consideradas (ver {@link #getPendingImage(String)}), pois a codificação
+	 * só deve ocorrer no salvamento, em background.
 	 * 
 	 * @param field campo cujo o valor será obtido. 
 	 * @return o valor obtido ou <code>null</code> se não havia valor definido.
@@ -487,9 +602,22 @@ public class MobileBeanEntityRecord implements IEntityRecord {
 	public void setImageValue(String attribute, Bitmap value) {
         checkAttribute(attribute, EntityAttributeType.IMAGE);
 		setDirtyField(attribute);
-		
-		byte[] imageBytes = convertToByteArray(value);
-		bean.setBinaryValue(attribute, imageBytes);
+
+		if (value == null) {
+			removePendingImage(attribute);
+			bean.setValue(attribute, null);
+			return;
+		}
+
+		if (value.isRecycled()) {
+			throw new IllegalArgumentException(String.format("The image of the attribute \"%s\" is recycled.", attribute));
+		}
+
+		//Apenas guarda a imagem, que será codificada no salvamento do registro (ver encodePendingImages).
+		if (pendingImages == null) {
+			pendingImages = new HashMap<>();
+		}
+		pendingImages.put(attribute, value);
 	}
 
 	@Override
@@ -562,14 +690,22 @@ public class MobileBeanEntityRecord implements IEntityRecord {
 		BeanList beanList = new BeanList(attribute);
 		//Se o array for nulo, é obrigado a setar um BeanList vazio ao invés de null.
 		if (values != null) {
+			EntityBlobStore blobStore = entityManager.getBlobStore();
+			ImageEncoding encoding = metadata.getAttribute(attribute).getEncoding();
 			for (Bitmap value : values) {
 				if (value == null) {
 					continue;
 				}
 
 				BeanListEntry entry = new BeanListEntry();
-				byte[] imageBytes = convertToByteArray(value);
-				entry.setBinaryProperty(attribute, imageBytes);
+				Bitmap image = downscaleImage(value, encoding);
+				if (blobStore != null) {
+					entry.setProperty(attribute, putImage(blobStore, image, encoding));
+				} else {
+					byte[] imageBytes = convertToByteArray(image, encoding);
+					entry.setBinaryProperty(attribute, imageBytes);
+				}
+				recycleIntermediate(image, value);
 				beanList.addEntry(entry);
 			}
 		}
@@ -621,6 +757,7 @@ public class MobileBeanEntityRecord implements IEntityRecord {
 	 */
 	public void setBeanValue(String field, String value) {
 		setDirtyField(field);
+		removePendingImage(field);
 
 		bean.setValue(field, value);
 	}
@@ -678,11 +815,27 @@ public class MobileBeanEntityRecord implements IEntityRecord {
 			return null;
 		}
 		int arraySize = beanList.size();
-		MobileBeanEntityRecord[] resultArray = new MobileBeanEntityRecord[arraySize];
+		String[] recordsIds = new String[arraySize];
 		for (int i = 0; i < arraySize; i++) {
 			BeanListEntry beanEntry = beanList.getEntryAt(i);
-			String recordId = beanEntry.getValue();
-			resultArray[i] = findEntityRecord(recordId, entity.getName(), relName);
+			recordsIds[i] = beanEntry.getValue();
+		}
+
+		//Obtém todos os registros de uma vez só e depois os coloca na mesma ordem do BeanList.
+		MobileBeanEntityDAO dao = entityManager.getEntityDAO(entity.getName());
+		Map<String, MobileBeanEntityRecord> records = dao.getAll(Arrays.asList(recordsIds));
+		MobileBeanEntityRecord[] resultArray = new MobileBeanEntityRecord[arraySize];
+		for (int i = 0; i < arraySize; i++) {
+			String recordId = recordsIds[i];
+			if (recordId == null) {
+				continue;
+			}
+
+			MobileBeanEntityRecord entityRecord = records.get(recordId);
+			if (entityRecord == null) {
+				reportMissingRecord(recordId, entity.getName(), relName);
+			}
+			resultArray[i] = entityRecord;
 		}
 		return resultArray;
 	}
@@ -768,6 +921,111 @@ public class MobileBeanEntityRecord implements IEntityRecord {
 	void clearDirtyFields() {
 		dirtyFields = null;
 	}
+
+	void clearDecodedValues() {
+		decodedValues = null;
+	}
+
+	/**
+	 * Descarta os registros dos relacionamentos obtidos antecipadamente pela query, fazendo com que eles voltem a ser obtidos da
+	 * fonte de dados. Deve ser chamado sempre que os valores do registro forem recarregados.
+	 */
+	void clearIncludedRelationships() {
+		includedRelationships = null;
+	}
+
+	/**
+	 * Cria um registro que compartilha o {@link MobileBean} e os valores já decodificados deste registro até a sua primeira alteração,
+	 * quando passa a utilizar um MobileBean próprio. Desta forma, o registro mantido no cache de registros pode ser reaproveitado
+	 * sem que as alterações feitas por quem o obteve afetem os demais.
+	 *
+	 * @return o registro criado.
+	 */
+	MobileBeanEntityRecord newSharedRecord() {
+		MobileBeanEntityRecord shared = new MobileBeanEntityRecord(bean, metadata, entityManager);
+		shared.sharedBean = true;
+		shared.decodedValues = getDecodedValues();
+		return shared;
+	}
+
+	/**
+	 * Indica se o registro ainda compartilha o {@link MobileBean} do registro mantido no cache de registros.
+	 *
+	 * @return <code>true</code> se o MobileBean é compartilhado e <code>false</code> caso contrário.
+	 */
+	boolean isSharedBean() {
+		return sharedBean;
+	}
+
+	/**
+	 * Faz com que o registro passe a utilizar um {@link MobileBean} próprio, lido da fonte de dados, caso ele ainda compartilhe
+	 * o MobileBean do registro mantido no cache de registros.
+	 *
+	 * @return <code>true</code> se o MobileBean próprio foi lido e <code>false</code> se o registro já possuía um MobileBean próprio.
+	 * @throws IllegalStateException se o registro não existe mais na fonte de dados, pois o MobileBean compartilhado não pode ser alterado.
+	 */
+	boolean detachSharedBean() {
+		if (!sharedBean) {
+			return false;
+		}
+
+		MobileBean ownBean = MobileBean.readById(metadata.getChannel(), bean.getId());
+		if (ownBean == null) {
+			throw new IllegalStateException(String.format("The record with the id \"%s\" of the entity \"%s\" no longer exists in the data source and can't be changed.", bean.getId(), metadata.getName()));
+		}
+		setOwnBean(ownBean);
+		return true;
+	}
+
+	/**
+	 * Faz com que o registro passe a utilizar o {@link MobileBean} próprio, deixando de compartilhar o MobileBean do registro
+	 * mantido no cache de registros.
+	 *
+	 * @param ownBean o MobileBean próprio, lido da fonte de dados.
+	 */
+	void setOwnBean(MobileBean ownBean) {
+		bean = ownBean;
+		sharedBean = false;
+		decodedValues = null;
+		//Os relacionamentos incluídos refletem o estado anterior da fonte de dados.
+		includedRelationships = null;
+		tags = -1;
+	}
+
+	/**
+	 * Codifica no {@link MobileBean} as imagens que foram definidas desde o último salvamento. Deve ser chamado antes do salvamento do MobileBean,
+	 * em background, pois a codificação pode ser demorada.
+	 */
+	void encodePendingImages() {
+		if (pendingImages == null) {
+			return;
+		}
+
+		for (Map.Entry<String, Bitmap> entry : pendingImages.entrySet()) {
+			encodePendingImage(entry.getKey(), entry.getValue());
+		}
+		pendingImages = null;
+	}
+
+	/**
+	 * Obtém a imagem definida no atributo que ainda não foi codificada.
+	 *
+	 * @param attribute nome do atributo.
+	 * @return a imagem obtida ou <code>null</code> se não havia imagem pendente.
+	 */
+	Bitmap getPendingImage(String attribute) {
+		if (pendingImages == null) {
+			return null;
+		}
+		return pendingImages.get(attribute);
+	}
+
+	/**
+	 * Descarta as imagens que ainda não foram codificadas, como quando os valores do registro são recarregados da fonte de dados.
+	 */
+	void clearPendingImages() {
+		pendingImages = null;
+	}
 	
 	boolean hasDirtyFields() {
 		return dirtyFields != null;
@@ -883,6 +1141,9 @@ public class MobileBeanEntityRecord implements IEntityRecord {
 		}
 		
 		RelationshipBufferEntry entry = relationshipsBuffer.remove(relationshipName);
+		if (includedRelationships != null) {
+			includedRelationships.remove(relationshipName);
+		}
 		if (relationshipsBuffer.isEmpty()) {
 			relationshipsBuffer = null;
 		}
@@ -891,6 +1152,19 @@ public class MobileBeanEntityRecord implements IEntityRecord {
 	
 	void clearRelationshipsBuffer() {
 		relationshipsBuffer = null;
+		//Após salvar/excluir o registro, os relacionamentos incluídos podem não refletir mais o que está armazenado.
+		includedRelationships = null;
+	}
+
+	boolean hasIncludedRelationship(String relationshipName) {
+		return includedRelationships != null && includedRelationships.containsKey(relationshipName);
+	}
+
+	void setIncludedRelationship(String relationshipName, Object value) {
+		if (includedRelationships == null) {
+			includedRelationships = new HashMap<>();
+		}
+		includedRelationships.put(relationshipName, value);
 	}
 	
 
@@ -1070,10 +1344,32 @@ public class MobileBeanEntityRecord implements IEntityRecord {
 	}
 	
 	private void setDirtyField(String field) {
+		//Todas as alterações de valores passam por aqui, então é o lugar certo para deixar de compartilhar o MobileBean.
+		detachSharedBean();
+
 		if (dirtyFields == null) {
 			dirtyFields = new HashSet<>();
 		}
 		dirtyFields.add(field);
+
+		//Também é o lugar certo para descartar o valor decodificado do campo.
+		AtomicReferenceArray<Object> values = decodedValues;
+		if (values != null) {
+			int slot = metadata.getAttributeSlot(field);
+			if (slot != -1) {
+				values.set(slot, null);
+			}
+		}
+	}
+
+	private AtomicReferenceArray<Object> getDecodedValues() {
+		//Se for criado ao mesmo tempo por Threads diferentes, apenas os valores decodificados por uma delas são mantidos.
+		AtomicReferenceArray<Object> values = decodedValues;
+		if (values == null) {
+			values = new AtomicReferenceArray<>(metadata.getAttributesCount());
+			decodedValues = values;
+		}
+		return values;
 	}
 	
 
@@ -1081,6 +1377,36 @@ public class MobileBeanEntityRecord implements IEntityRecord {
 	 * Métodos auxiliares de conversão de valores.
 	 */
 
+    private Object getDecodedValue(String attributeName, EntityAttributeType expectedType) {
+        int slot = metadata.getAttributeSlot(attributeName);
+        if (slot == -1) {
+            //Lança a exceção padrão de atributo inexistente.
+            metadata.getAttribute(attributeName);
+        }
+        EntityAttribute attribute = metadata.getAttribute(slot);
+        checkAttribute(attribute, expectedType);
+
+        return getDecodedValue(slot, attribute);
+    }
+
+    private Object getDecodedValue(int slot, IEntityAttribute attribute) {
+        //Os valores decodificados são memorizados para evitar a conversão da String a cada chamada.
+        AtomicReferenceArray<Object> values = getDecodedValues();
+        Object value = values.get(slot);
+        if (value == null) {
+            value = convertTo(bean.getValue(attribute.getName()), attribute);
+            values.set(slot, value == null ? NULL_DECODED_VALUE : value);
+        } else if (value == NULL_DECODED_VALUE) {
+            return null;
+        }
+
+        //Datas são mutáveis, então retorna uma cópia para que o valor memorizado não seja alterado por quem o obteve.
+        if (value instanceof java.util.Date) {
+            return ((java.util.Date) value).clone();
+        }
+        return value;
+    }
+
     private Object convertTo(String strValue, IEntityAttribute attribute) {
         switch (attribute.getType()) {
             case TEXT:
@@ -1173,6 +1499,12 @@ public class MobileBeanEntityRecord implements IEntityRecord {
 	}
 
     private Bitmap convertToBitmap(String strValue, String attribute) {
+        //As imagens armazenadas como blobs são referenciadas pelo valor. As demais estão no próprio valor, em Base64.
+        BlobReference reference = parseBlobReference(strValue, attribute);
+        if (reference != null) {
+            return getBlobStore(attribute).decodeImage(reference);
+        }
+
         try {
             return TypeUtils.convertToImage(strValue);
         } catch (ParseException e) {
@@ -1180,6 +1512,68 @@ public class MobileBeanEntityRecord implements IEntityRecord {
         }
     }
 
+    private Bitmap convertToReducedBitmap(String strValue, String attribute, int targetWidth, int targetHeight) {
+        BlobReference reference = parseBlobReference(strValue, attribute);
+        if (reference == null) {
+            //As imagens em Base64 não possuem miniaturas, então são decodificadas com amostragem.
+            try {
+                return TypeUtils.convertToImage(strValue, targetWidth, targetHeight);
+            } catch (ParseException e) {
+                throw newAttributeValueFormatException(attribute, "Image", strValue);
+            }
+        }
+
+        EntityBlobStore blobStore = getBlobStore(attribute);
+        int[] thumbnails = metadata.getAttribute(attribute).getThumbnails();
+        int thumbnailSize = ImageUtils.getThumbnailSize(thumbnails, reference.getWidth(), reference.getHeight(), targetWidth, targetHeight);
+        if (thumbnailSize == -1) {
+            return blobStore.decodeImage(reference, targetWidth, targetHeight);
+        }
+
+        Bitmap thumbnail = blobStore.decodeThumbnail(reference.getHash(), thumbnailSize);
+        if (thumbnail == null) {
+            //A miniatura não existe se a imagem não foi definida por este dispositivo (como as migradas ou recuperadas de backups), então a gera agora.
+            Bitmap image = blobStore.decodeImage(reference, thumbnailSize, thumbnailSize);
+            thumbnail = ImageUtils.createThumbnail(image, thumbnailSize);
+            blobStore.putThumbnail(reference.getHash(), thumbnailSize, convertToByteArray(thumbnail, metadata.getAttribute(attribute).getEncoding()));
+        }
+        return thumbnail;
+    }
+
+    private static int getContentVersion(String strValue) {
+        if (strValue == null) {
+            return 0;
+        }
+
+        //No caso dos blobs, a versão é obtida do próprio hash do conteúdo (SHA-1), que já está na referência.
+        if (EntityBlobStore.isReference(strValue)) {
+            try {
+                String hash = EntityBlobStore.parseReference(strValue).getHash();
+                return (int) Long.parseLong(hash.substring(0, 8), 16);
+            } catch (IllegalArgumentException e) {
+                //Referências mal formadas são tratadas como valores comuns. O erro é lançado apenas na obtenção da imagem.
+            }
+        }
+        //Nas imagens armazenadas no próprio registro, o hash do valor muda junto com a imagem.
+        return strValue.hashCode();
+    }
+
+    private BlobReference parseBlobReference(String strValue, String attribute) {
+        try {
+            return EntityBlobStore.parseReference(strValue);
+        } catch (IllegalArgumentException e) {
+            throw newAttributeValueFormatException(attribute, "Image", strValue);
+        }
+    }
+
+    private EntityBlobStore getBlobStore(String attribute) {
+        EntityBlobStore blobStore = entityManager.getBlobStore();
+        if (blobStore == null) {
+            throw new IllegalStateException(String.format("The attribute \"%s\" of the entity \"%s\" references a blob, but there is no blob store defined. Record id: \"%s\".", attribute, metadata.getName(), getId()));
+        }
+        return blobStore;
+    }
+
     private IllegalArgumentException newAttributeValueFormatException(String attribute, String type, String strValue) {
         return new IllegalArgumentException(String.format("The attribute \"%s\" of the entity \"%s\" do not have a value of type \"%s\". Record id: \"%s\", attribute value: \"%s\".", attribute, metadata.getName(), type, getId(), strValue));
     }
@@ -1224,13 +1618,75 @@ public class MobileBeanEntityRecord implements IEntityRecord {
 		return resultArray;
 	}
 
-    private byte[] convertToByteArray(Bitmap bitmap) {
+    private void encodePendingImage(String attribute, Bitmap value) {
+        //A imagem pertence a quem a definiu, então pode ter sido reciclada indevidamente antes do salvamento.
+        if (value.isRecycled()) {
+            throw new IllegalStateException(String.format("The pending image of the attribute \"%s\" was recycled before the record was saved.", attribute));
+        }
+        ImageEncoding encoding = metadata.getAttribute(attribute).getEncoding();
+        Bitmap image = downscaleImage(value, encoding);
+
+        //Se há um armazenamento de blobs, o canal guarda apenas a referência para a imagem.
+        EntityBlobStore blobStore = entityManager.getBlobStore();
+        if (blobStore != null) {
+            byte[] imageBytes = convertToByteArray(image, encoding);
+            String hash = blobStore.put(imageBytes);
+            //Gera as miniaturas já no salvamento, evitando que as listagens precisem decodificar a imagem inteira.
+            int maxSide = Math.max(image.getWidth(), image.getHeight());
+            for (int size : metadata.getAttribute(attribute).getThumbnails()) {
+                if (size < maxSide && !blobStore.getThumbnailFile(hash, size).exists()) {
+                    Bitmap thumbnail = ImageUtils.createThumbnail(image, size);
+                    blobStore.putThumbnail(hash, size, convertToByteArray(thumbnail, encoding));
+                    recycleIntermediate(thumbnail, image);
+                }
+            }
+            bean.setValue(attribute, EntityBlobStore.toReference(hash, image.getWidth(), image.getHeight()));
+            recycleIntermediate(image, value);
+            return;
+        }
+
+        byte[] imageBytes = convertToByteArray(image, encoding);
+        bean.setBinaryValue(attribute, imageBytes);
+        recycleIntermediate(image, value);
+    }
+
+    private void removePendingImage(String attribute) {
+        if (pendingImages != null) {
+            pendingImages.remove(attribute);
+        }
+    }
+
+    private static Bitmap downscaleImage(Bitmap bitmap, ImageEncoding encoding) {
+        //Reduz as imagens maiores que o tamanho máximo, como as fotos da câmera, evitando armazenar pixels que nunca serão exibidos.
+        int maxSize = encoding.getMaxSize();
+        if (maxSize <= 0) {
+            return bitmap;
+        }
+        return ImageUtils.createThumbnail(bitmap, maxSize);
+    }
+
+    private static void recycleIntermediate(Bitmap intermediate, Bitmap original) {
+        //Recicla apenas os bitmaps criados durante a codificação. O original pertence a quem definiu a imagem e pode continuar sendo exibido.
+        if (intermediate != original) {
+            intermediate.recycle();
+        }
+    }
+
+    private String putImage(EntityBlobStore blobStore, Bitmap bitmap, ImageEncoding encoding) {
+        byte[] imageBytes = convertToByteArray(bitmap, encoding);
+        return blobStore.putImage(imageBytes, bitmap.getWidth(), bitmap.getHeight());
+    }
+
+    private byte[] convertToByteArray(Bitmap bitmap, ImageEncoding encoding) {
         ByteArrayOutputStream out = new ByteArrayOutputStream();
 
-        //Não há como suportar alpha pois a imagem é convertida para JPG. Entretanto, troca o fundo preto que o JPG coloca nos pixels
-        //transparentes para um fundo branco, o qual é mais aderente à maioria das interfaces.
-        boolean hasAlpha = bitmap.hasAlpha();
-        if (hasAlpha) {
+        //Não há como suportar alpha no JPG. Entretanto, troca o fundo preto que o JPG coloca nos pixels transparentes para um
+        //fundo branco, o qual é mais aderente à maioria das interfaces. O WebP só suporta alpha a partir do Android 4.3 (API 18),
+        //então nas versões anteriores ele recebe o mesmo tratamento do JPG.
+        ImageEncoding.Format format = encoding.getFormat();
+        boolean replaceAlpha = bitmap.hasAlpha() &&
+                               (format == ImageEncoding.Format.JPEG || (format == ImageEncoding.Format.WEBP && Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2));
+        if (replaceAlpha) {
             Bitmap imageWithBG = Bitmap.createBitmap(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
             imageWithBG.eraseColor(Color.WHITE);
             Canvas canvas = new Canvas(imageWithBG);
@@ -1238,9 +1694,9 @@ public class MobileBeanEntityRecord implements IEntityRecord {
             bitmap = imageWithBG;
         }
 
-        bitmap.compress(CompressFormat.JPEG, 75, out);
+        bitmap.compress(encoding.getFormat().getCompressFormat(), encoding.getQuality(), out);
 
-        if (hasAlpha) {
+        if (replaceAlpha) {
             //Recicla o bitmap criado especialmente para colocar o fundo branco na transparência. O bitmap que veio de parâmetro não é alterado.
             bitmap.recycle();
         }
@@ -1261,15 +1717,19 @@ public class MobileBeanEntityRecord implements IEntityRecord {
 		MobileBeanEntityDAO dao = entityManager.getEntityDAO(entity);
 		MobileBeanEntityRecord entityRecord = dao.get(recordId);
 		if (entityRecord == null) {
-            //Se estiver em produção, apenas ignora para não interromper a aplicação como um todo.
-            String errorMsg = String.format("The entity \"%s\" has no record with the id \"%s\". Source entity = \"%s\", relationship = \"%s\".", entity, recordId, metadata.getName(), relationship);
-            if (AndroidBugsUtils.applyWorkaroundForBug52962(Registry.getActiveInstance().getContext())) {
-                throw new IllegalStateException(errorMsg);
-            }
-            Log.e(MobileBeanEntityRecord.class.getSimpleName(), errorMsg);
+			reportMissingRecord(recordId, entity, relationship);
         }
 		return entityRecord;
 	}
+
+	private void reportMissingRecord(Serializable recordId, String entity, String relationship) {
+		//Se estiver em produção, apenas ignora para não interromper a aplicação como um todo.
+		String errorMsg = String.format("The entity \"%s\" has no record with the id \"%s\". Source entity = \"%s\", relationship = \"%s\".", entity, recordId, metadata.getName(), relationship);
+		if (AndroidBugsUtils.applyWorkaroundForBug52962(Registry.getActiveInstance().getContext())) {
+			throw new IllegalStateException(errorMsg);
+		}
+		Log.e(MobileBeanEntityRecord.class.getSimpleName(), errorMsg);
+	}
 	
 	private ITerminalStatement createTargetRelatedSearchQuery(String entity, String mappedBy) {
 		//Cria a query para a busca do(s) registro(s) que aponta(m) para este.
@@ -1347,6 +1807,7 @@ public class MobileBeanEntityRecord implements IEntityRecord {
 	}
 	
 	void setTags(byte tags) {
+		detachSharedBean();
 		bean.setValue(TAGS_PROPERTY_NAME, String.valueOf(tags));
 		this.tags = tags;
 	}
@@ -0,0 +1,236 @@
+package br.com.zalem.ymir.client.android.entity.data.openmobster;
+
+import android.database.Cursor;
+import android.text.TextUtils;
+
+import org.openmobster.android.api.sync.CommitException;
+import org.openmobster.android.api.sync.MobileBean;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import br.com.zalem.ymir.client.android.entity.data.RelationshipViolationException;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityMetadata;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityRelationship;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.util.OpenMobsterUtils;
+import br.com.zalem.ymir.client.android.entity.data.util.MetadataUtils;
+import br.com.zalem.ymir.client.android.util.PendingFeatureException;
+
+import static br.com.zalem.ymir.client.android.entity.data.openmobster.query.SQLiteQueryBuilder.literal;
+import static br.com.zalem.ymir.client.android.entity.data.openmobster.util.OpenMobsterUtils.MAX_IDS_PER_QUERY;
+import static br.com.zalem.ymir.client.android.entity.data.openmobster.util.OpenMobsterUtils.quote;
+
+/**
+ * Exclusão de um conjunto de registros de entidades baseadas no {@link MobileBean}, incluindo os registros de suas composições.<br>
+ * Diferente da exclusão registro a registro, as composições são planejadas em largura (nível a nível), obtendo os registros das composições
+ * relacionadas pelo alvo de todo o nível de uma vez. A integridade referencial também é verificada para o conjunto inteiro, através de uma
+ * consulta por relacionamento que referencia as entidades excluídas (divididas em lotes de identificadores), independente da quantidade de registros.<br>
+ * <br>
+ * A exclusão deve ser executada dentro de uma transação, de forma que nenhum registro seja excluído se houver algum problema.
+ *
+ * @author Thiago Gesser
+ */
+final class MobileBeanEntityRecordsDeletion {
+
+	private final MobileBeanEntityDataManager entityManager;
+	//Registros que serão excluídos, agrupados por entidade e indexados pelo id.
+	private final Map<EntityMetadata, Map<String, MobileBeanEntityRecord>> recordsByEntity;
+
+	MobileBeanEntityRecordsDeletion(MobileBeanEntityDataManager entityManager) {
+		this.entityManager = entityManager;
+		this.recordsByEntity = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Planeja a exclusão dos registros e de todas as suas composições.
+	 *
+	 * @param records os registros que serão excluídos.
+	 */
+	void plan(Collection<MobileBeanEntityRecord> records) {
+		List<MobileBeanEntityRecord> level = new ArrayList<>(records);
+		while (!level.isEmpty()) {
+			List<MobileBeanEntityRecord> nextLevel = new ArrayList<>();
+			Map<EntityRelationship, List<String>> targetCompositionsOwners = new LinkedHashMap<>();
+
+			for (MobileBeanEntityRecord record : level) {
+				if (!add(record)) {
+					continue;
+				}
+
+				//Os registros do buffer são ignorados, apenas as composições salvas são excluídas.
+				record.clearRelationshipsBuffer();
+				EntityMetadata entity = record.getEntityMetadata();
+				for (EntityRelationship relationship : entity.getRelationships()) {
+					if (!MetadataUtils.isComposition(relationship)) {
+						continue;
+					}
+
+					//As composições relacionadas pelo alvo são obtidas para todos os registros do nível de uma vez.
+					if (!relationship.isRelatedBySource() && !entity.isInternal()) {
+						if (!record.isNew()) {
+							List<String> ownersIds = targetCompositionsOwners.get(relationship);
+							if (ownersIds == null) {
+								ownersIds = new ArrayList<>();
+								targetCompositionsOwners.put(relationship, ownersIds);
+							}
+							ownersIds.add(record.getBeanId());
+						}
+						continue;
+					}
+
+					String relationshipName = relationship.getName();
+					if (MetadataUtils.isSingleRelationship(relationship)) {
+						MobileBeanEntityRecord compositionRecord = record.getRelationshipValue(relationshipName);
+						if (compositionRecord != null) {
+							nextLevel.add(compositionRecord);
+						}
+					} else {
+						MobileBeanEntityRecord[] compositionRecords = record.getRelationshipArrayValue(relationshipName);
+						if (compositionRecords != null) {
+							for (MobileBeanEntityRecord compositionRecord : compositionRecords) {
+								if (compositionRecord != null) {
+									nextLevel.add(compositionRecord);
+								}
+							}
+						}
+					}
+				}
+			}
+
+			for (Entry<EntityRelationship, List<String>> entry : targetCompositionsOwners.entrySet()) {
+				EntityRelationship relationship = entry.getKey();
+				MobileBeanEntityDAO dao = entityManager.getEntityDAO(relationship.getTarget().getName());
+				List<String> ownersIds = entry.getValue();
+				for (int i = 0; i < ownersIds.size(); i += MAX_IDS_PER_QUERY) {
+					List<String> idsChunk = ownersIds.subList(i, Math.min(i + MAX_IDS_PER_QUERY, ownersIds.size()));
+					List<MobileBeanEntityRecord> compositionRecords = dao.
+																		select().
+																		where().
+																			rIn(idsChunk.toArray(new String[idsChunk.size()]), relationship.getMappedBy()).
+																	  listResult();
+					nextLevel.addAll(compositionRecords);
+				}
+			}
+
+			level = nextLevel;
+		}
+	}
+
+	/**
+	 * Verifica se há registros fora do conjunto planejado que referenciam algum dos registros que serão excluídos.
+	 *
+	 * @throws RelationshipViolationException se algum registro é referenciado. A exceção se refere ao primeiro registro referenciado encontrado.
+	 */
+	void checkReferences() throws RelationshipViolationException {
+		Map<MobileBeanEntityRecord, Set<String>> violations = new LinkedHashMap<>();
+		for (Entry<EntityMetadata, Map<String, MobileBeanEntityRecord>> entry : recordsByEntity.entrySet()) {
+			for (EntityRelationship referenceRel : entry.getKey().getReferencesToMe()) {
+				checkReferences(referenceRel, entry.getValue(), violations);
+			}
+		}
+
+		if (!violations.isEmpty()) {
+			Entry<MobileBeanEntityRecord, Set<String>> violation = violations.entrySet().iterator().next();
+			Set<String> violatedEntities = violation.getValue();
+			throw new RelationshipViolationException(violation.getKey(), violatedEntities.toArray(new String[violatedEntities.size()]));
+		}
+	}
+
+	/**
+	 * Exclui os registros planejados.
+	 *
+	 * @throws CommitException se houve algum problema na exclusão de um registro.
+	 */
+	void execute() throws CommitException {
+		for (Map<String, MobileBeanEntityRecord> records : recordsByEntity.values()) {
+			for (MobileBeanEntityRecord record : records.values()) {
+				record.getBean().delete();
+			}
+		}
+	}
+
+
+	/*
+	 * Métodos auxiliares
+	 */
+
+	private boolean add(MobileBeanEntityRecord record) {
+		//Registros internos e novos não são excluídos diretamente, apenas as suas composições.
+		EntityMetadata entity = record.getEntityMetadata();
+		if (entity.isInternal() || record.isNew()) {
+			return true;
+		}
+
+		Map<String, MobileBeanEntityRecord> records = recordsByEntity.get(entity);
+		if (records == null) {
+			records = new LinkedHashMap<>();
+			recordsByEntity.put(entity, records);
+		}
+
+		String id = record.getBeanId();
+		if (records.containsKey(id)) {
+			return false;
+		}
+		records.put(id, record);
+		return true;
+	}
+
+	private void checkReferences(EntityRelationship referenceRel, Map<String, MobileBeanEntityRecord> records, Map<MobileBeanEntityRecord, Set<String>> violations) {
+		if (!MetadataUtils.isSingleRelationship(referenceRel)) {
+			throw new PendingFeatureException("Delete a record that is pointed by a multiple relationship hosted by the source, because of the lack of checking violation of relationship array");
+		}
+
+		EntityMetadata sourceEntity = referenceRel.getSource();
+		if (sourceEntity.isInternal()) {
+			throw new PendingFeatureException("Delete a record that is pointed by an internal entity, because of the lack of violation checking that needs a direct query to that type of entity, which is not supported for now.");
+		}
+
+		//O OpenMobster só cria a tabela do canal quando ele recebe o primeiro registro.
+		String channel = sourceEntity.getChannel();
+		if (!OpenMobsterUtils.existsTable(channel)) {
+			return;
+		}
+
+		//As referências feitas por registros que também serão excluídos não violam o relacionamento.
+		Map<String, MobileBeanEntityRecord> deletedSources = recordsByEntity.get(sourceEntity);
+		List<String> ids = new ArrayList<>(records.keySet());
+		for (int i = 0; i < ids.size(); i += MAX_IDS_PER_QUERY) {
+			List<String> idsChunk = ids.subList(i, Math.min(i + MAX_IDS_PER_QUERY, ids.size()));
+			//Ex: SELECT r.value, r.recordid FROM "X" r WHERE r.name = 'produto' AND r.value IN (?, ?)
+			String sql = String.format("SELECT r.value, r.recordid FROM %s r WHERE r.name = %s AND r.value IN (%s)",
+									   quote(channel), literal(referenceRel.getName()), getParametersList(idsChunk.size()));
+
+			Cursor cursor = MobileBean.rawQuery(sql, idsChunk.toArray(new String[idsChunk.size()]));
+			try {
+				while (cursor.moveToNext()) {
+					if (deletedSources != null && deletedSources.containsKey(cursor.getString(1))) {
+						continue;
+					}
+
+					MobileBeanEntityRecord record = records.get(cursor.getString(0));
+					Set<String> violatedEntities = violations.get(record);
+					if (violatedEntities == null) {
+						violatedEntities = new LinkedHashSet<>();
+						violations.put(record, violatedEntities);
+					}
+					violatedEntities.add(sourceEntity.getName());
+				}
+			} finally {
+				cursor.close();
+			}
+		}
+	}
+
+	private static String getParametersList(int count) {
+		String[] parameters = new String[count];
+		Arrays.fill(parameters, "?");
+		return TextUtils.join(", ", parameters);
+	}
+}
@@ -0,0 +1,218 @@
+package br.com.zalem.ymir.client.android.entity.data.openmobster;
+
+import org.openmobster.android.api.sync.BeanList;
+import org.openmobster.android.api.sync.MobileBean;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityRelationship;
+import br.com.zalem.ymir.client.android.entity.data.util.MetadataUtils;
+
+import static br.com.zalem.ymir.client.android.entity.data.openmobster.util.OpenMobsterUtils.MAX_IDS_PER_QUERY;
+
+/**
+ * Inclusão antecipada dos registros relacionados a um conjunto de registros de entidades baseadas no {@link MobileBean}.<br>
+ * Os caminhos de relacionamentos são percorridos nível a nível, obtendo os registros relacionados de todo o nível de uma vez:
+ * os relacionamentos armazenados na fonte são obtidos em lote pelos identificadores e os armazenados no alvo através de uma
+ * consulta pelos donos (dividida em lotes de identificadores). Os registros obtidos ficam disponíveis nos métodos de obtenção
+ * de relacionamentos dos registros fonte, sem a necessidade de novas consultas.
+ *
+ * @author Thiago Gesser
+ */
+final class MobileBeanEntityRecordsInclusion {
+
+	private final MobileBeanEntityDataManager entityManager;
+
+	MobileBeanEntityRecordsInclusion(MobileBeanEntityDataManager entityManager) {
+		this.entityManager = entityManager;
+	}
+
+	/**
+	 * Inclui os registros relacionados de acordo com os caminhos de relacionamentos.
+	 *
+	 * @param records registros fonte. Pode conter posições nulas.
+	 * @param relationshipsPaths caminhos de relacionamentos que partem da entidade dos registros.
+	 */
+	void include(MobileBeanEntityRecord[] records, String[][] relationshipsPaths) {
+		for (String[] relationshipPath : relationshipsPaths) {
+			List<MobileBeanEntityRecord> level = new ArrayList<>(records.length);
+			for (MobileBeanEntityRecord record : records) {
+				if (record != null) {
+					level.add(record);
+				}
+			}
+
+			for (String relationshipName : relationshipPath) {
+				if (level.isEmpty()) {
+					break;
+				}
+				level = include(level, relationshipName);
+			}
+		}
+	}
+
+
+	/*
+	 * Métodos auxiliares
+	 */
+
+	private List<MobileBeanEntityRecord> include(List<MobileBeanEntityRecord> records, String relationshipName) {
+		EntityRelationship relationship = records.get(0).getEntityMetadata().getRelationship(relationshipName);
+		boolean isSingle = MetadataUtils.isSingleRelationship(relationship);
+
+		//Os registros já incluídos por outro caminho (com o mesmo início) não precisam ser obtidos novamente.
+		List<MobileBeanEntityRecord> sources = new ArrayList<>(records.size());
+		Set<MobileBeanEntityRecord> nextLevel = new LinkedHashSet<>();
+		for (MobileBeanEntityRecord record : records) {
+			if (record.hasIncludedRelationship(relationshipName)) {
+				if (isSingle) {
+					addToLevel(nextLevel, record.getRelationshipValue(relationshipName));
+				} else {
+					addToLevel(nextLevel, record.getRelationshipArrayValue(relationshipName));
+				}
+			} else if (!record.isNew()) {
+				sources.add(record);
+			}
+		}
+		if (sources.isEmpty()) {
+			return new ArrayList<>(nextLevel);
+		}
+
+		if (relationship.isRelatedBySource()) {
+			includeSourceRelated(sources, relationship, isSingle, nextLevel);
+		} else {
+			includeTargetRelated(sources, relationship, isSingle, nextLevel);
+		}
+		return new ArrayList<>(nextLevel);
+	}
+
+	private void includeSourceRelated(List<MobileBeanEntityRecord> sources, EntityRelationship relationship, boolean isSingle, Set<MobileBeanEntityRecord> nextLevel) {
+		//Obtém os identificadores referenciados por todos os registros e depois os registros de uma vez só.
+		String relationshipName = relationship.getName();
+		Map<MobileBeanEntityRecord, String[]> sourcesIds = new LinkedHashMap<>(sources.size());
+		Set<String> allIds = new LinkedHashSet<>();
+		for (MobileBeanEntityRecord source : sources) {
+			String[] ids;
+			if (isSingle) {
+				String id = source.getBeanValue(relationshipName);
+				ids = id == null ? null : new String[] {id};
+			} else {
+				BeanList beanList = source.getBeanListValue(relationshipName);
+				if (beanList == null) {
+					ids = null;
+				} else {
+					ids = new String[beanList.size()];
+					for (int i = 0; i < ids.length; i++) {
+						ids[i] = beanList.getEntryAt(i).getValue();
+					}
+				}
+			}
+
+			sourcesIds.put(source, ids);
+			if (ids != null) {
+				for (String id : ids) {
+					if (id != null) {
+						allIds.add(id);
+					}
+				}
+			}
+		}
+
+		MobileBeanEntityDAO dao = entityManager.getEntityDAO(relationship.getTarget().getName());
+		Map<String, MobileBeanEntityRecord> targets = dao.getAll(allIds);
+		for (Entry<MobileBeanEntityRecord, String[]> entry : sourcesIds.entrySet()) {
+			String[] ids = entry.getValue();
+			if (ids == null) {
+				entry.getKey().setIncludedRelationship(relationshipName, null);
+				continue;
+			}
+
+			MobileBeanEntityRecord[] related = new MobileBeanEntityRecord[ids.length];
+			boolean hasMissingRecord = false;
+			for (int i = 0; i < ids.length; i++) {
+				if (ids[i] != null) {
+					related[i] = targets.get(ids[i]);
+					hasMissingRecord |= related[i] == null;
+				}
+			}
+			addToLevel(nextLevel, related);
+
+			//Os registros inexistentes são deixados para a obtenção normal do relacionamento, que reporta o problema.
+			if (!hasMissingRecord) {
+				entry.getKey().setIncludedRelationship(relationshipName, isSingle ? related[0] : related);
+			}
+		}
+	}
+
+	private void includeTargetRelated(List<MobileBeanEntityRecord> sources, EntityRelationship relationship, boolean isSingle, Set<MobileBeanEntityRecord> nextLevel) {
+		//Obtém os registros que apontam para qualquer um dos registros fonte, agrupando-os pelo registro apontado.
+		String mappedBy = relationship.getMappedBy();
+		MobileBeanEntityDAO dao = entityManager.getEntityDAO(relationship.getTarget().getName());
+		Map<String, List<MobileBeanEntityRecord>> targetsBySource = new HashMap<>(sources.size());
+		for (int i = 0; i < sources.size(); i += MAX_IDS_PER_QUERY) {
+			List<MobileBeanEntityRecord> sourcesChunk = sources.subList(i, Math.min(i + MAX_IDS_PER_QUERY, sources.size()));
+			String[] idsChunk = new String[sourcesChunk.size()];
+			for (int j = 0; j < idsChunk.length; j++) {
+				idsChunk[j] = sourcesChunk.get(j).getBeanId();
+			}
+
+			List<MobileBeanEntityRecord> targets = dao.
+													select().
+													where().
+														rIn(idsChunk, mappedBy).
+												  listResult();
+			for (MobileBeanEntityRecord target : targets) {
+				String sourceId = target.getBeanValue(mappedBy);
+				List<MobileBeanEntityRecord> sourceTargets = targetsBySource.get(sourceId);
+				if (sourceTargets == null) {
+					sourceTargets = new ArrayList<>();
+					targetsBySource.put(sourceId, sourceTargets);
+				}
+				sourceTargets.add(target);
+			}
+		}
+
+		String relationshipName = relationship.getName();
+		for (MobileBeanEntityRecord source : sources) {
+			List<MobileBeanEntityRecord> sourceTargets = targetsBySource.get(source.getBeanId());
+			if (isSingle) {
+				if (sourceTargets == null) {
+					source.setIncludedRelationship(relationshipName, null);
+				} else if (sourceTargets.size() == 1) {
+					MobileBeanEntityRecord target = sourceTargets.get(0);
+					source.setIncludedRelationship(relationshipName, target);
+					nextLevel.add(target);
+				}
+				//Se há mais de um registro apontando, deixa para a obtenção normal do relacionamento, que reporta o problema.
+			} else {
+				MobileBeanEntityRecord[] targetsArray;
+				if (sourceTargets == null) {
+					targetsArray = new MobileBeanEntityRecord[0];
+				} else {
+					targetsArray = sourceTargets.toArray(new MobileBeanEntityRecord[sourceTargets.size()]);
+					nextLevel.addAll(sourceTargets);
+				}
+				source.setIncludedRelationship(relationshipName, targetsArray);
+			}
+		}
+	}
+
+	private static void addToLevel(Set<MobileBeanEntityRecord> level, MobileBeanEntityRecord... records) {
+		if (records == null) {
+			return;
+		}
+
+		for (MobileBeanEntityRecord record : records) {
+			if (record != null) {
+				level.add(record);
+			}
+		}
+	}
+}
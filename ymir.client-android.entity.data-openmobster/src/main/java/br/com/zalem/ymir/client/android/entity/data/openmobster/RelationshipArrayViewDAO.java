@@ -2,6 +2,7 @@ package br.com.zalem.ymir.client.android.entity.data.openmobster;
 
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -37,6 +38,16 @@ public final class RelationshipArrayViewDAO extends MobileBeanEntityDAO {
 		
 		return super.save(record, sync);
 	}
+
+	@Override
+	public List<IEntityRecord> saveAll(Collection<? extends IEntityRecord> records, boolean sync) {
+		checkNotInternal();
+		for (IEntityRecord record : records) {
+			checkRecordOrigin(record);
+		}
+
+		return super.saveAll(records, sync);
+	}
 	
 	@Override
 	public boolean delete(IEntityRecord record, boolean sync) throws RelationshipViolationException {
@@ -45,6 +56,16 @@ public final class RelationshipArrayViewDAO extends MobileBeanEntityDAO {
 		
 		return super.delete(record, sync);
 	}
+
+	@Override
+	public boolean deleteAll(Collection<? extends IEntityRecord> records, boolean sync) throws RelationshipViolationException {
+		checkNotInternal();
+		for (IEntityRecord record : records) {
+			checkRecordOrigin(record);
+		}
+
+		return super.deleteAll(records, sync);
+	}
 	
 	@Override
 	public boolean refresh(IEntityRecord record) {
@@ -0,0 +1,913 @@
+package br.com.zalem.ymir.client.android.entity.data.openmobster.blob;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+
+import org.openmobster.android.api.sync.MobileBean;
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObject;
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObjectDatabase;
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObjectDatabase.IMobileObjectDatabaseListener;
+import org.openmobster.core.mobileCloud.android.service.Registry;
+import org.openmobster.core.mobileCloud.android.storage.Record;
+import org.openmobster.core.mobileCloud.android.util.Base64;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import br.com.zalem.ymir.client.android.entity.data.openmobster.util.ImageUtils;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.util.OpenMobsterUtils;
+
+import static br.com.zalem.ymir.client.android.entity.data.openmobster.util.OpenMobsterUtils.executeSQL;
+import static br.com.zalem.ymir.client.android.entity.data.openmobster.util.OpenMobsterUtils.quote;
+
+/**
+ * Armazenamento dos dados binários (blobs) das imagens dos registros fora das tabelas de nome/valor dos canais.<br>
+ * Os blobs são armazenados em arquivos nomeados pelo hash do seu conteúdo, de forma que imagens iguais compartilhem o mesmo arquivo.
+ * O valor do atributo no canal passa a ser apenas uma {@link #toReference(String, int, int) referência} composta pelo hash e pelas
+ * dimensões da imagem, evitando que os dados das imagens (codificados em Base64) sejam carregados junto com os demais valores dos registros.
+ * Os valores em Base64 continuam sendo suportados, então os dados existentes podem ser migrados aos poucos através do {@link #migrate(String, String...)}.<br>
+ * <br>
+ * Após o início do OpenMobster, as referências dos registros dos canais com imagens são mantidas na tabela <code>ymir_blob_refs</code>
+ * através dos eventos de criação/atualização/exclusão de objetos, o que abrange tanto as alterações feitas pelos DAOs quanto as provenientes
+ * da sincronização com a nuvem. A quantidade de referências de cada blob corresponde às suas linhas na tabela. Quando um blob deixa de ser
+ * referenciado, seu arquivo é excluído em background após um breve período, de forma que a transação que removeu a referência já
+ * tenha sido efetivada. Os blobs gravados mas nunca referenciados (como os de registros que não foram salvos) são excluídos pelo
+ * {@link #collectGarbage()}, chamado a cada início.<br>
+ * <br>
+ * As imagens também podem possuir miniaturas, armazenadas no subdiretório <code>thumbnails</code> e identificadas pelo hash da imagem
+ * e pelo tamanho da miniatura. Como são derivadas da imagem, as miniaturas não são referenciadas pelos registros e são excluídas junto com ela.<br>
+ * <br>
+ * A sincronização do OpenMobster trafega apenas os valores dos canais, então os blobs não são enviados à nuvem. Desta forma, o armazenamento
+ * deve ser utilizado apenas em aplicações offline ou cujo servidor também resolva as referências.
+ *
+ * @see br.com.zalem.ymir.client.android.entity.data.openmobster.MobileBeanEntityDataManager#setBlobStore(EntityBlobStore)
+ *
+ * @author Thiago Gesser
+ */
+public final class EntityBlobStore implements IMobileObjectDatabaseListener {
+
+	private static final String REFERENCE_PREFIX = "ymir-blob:";
+	private static final String REFERENCE_GLOB = REFERENCE_PREFIX + "*";
+	private static final String REFERENCES_TABLE = "ymir_blob_refs";
+	private static final String HASH_ALGORITHM = "SHA-1";
+	private static final int HASH_LENGTH = 40;
+	private static final String TEMP_FILE_PREFIX = "tmp-";
+	private static final String THUMBNAILS_DIRECTORY = "thumbnails";
+	private static final char THUMBNAIL_SIZE_SEPARATOR = '_';
+
+	//Tempo aguardado antes de excluir os blobs que deixaram de ser referenciados, garantindo que a transação já foi efetivada.
+	private static final long DELETION_DELAY = 5000;
+	//Blobs gravados recentemente podem estar em uso por registros ainda não salvos, então não são excluídos pelas alterações.
+	private static final long RECENT_BLOB_AGE = 60 * 1000;
+	//Idade mínima dos blobs não referenciados excluídos pelo coletor.
+	private static final long ORPHAN_BLOB_AGE = 24 * 60 * 60 * 1000;
+	//Quantidade de valores migrados em cada transação.
+	private static final int MIGRATION_BATCH_SIZE = 20;
+
+	private final File directory;
+	private final File thumbnailsDirectory;
+	//Os canais e os blobs a serem verificados são alterados tanto pelos eventos do OpenMobster quanto pela Thread de exclusão.
+	private final Set<String> channels;
+	private final Set<String> deletionCandidates;
+	private final Handler handler;
+	private final Runnable deletionRunnable;
+	private volatile boolean started;
+
+	/**
+	 * Cria um EntityBlobStore que armazena os blobs no diretório <code>ymir_blobs</code> da área privada da aplicação.
+	 *
+	 * @param context contexto.
+	 */
+	public EntityBlobStore(Context context) {
+		this(new File(context.getFilesDir(), "ymir_blobs"));
+	}
+
+	/**
+	 * Cria um EntityBlobStore que armazena os blobs no diretório definido.
+	 *
+	 * @param directory diretório dos blobs.
+	 */
+	public EntityBlobStore(File directory) {
+		this.directory = directory;
+		this.thumbnailsDirectory = new File(directory, THUMBNAILS_DIRECTORY);
+		channels = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		deletionCandidates = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+		HandlerThread deletionThread = new HandlerThread(EntityBlobStore.class.getSimpleName(), Process.THREAD_PRIORITY_BACKGROUND);
+		deletionThread.start();
+		handler = new Handler(deletionThread.getLooper());
+		deletionRunnable = new Runnable() {
+			@Override
+			public void run() {
+				deleteUnreferencedCandidates();
+			}
+		};
+	}
+
+	/**
+	 * Inicia o acompanhamento das referências dos canais. Se o OpenMobster ainda não foi iniciado, o acompanhamento começará logo após o seu início.
+	 *
+	 * @param channels canais que podem conter referências para blobs.
+	 */
+	public void start(String... channels) {
+		Collections.addAll(this.channels, channels);
+
+		if (Registry.isActiveAndStarted()) {
+			initialize();
+		} else {
+			Registry.executeAfterStart(new Runnable() {
+				@Override
+				public void run() {
+					initialize();
+				}
+			}, true);
+		}
+	}
+
+
+	/*
+	 * Métodos de manipulação dos blobs
+	 */
+
+	/**
+	 * Armazena o blob, caso ainda não exista um blob com o mesmo conteúdo.
+	 *
+	 * @param data conteúdo do blob.
+	 * @return o hash do blob.
+	 */
+	public String put(byte[] data) {
+		String hash = toHex(newDigest().digest(data));
+		File file = getFile(hash);
+		if (file.exists()) {
+			//Marca o blob como recente para que ele não seja excluído antes de ser referenciado.
+			if (!file.setLastModified(System.currentTimeMillis())) {
+				Log.w(EntityBlobStore.class.getSimpleName(), "Could not update the modification time of the blob: " + hash);
+			}
+			return hash;
+		}
+
+		try {
+			OutputStream out = openOutput(hash);
+			try {
+				out.write(data);
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return hash;
+	}
+
+	/**
+	 * Armazena a imagem como um blob.
+	 *
+	 * @param imageData dados da imagem já codificados.
+	 * @param width largura da imagem.
+	 * @param height altura da imagem.
+	 * @return a referência para a imagem armazenada, que deve ser utilizada como valor do atributo.
+	 */
+	public String putImage(byte[] imageData, int width, int height) {
+		return toReference(put(imageData), width, height);
+	}
+
+	/**
+	 * Abre uma saída para a gravação do conteúdo de um blob cujo hash já é conhecido, como na recuperação de um backup.
+	 * O blob só é efetivado no fechamento da saída, desde que o conteúdo gravado corresponda ao hash.
+	 *
+	 * @param hash o hash do blob.
+	 * @return a saída aberta.
+	 * @throws IOException se houve algum problema na criação do arquivo temporário do blob.
+	 */
+	public OutputStream openOutput(String hash) throws IOException {
+		checkHash(hash);
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create the blobs directory: " + directory);
+		}
+
+		File tempFile = File.createTempFile(TEMP_FILE_PREFIX, null, directory);
+		return new BlobOutputStream(hash, tempFile, getFile(hash));
+	}
+
+	/**
+	 * Abre a entrada de dados do blob.
+	 *
+	 * @param hash o hash do blob.
+	 * @return a entrada aberta.
+	 * @throws FileNotFoundException se não há um blob com o hash.
+	 */
+	public InputStream open(String hash) throws FileNotFoundException {
+		return new FileInputStream(getFile(hash));
+	}
+
+	/**
+	 * Obtém o arquivo do blob. O arquivo não deve ser alterado.
+	 *
+	 * @param hash o hash do blob.
+	 * @return o arquivo obtido, que pode não existir.
+	 */
+	public File getFile(String hash) {
+		checkHash(hash);
+		return new File(directory, hash);
+	}
+
+	/**
+	 * Indica se o blob está armazenado.
+	 *
+	 * @param hash o hash do blob.
+	 * @return <code>true</code> se o blob está armazenado e <code>false</code> caso contrário.
+	 */
+	public boolean contains(String hash) {
+		return getFile(hash).exists();
+	}
+
+	/**
+	 * Obtém a imagem referenciada.
+	 *
+	 * @param reference a referência para a imagem.
+	 * @return a imagem obtida.
+	 * @throws IllegalStateException se a imagem não está armazenada ou se os seus dados não são válidos.
+	 */
+	public Bitmap decodeImage(BlobReference reference) {
+		File file = getFile(reference.getHash());
+		Bitmap bitmap = BitmapFactory.decodeFile(file.getPath());
+		if (bitmap == null) {
+			throw new IllegalStateException(String.format("The image blob is missing or invalid. Hash = %s, exists = %b.", reference.getHash(), file.exists()));
+		}
+		return bitmap;
+	}
+
+	/**
+	 * Obtém a imagem referenciada, decodificando-a com a maior amostragem possível para o tamanho alvo.
+	 * As dimensões da imagem são obtidas da própria referência, então os dados são decodificados uma única vez.
+	 *
+	 * @param reference a referência para a imagem.
+	 * @param targetWidth largura alvo.
+	 * @param targetHeight altura alvo.
+	 * @return a imagem obtida.
+	 * @throws IllegalStateException se a imagem não está armazenada ou se os seus dados não são válidos.
+	 */
+	public Bitmap decodeImage(BlobReference reference, int targetWidth, int targetHeight) {
+		BitmapFactory.Options options = new BitmapFactory.Options();
+		options.inSampleSize = ImageUtils.calculateInSampleSize(reference.getWidth(), reference.getHeight(), targetWidth, targetHeight);
+
+		File file = getFile(reference.getHash());
+		Bitmap bitmap = BitmapFactory.decodeFile(file.getPath(), options);
+		if (bitmap == null) {
+			throw new IllegalStateException(String.format("The image blob is missing or invalid. Hash = %s, exists = %b.", reference.getHash(), file.exists()));
+		}
+		return bitmap;
+	}
+
+	/**
+	 * Armazena a miniatura de uma imagem, substituindo a miniatura do mesmo tamanho se ela já existir.
+	 *
+	 * @param hash o hash da imagem.
+	 * @param size tamanho da miniatura.
+	 * @param thumbnailData dados da miniatura já codificados.
+	 */
+	public void putThumbnail(String hash, int size, byte[] thumbnailData) {
+		File file = getThumbnailFile(hash, size);
+		try {
+			if (!thumbnailsDirectory.isDirectory() && !thumbnailsDirectory.mkdirs()) {
+				throw new IOException("Could not create the thumbnails directory: " + thumbnailsDirectory);
+			}
+
+			//Grava em um arquivo temporário para que uma miniatura incompleta nunca seja lida.
+			File tempFile = File.createTempFile(TEMP_FILE_PREFIX, null, thumbnailsDirectory);
+			try {
+				FileOutputStream out = new FileOutputStream(tempFile);
+				try {
+					out.write(thumbnailData);
+				} finally {
+					out.close();
+				}
+				if (!tempFile.renameTo(file)) {
+					throw new IOException("Could not store the thumbnail file: " + file);
+				}
+			} finally {
+				deleteFile(tempFile);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Obtém a miniatura de uma imagem.
+	 *
+	 * @param hash o hash da imagem.
+	 * @param size tamanho da miniatura.
+	 * @return a miniatura obtida ou <code>null</code> se ela não está armazenada.
+	 */
+	public Bitmap decodeThumbnail(String hash, int size) {
+		File file = getThumbnailFile(hash, size);
+		if (!file.exists()) {
+			return null;
+		}
+		return BitmapFactory.decodeFile(file.getPath());
+	}
+
+	/**
+	 * Obtém o arquivo da miniatura de uma imagem. O arquivo não deve ser alterado.
+	 *
+	 * @param hash o hash da imagem.
+	 * @param size tamanho da miniatura.
+	 * @return o arquivo obtido, que pode não existir.
+	 */
+	public File getThumbnailFile(String hash, int size) {
+		checkHash(hash);
+		return new File(thumbnailsDirectory, hash + THUMBNAIL_SIZE_SEPARATOR + size);
+	}
+
+
+	/*
+	 * Métodos de manutenção das referências
+	 */
+
+	/**
+	 * Obtém os hashes dos blobs referenciados pelos registros dos canais.
+	 *
+	 * @param channels os canais.
+	 * @return os hashes obtidos.
+	 * @throws IllegalStateException se o armazenamento ainda não foi iniciado.
+	 */
+	public Set<String> getReferencedHashes(String... channels) {
+		checkStarted();
+
+		Set<String> hashes = new HashSet<>();
+		for (String channel : channels) {
+			Cursor cursor = MobileBean.rawQuery("SELECT DISTINCT hash FROM " + REFERENCES_TABLE + " WHERE channel = ?", new String[] {channel});
+			try {
+				while (cursor.moveToNext()) {
+					hashes.add(cursor.getString(0));
+				}
+			} finally {
+				cursor.close();
+			}
+		}
+		return hashes;
+	}
+
+	/**
+	 * Migra os valores em Base64 dos atributos de imagens do canal para blobs, substituindo-os pelas referências.<br>
+	 * São considerados os valores dos atributos com os nomes definidos, inclusive os presentes nas listas e nos registros internos do canal.
+	 * Os valores que não representam imagens válidas são mantidos. Os registros são atualizados através do {@link MobileObjectDatabase},
+	 * sem gerar alterações a serem sincronizadas, de forma que a linha de controle seja mantida e os listeners (caches, projeções, índices
+	 * e as próprias referências) sejam notificados. A migração é feita em várias transações, então pode ser interrompida e continuada posteriormente.
+	 *
+	 * @param channel o canal.
+	 * @param attributesNames nomes dos atributos de imagens.
+	 * @return a quantidade de valores migrados.
+	 * @throws IllegalStateException se o armazenamento ainda não foi iniciado.
+	 */
+	public int migrate(String channel, String... attributesNames) {
+		checkStarted();
+		if (attributesNames.length == 0 || !OpenMobsterUtils.existsTable(channel)) {
+			return 0;
+		}
+
+		//Os valores podem estar diretamente no atributo ou em um caminho (listas e registros internos), como em "itens[0]/foto".
+		StringBuilder namesCondition = new StringBuilder();
+		String[] namesParameters = new String[attributesNames.length * 2];
+		for (int i = 0; i < attributesNames.length; i++) {
+			if (i > 0) {
+				namesCondition.append(" OR ");
+			}
+			namesCondition.append("name = ? OR name GLOB ?");
+			namesParameters[i * 2] = attributesNames[i];
+			namesParameters[i * 2 + 1] = "*/" + attributesNames[i];
+		}
+		String selectSQL = "SELECT rowid, recordid, name, value FROM " + quote(channel) + " WHERE rowid > ? AND value NOT GLOB ? AND value <> '' AND (" + namesCondition + ") ORDER BY rowid LIMIT " + MIGRATION_BATCH_SIZE;
+		String recordSQL = "SELECT name, value FROM " + quote(channel) + " WHERE recordid = ?";
+		MobileObjectDatabase moDB = MobileObjectDatabase.getInstance();
+
+		int count = 0;
+		long lastRowId = -1;
+		while (true) {
+			String[] parameters = new String[namesParameters.length + 2];
+			parameters[0] = String.valueOf(lastRowId);
+			parameters[1] = REFERENCE_GLOB;
+			System.arraycopy(namesParameters, 0, parameters, 2, namesParameters.length);
+
+			//Lê o lote inteiro antes das alterações para não percorrer o cursor enquanto a tabela é alterada.
+			List<String[]> batch = new ArrayList<>(MIGRATION_BATCH_SIZE);
+			Cursor cursor = MobileBean.rawQuery(selectSQL, parameters);
+			try {
+				while (cursor.moveToNext()) {
+					batch.add(new String[] {cursor.getString(0), cursor.getString(1), cursor.getString(2), cursor.getString(3)});
+				}
+			} finally {
+				cursor.close();
+			}
+			if (batch.isEmpty()) {
+				return count;
+			}
+
+			//Agrupa as referências por registro, de forma que cada registro seja atualizado uma única vez.
+			Map<String, Map<String, String>> migratedValues = new LinkedHashMap<>();
+			for (String[] row : batch) {
+				lastRowId = Long.parseLong(row[0]);
+				String reference = migrateValue(row[3]);
+				if (reference == null) {
+					continue;
+				}
+
+				Map<String, String> recordValues = migratedValues.get(row[1]);
+				if (recordValues == null) {
+					recordValues = new HashMap<>();
+					migratedValues.put(row[1], recordValues);
+				}
+				recordValues.put(row[2], reference);
+			}
+
+			MobileBean.beginTransaction();
+			try {
+				for (Map.Entry<String, Map<String, String>> entry : migratedValues.entrySet()) {
+					//Remonta o registro a partir de todas as suas linhas (inclusive a de controle), trocando apenas os valores migrados.
+					Map<String, String> state = readRecordState(recordSQL, entry.getKey());
+					if (state.isEmpty()) {
+						continue;
+					}
+					state.putAll(entry.getValue());
+
+					moDB.update(new MobileObject(new Record(state)));
+					count += entry.getValue().size();
+				}
+
+				MobileBean.setTransactionSuccessful();
+			} finally {
+				MobileBean.endTransaction();
+			}
+		}
+	}
+
+	/**
+	 * Reconstrói as referências a partir dos dados atuais dos canais.<br>
+	 * Normalmente não é necessário chamar este método, pois as referências são mantidas sincronizadas automaticamente.
+	 *
+	 * @throws IllegalStateException se o armazenamento ainda não foi iniciado.
+	 */
+	public void rebuildReferences() {
+		checkStarted();
+
+		MobileBean.beginTransaction();
+		try {
+			executeSQL("DELETE FROM " + REFERENCES_TABLE);
+			fillReferences();
+
+			MobileBean.setTransactionSuccessful();
+		} finally {
+			MobileBean.endTransaction();
+		}
+	}
+
+	/**
+	 * Exclui os blobs que não são referenciados por nenhum registro e que não foram gravados recentemente, além dos arquivos
+	 * temporários que restaram de gravações interrompidas. É chamado automaticamente em background a cada início do armazenamento.
+	 *
+	 * @throws IllegalStateException se o armazenamento ainda não foi iniciado.
+	 */
+	public void collectGarbage() {
+		checkStarted();
+
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+
+		long maxTime = System.currentTimeMillis() - ORPHAN_BLOB_AGE;
+		for (File file : files) {
+			if (file.lastModified() > maxTime) {
+				continue;
+			}
+
+			String name = file.getName();
+			if (name.startsWith(TEMP_FILE_PREFIX) || (name.length() == HASH_LENGTH && !isReferenced(name))) {
+				deleteFile(file);
+			}
+		}
+
+		//As miniaturas cujas imagens já foram excluídas também são excluídas.
+		File[] thumbnailsFiles = thumbnailsDirectory.listFiles();
+		if (thumbnailsFiles == null) {
+			return;
+		}
+		for (File file : thumbnailsFiles) {
+			String name = file.getName();
+			if (name.startsWith(TEMP_FILE_PREFIX)) {
+				if (file.lastModified() <= maxTime) {
+					deleteFile(file);
+				}
+			} else if (name.length() <= HASH_LENGTH || !new File(directory, name.substring(0, HASH_LENGTH)).exists()) {
+				deleteFile(file);
+			}
+		}
+	}
+
+
+	@Override
+	public void onMobileObjectCreated(MobileObject mo, String id) {
+		updateReferences(mo.getStorageId(), id);
+	}
+
+	@Override
+	public void onMobileObjectUpdated(MobileObject mo) {
+		updateReferences(mo.getStorageId(), mo.getRecordId());
+	}
+
+	@Override
+	public void onMobileObjectDeleted(MobileObject mo) {
+		String channel = mo.getStorageId();
+		if (!channels.contains(channel)) {
+			return;
+		}
+
+		String recordId = mo.getRecordId();
+		addDeletionCandidates("SELECT hash FROM " + REFERENCES_TABLE + " WHERE channel = ? AND recordid = ?", channel, recordId);
+		executeSQL("DELETE FROM " + REFERENCES_TABLE + " WHERE channel = ? AND recordid = ?", channel, recordId);
+		scheduleDeletion();
+	}
+
+	@Override
+	public void onAllMobileObjectsDeleted(String channel) {
+		if (!channels.contains(channel)) {
+			return;
+		}
+
+		addDeletionCandidates("SELECT DISTINCT hash FROM " + REFERENCES_TABLE + " WHERE channel = ?", channel);
+		executeSQL("DELETE FROM " + REFERENCES_TABLE + " WHERE channel = ?", channel);
+		scheduleDeletion();
+	}
+
+	@Override
+	public void beforeMobileObjectCreated(MobileObject mobileObject) {
+	}
+
+	@Override
+	public void beforeMobileObjectDeleted(MobileObject mobileObject) {
+	}
+
+	@Override
+	public void beforeMobileObjectUpdated(MobileObject mobileObject) {
+	}
+
+
+	/*
+	 * Métodos de manipulação das referências
+	 */
+
+	/**
+	 * Indica se o valor é uma referência para um blob.
+	 *
+	 * @param value o valor.
+	 * @return <code>true</code> se o valor é uma referência e <code>false</code> caso contrário.
+	 */
+	public static boolean isReference(String value) {
+		return value != null && value.startsWith(REFERENCE_PREFIX);
+	}
+
+	/**
+	 * Monta a referência para uma imagem armazenada como blob.
+	 *
+	 * @param hash o hash do blob.
+	 * @param width largura da imagem.
+	 * @param height altura da imagem.
+	 * @return a referência montada.
+	 */
+	public static String toReference(String hash, int width, int height) {
+		return REFERENCE_PREFIX + hash + ':' + width + 'x' + height;
+	}
+
+	/**
+	 * Interpreta a referência para uma imagem armazenada como blob.
+	 *
+	 * @param value o valor que contém a referência.
+	 * @return a referência interpretada ou <code>null</code> se o valor não é uma referência.
+	 * @throws IllegalArgumentException se o valor é uma referência mal formada.
+	 */
+	public static BlobReference parseReference(String value) {
+		if (!isReference(value)) {
+			return null;
+		}
+
+		int hashEnd = REFERENCE_PREFIX.length() + HASH_LENGTH;
+		int separator = value.indexOf('x', hashEnd);
+		if (value.length() <= hashEnd || value.charAt(hashEnd) != ':' || separator == -1) {
+			throw new IllegalArgumentException("Malformed blob reference: " + value);
+		}
+
+		try {
+			String hash = value.substring(REFERENCE_PREFIX.length(), hashEnd);
+			int width = Integer.parseInt(value.substring(hashEnd + 1, separator));
+			int height = Integer.parseInt(value.substring(separator + 1));
+			return new BlobReference(hash, width, height);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Malformed blob reference: " + value, e);
+		}
+	}
+
+
+	/*
+	 * Métodos/classes auxiliares
+	 */
+
+	private void initialize() {
+		MobileObjectDatabase moDB = MobileObjectDatabase.getInstance();
+		//Pode ser chamado a cada início do OpenMobster, então garante que não será registrado mais de uma vez.
+		moDB.removeListener(this);
+
+		//Prepara a tabela e registra o listener na mesma transação para que nenhuma alteração nos canais seja perdida.
+		MobileBean.beginTransaction();
+		try {
+			if (!OpenMobsterUtils.existsTable(REFERENCES_TABLE)) {
+				executeSQL("CREATE TABLE " + REFERENCES_TABLE + " (channel TEXT, recordid TEXT, hash TEXT)");
+				executeSQL("CREATE INDEX " + REFERENCES_TABLE + "_record ON " + REFERENCES_TABLE + " (channel, recordid)");
+				executeSQL("CREATE INDEX " + REFERENCES_TABLE + "_hash ON " + REFERENCES_TABLE + " (hash)");
+				fillReferences();
+			}
+			moDB.addListener(this);
+
+			MobileBean.setTransactionSuccessful();
+		} finally {
+			MobileBean.endTransaction();
+		}
+		started = true;
+
+		handler.post(new Runnable() {
+			@Override
+			public void run() {
+				collectGarbage();
+			}
+		});
+	}
+
+	private void fillReferences() {
+		for (String channel : channels) {
+			//O OpenMobster só cria a tabela do canal quando ele recebe o primeiro registro.
+			if (OpenMobsterUtils.existsTable(channel)) {
+				executeSQL("INSERT INTO " + REFERENCES_TABLE + " (channel, recordid, hash) " + getReferencesSelect(channel, false), channel, REFERENCE_GLOB);
+			}
+		}
+	}
+
+	private void updateReferences(String channel, String recordId) {
+		if (!channels.contains(channel)) {
+			return;
+		}
+
+		//Os blobs referenciados anteriormente pelo registro podem ter deixado de ser referenciados.
+		addDeletionCandidates("SELECT hash FROM " + REFERENCES_TABLE + " WHERE channel = ? AND recordid = ?", channel, recordId);
+		executeSQL("DELETE FROM " + REFERENCES_TABLE + " WHERE channel = ? AND recordid = ?", channel, recordId);
+		executeSQL("INSERT INTO " + REFERENCES_TABLE + " (channel, recordid, hash) " + getReferencesSelect(channel, true), channel, REFERENCE_GLOB, recordId);
+		scheduleDeletion();
+	}
+
+	private static String getReferencesSelect(String channel, boolean singleRecord) {
+		//O hash tem tamanho fixo, então pode ser extraído da referência diretamente no SQL.
+		String select = "SELECT ?, recordid, substr(value, " + (REFERENCE_PREFIX.length() + 1) + ", " + HASH_LENGTH + ") FROM " + quote(channel) + " WHERE value GLOB ?";
+		if (singleRecord) {
+			select += " AND recordid = ?";
+		}
+		return select;
+	}
+
+	private void addDeletionCandidates(String sql, String... parameters) {
+		Cursor cursor = MobileBean.rawQuery(sql, parameters);
+		try {
+			while (cursor.moveToNext()) {
+				deletionCandidates.add(cursor.getString(0));
+			}
+		} finally {
+			cursor.close();
+		}
+	}
+
+	private void scheduleDeletion() {
+		if (deletionCandidates.isEmpty()) {
+			return;
+		}
+
+		//Adia a exclusão a cada nova alteração, agrupando as alterações próximas (como as de uma mesma transação).
+		handler.removeCallbacks(deletionRunnable);
+		handler.postDelayed(deletionRunnable, DELETION_DELAY);
+	}
+
+	private void deleteUnreferencedCandidates() {
+		long maxTime = System.currentTimeMillis() - RECENT_BLOB_AGE;
+		Set<String> deletedHashes = new HashSet<>();
+		for (String hash : deletionCandidates) {
+			deletionCandidates.remove(hash);
+
+			//Os blobs recentes são deixados para o coletor, pois podem estar em uso por registros ainda não salvos.
+			File file = getFile(hash);
+			if (file.lastModified() <= maxTime && !isReferenced(hash)) {
+				deleteFile(file);
+				deletedHashes.add(hash);
+			}
+		}
+
+		deleteThumbnails(deletedHashes);
+	}
+
+	private void deleteThumbnails(Set<String> hashes) {
+		if (hashes.isEmpty()) {
+			return;
+		}
+
+		File[] thumbnailsFiles = thumbnailsDirectory.listFiles();
+		if (thumbnailsFiles == null) {
+			return;
+		}
+		for (File file : thumbnailsFiles) {
+			String name = file.getName();
+			if (name.length() > HASH_LENGTH && hashes.contains(name.substring(0, HASH_LENGTH))) {
+				deleteFile(file);
+			}
+		}
+	}
+
+	private static boolean isReferenced(String hash) {
+		Cursor cursor = MobileBean.rawQuery("SELECT 1 FROM " + REFERENCES_TABLE + " WHERE hash = ? LIMIT 1", new String[] {hash});
+		try {
+			return cursor.moveToFirst();
+		} finally {
+			cursor.close();
+		}
+	}
+
+	private static Map<String, String> readRecordState(String recordSQL, String recordId) {
+		Map<String, String> state = new HashMap<>();
+		Cursor cursor = MobileBean.rawQuery(recordSQL, new String[] {recordId});
+		try {
+			while (cursor.moveToNext()) {
+				state.put(cursor.getString(0), cursor.getString(1));
+			}
+		} finally {
+			cursor.close();
+		}
+		return state;
+	}
+
+	private String migrateValue(String base64Value) {
+		byte[] data;
+		try {
+			data = Base64.decode(base64Value);
+		} catch (IOException e) {
+			return null;
+		}
+
+		//Apenas obtém as dimensões para verificar se os dados representam uma imagem válida.
+		BitmapFactory.Options options = new BitmapFactory.Options();
+		options.inJustDecodeBounds = true;
+		BitmapFactory.decodeByteArray(data, 0, data.length, options);
+		if (options.outWidth <= 0 || options.outHeight <= 0) {
+			return null;
+		}
+
+		return putImage(data, options.outWidth, options.outHeight);
+	}
+
+	private void checkStarted() {
+		if (!started) {
+			throw new IllegalStateException("The blob store is not started yet.");
+		}
+	}
+
+	private static void checkHash(String hash) {
+		if (hash == null || hash.length() != HASH_LENGTH) {
+			throw new IllegalArgumentException("Invalid blob hash: " + hash);
+		}
+	}
+
+	private static void deleteFile(File file) {
+		if (!file.delete() && file.exists()) {
+			Log.w(EntityBlobStore.class.getSimpleName(), "Could not delete the blob file: " + file);
+		}
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(HASH_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		char[] digits = "0123456789abcdef".toCharArray();
+		char[] hex = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			hex[i * 2] = digits[(bytes[i] >> 4) & 0xF];
+			hex[i * 2 + 1] = digits[bytes[i] & 0xF];
+		}
+		return new String(hex);
+	}
+
+
+	/**
+	 * Referência para uma imagem armazenada como blob, contendo o hash do blob e as dimensões da imagem.
+	 */
+	public static final class BlobReference {
+
+		private final String hash;
+		private final int width;
+		private final int height;
+
+		BlobReference(String hash, int width, int height) {
+			this.hash = hash;
+			this.width = width;
+			this.height = height;
+		}
+
+		public String getHash() {
+			return hash;
+		}
+
+		public int getWidth() {
+			return width;
+		}
+
+		public int getHeight() {
+			return height;
+		}
+	}
+
+	/**
+	 * Saída de um blob. Grava o conteúdo em um arquivo temporário, calculando o seu hash, e só o efetiva no fechamento se o hash for o esperado.
+	 */
+	private static final class BlobOutputStream extends FilterOutputStream {
+
+		private final String hash;
+		private final File tempFile;
+		private final File file;
+		private final MessageDigest digest;
+		private boolean closed;
+
+		BlobOutputStream(String hash, File tempFile, File file) throws FileNotFoundException {
+			super(new FileOutputStream(tempFile));
+			this.hash = hash;
+			this.tempFile = tempFile;
+			this.file = file;
+			this.digest = newDigest();
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			digest.update((byte) b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			digest.update(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+
+			try {
+				super.close();
+
+				String actualHash = toHex(digest.digest());
+				if (!actualHash.equals(hash)) {
+					throw new IOException(String.format("The blob content does not match its hash. Expected = %s, actual = %s.", hash, actualHash));
+				}
+				//O blob pode ter sido gravado concorrentemente, mas o conteúdo é o mesmo.
+				if (!tempFile.renameTo(file) && !file.exists()) {
+					throw new IOException("Could not store the blob file: " + file);
+				}
+			} finally {
+				deleteFile(tempFile);
+			}
+		}
+	}
+}
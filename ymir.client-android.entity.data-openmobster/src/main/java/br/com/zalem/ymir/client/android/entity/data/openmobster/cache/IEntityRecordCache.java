@@ -0,0 +1,90 @@
+package br.com.zalem.ymir.client.android.entity.data.openmobster.cache;
+
+import br.com.zalem.ymir.client.android.entity.data.openmobster.MobileBeanEntityDataManager;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.MobileBeanEntityRecord;
+
+/**
+ * Cache de registros de entidades da fonte de dados (identity map).<br>
+ * Os registros são mapeados pela chave composta pelo canal da entidade e pelo id do registro, de forma que as leituras
+ * repetidas de um mesmo registro possam reaproveitar a mesma instância. Apenas registros limpos (não novos e sem alterações)
+ * podem ser mantidos no cache, então registros que forem alterados após serem obtidos do cache devem ser ignorados por ele.
+ * O {@link br.com.zalem.ymir.client.android.entity.data.openmobster.MobileBeanEntityDAO} não repassa os registros do cache diretamente,
+ * e sim registros que compartilham os seus dados apenas até a primeira alteração.<br>
+ * Os registros devem ser adicionados pelo método {@link #addRecord(MobileBeanEntityRecord, long)} e obtidos pelo método
+ * {@link #getRecord(String, String)}. A geração do registro deve ser obtida através do {@link #getGeneration(String, String)} antes
+ * de lê-lo da fonte de dados, de forma que um registro invalidado durante a leitura não seja adicionado no cache.
+ *
+ * @author Thiago Gesser
+ */
+public interface IEntityRecordCache {
+
+	/**
+	 * Obtém a geração atual de um registro, de acordo com o canal da entidade e o id do registro. A geração muda sempre que o
+	 * registro é invalidado no cache.
+	 *
+	 * @param entityChannel canal da entidade do registro.
+	 * @param recordId id do registro.
+	 * @return a geração obtida.
+	 */
+	long getGeneration(String entityChannel, String recordId);
+
+	/**
+	 * Adiciona um registro no cache. Registros novos, excluídos ou com alterações não são adicionados, assim como os registros
+	 * cuja geração mudou desde que foi obtida.
+	 *
+	 * @param record o registro que será adicionado no cache.
+	 * @param generation a geração do registro obtida através do {@link #getGeneration(String, String)} antes da leitura dele.
+	 */
+	void addRecord(MobileBeanEntityRecord record, long generation);
+
+	/**
+	 * Obtém um registro adicionado previamente no cache, de acordo com o canal da entidade e o id do registro.
+	 * Se o registro do cache foi alterado desde que foi adicionado, ele é removido e não é retornado.
+	 *
+	 * @param entityChannel canal da entidade do registro.
+	 * @param recordId id do registro.
+	 * @return o registro contido no cache ou <code>null</code> se não há um registro limpo no cache para o canal e id.
+	 */
+	MobileBeanEntityRecord getRecord(String entityChannel, String recordId);
+
+	/**
+	 * Remove um registro do cache, de acordo com o canal da entidade e o id do registro.
+	 *
+	 * @param entityChannel canal da entidade do registro.
+	 * @param recordId id do registro.
+	 */
+	void removeRecord(String entityChannel, String recordId);
+
+	/**
+	 * Obtém a quantidade de vezes que um registro foi encontrado no cache.
+	 *
+	 * @return a quantidade obtida.
+	 */
+	int getHitCount();
+
+	/**
+	 * Obtém a quantidade de vezes que um registro não foi encontrado no cache ou foi ignorado por estar alterado.
+	 *
+	 * @return a quantidade obtida.
+	 */
+	int getMissCount();
+
+	/**
+	 * Obtém a quantidade de registros que foram removidos do cache para respeitar o seu limite de tamanho.
+	 *
+	 * @return a quantidade obtida.
+	 */
+	int getEvictionCount();
+
+	/**
+	 * Chamado quando o cache é atrelado a um {@link MobileBeanEntityDataManager}.<br>
+	 * Pode ser utilizado para fazer inicializações.
+	 */
+	void onAttach(MobileBeanEntityDataManager entityManager);
+
+	/**
+	 * Chamado quando o cache é desatrelado de um {@link MobileBeanEntityDataManager}.<br>
+	 * Pode ser utilizado para fazer finalizações.
+	 */
+	void onDetach(MobileBeanEntityDataManager entityManager);
+}
@@ -7,8 +7,17 @@ import br.com.zalem.ymir.client.android.entity.data.openmobster.MobileBeanEntity
  * Cache de imagens de registros de entidades da fonte de dados.<br>
  * As imagens são mapeadas especificamente para os atributos dos registros, de forma que cada imagem possui uma chave
  * composta pelos seguintes dados: nome da entidade, id do registro e nome do atributo.<br>
- * As imagens devem ser adicionadas pelo método {@link #addImage(String, String, String, android.graphics.Bitmap)} ou {@link #addImageArray(String, String, String, android.graphics.Bitmap[])}
- * e obtidas pelo método {@link #getImage(String, String, String)} ou {@link #getImageArray(String, String, String)}.<br>
+ * As imagens devem ser adicionadas pelo método {@link #addImage(String, String, String, int, Bitmap)} ou {@link #addImageArray(String, String, String, android.graphics.Bitmap[])}
+ * e obtidas pelo método {@link #getImage(String, String, String, int)} ou {@link #getImageArray(String, String, String)}.<br>
+ * As imagens reduzidas para um tamanho alvo são mantidas separadamente, sendo identificadas também pelo tamanho alvo. Elas devem ser
+ * adicionadas pelo método {@link #addImage(String, String, String, int, int, int, Bitmap)} e obtidas pelo método {@link #getImage(String, String, String, int, int, int)}.<br>
+ * <br>
+ * As imagens são acompanhadas pela versão do conteúdo do atributo, que muda sempre que o valor do atributo muda. Caches que
+ * mantêm as imagens apenas em memória podem ignorá-la, pois são atualizados através dos eventos de alteração dos registros, mas caches
+ * persistentes devem utilizá-la para descartar as imagens desatualizadas por alterações feitas enquanto eles não estavam ativos.<br>
+ * Os métodos <code>get</code> devem ser leves o suficiente para serem chamados na Thread de UI, consultando apenas a memória. Os
+ * métodos <code>load</code> são chamados em background antes da imagem ser obtida dos dados do registro, podendo consultar camadas
+ * mais lentas do cache (como o disco).
  *
  * @author Thiago Gesser
  */
@@ -21,9 +30,10 @@ public interface IEntityRecordImageCache {
 	 * @param entityName nome da entidade do registro.
 	 * @param recordId id do registro.
 	 * @param attribute nome do atributo.
+	 * @param contentVersion versão do conteúdo do atributo.
 	 * @param image a imagem que será adicionada no cache.
 	 */
-	void addImage(String entityName, String recordId, String attribute, Bitmap image);
+	void addImage(String entityName, String recordId, String attribute, int contentVersion, Bitmap image);
 	
 	/**
 	 * Adiciona um array de imagens no cache para determinado atributo de um registro, de acordo com o nome da entidade,
@@ -35,17 +45,46 @@ public interface IEntityRecordImageCache {
 	 * @param imageArray o array de imagens que será adicionado no cache.
 	 */
 	void addImageArray(String entityName, String recordId, String attribute, Bitmap[] imageArray);
+
+	/**
+	 * Adiciona uma imagem reduzida no cache para determinado atributo de um registro, de acordo com o nome da entidade,
+	 * id do registro, nome do atributo e tamanho alvo da redução.
+	 *
+	 * @param entityName nome da entidade do registro.
+	 * @param recordId id do registro.
+	 * @param attribute nome do atributo.
+	 * @param contentVersion versão do conteúdo do atributo.
+	 * @param targetWidth largura alvo da redução.
+	 * @param targetHeight altura alvo da redução.
+	 * @param image a imagem reduzida que será adicionada no cache.
+	 */
+	void addImage(String entityName, String recordId, String attribute, int contentVersion, int targetWidth, int targetHeight, Bitmap image);
 	
 	/**
 	 * Obtém uma imagem adicionada previamente no cache, de acordo com seu nome da entidade, id do registro e nome do atributo.
+	 * Consulta apenas a memória.
 	 * 
 	 * @param entityName nome da entidade do registro.
 	 * @param recordId id do registro.
 	 * @param attribute nome do atributo.
+	 * @param contentVersion versão atual do conteúdo do atributo.
 	 * @return a imagem contida no cache ou <code>null</code> se não há imagem no cache para o nome da entidade, id do registro e nome do atributo.
 	 * @throws IllegalArgumentException se havia um array de imagens para este nome da entidade, id do registro e nome do atributo ao invés de uma imagem.
 	 */
-	Bitmap getImage(String entityName, String recordId, String attribute);
+	Bitmap getImage(String entityName, String recordId, String attribute, int contentVersion);
+
+	/**
+	 * Carrega uma imagem adicionada previamente no cache, de acordo com seu nome da entidade, id do registro e nome do atributo.
+	 * Pode consultar as camadas mais lentas do cache, então deve ser chamado em background.
+	 *
+	 * @param entityName nome da entidade do registro.
+	 * @param recordId id do registro.
+	 * @param attribute nome do atributo.
+	 * @param contentVersion versão atual do conteúdo do atributo.
+	 * @return a imagem carregada ou <code>null</code> se não há imagem no cache para o nome da entidade, id do registro e nome do atributo.
+	 * @throws IllegalArgumentException se havia um array de imagens para este nome da entidade, id do registro e nome do atributo ao invés de uma imagem.
+	 */
+	Bitmap loadImage(String entityName, String recordId, String attribute, int contentVersion);
 	
 	/**
 	 * Obtém um array de imagens adicionada previamente no cache, de acordo com seu nome da entidade, id do registro e nome do atributo.
@@ -57,6 +96,34 @@ public interface IEntityRecordImageCache {
 	 * @throws IllegalArgumentException se havia uma imagem para este nome da entidade, id do registro e nome do atributo ao invés de um array de imagens.
 	 */
 	Bitmap[] getImageArray(String entityName, String recordId, String attribute);
+
+	/**
+	 * Obtém uma imagem reduzida adicionada previamente no cache, de acordo com seu nome da entidade, id do registro, nome do atributo
+	 * e tamanho alvo da redução. Consulta apenas a memória.
+	 *
+	 * @param entityName nome da entidade do registro.
+	 * @param recordId id do registro.
+	 * @param attribute nome do atributo.
+	 * @param contentVersion versão atual do conteúdo do atributo.
+	 * @param targetWidth largura alvo da redução.
+	 * @param targetHeight altura alvo da redução.
+	 * @return a imagem contida no cache ou <code>null</code> se não há imagem reduzida no cache para estes dados.
+	 */
+	Bitmap getImage(String entityName, String recordId, String attribute, int contentVersion, int targetWidth, int targetHeight);
+
+	/**
+	 * Carrega uma imagem reduzida adicionada previamente no cache, de acordo com seu nome da entidade, id do registro, nome do atributo
+	 * e tamanho alvo da redução. Pode consultar as camadas mais lentas do cache, então deve ser chamado em background.
+	 *
+	 * @param entityName nome da entidade do registro.
+	 * @param recordId id do registro.
+	 * @param attribute nome do atributo.
+	 * @param contentVersion versão atual do conteúdo do atributo.
+	 * @param targetWidth largura alvo da redução.
+	 * @param targetHeight altura alvo da redução.
+	 * @return a imagem carregada ou <code>null</code> se não há imagem reduzida no cache para estes dados.
+	 */
+	Bitmap loadImage(String entityName, String recordId, String attribute, int contentVersion, int targetWidth, int targetHeight);
 	
 	/**
 	 * Chamado quando o cache é atrelado a um {@link MobileBeanEntityDataManager}.<br>
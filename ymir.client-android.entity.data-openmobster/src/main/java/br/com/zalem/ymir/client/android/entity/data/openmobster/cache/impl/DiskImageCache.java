@@ -0,0 +1,272 @@
+package br.com.zalem.ymir.client.android.entity.data.openmobster.cache.impl;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.CompressFormat;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Camada de disco do {@link TieredImageCache}, com tamanho limitado em bytes e baseada no algoritmo <code>Least Recently Used</code>.<br>
+ * Cada imagem é salva em um arquivo cujo nome é composto pelo hash da chave da imagem, pela variante (tamanho alvo da imagem reduzida)
+ * e pela versão do conteúdo. Desta forma, uma imagem cujo conteúdo mudou nunca é confundida com a anterior.<br>
+ * O índice dos arquivos é mantido em memória e reconstruído a partir do diretório na primeira utilização, sendo que a data de modificação
+ * dos arquivos é atualizada a cada acesso para que a ordem de utilização seja preservada entre as execuções da aplicação.
+ *
+ * @author Thiago Gesser
+ */
+final class DiskImageCache {
+
+	private static final String TEMP_FILE_PREFIX = "tmp-";
+	private static final char NAME_SEPARATOR = '_';
+	private static final int JPEG_QUALITY = 90;
+
+	private final File directory;
+	private final long maxSize;
+	//Nomes dos arquivos na ordem de acesso e seus tamanhos.
+	private final LinkedHashMap<String, Long> entries;
+	//Os mesmos nomes ordenados, permitindo obter todos os arquivos de uma imagem através do prefixo.
+	private final TreeSet<String> sortedNames;
+	private boolean initialized;
+	private long size;
+	private int hitCount;
+	private int missCount;
+
+	DiskImageCache(File directory, long maxSize) {
+		this.directory = directory;
+		this.maxSize = maxSize;
+		entries = new LinkedHashMap<>(16, 0.75f, true);
+		sortedNames = new TreeSet<>();
+	}
+
+	/**
+	 * Obtém a imagem salva no disco. Deve ser chamado em background.
+	 *
+	 * @param imageKey chave da imagem.
+	 * @param variant variante da imagem.
+	 * @param contentVersion versão atual do conteúdo.
+	 * @return a imagem obtida ou <code>null</code> se ela não estava salva.
+	 */
+	Bitmap get(String imageKey, String variant, int contentVersion) {
+		String name = makeName(imageKey, variant, contentVersion);
+		synchronized (this) {
+			initialize();
+			if (entries.get(name) == null) {
+				missCount++;
+				return null;
+			}
+		}
+
+		File file = new File(directory, name);
+		Bitmap image = BitmapFactory.decodeFile(file.getPath());
+		synchronized (this) {
+			if (image == null) {
+				//O arquivo pode ter sido excluído pelo sistema (como na limpeza do diretório de cache).
+				removeEntry(name);
+				missCount++;
+				return null;
+			}
+			hitCount++;
+		}
+
+		if (!file.setLastModified(System.currentTimeMillis())) {
+			Log.w(DiskImageCache.class.getSimpleName(), "Could not update the modification time of the cached image: " + file);
+		}
+		return image;
+	}
+
+	/**
+	 * Salva a imagem no disco, substituindo as demais versões da mesma variante. Deve ser chamado em background.
+	 *
+	 * @param imageKey chave da imagem.
+	 * @param variant variante da imagem.
+	 * @param contentVersion versão do conteúdo.
+	 * @param image a imagem.
+	 */
+	void put(String imageKey, String variant, int contentVersion, Bitmap image) {
+		String name = makeName(imageKey, variant, contentVersion);
+		File file = new File(directory, name);
+		File tempFile;
+		try {
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IOException("Could not create the cache directory: " + directory);
+			}
+
+			//Grava em um arquivo temporário para que uma imagem incompleta nunca seja lida.
+			tempFile = File.createTempFile(TEMP_FILE_PREFIX, null, directory);
+			OutputStream out = new FileOutputStream(tempFile);
+			try {
+				//As imagens dos registros são JPEG, então só utiliza PNG se houver transparência.
+				if (image.hasAlpha()) {
+					image.compress(CompressFormat.PNG, 100, out);
+				} else {
+					image.compress(CompressFormat.JPEG, JPEG_QUALITY, out);
+				}
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			Log.w(DiskImageCache.class.getSimpleName(), "Could not write the cached image: " + file, e);
+			return;
+		}
+
+		synchronized (this) {
+			initialize();
+			removeEntries(makePrefix(imageKey) + variant + NAME_SEPARATOR);
+			if (!tempFile.renameTo(file)) {
+				deleteFile(tempFile);
+				return;
+			}
+			addEntry(name, file.length());
+			trimToSize();
+		}
+	}
+
+	/**
+	 * Remove todas as variantes e versões da imagem.
+	 *
+	 * @param imageKey chave da imagem.
+	 */
+	synchronized void remove(String imageKey) {
+		initialize();
+		removeEntries(makePrefix(imageKey));
+	}
+
+	/**
+	 * Remove todas as imagens.
+	 */
+	synchronized void clear() {
+		initialize();
+		for (String name : new ArrayList<>(sortedNames)) {
+			removeEntry(name);
+		}
+	}
+
+	synchronized int getHitCount() {
+		return hitCount;
+	}
+
+	synchronized int getMissCount() {
+		return missCount;
+	}
+
+	synchronized long getSize() {
+		return size;
+	}
+
+	long getMaxSize() {
+		return maxSize;
+	}
+
+
+	/*
+	 * Métodos auxiliares
+	 */
+
+	private void initialize() {
+		if (initialized) {
+			return;
+		}
+		initialized = true;
+
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+
+		//Adiciona os arquivos do acesso mais antigo para o mais recente, reconstruindo a ordem de acesso.
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File lhs, File rhs) {
+				long lhsTime = lhs.lastModified();
+				long rhsTime = rhs.lastModified();
+				return lhsTime < rhsTime ? -1 : (lhsTime == rhsTime ? 0 : 1);
+			}
+		});
+		for (File file : files) {
+			//Arquivos temporários restantes são de gravações interrompidas.
+			if (file.getName().startsWith(TEMP_FILE_PREFIX)) {
+				deleteFile(file);
+				continue;
+			}
+			addEntry(file.getName(), file.length());
+		}
+		trimToSize();
+	}
+
+	private void addEntry(String name, long fileSize) {
+		Long previousSize = entries.put(name, fileSize);
+		if (previousSize != null) {
+			size -= previousSize;
+		}
+		sortedNames.add(name);
+		size += fileSize;
+	}
+
+	private void removeEntry(String name) {
+		Long fileSize = entries.remove(name);
+		if (fileSize != null) {
+			size -= fileSize;
+		}
+		sortedNames.remove(name);
+		deleteFile(new File(directory, name));
+	}
+
+	private void removeEntries(String prefix) {
+		List<String> names = new ArrayList<>(sortedNames.subSet(prefix, prefix + Character.MAX_VALUE));
+		for (String name : names) {
+			removeEntry(name);
+		}
+	}
+
+	private void trimToSize() {
+		//Remove os arquivos acessados há mais tempo até que o limite seja respeitado.
+		while (size > maxSize && !entries.isEmpty()) {
+			removeEntry(entries.keySet().iterator().next());
+		}
+	}
+
+	private static String makeName(String imageKey, String variant, int contentVersion) {
+		return makePrefix(imageKey) + variant + NAME_SEPARATOR + Integer.toHexString(contentVersion);
+	}
+
+	private static String makePrefix(String imageKey) {
+		return toHex(digest(imageKey)) + NAME_SEPARATOR;
+	}
+
+	private static byte[] digest(String value) {
+		try {
+			return MessageDigest.getInstance("SHA-1").digest(value.getBytes("UTF-8"));
+		} catch (NoSuchAlgorithmException | IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		char[] digits = "0123456789abcdef".toCharArray();
+		char[] hex = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			hex[i * 2] = digits[(bytes[i] >> 4) & 0xF];
+			hex[i * 2 + 1] = digits[bytes[i] & 0xF];
+		}
+		return new String(hex);
+	}
+
+	private static void deleteFile(File file) {
+		if (!file.delete() && file.exists()) {
+			Log.w(DiskImageCache.class.getSimpleName(), "Could not delete the cached image file: " + file);
+		}
+	}
+}
@@ -10,7 +10,9 @@ import org.openmobster.core.mobileCloud.android.service.Registry;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import br.com.zalem.ymir.client.android.entity.data.metadata.EntityAttributeType;
 import br.com.zalem.ymir.client.android.entity.data.metadata.IEntityAttribute;
@@ -26,7 +28,8 @@ import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityM
  * final da fila são removidas até que o limite seja mantido novamente.<br>
  * <br>
  * O próprio LRUImageCache se encarrega de remover as imagens de registros que foram atualizados ou excluídos da fonte
- * de dados do OpenMobster.<br>
+ * de dados do OpenMobster, incluindo as suas versões reduzidas. Como as imagens são mantidas apenas em memória, as versões do conteúdo
+ * dos atributos são ignoradas e os métodos <code>load</code> se comportam como os métodos <code>get</code>.<br>
  * 
  * @see android.graphics.Bitmap
  * @see org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObjectDatabase
@@ -35,8 +38,12 @@ import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityM
  */
 public final class LRUImageCache extends LruCache<String, Bitmap[]> implements IEntityRecordImageCache, IMobileObjectDatabaseListener {
 	
+	private static final char REDUCED_KEY_SEPARATOR = '@';
+
 	//Utilizado para saber quais imagens remover do cache quando um registro for atualziado ou excluído.
 	private Map<String, String[]> entitiesImgAttrs;
+	//Chaves das versões reduzidas de cada imagem, utilizadas para removê-las junto com a imagem.
+	private final Map<String, Set<String>> reducedKeys = new HashMap<>();
 
 
 	/**
@@ -61,7 +68,7 @@ public final class LRUImageCache extends LruCache<String, Bitmap[]> implements I
 	}
 
 	@Override
-	public void addImage(String entityChannel, String recordId, String attribute, Bitmap image) {
+	public void addImage(String entityChannel, String recordId, String attribute, int contentVersion, Bitmap image) {
 		put(makeKey(entityChannel, recordId, attribute), new Bitmap[] {image});
 	}
 
@@ -71,7 +78,22 @@ public final class LRUImageCache extends LruCache<String, Bitmap[]> implements I
 	}
 
 	@Override
-	public Bitmap getImage(String entityChannel, String recordId, String attribute) {
+	public void addImage(String entityChannel, String recordId, String attribute, int contentVersion, int targetWidth, int targetHeight, Bitmap image) {
+		String key = makeKey(entityChannel, recordId, attribute);
+		String reducedKey = makeReducedKey(key, targetWidth, targetHeight);
+		synchronized (reducedKeys) {
+			Set<String> keys = reducedKeys.get(key);
+			if (keys == null) {
+				keys = new HashSet<>();
+				reducedKeys.put(key, keys);
+			}
+			keys.add(reducedKey);
+		}
+		put(reducedKey, new Bitmap[] {image});
+	}
+
+	@Override
+	public Bitmap getImage(String entityChannel, String recordId, String attribute, int contentVersion) {
 		Bitmap[] images = get(makeKey(entityChannel, recordId, attribute));
 		if (images == null) {
 			return null;
@@ -85,10 +107,43 @@ public final class LRUImageCache extends LruCache<String, Bitmap[]> implements I
 		return image;
 	}
 
+	@Override
+	public Bitmap loadImage(String entityChannel, String recordId, String attribute, int contentVersion) {
+		return getImage(entityChannel, recordId, attribute, contentVersion);
+	}
+
 	@Override
 	public Bitmap[] getImageArray(String entityChannel, String recordId, String attribute) {
 		return get(makeKey(entityChannel, recordId, attribute));
 	}
+
+	@Override
+	public Bitmap getImage(String entityChannel, String recordId, String attribute, int contentVersion, int targetWidth, int targetHeight) {
+		Bitmap[] images = get(makeReducedKey(makeKey(entityChannel, recordId, attribute), targetWidth, targetHeight));
+		return images == null ? null : images[0];
+	}
+
+	@Override
+	public Bitmap loadImage(String entityChannel, String recordId, String attribute, int contentVersion, int targetWidth, int targetHeight) {
+		return getImage(entityChannel, recordId, attribute, contentVersion, targetWidth, targetHeight);
+	}
+
+	@Override
+	protected void entryRemoved(boolean evicted, String key, Bitmap[] oldValue, Bitmap[] newValue) {
+		//As chaves das versões reduzidas descartadas pelo limite de tamanho não precisam mais ser mantidas.
+		int reducedIndex = key.lastIndexOf(REDUCED_KEY_SEPARATOR);
+		if (!evicted || reducedIndex == -1) {
+			return;
+		}
+
+		String imageKey = key.substring(0, reducedIndex);
+		synchronized (reducedKeys) {
+			Set<String> keys = reducedKeys.get(imageKey);
+			if (keys != null && keys.remove(key) && keys.isEmpty()) {
+				reducedKeys.remove(imageKey);
+			}
+		}
+	}
 	
 	
 	@Override
@@ -143,6 +198,9 @@ public final class LRUImageCache extends LruCache<String, Bitmap[]> implements I
     public void onAllMobileObjectsDeleted(String channel) {
         //Por enquanto limpa o cache inteiro. Se for interessante no futuro, verificar uma forma (que não impacte em performance) de obter todas as chaves do channel e tirar apenas elas do cache.
         evictAll();
+        synchronized (reducedKeys) {
+            reducedKeys.clear();
+        }
     }
 
 	@Override
@@ -178,12 +236,27 @@ public final class LRUImageCache extends LruCache<String, Bitmap[]> implements I
 		//Remove as imagens dos atributos de imagens do registro.
 		String recordId = mo.getRecordId();
 		for (String imgAttr : imgsAttrs) {
-			remove(makeKey(entityChannel, recordId, imgAttr));
+			String key = makeKey(entityChannel, recordId, imgAttr);
+			remove(key);
+
+			Set<String> keys;
+			synchronized (reducedKeys) {
+				keys = reducedKeys.remove(key);
+			}
+			if (keys != null) {
+				for (String reducedKey : keys) {
+					remove(reducedKey);
+				}
+			}
 		}
 	}
 	
 	private static String makeKey(String entityChannel, String recordId, String attribute) {
 		return entityChannel + ":" + recordId + "." + attribute;
 	}
+
+	private static String makeReducedKey(String key, int targetWidth, int targetHeight) {
+		return key + REDUCED_KEY_SEPARATOR + targetWidth + "x" + targetHeight;
+	}
 	
 }
\ No newline at end of file
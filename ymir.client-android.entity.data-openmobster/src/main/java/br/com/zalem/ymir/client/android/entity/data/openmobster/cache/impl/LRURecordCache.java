@@ -0,0 +1,189 @@
+package br.com.zalem.ymir.client.android.entity.data.openmobster.cache.impl;
+
+import android.util.LruCache;
+
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObject;
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObjectDatabase;
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObjectDatabase.IMobileObjectDatabaseListener;
+import org.openmobster.core.mobileCloud.android.service.Registry;
+
+import br.com.zalem.ymir.client.android.entity.data.openmobster.MobileBeanEntityDataManager;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.MobileBeanEntityRecord;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.cache.IEntityRecordCache;
+
+/**
+ * Cache de registros de entidades com tamanho limitado e baseado no algoritmo <code>Least Recently Used</code>.<br>
+ * O tamanho máximo do cache é definido em quantidade de registros. Os registros são mantidos em uma fila, sendo que os novos
+ * são adicionados no início dela. Cada vez que um registro é acessado do cache, ele volta para o início da fila. Quando o
+ * limite de tamanho do cache é alcançado, os registros do final da fila são removidos até que o limite seja mantido novamente.<br>
+ * <br>
+ * O próprio LRURecordCache se encarrega de remover os registros que foram atualizados ou excluídos da fonte
+ * de dados do OpenMobster.<br>
+ *
+ * @see org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObjectDatabase
+ *
+ * @author Thiago Gesser
+ */
+public final class LRURecordCache extends LruCache<String, MobileBeanEntityRecord> implements IEntityRecordCache, IMobileObjectDatabaseListener {
+
+	//Quantidade de faixas de gerações dos registros. As chaves são distribuídas nas faixas de acordo com o seu hash.
+	private static final int GENERATION_STRIPES = 64;
+
+	//Quantidade de registros encontrados no cache mas ignorados por estarem alterados.
+	private int dirtyCount;
+	//Gerações das faixas de chaves, incrementadas sempre que um registro da faixa é invalidado.
+	private final long[] generations = new long[GENERATION_STRIPES];
+
+	/**
+	 * Cria um LRURecordCache de acordo com a quantidade máxima de registros.
+	 *
+	 * @param maxSize a quantidade máxima de registros do cache.
+	 */
+	public LRURecordCache(int maxSize) {
+		super(maxSize);
+	}
+
+	@Override
+	public synchronized long getGeneration(String entityChannel, String recordId) {
+		return generations[getStripe(makeKey(entityChannel, recordId))];
+	}
+
+	@Override
+	public void addRecord(MobileBeanEntityRecord record, long generation) {
+		if (record.isNew() || record.isDeleted() || record.isDirty()) {
+			return;
+		}
+
+		String key = makeKey(record.getEntityMetadata().getChannel(), record.getBeanId());
+		synchronized (this) {
+			//Se o registro foi invalidado durante a sua leitura, os dados lidos podem estar desatualizados.
+			if (generations[getStripe(key)] != generation) {
+				return;
+			}
+			put(key, record);
+		}
+	}
+
+	@Override
+	public MobileBeanEntityRecord getRecord(String entityChannel, String recordId) {
+		String key = makeKey(entityChannel, recordId);
+		MobileBeanEntityRecord record = get(key);
+		if (record == null) {
+			return null;
+		}
+
+		//Se o registro foi alterado por quem o obteve, ele não pode mais ser compartilhado.
+		if (record.isDirty() || record.isDeleted()) {
+			remove(key);
+			synchronized (this) {
+				dirtyCount++;
+			}
+			return null;
+		}
+		return record;
+	}
+
+	@Override
+	public void removeRecord(String entityChannel, String recordId) {
+		String key = makeKey(entityChannel, recordId);
+		synchronized (this) {
+			generations[getStripe(key)]++;
+			remove(key);
+		}
+	}
+
+	@Override
+	public synchronized int getHitCount() {
+		return hitCount() - dirtyCount;
+	}
+
+	@Override
+	public synchronized int getMissCount() {
+		return missCount() + dirtyCount;
+	}
+
+	@Override
+	public int getEvictionCount() {
+		return evictionCount();
+	}
+
+
+	@Override
+	public void onAttach(MobileBeanEntityDataManager entityManager) {
+		//Adiciona-se como listener da criação/atualização/exclusão de objetos do OpenMobster.
+		if (Registry.isActiveAndStarted()) {
+			MobileObjectDatabase.getInstance().addListener(this);
+		} else {
+			Registry.executeAfterStart(new Runnable() {
+				@Override
+				public void run() {
+					MobileObjectDatabase.getInstance().addListener(LRURecordCache.this);
+				}
+			}, true);
+		}
+	}
+
+	@Override
+	public void onDetach(MobileBeanEntityDataManager entityManager) {
+		MobileObjectDatabase.getInstance().removeListener(this);
+		evictAll();
+	}
+
+
+	@Override
+	public void onMobileObjectUpdated(MobileObject mo) {
+		removeRecord(mo.getStorageId(), mo.getRecordId());
+	}
+
+	@Override
+	public void onMobileObjectDeleted(MobileObject mo) {
+		removeRecord(mo.getStorageId(), mo.getRecordId());
+	}
+
+	@Override
+	public void onAllMobileObjectsDeleted(String channel) {
+		//Remove apenas os registros do canal.
+		String channelPrefix = channel + ":";
+		synchronized (this) {
+			//Invalida todas as faixas, pois os registros do canal em leitura podem estar em qualquer uma delas.
+			for (int i = 0; i < generations.length; i++) {
+				generations[i]++;
+			}
+			for (String key : snapshot().keySet()) {
+				if (key.startsWith(channelPrefix)) {
+					remove(key);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void onMobileObjectCreated(MobileObject mo, String id) {
+		//Não faz nada quando um registro é adicionado.
+	}
+
+	@Override
+	public void beforeMobileObjectCreated(MobileObject mobileObject) {
+	}
+
+	@Override
+	public void beforeMobileObjectDeleted(MobileObject mobileObject) {
+	}
+
+	@Override
+	public void beforeMobileObjectUpdated(MobileObject mobileObject) {
+	}
+
+
+	/*
+	 * Métodos auxiliares
+	 */
+
+	private static String makeKey(String entityChannel, String recordId) {
+		return entityChannel + ":" + recordId;
+	}
+
+	private static int getStripe(String key) {
+		return (key.hashCode() & 0x7fffffff) % GENERATION_STRIPES;
+	}
+}
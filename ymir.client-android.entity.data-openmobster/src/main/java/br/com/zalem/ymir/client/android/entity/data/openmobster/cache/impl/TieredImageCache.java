@@ -0,0 +1,300 @@
+package br.com.zalem.ymir.client.android.entity.data.openmobster.cache.impl;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObject;
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObjectDatabase;
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObjectDatabase.IMobileObjectDatabaseListener;
+import org.openmobster.core.mobileCloud.android.service.Registry;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import br.com.zalem.ymir.client.android.entity.data.metadata.EntityAttributeType;
+import br.com.zalem.ymir.client.android.entity.data.metadata.IEntityAttribute;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.MobileBeanEntityDataManager;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.cache.IEntityRecordImageCache;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityMetadata;
+
+/**
+ * Cache de imagens de registros de entidades com duas camadas: memória e disco.<br>
+ * A camada de memória é um {@link LRUImageCache}, consultada pelos métodos <code>get</code>. A camada de disco mantém as imagens
+ * reduzidas entre as execuções da aplicação e é consultada pelos métodos <code>load</code>, antes que as imagens precisem
+ * ser obtidas e decodificadas a partir dos dados dos registros. As imagens carregadas do disco voltam para a camada de memória.
+ * As imagens inteiras e os arrays de imagens são mantidos apenas em memória, pois os dados dos registros já os armazenam codificados.<br>
+ * <br>
+ * Cada camada possui o seu próprio tamanho máximo, em bytes. O tamanho da camada de memória considera os pixels das imagens e o da camada
+ * de disco considera os arquivos, que são codificados. As gravações e exclusões no disco são feitas em uma Thread de background própria do cache.<br>
+ * <br>
+ * Assim como o {@link LRUImageCache}, remove as imagens de registros que foram atualizados ou excluídos da fonte de dados do OpenMobster.
+ * Além disto, a camada de disco considera a versão do conteúdo dos atributos, de forma que as imagens alteradas enquanto o cache
+ * não estava ativo também são descartadas.
+ *
+ * @see LRUImageCache
+ *
+ * @author Thiago Gesser
+ */
+public final class TieredImageCache implements IEntityRecordImageCache, IMobileObjectDatabaseListener {
+
+	private final LRUImageCache memoryTier;
+	private final DiskImageCache diskTier;
+	private final Handler diskHandler;
+	//Utilizado para saber quais imagens remover do disco quando um registro for atualizado ou excluído.
+	private Map<String, String[]> entitiesImgAttrs;
+
+	/**
+	 * Cria um TieredImageCache que mantém a camada de disco no diretório <code>ymir_images</code> do cache da aplicação.
+	 *
+	 * @param context contexto.
+	 * @param memoryMaxSize tamanho máximo da camada de memória, em bytes.
+	 * @param diskMaxSize tamanho máximo da camada de disco, em bytes.
+	 */
+	public TieredImageCache(Context context, int memoryMaxSize, long diskMaxSize) {
+		this(memoryMaxSize, new File(context.getCacheDir(), "ymir_images"), diskMaxSize);
+	}
+
+	/**
+	 * Cria um TieredImageCache que mantém a camada de disco no diretório definido.
+	 *
+	 * @param memoryMaxSize tamanho máximo da camada de memória, em bytes.
+	 * @param diskDirectory diretório da camada de disco.
+	 * @param diskMaxSize tamanho máximo da camada de disco, em bytes.
+	 */
+	public TieredImageCache(int memoryMaxSize, File diskDirectory, long diskMaxSize) {
+		memoryTier = new LRUImageCache(memoryMaxSize);
+		diskTier = new DiskImageCache(diskDirectory, diskMaxSize);
+
+		HandlerThread diskThread = new HandlerThread(TieredImageCache.class.getSimpleName(), Process.THREAD_PRIORITY_BACKGROUND);
+		diskThread.start();
+		diskHandler = new Handler(diskThread.getLooper());
+	}
+
+	@Override
+	public void addImage(String entityChannel, String recordId, String attribute, int contentVersion, Bitmap image) {
+		//As imagens inteiras já estão armazenadas codificadas na fonte de dados (ou no armazenamento de blobs), então não compensa
+		//recodificá-las no disco, o que apenas duplicaria os arquivos e perderia qualidade.
+		memoryTier.addImage(entityChannel, recordId, attribute, contentVersion, image);
+	}
+
+	@Override
+	public void addImageArray(String entityChannel, String recordId, String attribute, Bitmap[] imageArray) {
+		memoryTier.addImageArray(entityChannel, recordId, attribute, imageArray);
+	}
+
+	@Override
+	public void addImage(String entityChannel, String recordId, String attribute, int contentVersion, int targetWidth, int targetHeight, Bitmap image) {
+		memoryTier.addImage(entityChannel, recordId, attribute, contentVersion, targetWidth, targetHeight, image);
+		putOnDisk(makeKey(entityChannel, recordId, attribute), makeVariant(targetWidth, targetHeight), contentVersion, image);
+	}
+
+	@Override
+	public Bitmap getImage(String entityChannel, String recordId, String attribute, int contentVersion) {
+		return memoryTier.getImage(entityChannel, recordId, attribute, contentVersion);
+	}
+
+	@Override
+	public Bitmap loadImage(String entityChannel, String recordId, String attribute, int contentVersion) {
+		//As imagens inteiras não são mantidas no disco (ver addImage).
+		return memoryTier.getImage(entityChannel, recordId, attribute, contentVersion);
+	}
+
+	@Override
+	public Bitmap[] getImageArray(String entityChannel, String recordId, String attribute) {
+		return memoryTier.getImageArray(entityChannel, recordId, attribute);
+	}
+
+	@Override
+	public Bitmap getImage(String entityChannel, String recordId, String attribute, int contentVersion, int targetWidth, int targetHeight) {
+		return memoryTier.getImage(entityChannel, recordId, attribute, contentVersion, targetWidth, targetHeight);
+	}
+
+	@Override
+	public Bitmap loadImage(String entityChannel, String recordId, String attribute, int contentVersion, int targetWidth, int targetHeight) {
+		Bitmap image = memoryTier.getImage(entityChannel, recordId, attribute, contentVersion, targetWidth, targetHeight);
+		if (image != null) {
+			return image;
+		}
+
+		image = diskTier.get(makeKey(entityChannel, recordId, attribute), makeVariant(targetWidth, targetHeight), contentVersion);
+		if (image != null) {
+			memoryTier.addImage(entityChannel, recordId, attribute, contentVersion, targetWidth, targetHeight, image);
+		}
+		return image;
+	}
+
+
+	@Override
+	public void onAttach(MobileBeanEntityDataManager entityManager) {
+		memoryTier.onAttach(entityManager);
+
+		//Mapeia as entidades que possuem atributos com imagens para saber quais imagens remover do disco quando determinado registro é atualizado / excluído.
+		entitiesImgAttrs = new HashMap<>();
+		for (EntityMetadata entityMetadata : entityManager.getEntitiesMetadatas()) {
+			ArrayList<String> imgAttrs = new ArrayList<>();
+			for (IEntityAttribute attr : entityMetadata.getAttributes()) {
+				if (attr.getType() == EntityAttributeType.IMAGE) {
+					imgAttrs.add(attr.getName());
+				}
+			}
+
+			if (!imgAttrs.isEmpty()) {
+				entitiesImgAttrs.put(entityMetadata.getChannel(), imgAttrs.toArray(new String[imgAttrs.size()]));
+			}
+		}
+
+		//Adiciona-se como listener da criação/atualização/exclusão de objetos do OpenMobster.
+		if (Registry.isActiveAndStarted()) {
+			MobileObjectDatabase.getInstance().addListener(this);
+		} else {
+			Registry.executeAfterStart(new Runnable() {
+				@Override
+				public void run() {
+					MobileObjectDatabase.getInstance().addListener(TieredImageCache.this);
+				}
+			}, true);
+		}
+	}
+
+	@Override
+	public void onDetach(MobileBeanEntityDataManager entityManager) {
+		MobileObjectDatabase.getInstance().removeListener(this);
+		entitiesImgAttrs = null;
+
+		memoryTier.onDetach(entityManager);
+	}
+
+
+	@Override
+	public void onMobileObjectUpdated(MobileObject mo) {
+		removeImagesFrom(mo);
+	}
+
+	@Override
+	public void onMobileObjectDeleted(MobileObject mo) {
+		removeImagesFrom(mo);
+	}
+
+	@Override
+	public void onAllMobileObjectsDeleted(String channel) {
+		//Assim como a camada de memória, por enquanto limpa o disco inteiro, pois os nomes dos arquivos não identificam os canais.
+		diskHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				diskTier.clear();
+			}
+		});
+	}
+
+	@Override
+	public void onMobileObjectCreated(MobileObject mo, String id) {
+		//Não faz nada quando um registro é adicionado.
+	}
+
+	@Override
+	public void beforeMobileObjectCreated(MobileObject mobileObject) {
+	}
+
+	@Override
+	public void beforeMobileObjectDeleted(MobileObject mobileObject) {
+	}
+
+	@Override
+	public void beforeMobileObjectUpdated(MobileObject mobileObject) {
+	}
+
+
+	/*
+	 * Métodos de obtenção das estatísticas das camadas
+	 */
+
+	public int getMemoryHitCount() {
+		return memoryTier.hitCount();
+	}
+
+	public int getMemoryMissCount() {
+		return memoryTier.missCount();
+	}
+
+	/**
+	 * Obtém o tamanho atual da camada de memória.
+	 *
+	 * @return o tamanho obtido, em bytes.
+	 */
+	public int getMemorySize() {
+		return memoryTier.size();
+	}
+
+	public int getMemoryMaxSize() {
+		return memoryTier.maxSize();
+	}
+
+	public int getDiskHitCount() {
+		return diskTier.getHitCount();
+	}
+
+	public int getDiskMissCount() {
+		return diskTier.getMissCount();
+	}
+
+	/**
+	 * Obtém o tamanho atual da camada de disco. O tamanho só é conhecido após a primeira utilização da camada, que carrega o índice dos arquivos.
+	 *
+	 * @return o tamanho obtido, em bytes.
+	 */
+	public long getDiskSize() {
+		return diskTier.getSize();
+	}
+
+	public long getDiskMaxSize() {
+		return diskTier.getMaxSize();
+	}
+
+
+	/*
+	 * Métodos auxiliares
+	 */
+
+	private void putOnDisk(final String imageKey, final String variant, final int contentVersion, final Bitmap image) {
+		diskHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				diskTier.put(imageKey, variant, contentVersion, image);
+			}
+		});
+	}
+
+	private void removeImagesFrom(MobileObject mo) {
+		String entityChannel = mo.getStorageId();
+		String[] imgsAttrs = entitiesImgAttrs.get(entityChannel);
+		//Se não possui entrada no mapa, não há imagens para remover do disco.
+		if (imgsAttrs == null) {
+			return;
+		}
+
+		//Remove as imagens na mesma Thread das gravações, de forma que uma gravação anterior à alteração não seja efetivada depois da remoção.
+		String recordId = mo.getRecordId();
+		for (String imgAttr : imgsAttrs) {
+			final String imageKey = makeKey(entityChannel, recordId, imgAttr);
+			diskHandler.post(new Runnable() {
+				@Override
+				public void run() {
+					diskTier.remove(imageKey);
+				}
+			});
+		}
+	}
+
+	private static String makeKey(String entityChannel, String recordId, String attribute) {
+		return entityChannel + ":" + recordId + "." + attribute;
+	}
+
+	private static String makeVariant(int targetWidth, int targetHeight) {
+		return targetWidth + "x" + targetHeight;
+	}
+}
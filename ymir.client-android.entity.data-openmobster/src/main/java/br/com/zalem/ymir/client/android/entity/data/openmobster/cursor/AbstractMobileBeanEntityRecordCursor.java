@@ -45,6 +45,11 @@ public abstract class AbstractMobileBeanEntityRecordCursor extends AbstractMobil
 		throw new UnsupportedOperationException(NO_FIELDS_ERROR_MSG);
 	}
 
+	@Override
+	public boolean isNull(String... fieldPath) {
+		throw new UnsupportedOperationException(NO_FIELDS_ERROR_MSG);
+	}
+
 	@Override
 	public Integer getIntegerValue(int fieldIndex) {
 		throw new UnsupportedOperationException(NO_FIELDS_ERROR_MSG);
@@ -55,6 +60,21 @@ public abstract class AbstractMobileBeanEntityRecordCursor extends AbstractMobil
 		throw new UnsupportedOperationException(NO_FIELDS_ERROR_MSG);
 	}
 
+	@Override
+	public int getInt(int fieldIndex) {
+		throw new UnsupportedOperationException(NO_FIELDS_ERROR_MSG);
+	}
+
+	@Override
+	public long getLong(int fieldIndex) {
+		throw new UnsupportedOperationException(NO_FIELDS_ERROR_MSG);
+	}
+
+	@Override
+	public double getDouble(int fieldIndex) {
+		throw new UnsupportedOperationException(NO_FIELDS_ERROR_MSG);
+	}
+
 	@Override
 	public String getTextValue(int fieldIndex) {
 		throw new UnsupportedOperationException(NO_FIELDS_ERROR_MSG);
@@ -80,6 +100,11 @@ public abstract class AbstractMobileBeanEntityRecordCursor extends AbstractMobil
 		throw new UnsupportedOperationException(NO_FIELDS_ERROR_MSG);
 	}
 
+	@Override
+	public long getDateMillis(int fieldIndex) {
+		throw new UnsupportedOperationException(NO_FIELDS_ERROR_MSG);
+	}
+
 	@Override
 	public Character getCharacterValue(int fieldIndex) {
 		throw new UnsupportedOperationException(NO_FIELDS_ERROR_MSG);
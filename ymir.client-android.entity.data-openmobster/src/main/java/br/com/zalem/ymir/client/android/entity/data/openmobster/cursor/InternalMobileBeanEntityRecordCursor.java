@@ -1,6 +1,9 @@
 package br.com.zalem.ymir.client.android.entity.data.openmobster.cursor;
 
 import android.database.Cursor;
+
+import java.io.Serializable;
+
 import br.com.zalem.ymir.client.android.entity.data.IEntityRecord;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.MobileBeanEntityDAO;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.MobileBeanEntityDataManager;
@@ -79,6 +82,13 @@ public final class InternalMobileBeanEntityRecordCursor extends AbstractMobileBe
 		return is.deserializeRelationshipArrayValueEntry(relFullname, entityMetadata, entryIndex);
 	}
 
+	@Override
+	public Serializable getEntityRecordId() {
+		//Os registros internos são mantidos no registro dono, então obtê-los não gera acessos adicionais ao banco.
+		IEntityRecord record = getEntityRecord();
+		return record == null ? null : record.getId();
+	}
+
 	
 	/*
 	 * Métodos auxiliares
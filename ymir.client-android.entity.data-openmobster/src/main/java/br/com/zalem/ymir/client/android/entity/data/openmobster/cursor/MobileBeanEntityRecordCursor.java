@@ -1,47 +1,97 @@
 package br.com.zalem.ymir.client.android.entity.data.openmobster.cursor;
 
 import android.database.Cursor;
-import br.com.zalem.ymir.client.android.entity.data.IEntityDAO;
 import br.com.zalem.ymir.client.android.entity.data.IEntityRecord;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.MobileBeanEntityDAO;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.MobileBeanEntityRecord;
+import br.com.zalem.ymir.client.android.entity.data.query.select.QueryCancellationSignal;
 
 /**
  * Cursor baseado no OpenMobster especializado em obter registros completos de entidades não internas.<br>
- * Baseia-se em um cursor do banco que deve conter uma coluna do tipo <code>String</code> que retorna o identificador 
- * do registro a ser buscado em cada linha. Os registros são obtidos através do {@link IEntityDAO#get(java.io.Serializable)}
- * da entidade alvo.
- * 
+ * Baseia-se em um cursor do banco que deve conter uma coluna do tipo <code>String</code> que retorna o identificador
+ * do registro a ser buscado em cada linha. Os registros são obtidos em lotes através do {@link MobileBeanEntityDAO#getBatch(String...)}
+ * da entidade alvo: ao obter o registro de uma linha fora do lote atual, os registros das próximas linhas também são lidos.
+ * Os relacionamentos incluídos na query são obtidos junto com cada lote. Se houver um sinal de cancelamento, ele é verificado antes
+ * da leitura de cada lote.
+ *
  * @author Thiago Gesser
  */
 public final class MobileBeanEntityRecordCursor extends AbstractMobileBeanEntityRecordCursor {
 
+	//Quantidade de registros lidos de uma vez pelo cursor.
+	private static final int BATCH_SIZE = 50;
+
 	private final int idColIndex;
-	private final IEntityDAO dao;
-	
+	private final MobileBeanEntityDAO dao;
+	private final String[][] includes;
+	private final QueryCancellationSignal cancellationSignal;
+	private MobileBeanEntityRecord[] batch;
+	private int batchStart;
+
 	/**
-	 * Invoca o construtor {@link br.com.zalem.ymir.client.android.entity.data.openmobster.cursor.MobileBeanEntityRecordCursor#MobileBeanEntityRecordCursor(android.database.Cursor, MobileBeanEntityDAO, int)}
+	 * Invoca o construtor {@link br.com.zalem.ymir.client.android.entity.data.openmobster.cursor.MobileBeanEntityRecordCursor#MobileBeanEntityRecordCursor(android.database.Cursor, MobileBeanEntityDAO, int, String[][], QueryCancellationSignal)}
 	 * passando <code>0</code> como índice da coluna.
 	 */
-	public MobileBeanEntityRecordCursor(Cursor dbCursor, MobileBeanEntityDAO dao) {
-		this(dbCursor, dao, 0);
+	public MobileBeanEntityRecordCursor(Cursor dbCursor, MobileBeanEntityDAO dao, String[][] includes, QueryCancellationSignal cancellationSignal) {
+		this(dbCursor, dao, 0, includes, cancellationSignal);
 	}
-	
+
 	/**
 	 * Cria MobileBeanEntityRecordCursor utilizando o índice da coluna de id para obter os identificadores dos registros.
-	 * 
+	 *
 	 * @param dbCursor cursor do banco.
 	 * @param dao acessor de dados da entidade alvo.
 	 * @param idColIndex índice da coluna de id.
+	 * @param includes caminhos de relacionamentos incluídos na query ou <code>null</code> se não há inclusões.
+	 * @param cancellationSignal sinal de cancelamento da obtenção dos registros ou <code>null</code> se não pode ser cancelada.
 	 */
-	public MobileBeanEntityRecordCursor(Cursor dbCursor, MobileBeanEntityDAO dao, int idColIndex) {
+	public MobileBeanEntityRecordCursor(Cursor dbCursor, MobileBeanEntityDAO dao, int idColIndex, String[][] includes, QueryCancellationSignal cancellationSignal) {
 		super(dbCursor);
 		this.idColIndex = idColIndex;
 		this.dao = dao;
+		this.includes = includes;
+		this.cancellationSignal = cancellationSignal;
 	}
 
 	@Override
 	public IEntityRecord getEntityRecord() {
-		String id = dbCursor.getString(idColIndex);
-		return dao.get(id);
+		int position = dbCursor.getPosition();
+		if (batch == null || position < batchStart || position >= batchStart + batch.length) {
+			readBatch(position);
+		}
+		return batch[position - batchStart];
+	}
+
+	@Override
+	public String getEntityRecordId() {
+		return dbCursor.getString(idColIndex);
+	}
+
+
+	/*
+	 * Métodos auxiliares
+	 */
+
+	private void readBatch(int position) {
+		if (cancellationSignal != null) {
+			cancellationSignal.throwIfCanceled();
+		}
+
+		//Obtém os identificadores das próximas linhas e volta para a linha atual.
+		String[] ids = new String[Math.min(BATCH_SIZE, dbCursor.getCount() - position)];
+		for (int i = 0; i < ids.length; i++) {
+			dbCursor.moveToPosition(position + i);
+			ids[i] = dbCursor.getString(idColIndex);
+		}
+		dbCursor.moveToPosition(position);
+
+		batch = dao.getBatch(ids);
+		if (includes != null) {
+			if (cancellationSignal != null) {
+				cancellationSignal.throwIfCanceled();
+			}
+			dao.includeRelationships(batch, includes);
+		}
+		batchStart = position;
 	}
 }
@@ -1,27 +1,36 @@
 package br.com.zalem.ymir.client.android.entity.data.openmobster.cursor;
 
 import android.database.Cursor;
+import android.graphics.Bitmap;
 
+import java.io.Serializable;
 import java.sql.Date;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Calendar;
 
 import br.com.zalem.ymir.client.android.entity.data.IEntityDAO;
 import br.com.zalem.ymir.client.android.entity.data.IEntityDataManager;
 import br.com.zalem.ymir.client.android.entity.data.IEntityRecord;
 import br.com.zalem.ymir.client.android.entity.data.metadata.EntityAttributeType;
-import br.com.zalem.ymir.client.android.entity.data.metadata.IEntityAttribute;
 import br.com.zalem.ymir.client.android.entity.data.metadata.IEntityMetadata;
 import br.com.zalem.ymir.client.android.entity.data.metadata.IEntityRelationship;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.blob.EntityBlobStore;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.blob.EntityBlobStore.BlobReference;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.util.TypeUtils;
 import br.com.zalem.ymir.client.android.entity.data.query.select.ISelectQuery.ISelectField;
+import br.com.zalem.ymir.client.android.entity.data.query.select.SelectFunction;
 import br.com.zalem.ymir.client.android.entity.data.util.MetadataUtils;
 
 /**
  * Cursor baseado no OpenMobster especializado em obter dados dos campos.<br>
  * Os dados obtidos são convertidos para os tipos corretos utilizando os métodos do {@link TypeUtils}. Uma exceção
  * será lançada ao tentar obter um dado de um tipo diferente de seu campo.<br>
+ * Os métodos de obtenção de primitivos (como o {@link #getLong(int)}) utilizam diretamente os valores numéricos do SQLite (como os
+ * das funções de agregação) e o índice da coluna resolvido na criação do cursor, permitindo a iteração sobre os resultados sem a
+ * criação de objetos. Os valores armazenados como texto são convertidos com o mesmo rigor dos métodos que retornam objetos.<br>
  * Não suporta a obtenção de registros completos.
  * 
  * @see MobileBeanEntityRecordCursor
@@ -32,9 +41,12 @@ import br.com.zalem.ymir.client.android.entity.data.util.MetadataUtils;
 public final class MobileBeanSelectionCursor extends AbstractMobileBeanCursor {
 
 	private final SelectFieldInfo[] fields;
+	private final EntityBlobStore blobStore;
+	private Calendar calendar;
 
-	public MobileBeanSelectionCursor(Cursor dbCursor, ISelectField[] selectFields, IEntityMetadata entityMetadata, IEntityDataManager entityManager) {
+	public MobileBeanSelectionCursor(Cursor dbCursor, ISelectField[] selectFields, IEntityMetadata entityMetadata, IEntityDataManager entityManager, EntityBlobStore blobStore) {
 		super(dbCursor);
+		this.blobStore = blobStore;
 		
 		fields = new SelectFieldInfo[selectFields.length];
 		for (int i = 0; i < selectFields.length; i++) {
@@ -44,10 +56,9 @@ public final class MobileBeanSelectionCursor extends AbstractMobileBeanCursor {
 			if (field.isRelationship()) {
 				IEntityRelationship relationship = MetadataUtils.getRelationshipFromPath(entityMetadata, field.getPath());
 				IEntityDAO relationshipDAO = entityManager.getEntityDAO(relationship.getTarget().getName());
-				fields[i] = new SelectFieldInfo(colIndex, field.getAlias(), relationshipDAO);
+				fields[i] = new SelectFieldInfo(colIndex, field.getAlias(), field.getPath(), relationshipDAO);
 			} else {
-				IEntityAttribute attribute = MetadataUtils.getAttributeFromPath(entityMetadata, field.getPath());
-				fields[i] = new SelectFieldInfo(colIndex, field.getAlias(), attribute);
+				fields[i] = new SelectFieldInfo(colIndex, field.getAlias(), field.getPath(), getValueType(field, entityMetadata));
 			}
 		}
 	}
@@ -82,6 +93,17 @@ public final class MobileBeanSelectionCursor extends AbstractMobileBeanCursor {
 		return dbCursor.isNull(fields[fieldIndex].getColIndex());
 	}
 
+	@Override
+	public boolean isNull(String... fieldPath) {
+		for (SelectFieldInfo field : fields) {
+			if (Arrays.equals(field.getPath(), fieldPath)) {
+				return dbCursor.isNull(field.getColIndex());
+			}
+		}
+
+		throw new IllegalArgumentException("Field not found: " + Arrays.toString(fieldPath));
+	}
+
 	@Override
 	public Integer getIntegerValue(int fieldIndex) {
 		String strValue = getValue(fieldIndex, EntityAttributeType.INTEGER);
@@ -102,6 +124,77 @@ public final class MobileBeanSelectionCursor extends AbstractMobileBeanCursor {
 		}
 	}
 
+	@Override
+	public int getInt(int fieldIndex) {
+		SelectFieldInfo field = fields[fieldIndex];
+		checkAttributeType(field, EntityAttributeType.INTEGER, fieldIndex);
+
+		int colIndex = field.getColIndex();
+		switch (dbCursor.getType(colIndex)) {
+			case Cursor.FIELD_TYPE_NULL:
+				return 0;
+			case Cursor.FIELD_TYPE_INTEGER:
+				return dbCursor.getInt(colIndex);
+
+			default:
+				String strValue = dbCursor.getString(colIndex);
+				try {
+					return Integer.parseInt(strValue);
+				} catch (NumberFormatException e) {
+					throw newAttributeValueFormatException(fieldIndex, EntityAttributeType.INTEGER, strValue);
+				}
+		}
+	}
+
+	@Override
+	public long getLong(int fieldIndex) {
+		SelectFieldInfo field = fields[fieldIndex];
+		checkAttributeType(field, EntityAttributeType.INTEGER, fieldIndex);
+
+		int colIndex = field.getColIndex();
+		switch (dbCursor.getType(colIndex)) {
+			case Cursor.FIELD_TYPE_NULL:
+				return 0;
+			case Cursor.FIELD_TYPE_INTEGER:
+				return dbCursor.getLong(colIndex);
+
+			default:
+				//A conversão do SQLite retornaria 0 para um valor inválido, então o texto é convertido da mesma forma que no getIntegerValue.
+				String strValue = dbCursor.getString(colIndex);
+				try {
+					return Long.parseLong(strValue);
+				} catch (NumberFormatException e) {
+					throw newAttributeValueFormatException(fieldIndex, EntityAttributeType.INTEGER, strValue);
+				}
+		}
+	}
+
+	@Override
+	public double getDouble(int fieldIndex) {
+		SelectFieldInfo field = fields[fieldIndex];
+		//Os valores inteiros também podem ser obtidos como decimais, facilitando a agregação de ambos.
+		if (field.getType() != EntityAttributeType.INTEGER) {
+			checkAttributeType(field, EntityAttributeType.DECIMAL, fieldIndex);
+		}
+
+		int colIndex = field.getColIndex();
+		switch (dbCursor.getType(colIndex)) {
+			case Cursor.FIELD_TYPE_NULL:
+				return 0;
+			case Cursor.FIELD_TYPE_INTEGER:
+			case Cursor.FIELD_TYPE_FLOAT:
+				return dbCursor.getDouble(colIndex);
+
+			default:
+				String strValue = dbCursor.getString(colIndex);
+				try {
+					return Double.parseDouble(strValue);
+				} catch (NumberFormatException e) {
+					throw newAttributeValueFormatException(fieldIndex, field.getType(), strValue);
+				}
+		}
+	}
+
 	@Override
 	public String getTextValue(int fieldIndex) {
 		return getValue(fieldIndex, EntityAttributeType.TEXT);
@@ -147,6 +240,26 @@ public final class MobileBeanSelectionCursor extends AbstractMobileBeanCursor {
         }
     }
 
+    @Override
+    public long getDateMillis(int fieldIndex) {
+        SelectFieldInfo field = fields[fieldIndex];
+        EntityAttributeType type = field.getType();
+        if (type != EntityAttributeType.TIME && type != EntityAttributeType.DATETIME) {
+            checkAttributeType(field, EntityAttributeType.DATE, fieldIndex);
+        }
+
+        //O calendário é reutilizado em todas as conversões do cursor.
+        if (calendar == null) {
+            calendar = Calendar.getInstance();
+        }
+        String strValue = dbCursor.getString(field.getColIndex());
+        try {
+            return TypeUtils.convertToMillis(strValue, type, calendar);
+        } catch (ParseException e) {
+            throw newAttributeValueFormatException(fieldIndex, type, strValue);
+        }
+    }
+
     @Override
 	public Character getCharacterValue(int fieldIndex) {
 		String strValue = getValue(fieldIndex, EntityAttributeType.CHARACTER);
@@ -162,15 +275,19 @@ public final class MobileBeanSelectionCursor extends AbstractMobileBeanCursor {
 		SelectFieldInfo field = fields[fieldIndex];
 		String strValue = dbCursor.getString(field.getColIndex());
 		
-		IEntityAttribute attribute = field.getAttribute();
-		if (attribute == null) {
+		EntityAttributeType type = field.getType();
+		if (type == null) {
 			return field.getRelationshipDAO().get(strValue);
 		}
+		//As imagens armazenadas como blobs são obtidas através da referência contida no valor.
+		if (type == EntityAttributeType.IMAGE && EntityBlobStore.isReference(strValue)) {
+			return decodeImage(fieldIndex, strValue);
+		}
 		
 		try {
-			return TypeUtils.convert(strValue, attribute.getType());
+			return TypeUtils.convert(strValue, type);
 		} catch (ParseException e) {
-			throw newAttributeValueFormatException(fieldIndex, attribute.getType(), strValue);
+			throw newAttributeValueFormatException(fieldIndex, type, strValue);
 		}
 	}
 
@@ -190,6 +307,11 @@ public final class MobileBeanSelectionCursor extends AbstractMobileBeanCursor {
 	public IEntityRecord getEntityRecord() {
 		throw new UnsupportedOperationException("Only cursors without specific selections can get entire records");
 	}
+
+	@Override
+	public Serializable getEntityRecordId() {
+		throw new UnsupportedOperationException("Only cursors without specific selections can get entire records");
+	}
 	
 	
 	/*
@@ -204,41 +326,79 @@ public final class MobileBeanSelectionCursor extends AbstractMobileBeanCursor {
 	}
 	
 	private static void checkAttributeType(SelectFieldInfo field, EntityAttributeType expectedType, int fieldIndex) {
-		IEntityAttribute attribute = field.getAttribute();
-		if (attribute == null) {
+		EntityAttributeType type = field.getType();
+		if (type == null) {
 			throw new IllegalArgumentException(String.format("The field at the index %d is not an attribute.", fieldIndex));
 		}
-		if (attribute.getType() != expectedType) {
+		if (type != expectedType) {
 			throw new IllegalArgumentException(String.format("The field at the index %d is not of the %s type.", fieldIndex, expectedType));
 		}
 	}
 
+	private static EntityAttributeType getValueType(ISelectField field, IEntityMetadata entityMetadata) {
+		SelectFunction function = field.getFunction();
+		if (function == null) {
+			return MetadataUtils.getAttributeFromPath(entityMetadata, field.getPath()).getType();
+		}
+		
+		switch (function) {
+			case COUNT:
+				return EntityAttributeType.INTEGER;
+			case AVG:
+				return EntityAttributeType.DECIMAL;
+			case SUM:
+			case MIN:
+			case MAX:
+				//Estas funções mantêm o tipo do atributo.
+				return MetadataUtils.getAttributeFromPath(entityMetadata, field.getPath()).getType();
+				
+			default:
+				throw new IllegalArgumentException("Unsupported SelectFunction: " + function);
+		}
+	}
+
+    private Bitmap decodeImage(int fieldIndex, String strValue) {
+        if (blobStore == null) {
+            throw new IllegalStateException(String.format("The field at the index %d references a blob, but there is no blob store defined.", fieldIndex));
+        }
+
+        BlobReference reference;
+        try {
+            reference = EntityBlobStore.parseReference(strValue);
+        } catch (IllegalArgumentException e) {
+            throw newAttributeValueFormatException(fieldIndex, EntityAttributeType.IMAGE, strValue);
+        }
+        return blobStore.decodeImage(reference);
+    }
+
     private IllegalArgumentException newAttributeValueFormatException(int fieldIndex, EntityAttributeType type, String strValue) {
         return new IllegalArgumentException(String.format("The field at the index %d do not have a value of type \"%s\". Field value = \"%s\".", fieldIndex, type, strValue));
     }
 	
 	/**
-	 * Armazena as informações necessárias para a obtenção dos dados de um campo do cursor, que pode ser um atributo 
-	 * (attribute != null) ou um relacionamento (relationshipDAO != null).
+	 * Armazena as informações necessárias para a obtenção dos dados de um campo do cursor, que pode ser um atributo ou
+	 * valor agregado (type != null) ou um relacionamento (relationshipDAO != null).
 	 */
 	private static final class SelectFieldInfo {
 		private final int colIndex;
 		private final String name;
-		private IEntityAttribute attribute;
+		private final String[] path;
+		private EntityAttributeType type;
 		private IEntityDAO relationshipDAO;
 		
-		private SelectFieldInfo(int colIndex, String name) {
+		private SelectFieldInfo(int colIndex, String name, String[] path) {
 			this.colIndex = colIndex;
 			this.name = name;
+			this.path = path;
 		}
 		
-		public SelectFieldInfo(int colIndex, String name, IEntityAttribute attribute) {
-			this(colIndex, name);
-			this.attribute = attribute;
+		public SelectFieldInfo(int colIndex, String name, String[] path, EntityAttributeType type) {
+			this(colIndex, name, path);
+			this.type = type;
 		}
 		
-		public SelectFieldInfo(int colIndex, String name, IEntityDAO relationshipDAO) {
-			this(colIndex, name);
+		public SelectFieldInfo(int colIndex, String name, String[] path, IEntityDAO relationshipDAO) {
+			this(colIndex, name, path);
 			this.relationshipDAO = relationshipDAO;
 		}
 		
@@ -249,9 +409,13 @@ public final class MobileBeanSelectionCursor extends AbstractMobileBeanCursor {
 		public String getName() {
 			return name;
 		}
+
+		public String[] getPath() {
+			return path;
+		}
 		
-		public IEntityAttribute getAttribute() {
-			return attribute;
+		public EntityAttributeType getType() {
+			return type;
 		}
 		
 		public IEntityDAO getRelationshipDAO() {
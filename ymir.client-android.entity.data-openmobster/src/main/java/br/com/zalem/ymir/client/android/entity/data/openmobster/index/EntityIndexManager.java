@@ -0,0 +1,315 @@
+package br.com.zalem.ymir.client.android.entity.data.openmobster.index;
+
+import android.database.Cursor;
+
+import org.openmobster.android.api.sync.MobileBean;
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObject;
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObjectDatabase;
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObjectDatabase.IMobileObjectDatabaseListener;
+import org.openmobster.core.mobileCloud.android.service.Registry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import br.com.zalem.ymir.client.android.entity.data.metadata.EntityAttributeType;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityAttribute;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityMetadata;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.query.SQLiteQueryBuilder.CastType;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.util.OpenMobsterUtils;
+
+import static br.com.zalem.ymir.client.android.entity.data.openmobster.query.SQLiteQueryBuilder.fnCast;
+import static br.com.zalem.ymir.client.android.entity.data.openmobster.query.SQLiteQueryBuilder.literal;
+import static br.com.zalem.ymir.client.android.entity.data.openmobster.util.OpenMobsterUtils.executeSQL;
+import static br.com.zalem.ymir.client.android.entity.data.openmobster.util.OpenMobsterUtils.quote;
+
+/**
+ * Gerenciador dos índices declarados nas entidades (ver {@link EntityMetadata#getIndexedFields()}).<br>
+ * O OpenMobster armazena todos os campos dos registros nas colunas <code>name</code> e <code>value</code> da tabela do canal,
+ * então as condições das queries sobre um campo sempre possuem a forma <code>name = 'campo' AND value ...</code>. Para cada campo
+ * indexado, é criado um índice parcial restrito ao nome do campo, contendo o valor e o identificador do registro. Nos campos numéricos,
+ * o índice é feito sobre a mesma conversão de tipo utilizada pelo {@link br.com.zalem.ymir.client.android.entity.data.openmobster.query.MobileBeanQueryBuilder},
+ * de forma que as comparações e ordenações tipadas também sejam beneficiadas. Por exemplo:
+ * <pre>
+ * <code>CREATE INDEX "ymir_index_Produto_preco" ON "Produto" (cast(value as real), recordid) WHERE name = 'preco'</code>
+ * </pre>
+ * Índices parciais e de expressões só são suportados a partir das versões 3.8.0 e 3.9.0 do SQLite, respectivamente. Nas versões
+ * anteriores, os índices são criados sem estes recursos, com menos benefícios.<br>
+ * <br>
+ * As tabelas dos canais só são criadas pelo OpenMobster quando recebem seus primeiros dados. Desta forma, os índices dos canais
+ * que ainda não possuem tabela são criados apenas quando o primeiro registro for adicionado a eles.
+ *
+ * @author Thiago Gesser
+ */
+public final class EntityIndexManager implements IMobileObjectDatabaseListener {
+
+	private static final String INDEX_NAME_PREFIX = "ymir_index_";
+
+	private final Map<String, EntityMetadata> entitiesByChannel;
+	//Canais que ainda não possuem tabela e cujo os índices serão criados na chegada dos primeiros dados.
+	private final Set<String> pendingChannels;
+	private IndexMode indexMode;
+
+	public EntityIndexManager(EntityMetadata... entities) {
+		entitiesByChannel = new HashMap<>(entities.length);
+		for (EntityMetadata entity : entities) {
+			if (entity.isInternal() || entity.getIndexedFields().isEmpty()) {
+				throw new IllegalArgumentException("The entity must be non-internal and declare indexes: " + entity.getName());
+			}
+			entitiesByChannel.put(entity.getChannel(), entity);
+		}
+		pendingChannels = new HashSet<>();
+	}
+
+	/**
+	 * Inicia o gerenciamento dos índices. Se o OpenMobster ainda não foi iniciado, os índices serão criados
+	 * logo após o seu início.
+	 */
+	public void start() {
+		if (Registry.isActiveAndStarted()) {
+			initialize();
+		} else {
+			Registry.executeAfterStart(new Runnable() {
+				@Override
+				public void run() {
+					initialize();
+				}
+			}, true);
+		}
+	}
+
+	/**
+	 * Reconstrói os índices da entidade, excluindo-os e criando-os novamente.<br>
+	 * Normalmente não é necessário chamar este método, pois os índices são mantidos pelo próprio SQLite. Entretanto, ele pode
+	 * ser utilizado para recriar índices corrompidos ou desatualizados após uma grande carga de dados.
+	 *
+	 * @param entity entidade cujo os índices serão reconstruídos.
+	 */
+	public void rebuild(EntityMetadata entity) {
+		if (entitiesByChannel.get(entity.getChannel()) != entity) {
+			throw new IllegalArgumentException("The entity indexes are not managed by this manager. Entity = " + entity.getName());
+		}
+		if (indexMode == null) {
+			throw new IllegalStateException("The OpenMobster is not started yet.");
+		}
+
+		String channel = entity.getChannel();
+		MobileBean.beginTransaction();
+		try {
+			if (OpenMobsterUtils.existsTable(channel)) {
+				for (String indexName : getExistingIndexes(channel)) {
+					executeSQL(getDropIndexSQL(indexName));
+				}
+				createIndexes(entity);
+			}
+
+			MobileBean.setTransactionSuccessful();
+		} finally {
+			MobileBean.endTransaction();
+		}
+	}
+
+
+	@Override
+	public void onMobileObjectCreated(MobileObject mo, String id) {
+		String channel = mo.getStorageId();
+		synchronized (pendingChannels) {
+			if (pendingChannels.isEmpty() || !pendingChannels.remove(channel)) {
+				return;
+			}
+		}
+
+		//Primeiro registro do canal, então a sua tabela acabou de ser criada.
+		createIndexes(entitiesByChannel.get(channel));
+	}
+
+	@Override
+	public void onAllMobileObjectsDeleted(String channel) {
+		//O OpenMobster pode recriar a tabela do canal, então garante que os índices serão verificados na chegada de novos dados.
+		if (entitiesByChannel.containsKey(channel)) {
+			synchronized (pendingChannels) {
+				pendingChannels.add(channel);
+			}
+		}
+	}
+
+	@Override
+	public void onMobileObjectUpdated(MobileObject mo) {
+	}
+
+	@Override
+	public void onMobileObjectDeleted(MobileObject mo) {
+	}
+
+	@Override
+	public void beforeMobileObjectCreated(MobileObject mobileObject) {
+	}
+
+	@Override
+	public void beforeMobileObjectDeleted(MobileObject mobileObject) {
+	}
+
+	@Override
+	public void beforeMobileObjectUpdated(MobileObject mobileObject) {
+	}
+
+
+	/*
+	 * Métodos auxiliares
+	 */
+
+	private void initialize() {
+		indexMode = getSupportedIndexMode();
+
+		MobileObjectDatabase moDB = MobileObjectDatabase.getInstance();
+		//Pode ser chamado a cada início do OpenMobster, então garante que não será registrado mais de uma vez.
+		moDB.removeListener(this);
+
+		MobileBean.beginTransaction();
+		try {
+			for (EntityMetadata entity : entitiesByChannel.values()) {
+				String channel = entity.getChannel();
+				if (!OpenMobsterUtils.existsTable(channel)) {
+					synchronized (pendingChannels) {
+						pendingChannels.add(channel);
+					}
+					continue;
+				}
+
+				//Remove os índices que não fazem mais parte da configuração e cria os que ainda não existem.
+				List<String> expectedIndexes = getExpectedIndexes(entity);
+				for (String indexName : getExistingIndexes(channel)) {
+					if (!expectedIndexes.contains(indexName)) {
+						executeSQL(getDropIndexSQL(indexName));
+					}
+				}
+				createIndexes(entity);
+			}
+			moDB.addListener(this);
+
+			MobileBean.setTransactionSuccessful();
+		} finally {
+			MobileBean.endTransaction();
+		}
+	}
+
+	private void createIndexes(EntityMetadata entity) {
+		String channel = entity.getChannel();
+		String table = quote(channel);
+
+		//Sem o suporte a índices parciais, cria um único índice abrangendo todos os campos do canal.
+		if (indexMode == IndexMode.FULL) {
+			executeSQL(String.format("CREATE INDEX IF NOT EXISTS %s ON %s (name, value, recordid)", quote(getIndexName(channel, null)), table));
+			return;
+		}
+
+		//Ex: CREATE INDEX IF NOT EXISTS "ymir_index_Produto_preco" ON "Produto" (cast(value as real), recordid) WHERE name = 'preco'
+		for (String field : entity.getIndexedFields()) {
+			String valueExpr = "value";
+			if (indexMode == IndexMode.EXPRESSION) {
+				CastType castType = getFieldCastType(entity, field);
+				if (castType != null) {
+					valueExpr = fnCast(valueExpr, castType);
+				}
+			}
+			executeSQL(String.format("CREATE INDEX IF NOT EXISTS %s ON %s (%s, recordid) WHERE name = %s", quote(getIndexName(channel, field)), table, valueExpr, literal(field)));
+		}
+	}
+
+	private List<String> getExpectedIndexes(EntityMetadata entity) {
+		String channel = entity.getChannel();
+		List<String> expectedIndexes = new ArrayList<>();
+		if (indexMode == IndexMode.FULL) {
+			expectedIndexes.add(getIndexName(channel, null));
+		} else {
+			for (String field : entity.getIndexedFields()) {
+				expectedIndexes.add(getIndexName(channel, field));
+			}
+		}
+		return expectedIndexes;
+	}
+
+	private static List<String> getExistingIndexes(String channel) {
+		List<String> indexes = new ArrayList<>();
+		Cursor cursor = MobileBean.rawQuery("SELECT name FROM sqlite_master WHERE type = 'index' AND tbl_name = ?", new String[] {channel});
+		try {
+			while (cursor.moveToNext()) {
+				//Considera apenas os índices criados por este gerenciador.
+				String indexName = cursor.getString(0);
+				if (indexName.startsWith(INDEX_NAME_PREFIX)) {
+					indexes.add(indexName);
+				}
+			}
+		} finally {
+			cursor.close();
+		}
+		return indexes;
+	}
+
+	//Utiliza o mesmo cast das condições e ordenações tipadas do MobileBeanQueryBuilder, para que a expressão do índice coincida com a da query.
+	private static CastType getFieldCastType(EntityMetadata entity, String fieldName) {
+		EntityAttribute attribute = entity.getAttributesMap().get(fieldName);
+		if (attribute == null) {
+			//Relacionamentos armazenam o identificador do registro alvo, que é sempre comparado como texto.
+			return null;
+		}
+
+		EntityAttributeType type = attribute.getType();
+		switch (type) {
+			case INTEGER:
+				return CastType.INTEGER;
+			case DECIMAL:
+				return CastType.REAL;
+
+			default:
+				return null;
+		}
+	}
+
+	private static IndexMode getSupportedIndexMode() {
+		if (OpenMobsterUtils.isSQLiteVersionAtLeast(3, 9, 0)) {
+			return IndexMode.EXPRESSION;
+		}
+		if (OpenMobsterUtils.isSQLiteVersionAtLeast(3, 8, 0)) {
+			return IndexMode.PARTIAL;
+		}
+		return IndexMode.FULL;
+	}
+
+	private static String getIndexName(String channel, String field) {
+		if (field == null) {
+			return INDEX_NAME_PREFIX + channel;
+		}
+		return INDEX_NAME_PREFIX + channel + "_" + field;
+	}
+
+	private static String getDropIndexSQL(String indexName) {
+		return "DROP INDEX IF EXISTS " + quote(indexName);
+	}
+
+
+	/*
+	 * Classes auxiliares
+	 */
+
+	/**
+	 * Formas de criação dos índices, de acordo com os recursos suportados pela versão do SQLite.
+	 */
+	private enum IndexMode {
+		/**
+		 * Índices parciais por campo, com a conversão de tipo dos valores numéricos.
+		 */
+		EXPRESSION,
+		/**
+		 * Índices parciais por campo, sem a conversão de tipo dos valores.
+		 */
+		PARTIAL,
+		/**
+		 * Índice único para todos os campos do canal.
+		 */
+		FULL
+	}
+}
@@ -3,23 +3,44 @@ package br.com.zalem.ymir.client.android.entity.data.openmobster.metadata;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Arrays;
+
 import br.com.zalem.ymir.client.android.entity.data.metadata.EntityAttributeType;
 import br.com.zalem.ymir.client.android.entity.data.metadata.IEntityAttribute;
 
 /**
- * Representação de um campo de entidade.
+ * Representação de um campo de entidade.<br>
+ * Os campos do tipo {@link EntityAttributeType#IMAGE} podem declarar os tamanhos das suas miniaturas (<code>thumbnails</code>),
+ * que são geradas a partir da imagem e utilizadas nas obtenções de imagens com tamanho definido, como
+ * {@link br.com.zalem.ymir.client.android.entity.data.IEntityRecord#getImageValue(String, int, int)}. Além disto, os campos dos tipos
+ * {@link EntityAttributeType#IMAGE} e {@link EntityAttributeType#IMAGE_ARRAY} podem declarar a {@link ImageEncoding codificação} das suas imagens.
  *
  * @author Thiago Gesser
  */
 public final class EntityAttribute implements IEntityAttribute {
 
+	private static final int[] NO_THUMBNAILS = new int[0];
+
 	private final String name;
 	private final EntityAttributeType type;
-	
+	private final int[] thumbnails;
+	private final ImageEncoding encoding;
+
 	@JsonCreator
-	public EntityAttribute(@JsonProperty("name") String name, @JsonProperty("type") EntityAttributeType type) {
+	public EntityAttribute(@JsonProperty("name") String name, @JsonProperty("type") EntityAttributeType type,
+						   @JsonProperty(value = "thumbnails", required = false) int[] thumbnails,
+						   @JsonProperty(value = "encoding", required = false) ImageEncoding encoding) {
 		this.name = name;
 		this.type = type;
+		this.encoding = encoding;
+		if (thumbnails != null && thumbnails.length > 0) {
+			//Mantém os tamanhos ordenados para que a menor miniatura adequada seja encontrada primeiro.
+			this.thumbnails = thumbnails.clone();
+			Arrays.sort(this.thumbnails);
+		} else {
+			this.thumbnails = NO_THUMBNAILS;
+		}
 	}
 	
 	@Override
@@ -31,4 +52,32 @@ public final class EntityAttribute implements IEntityAttribute {
 	public EntityAttributeType getType() {
 		return type;
 	}
+
+	/**
+	 * Obtém os tamanhos das miniaturas da imagem, em pixels, ordenados do menor para o maior. Cada tamanho corresponde ao maior
+	 * lado da miniatura, cujas proporções são as mesmas da imagem.
+	 *
+	 * @return os tamanhos obtidos ou um array vazio se o campo não possui miniaturas. O array não deve ser alterado.
+	 */
+	public int[] getThumbnails() {
+		return thumbnails;
+	}
+
+	/**
+	 * Obtém a codificação das imagens do campo.
+	 *
+	 * @return a codificação declarada ou {@link ImageEncoding#DEFAULT} se o campo não declarou uma codificação.
+	 */
+	public ImageEncoding getEncoding() {
+		return encoding == null ? ImageEncoding.DEFAULT : encoding;
+	}
+
+	/**
+	 * Indica se o campo declarou a codificação das suas imagens.
+	 *
+	 * @return <code>true</code> se a codificação foi declarada e <code>false</code> caso contrário.
+	 */
+	public boolean hasEncoding() {
+		return encoding != null;
+	}
 }
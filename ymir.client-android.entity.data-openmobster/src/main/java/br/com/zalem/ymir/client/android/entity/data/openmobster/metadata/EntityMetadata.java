@@ -2,13 +2,18 @@ package br.com.zalem.ymir.client.android.entity.data.openmobster.metadata;
 
 import android.text.TextUtils;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import br.com.zalem.ymir.client.android.entity.data.metadata.IEntityMetadata;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.MobileBeanEntityDataManager;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.projection.EntityProjection;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.search.EntitySearchIndex;
 
 /**
  * Representação dos metadados de uma entidade.
@@ -21,8 +26,14 @@ public final class EntityMetadata implements IEntityMetadata {
 	private final String channel;
 	private final boolean internal;
 	private final Map<String, EntityAttribute> attributesMap;
+	//Posições (slots) fixas dos atributos, utilizadas pelos registros para armazenar informações por atributo em arrays.
+	private final Map<String, Integer> attributesSlots;
+	private final EntityAttribute[] slotsAttributes;
 	private final Map<String, EntityRelationship> relationshipsMap;
+	private final Set<String> indexedFields;
     private EntityRelationship[] referencesToMe;
+	private EntityProjection projection;
+	private volatile EntitySearchIndex searchIndex;
 	
 	public EntityMetadata(EntityMetadataConfig config) {
 		this.name = config.getName();
@@ -34,11 +45,19 @@ public final class EntityMetadata implements IEntityMetadata {
 		EntityAttribute[] attributes = config.getAttributes();
 		if (attributes != null && attributes.length > 0) {
 			attributesMap = new HashMap<>(attributes.length);
+			attributesSlots = new HashMap<>(attributes.length);
+			slotsAttributes = new EntityAttribute[attributes.length];
 			for (EntityAttribute attribute : attributes) {
 				attributesMap.put(attribute.getName(), attribute);
+
+				int slot = attributesSlots.size();
+				attributesSlots.put(attribute.getName(), slot);
+				slotsAttributes[slot] = attribute;
 			}
 		} else {
 			attributesMap = Collections.emptyMap();
+			attributesSlots = Collections.emptyMap();
+			slotsAttributes = new EntityAttribute[0];
 		}
 
 		//Apenas cria o mapa de relacionamentos agora. Eles serão inicializadas depois, pois necessitam dos metadados
@@ -49,6 +68,13 @@ public final class EntityMetadata implements IEntityMetadata {
 		} else {
 			relationshipsMap = Collections.emptyMap();
 		}
+
+		String[] indexes = config.getIndexes();
+		if (indexes != null && indexes.length > 0) {
+			indexedFields = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(indexes)));
+		} else {
+			indexedFields = Collections.emptySet();
+		}
 	}
 
     @Override
@@ -121,6 +147,37 @@ public final class EntityMetadata implements IEntityMetadata {
 		return relationshipsMap;
 	}
 	
+	/**
+	 * Obtém a posição (slot) fixa do atributo na entidade. As posições vão de <code>0</code> até {@link #getAttributesCount()} - 1
+	 * e podem ser utilizadas para armazenar informações por atributo em arrays, evitando buscas pelo nome.
+	 *
+	 * @param name nome do atributo.
+	 * @return a posição do atributo ou <code>-1</code> se não há atributo com este nome.
+	 */
+	public int getAttributeSlot(String name) {
+		Integer slot = attributesSlots.get(name);
+		return slot == null ? -1 : slot;
+	}
+
+	/**
+	 * Obtém o atributo de acordo com a sua posição (slot) fixa na entidade.
+	 *
+	 * @param slot posição do atributo, obtida através do {@link #getAttributeSlot(String)}.
+	 * @return o atributo obtido.
+	 */
+	public EntityAttribute getAttribute(int slot) {
+		return slotsAttributes[slot];
+	}
+
+	/**
+	 * Obtém a quantidade de atributos da entidade.
+	 *
+	 * @return a quantidade obtida.
+	 */
+	public int getAttributesCount() {
+		return slotsAttributes.length;
+	}
+
 	/**
 	 * Obtém o mapa de atributos.
 	 * 
@@ -138,6 +195,43 @@ public final class EntityMetadata implements IEntityMetadata {
     public EntityRelationship[] getReferencesToMe() {
         return referencesToMe;
     }
+
+	/**
+	 * Obtém os nomes dos campos (atributos ou relacionamentos) que possuem índices nos valores armazenados no canal da entidade.
+	 *
+	 * @return os nomes obtidos.
+	 */
+	public Set<String> getIndexedFields() {
+		return indexedFields;
+	}
+
+	/**
+	 * Indica se o campo possui índice nos valores armazenados no canal da entidade.
+	 *
+	 * @param fieldName nome do campo.
+	 * @return <code>true</code> se o campo possui índice e <code>false</code> caso contrário.
+	 */
+	public boolean isIndexedField(String fieldName) {
+		return indexedFields.contains(fieldName);
+	}
+
+	/**
+	 * Obtém a projeção da entidade, que mantém os dados dos seus registros em uma tabela tipada com uma coluna por campo.
+	 *
+	 * @return a projeção obtida ou <code>null</code> se a entidade não possui projeção.
+	 */
+	public EntityProjection getProjection() {
+		return projection;
+	}
+
+	/**
+	 * Obtém o índice de busca textual da entidade, utilizado pela restrição <code>matches</code> das queries.
+	 *
+	 * @return o índice obtido ou <code>null</code> se a busca não foi habilitada para a entidade.
+	 */
+	public EntitySearchIndex getSearchIndex() {
+		return searchIndex;
+	}
 	
 	/**
 	 * Verifica se o campo existe.
@@ -193,4 +287,32 @@ public final class EntityMetadata implements IEntityMetadata {
 
         this.referencesToMe = relationshipsToMe;
     }
+
+    /**
+     * Define a projeção da entidade. Precisa ser feito depois da inicialização dos relacionamentos, pois as colunas da projeção
+     * dependem deles.
+     *
+     * @param projection projeção da entidade.
+     */
+    public void setProjection(EntityProjection projection) {
+        if (this.projection != null) {
+            throw new IllegalStateException();
+        }
+
+        this.projection = projection;
+    }
+
+    /**
+     * Define o índice de busca textual da entidade. Diferente das demais definições, pode ser feito a qualquer momento, pois
+     * a busca normalmente é habilitada a partir das configurações de interface.
+     *
+     * @param searchIndex índice de busca da entidade.
+     */
+    public void setSearchIndex(EntitySearchIndex searchIndex) {
+        if (this.searchIndex != null) {
+            throw new IllegalStateException();
+        }
+
+        this.searchIndex = searchIndex;
+    }
 }
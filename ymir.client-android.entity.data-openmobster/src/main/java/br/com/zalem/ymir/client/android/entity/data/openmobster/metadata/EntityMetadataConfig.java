@@ -18,18 +18,24 @@ public final class EntityMetadataConfig {
 	private final boolean internal;
 	private final EntityAttribute[] attributes;
 	private final EntityRelationshipConfig[] relationships;
+	private final String[] indexes;
+	private final EntityProjectionConfig projection;
 
 	@JsonCreator
 	public EntityMetadataConfig(@JsonProperty("name") String name, 
 								@JsonProperty(value = "channel", required = false) String channel,
 								@JsonProperty(value = "internal", required = false) boolean internal,
 								@JsonProperty("attributes") EntityAttribute[] attributes,
-								@JsonProperty("relationships") EntityRelationshipConfig[] relationships) {
+								@JsonProperty("relationships") EntityRelationshipConfig[] relationships,
+								@JsonProperty(value = "indexes", required = false) String[] indexes,
+								@JsonProperty(value = "projection", required = false) EntityProjectionConfig projection) {
 		this.name = name;
 		this.channel = channel;
 		this.internal = internal;
 		this.attributes = attributes;
 		this.relationships = relationships;
+		this.indexes = indexes;
+		this.projection = projection;
 	}
 	
 	public String getName() {
@@ -51,4 +57,12 @@ public final class EntityMetadataConfig {
 	public EntityRelationshipConfig[] getRelationships() {
 		return relationships;
 	}
+
+	public String[] getIndexes() {
+		return indexes;
+	}
+
+	public EntityProjectionConfig getProjection() {
+		return projection;
+	}
 }
@@ -2,6 +2,10 @@ package br.com.zalem.ymir.client.android.entity.data.openmobster.metadata;
 
 import android.text.TextUtils;
 import java.util.HashMap;
+import java.util.HashSet;
+
+import br.com.zalem.ymir.client.android.entity.data.metadata.EntityAttributeType;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.query.MobileBeanQueryBuilder;
 
 /**
  * Validador de configurações de metadados das entidades.<br>
@@ -64,6 +68,26 @@ public final class EntityMetadataConfigValidator {
 					if (field.getType() == null) {
 						throw new EntityMetadataException(String.format(MISSING_INDEXED_FIELD_ERROR_FORMAT, "fields", i, "type", entityName));
 					}
+					for (int size : field.getThumbnails()) {
+						if (field.getType() != EntityAttributeType.IMAGE) {
+							throw new EntityMetadataException(String.format("Only attributes of the IMAGE type can declare thumbnails. Entity = %s, attribute = %s.", entityName, field.getName()));
+						}
+						if (size <= 0) {
+							throw new EntityMetadataException(String.format("The thumbnails sizes must be positive. Entity = %s, attribute = %s, size = %d.", entityName, field.getName(), size));
+						}
+					}
+					if (field.hasEncoding()) {
+						if (field.getType() != EntityAttributeType.IMAGE && field.getType() != EntityAttributeType.IMAGE_ARRAY) {
+							throw new EntityMetadataException(String.format("Only attributes of the IMAGE or IMAGE_ARRAY types can declare an encoding. Entity = %s, attribute = %s.", entityName, field.getName()));
+						}
+						ImageEncoding encoding = field.getEncoding();
+						if (encoding.getQuality() < 0 || encoding.getQuality() > 100) {
+							throw new EntityMetadataException(String.format("The encoding quality must be between 0 and 100. Entity = %s, attribute = %s, quality = %d.", entityName, field.getName(), encoding.getQuality()));
+						}
+						if (encoding.getMaxSize() < 0) {
+							throw new EntityMetadataException(String.format("The encoding max size can't be negative. Entity = %s, attribute = %s, max size = %d.", entityName, field.getName(), encoding.getMaxSize()));
+						}
+					}
 				}
 			}
 			
@@ -157,6 +181,99 @@ public final class EntityMetadataConfigValidator {
 				}
 			}
 		}
+
+		//Validação dos índices das entidades.
+		for (EntityMetadataConfig metadata : metadatas) {
+			String[] indexes = metadata.getIndexes();
+			if (indexes == null || indexes.length == 0) {
+				continue;
+			}
+
+			String entityName = metadata.getName();
+			//Os registros de entidades internas ficam armazenados dentro dos registros donos, então não possuem canal para ser indexado.
+			if (metadata.isInternal()) {
+				throw new EntityMetadataException("Internal entities cannot declare indexes. Entity = " + entityName);
+			}
+
+			HashSet<String> indexedFields = new HashSet<>(indexes.length);
+			for (int i = 0; i < indexes.length; i++) {
+				String index = indexes[i];
+				if (TextUtils.isEmpty(index)) {
+					throw new EntityMetadataException(String.format("indexes[%d] can't be null or empty. Entity = %s.", i, entityName));
+				}
+				if (!indexedFields.add(index)) {
+					throw new EntityMetadataException(String.format("The index must be unique. The following field was indexed twice: \"%s\". Entity = %s.", index, entityName));
+				}
+				if (!isQueryableField(metadata, index, entitiesMap)) {
+					throw new EntityMetadataException(String.format("The index must point to a supported attribute or to a single relationship targeting a non-internal entity: \"%s\". Entity = %s.", index, entityName));
+				}
+			}
+		}
+
+		//Validação das projeções das entidades.
+		for (EntityMetadataConfig metadata : metadatas) {
+			EntityProjectionConfig projection = metadata.getProjection();
+			if (projection == null) {
+				continue;
+			}
+
+			String entityName = metadata.getName();
+			//Os registros de entidades internas ficam armazenados dentro dos registros donos, então não podem ser projetados.
+			if (metadata.isInternal()) {
+				throw new EntityMetadataException("Internal entities cannot declare projections. Entity = " + entityName);
+			}
+
+			//Os índices só podem ser criados sobre os campos que possuem coluna na projeção.
+			String[] indexes = projection.getIndexes();
+			if (indexes == null) {
+				continue;
+			}
+			for (int i = 0; i < indexes.length; i++) {
+				String index = indexes[i];
+				if (TextUtils.isEmpty(index)) {
+					throw new EntityMetadataException(String.format("projection.indexes[%d] can't be null or empty. Entity = %s.", i, entityName));
+				}
+				if (!isQueryableField(metadata, index, entitiesMap)) {
+					throw new EntityMetadataException(String.format("The projection index must point to a supported attribute or to a single relationship targeting a non-internal entity: \"%s\". Entity = %s.", index, entityName));
+				}
+			}
+		}
+	}
+
+	private static boolean isQueryableField(EntityMetadataConfig metadata, String fieldName, HashMap<String, EntityMetadataConfig> entitiesMap) throws EntityMetadataException {
+		EntityAttribute[] attributes = metadata.getAttributes();
+		if (attributes != null) {
+			for (EntityAttribute attribute : attributes) {
+				if (attribute.getName().equals(fieldName)) {
+					return MobileBeanQueryBuilder.isSupportedAttribute(attribute);
+				}
+			}
+		}
+
+		EntityRelationshipConfig[] relationships = metadata.getRelationships();
+		if (relationships != null) {
+			for (EntityRelationshipConfig relationship : relationships) {
+				if (relationship.getName().equals(fieldName)) {
+					return !isArray(relationship) && !entitiesMap.get(relationship.getEntity()).isInternal();
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean isArray(EntityRelationshipConfig relationship) throws EntityMetadataException {
+		switch (relationship.getType()) {
+			case ASSOCIATION:
+			case COMPOSITION:
+				return false;
+
+			case ASSOCIATION_ARRAY:
+			case COMPOSITION_ARRAY:
+				return true;
+
+			default:
+				throw new EntityMetadataException("Invalid EntityRelationshipType: " + relationship.getType());
+		}
 	}
 	
 	private static boolean isComposition(EntityRelationshipConfig relationship) throws EntityMetadataException {
@@ -0,0 +1,27 @@
+package br.com.zalem.ymir.client.android.entity.data.openmobster.metadata;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import br.com.zalem.ymir.client.android.entity.data.openmobster.projection.EntityProjection;
+
+/**
+ * Configuração da projeção de uma entidade.<br>
+ * É utilizada na criação do {@link EntityMetadata}, servindo como base para a instância de {@link EntityProjection}.
+ * As descrições das configurações estão presentes na classe EntityProjection.
+ *
+ * @author Thiago Gesser
+ */
+public final class EntityProjectionConfig {
+
+	private final String[] indexes;
+
+	@JsonCreator
+	public EntityProjectionConfig(@JsonProperty(value = "indexes", required = false) String[] indexes) {
+		this.indexes = indexes;
+	}
+
+	public String[] getIndexes() {
+		return indexes;
+	}
+}
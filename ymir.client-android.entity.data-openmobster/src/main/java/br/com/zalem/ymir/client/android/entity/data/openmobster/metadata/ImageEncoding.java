@@ -0,0 +1,89 @@
+package br.com.zalem.ymir.client.android.entity.data.openmobster.metadata;
+
+import android.graphics.Bitmap.CompressFormat;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuração da codificação das imagens de um campo, utilizada quando o registro é salvo.<br>
+ * Define o formato e a qualidade da compressão e, opcionalmente, o tamanho máximo da imagem. Imagens cujo maior lado excede o
+ * tamanho máximo são reduzidas (mantendo as proporções) antes da codificação.
+ *
+ * @author Thiago Gesser
+ */
+public final class ImageEncoding {
+
+	public static final int DEFAULT_QUALITY = 75;
+
+	/**
+	 * Codificação utilizada pelos campos que não a declaram: JPEG com qualidade {@value #DEFAULT_QUALITY} e sem tamanho máximo.
+	 */
+	public static final ImageEncoding DEFAULT = new ImageEncoding(Format.JPEG, DEFAULT_QUALITY, 0);
+
+	private final Format format;
+	private final int quality;
+	private final int maxSize;
+
+	@JsonCreator
+	public ImageEncoding(@JsonProperty(value = "format", required = false) Format format,
+						 @JsonProperty(value = "quality", required = false) Integer quality,
+						 @JsonProperty(value = "maxSize", required = false) Integer maxSize) {
+		this.format = format == null ? Format.JPEG : format;
+		this.quality = quality == null ? DEFAULT_QUALITY : quality;
+		this.maxSize = maxSize == null ? 0 : maxSize;
+	}
+
+	/**
+	 * Obtém o formato da codificação.
+	 *
+	 * @return o formato obtido.
+	 */
+	public Format getFormat() {
+		return format;
+	}
+
+	/**
+	 * Obtém a qualidade da compressão, de 0 a 100.
+	 *
+	 * @return a qualidade obtida.
+	 */
+	public int getQuality() {
+		return quality;
+	}
+
+	/**
+	 * Obtém o tamanho máximo da imagem, em pixels, correspondente ao seu maior lado.
+	 *
+	 * @return o tamanho obtido ou <code>0</code> se não há tamanho máximo.
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+
+	/**
+	 * Formatos suportados na codificação das imagens.
+	 */
+	public enum Format {
+		/**
+		 * Não suporta transparência, então os pixels transparentes recebem um fundo branco.
+		 */
+		JPEG(CompressFormat.JPEG),
+		/**
+		 * Suporta transparência e gera arquivos menores do que o JPEG com a mesma qualidade. Antes do Android 4.3 (API 18) a transparência
+		 * não é suportada, então os pixels transparentes recebem um fundo branco como no JPEG.
+		 */
+		WEBP(CompressFormat.WEBP);
+
+		private final CompressFormat compressFormat;
+
+		Format(CompressFormat compressFormat) {
+			this.compressFormat = compressFormat;
+		}
+
+		public CompressFormat getCompressFormat() {
+			return compressFormat;
+		}
+	}
+}
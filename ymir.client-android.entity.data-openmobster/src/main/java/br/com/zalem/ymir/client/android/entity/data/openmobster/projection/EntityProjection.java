@@ -0,0 +1,328 @@
+package br.com.zalem.ymir.client.android.entity.data.openmobster.projection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import br.com.zalem.ymir.client.android.entity.data.metadata.EntityAttributeType;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.MobileBeanEntityRecord;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityAttribute;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityMetadata;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityProjectionConfig;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityRelationship;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.query.MobileBeanQueryBuilder;
+
+import static br.com.zalem.ymir.client.android.entity.data.openmobster.query.SQLiteQueryBuilder.literal;
+import static br.com.zalem.ymir.client.android.entity.data.openmobster.util.OpenMobsterUtils.quote;
+
+/**
+ * Projeção dos registros de uma entidade em uma tabela tipada, contendo uma linha por registro e uma coluna por campo.<br>
+ * O OpenMobster armazena cada campo dos registros em uma linha diferente (ver {@link MobileBeanQueryBuilder}), o que exige
+ * um <code>JOIN</code> por campo utilizado nas queries e impede o uso de índices nos valores, pois eles são sempre texto.
+ * A projeção mantém uma cópia desnormalizada destes dados com as afinidades corretas (<code>INTEGER</code>, <code>REAL</code> ou
+ * <code>TEXT</code>) e índices nos campos configurados, de forma que as queries possam ser feitas diretamente sobre ela.<br>
+ * <br>
+ * Apenas os campos suportados pelo {@link MobileBeanQueryBuilder} possuem colunas na projeção: os atributos de tipos suportados,
+ * os relacionamentos singulares para entidades não internas (armazenando o identificador do registro alvo) e as tags de
+ * sincronização. A tabela é mantida sincronizada com os dados do canal pelo {@link EntityProjectionManager} e só deve ser
+ * utilizada nas queries quando a projeção estiver pronta ({@link #isReady()}).
+ *
+ * @author Thiago Gesser
+ */
+public final class EntityProjection {
+
+	public static final String RECORDID_COLUMN = "recordid";
+	//Linha especial que todo registro real possui no canal.
+	static final String CONTROL_ROW_NAME = "om:json";
+	private static final String TABLE_NAME_PREFIX = "ymir_projection_";
+	private static final String INTEGER_AFFINITY = "INTEGER";
+	private static final String REAL_AFFINITY = "REAL";
+	private static final String TEXT_AFFINITY = "TEXT";
+
+	private final EntityMetadata entity;
+	private final String tableName;
+	private final ProjectionColumn[] columns;
+	private final Map<String, ProjectionColumn> columnsMap;
+	private final String[] indexedFields;
+	private volatile boolean ready;
+
+	public EntityProjection(EntityMetadata entity, EntityProjectionConfig config) {
+		if (entity.isInternal()) {
+			throw new IllegalArgumentException("Internal entities cannot have projections: " + entity.getName());
+		}
+
+		this.entity = entity;
+		this.tableName = TABLE_NAME_PREFIX + entity.getChannel();
+
+		List<ProjectionColumn> columnsList = new ArrayList<>();
+		for (EntityAttribute attribute : entity.getAttributesMap().values()) {
+			if (MobileBeanQueryBuilder.isSupportedAttribute(attribute)) {
+				columnsList.add(new ProjectionColumn(attribute.getName(), getAffinity(attribute.getType())));
+			}
+		}
+		for (EntityRelationship relationship : entity.getRelationshipsMap().values()) {
+			//Os relacionamentos suportados armazenam o identificador do registro alvo, assim como no canal.
+			if (MobileBeanQueryBuilder.isSupportedRelationship(relationship)) {
+				columnsList.add(new ProjectionColumn(relationship.getName(), TEXT_AFFINITY));
+			}
+		}
+		//As tags são utilizadas nas restrições de status de sincronização.
+		columnsList.add(new ProjectionColumn(MobileBeanEntityRecord.TAGS_PROPERTY_NAME, INTEGER_AFFINITY));
+
+		columns = columnsList.toArray(new ProjectionColumn[columnsList.size()]);
+		columnsMap = new HashMap<>(columns.length);
+		for (ProjectionColumn column : columns) {
+			columnsMap.put(column.getFieldName(), column);
+		}
+
+		String[] indexes = config.getIndexes();
+		if (indexes == null) {
+			indexedFields = new String[0];
+		} else {
+			for (String index : indexes) {
+				if (!columnsMap.containsKey(index)) {
+					throw new IllegalArgumentException(String.format("The projection index must point to a projected field: \"%s\". Entity = %s.", index, entity.getName()));
+				}
+			}
+			indexedFields = indexes;
+		}
+	}
+
+	/**
+	 * Obtém a entidade projetada.
+	 *
+	 * @return a entidade obtida.
+	 */
+	public EntityMetadata getEntity() {
+		return entity;
+	}
+
+	/**
+	 * Obtém o nome da tabela da projeção, já em formato de identificador SQL para ser utilizado diretamente nas queries.
+	 *
+	 * @return o nome obtido.
+	 */
+	public String getTableName() {
+		return quote(tableName);
+	}
+
+	/**
+	 * Indica se o campo possui uma coluna na projeção.
+	 *
+	 * @param fieldName nome do campo.
+	 * @return <code>true</code> se o campo possui coluna e <code>false</code> caso contrário.
+	 */
+	public boolean hasColumn(String fieldName) {
+		return columnsMap.containsKey(fieldName);
+	}
+
+	/**
+	 * Obtém o nome da coluna do campo na projeção, já em formato de identificador SQL para ser utilizado diretamente nas queries.
+	 *
+	 * @param fieldName nome do campo.
+	 * @return o nome da coluna obtido.
+	 * @throws IllegalArgumentException se o campo não possui coluna na projeção.
+	 */
+	public String getColumnName(String fieldName) {
+		ProjectionColumn column = columnsMap.get(fieldName);
+		if (column == null) {
+			throw new IllegalArgumentException(String.format("The field \"%s\" has no column in the projection of the entity %s.", fieldName, entity.getName()));
+		}
+		return quote(column.getFieldName());
+	}
+
+	/**
+	 * Obtém os nomes dos campos que possuem índices na projeção.
+	 *
+	 * @return os nomes obtidos.
+	 */
+	public String[] getIndexedFields() {
+		return indexedFields;
+	}
+
+	/**
+	 * Indica se a tabela da projeção está criada e sincronizada com os dados do canal, podendo ser utilizada nas queries.
+	 *
+	 * @return <code>true</code> se a projeção está pronta e <code>false</code> caso contrário.
+	 */
+	public boolean isReady() {
+		return ready;
+	}
+
+
+	/*
+	 * Métodos utilizados pelo EntityProjectionManager.
+	 */
+
+	void setReady(boolean ready) {
+		this.ready = ready;
+	}
+
+	String getRawTableName() {
+		return tableName;
+	}
+
+	//Obtém as colunas esperadas na tabela, indexadas pelo nome e com a afinidade como valor.
+	Map<String, String> getExpectedColumns() {
+		Map<String, String> expectedColumns = new HashMap<>(columns.length + 1);
+		expectedColumns.put(RECORDID_COLUMN, TEXT_AFFINITY);
+		for (ProjectionColumn column : columns) {
+			expectedColumns.put(column.getFieldName(), column.getAffinity());
+		}
+		return expectedColumns;
+	}
+
+	//Ex: CREATE TABLE IF NOT EXISTS "ymir_projection_X" (recordid TEXT PRIMARY KEY, "nome" TEXT, "idade" INTEGER)
+	String getCreateTableSQL() {
+		StringBuilder sb = new StringBuilder("CREATE TABLE IF NOT EXISTS ").append(getTableName());
+		sb.append(" (").append(RECORDID_COLUMN).append(" ").append(TEXT_AFFINITY).append(" PRIMARY KEY");
+		for (ProjectionColumn column : columns) {
+			sb.append(", ").append(quote(column.getFieldName())).append(" ").append(column.getAffinity());
+		}
+		return sb.append(")").toString();
+	}
+
+	String getDropTableSQL() {
+		return "DROP TABLE IF EXISTS " + getTableName();
+	}
+
+	String getDeleteAllSQL() {
+		return "DELETE FROM " + getTableName();
+	}
+
+	String getDeleteSQL() {
+		return "DELETE FROM " + getTableName() + " WHERE " + RECORDID_COLUMN + " = ?";
+	}
+
+	//Obtém os nomes dos índices esperados, indexados pelo campo.
+	Map<String, String> getExpectedIndexes() {
+		if (indexedFields.length == 0) {
+			return Collections.emptyMap();
+		}
+
+		Map<String, String> expectedIndexes = new HashMap<>(indexedFields.length);
+		for (String field : indexedFields) {
+			expectedIndexes.put(field, tableName + "_" + field);
+		}
+		return expectedIndexes;
+	}
+
+	//Ex: CREATE INDEX IF NOT EXISTS "ymir_projection_X_nome" ON "ymir_projection_X" ("nome")
+	String getCreateIndexSQL(String field, String indexName) {
+		return "CREATE INDEX IF NOT EXISTS " + quote(indexName) + " ON " + getTableName() + " (" + quote(field) + ")";
+	}
+
+	String getDropIndexSQL(String indexName) {
+		return "DROP INDEX IF EXISTS " + quote(indexName);
+	}
+
+	/*
+	 * Obtém o comando que copia os dados de todos os registros do canal para a projeção. Cada coluna é obtida através de uma subquery
+	 * no canal, a partir da linha especial que todo registro real possui. Os nomes dos campos devem ser passados como parâmetros
+	 * na mesma ordem que são retornados pelo getFillParameters.
+	 * Ex: INSERT OR REPLACE INTO "ymir_projection_X" (recordid, "nome") SELECT r.recordid, (SELECT f.value FROM "X" f WHERE f.recordid = r.recordid AND f.name = ?) FROM "X" r WHERE r.name = 'om:json'
+	 */
+	String getFillSQL() {
+		String channel = quote(entity.getChannel());
+		StringBuilder sb = new StringBuilder("INSERT OR REPLACE INTO ").append(getTableName()).append(" (").append(RECORDID_COLUMN);
+		for (ProjectionColumn column : columns) {
+			sb.append(", ").append(quote(column.getFieldName()));
+		}
+		sb.append(") SELECT r.").append(RECORDID_COLUMN);
+		for (int i = 0; i < columns.length; i++) {
+			sb.append(", (SELECT f.value FROM ").append(channel).append(" f WHERE f.recordid = r.recordid AND f.name = ?)");
+		}
+		sb.append(" FROM ").append(channel).append(" r WHERE r.name = ").append(literal(CONTROL_ROW_NAME));
+		return sb.toString();
+	}
+
+	String[] getFillParameters() {
+		String[] params = new String[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			params[i] = columns[i].getFieldName();
+		}
+		return params;
+	}
+
+	//Ex: SELECT name, value FROM "X" WHERE recordid = ?
+	String getRecordRowsSQL() {
+		return "SELECT name, value FROM " + quote(entity.getChannel()) + " WHERE recordid = ?";
+	}
+
+	/*
+	 * Obtém o comando que insere ou substitui a linha de um registro na projeção a partir dos valores já lidos do canal, indexados pelo
+	 * nome do campo. Os campos sem valor recebem NULL diretamente no comando, pois o OpenMobster não aceita parâmetros nulos.
+	 * Os parâmetros devem ser obtidos através do getUpsertParameters com os mesmos valores.
+	 * Ex: INSERT OR REPLACE INTO "ymir_projection_X" (recordid, "nome", "idade") VALUES (?, ?, NULL)
+	 */
+	String getUpsertSQL(Map<String, String> values) {
+		StringBuilder sb = new StringBuilder("INSERT OR REPLACE INTO ").append(getTableName()).append(" (").append(RECORDID_COLUMN);
+		for (ProjectionColumn column : columns) {
+			sb.append(", ").append(quote(column.getFieldName()));
+		}
+		sb.append(") VALUES (?");
+		for (ProjectionColumn column : columns) {
+			sb.append(values.get(column.getFieldName()) == null ? ", NULL" : ", ?");
+		}
+		return sb.append(")").toString();
+	}
+
+	String[] getUpsertParameters(String recordId, Map<String, String> values) {
+		List<String> params = new ArrayList<>(columns.length + 1);
+		params.add(recordId);
+		for (ProjectionColumn column : columns) {
+			String value = values.get(column.getFieldName());
+			if (value != null) {
+				params.add(value);
+			}
+		}
+		return params.toArray(new String[params.size()]);
+	}
+
+
+	/*
+	 * Métodos auxiliares
+	 */
+
+	private static String getAffinity(EntityAttributeType type) {
+		switch (type) {
+			case INTEGER:
+				return INTEGER_AFFINITY;
+			case DECIMAL:
+				return REAL_AFFINITY;
+
+			default:
+				//Os demais tipos são armazenados como texto no canal, então são mantidos desta forma.
+				return TEXT_AFFINITY;
+		}
+	}
+
+
+	/*
+	 * Classes auxiliares
+	 */
+
+	/**
+	 * Representa uma coluna da projeção.
+	 */
+	private static final class ProjectionColumn {
+
+		private final String fieldName;
+		private final String affinity;
+
+		public ProjectionColumn(String fieldName, String affinity) {
+			this.fieldName = fieldName;
+			this.affinity = affinity;
+		}
+
+		public String getFieldName() {
+			return fieldName;
+		}
+
+		public String getAffinity() {
+			return affinity;
+		}
+	}
+}
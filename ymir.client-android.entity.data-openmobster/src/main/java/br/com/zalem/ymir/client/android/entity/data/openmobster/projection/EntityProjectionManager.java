@@ -0,0 +1,270 @@
+package br.com.zalem.ymir.client.android.entity.data.openmobster.projection;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import org.openmobster.android.api.sync.MobileBean;
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObject;
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObjectDatabase;
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObjectDatabase.IMobileObjectDatabaseListener;
+import org.openmobster.core.mobileCloud.android.service.Registry;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import br.com.zalem.ymir.client.android.entity.data.openmobster.util.OpenMobsterUtils;
+
+import static br.com.zalem.ymir.client.android.entity.data.openmobster.util.OpenMobsterUtils.executeSQL;
+
+/**
+ * Gerenciador das projeções das entidades ({@link EntityProjection}).<br>
+ * Após o início do OpenMobster, garante que as tabelas das projeções existam com as colunas e índices atuais, reconstruindo-as
+ * a partir dos dados dos canais quando a sua estrutura foi alterada. A partir daí, mantém as projeções sincronizadas com os canais
+ * através dos eventos de criação/atualização/exclusão de objetos do OpenMobster, o que abrange tanto as alterações feitas pelos DAOs
+ * quanto as provenientes da sincronização com a nuvem.<br>
+ * <br>
+ * Os comandos são executados através do {@link OpenMobsterUtils#executeSQL(String, String...)}.
+ *
+ * @see org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObjectDatabase
+ *
+ * @author Thiago Gesser
+ */
+public final class EntityProjectionManager implements IMobileObjectDatabaseListener {
+
+	private final Map<String, EntityProjection> projectionsByChannel;
+
+	public EntityProjectionManager(EntityProjection... projections) {
+		projectionsByChannel = new HashMap<>(projections.length);
+		for (EntityProjection projection : projections) {
+			projectionsByChannel.put(projection.getEntity().getChannel(), projection);
+		}
+	}
+
+	/**
+	 * Inicia o gerenciamento das projeções. Se o OpenMobster ainda não foi iniciado, as projeções serão preparadas
+	 * logo após o seu início. Até lá, as projeções não estarão prontas e as queries continuarão sendo feitas sobre os canais.
+	 */
+	public void start() {
+		if (Registry.isActiveAndStarted()) {
+			initialize();
+		} else {
+			Registry.executeAfterStart(new Runnable() {
+				@Override
+				public void run() {
+					initialize();
+				}
+			}, true);
+		}
+	}
+
+	/**
+	 * Reconstrói a projeção a partir dos dados atuais do canal da entidade.<br>
+	 * Normalmente não é necessário chamar este método, pois as projeções são mantidas sincronizadas automaticamente.
+	 * Entretanto, ele pode ser utilizado para corrigir uma projeção caso os dados do canal tenham sido alterados sem
+	 * passar pelo OpenMobster ou caso a projeção tenha deixado de estar pronta devido a um erro na sua atualização.
+	 *
+	 * @param projection a projeção que será reconstruída.
+	 */
+	public void rebuild(EntityProjection projection) {
+		if (projectionsByChannel.get(projection.getEntity().getChannel()) != projection) {
+			throw new IllegalArgumentException("The projection is not managed by this manager. Entity = " + projection.getEntity().getName());
+		}
+
+		//Enquanto a projeção é reconstruída, as queries voltam a ser feitas sobre o canal.
+		projection.setReady(false);
+		MobileBean.beginTransaction();
+		try {
+			executeSQL(projection.getDeleteAllSQL());
+			fill(projection);
+
+			MobileBean.setTransactionSuccessful();
+		} finally {
+			MobileBean.endTransaction();
+		}
+		//Só chega aqui se o preenchimento foi bem sucedido. Caso contrário, a projeção continua não estando pronta.
+		projection.setReady(true);
+	}
+
+
+	@Override
+	public void onMobileObjectCreated(MobileObject mo, String id) {
+		EntityProjection projection = projectionsByChannel.get(mo.getStorageId());
+		if (projection != null) {
+			update(projection, id);
+		}
+	}
+
+	@Override
+	public void onMobileObjectUpdated(MobileObject mo) {
+		EntityProjection projection = projectionsByChannel.get(mo.getStorageId());
+		if (projection != null) {
+			update(projection, mo.getRecordId());
+		}
+	}
+
+	@Override
+	public void onMobileObjectDeleted(MobileObject mo) {
+		EntityProjection projection = projectionsByChannel.get(mo.getStorageId());
+		if (projection != null) {
+			execute(projection, projection.getDeleteSQL(), mo.getRecordId());
+		}
+	}
+
+	@Override
+	public void onAllMobileObjectsDeleted(String channel) {
+		EntityProjection projection = projectionsByChannel.get(channel);
+		if (projection != null) {
+			execute(projection, projection.getDeleteAllSQL());
+		}
+	}
+
+	@Override
+	public void beforeMobileObjectCreated(MobileObject mobileObject) {
+	}
+
+	@Override
+	public void beforeMobileObjectDeleted(MobileObject mobileObject) {
+	}
+
+	@Override
+	public void beforeMobileObjectUpdated(MobileObject mobileObject) {
+	}
+
+
+	/*
+	 * Métodos auxiliares
+	 */
+
+	private void initialize() {
+		MobileObjectDatabase moDB = MobileObjectDatabase.getInstance();
+		//Pode ser chamado a cada início do OpenMobster, então garante que não será registrado mais de uma vez.
+		moDB.removeListener(this);
+
+		//Prepara as projeções e registra o listener na mesma transação para que nenhuma alteração nos canais seja perdida.
+		MobileBean.beginTransaction();
+		try {
+			for (EntityProjection projection : projectionsByChannel.values()) {
+				projection.setReady(false);
+				prepare(projection);
+			}
+			moDB.addListener(this);
+
+			MobileBean.setTransactionSuccessful();
+		} finally {
+			MobileBean.endTransaction();
+		}
+
+		for (EntityProjection projection : projectionsByChannel.values()) {
+			projection.setReady(true);
+		}
+	}
+
+	private void prepare(EntityProjection projection) {
+		//Se a estrutura da tabela mudou (campos adicionados, removidos ou com tipos alterados), recria-a do zero.
+		boolean created = false;
+		if (!isTableUpToDate(projection)) {
+			executeSQL(projection.getDropTableSQL());
+			executeSQL(projection.getCreateTableSQL());
+			created = true;
+		}
+
+		//Cria os índices configurados e remove os que não fazem mais parte da configuração.
+		Map<String, String> expectedIndexes = projection.getExpectedIndexes();
+		Cursor cursor = MobileBean.rawQuery("SELECT name FROM sqlite_master WHERE type = 'index' AND tbl_name = ? AND sql NOTNULL", new String[] {projection.getRawTableName()});
+		try {
+			while (cursor.moveToNext()) {
+				String indexName = cursor.getString(0);
+				if (!expectedIndexes.containsValue(indexName)) {
+					executeSQL(projection.getDropIndexSQL(indexName));
+				}
+			}
+		} finally {
+			cursor.close();
+		}
+		for (Entry<String, String> entry : expectedIndexes.entrySet()) {
+			executeSQL(projection.getCreateIndexSQL(entry.getKey(), entry.getValue()));
+		}
+
+		//Popula a tabela recém criada com os dados já existentes no canal.
+		if (created) {
+			fill(projection);
+		}
+	}
+
+	private static boolean isTableUpToDate(EntityProjection projection) {
+		Map<String, String> expectedColumns = projection.getExpectedColumns();
+		Cursor cursor = MobileBean.rawQuery("PRAGMA table_info(" + projection.getTableName() + ")", new String[0]);
+		try {
+			//Se a tabela não existe, o PRAGMA não retorna nenhuma linha.
+			if (cursor.getCount() != expectedColumns.size()) {
+				return false;
+			}
+
+			int nameIndex = cursor.getColumnIndexOrThrow("name");
+			int typeIndex = cursor.getColumnIndexOrThrow("type");
+			while (cursor.moveToNext()) {
+				String expectedType = expectedColumns.get(cursor.getString(nameIndex));
+				if (!cursor.getString(typeIndex).equalsIgnoreCase(expectedType)) {
+					return false;
+				}
+			}
+			return true;
+		} finally {
+			cursor.close();
+		}
+	}
+
+	private static void fill(EntityProjection projection) {
+		//Se o canal ainda não possui tabela (não recebeu dados), não há dados a serem copiados.
+		if (!OpenMobsterUtils.existsTable(projection.getEntity().getChannel())) {
+			return;
+		}
+
+		executeSQL(projection.getFillSQL(), projection.getFillParameters());
+	}
+
+	private static void update(EntityProjection projection, String recordId) {
+		try {
+			//Lê todas as linhas do registro em uma única consulta, ao invés de uma subquery no canal para cada coluna da projeção.
+			Map<String, String> values = new HashMap<>();
+			boolean realRecord = false;
+			Cursor cursor = MobileBean.rawQuery(projection.getRecordRowsSQL(), new String[] {recordId});
+			try {
+				while (cursor.moveToNext()) {
+					String name = cursor.getString(0);
+					if (EntityProjection.CONTROL_ROW_NAME.equals(name)) {
+						realRecord = true;
+					} else {
+						values.put(name, cursor.getString(1));
+					}
+				}
+			} finally {
+				cursor.close();
+			}
+
+			//Assim como no preenchimento completo, apenas os registros reais são projetados.
+			if (realRecord) {
+				executeSQL(projection.getUpsertSQL(values), projection.getUpsertParameters(recordId, values));
+			}
+		} catch (RuntimeException e) {
+			markOutdated(projection, e);
+			throw e;
+		}
+	}
+
+	private static void execute(EntityProjection projection, String sql, String... parameters) {
+		try {
+			executeSQL(sql, parameters);
+		} catch (RuntimeException e) {
+			markOutdated(projection, e);
+			throw e;
+		}
+	}
+
+	private static void markOutdated(EntityProjection projection, RuntimeException e) {
+		//A projeção deixou de refletir o canal, então as queries voltam a ser feitas sobre ele até que a projeção seja reconstruída.
+		projection.setReady(false);
+		Log.e(EntityProjectionManager.class.getSimpleName(), "Error updating the projection of the entity " + projection.getEntity().getName(), e);
+	}
+}
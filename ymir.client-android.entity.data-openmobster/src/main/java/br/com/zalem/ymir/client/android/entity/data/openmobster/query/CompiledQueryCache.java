@@ -0,0 +1,54 @@
+package br.com.zalem.ymir.client.android.entity.data.openmobster.query;
+
+import android.util.LruCache;
+
+/**
+ * Cache de queries compiladas com tamanho limitado e baseado no algoritmo <code>Least Recently Used</code>.<br>
+ * As queries são indexadas pelo seu formato (a estrutura montada no {@link MobileBeanQueryBuilder}, sem os valores), de forma
+ * que as execuções repetidas de um mesmo formato reutilizam o SQL já gerado, precisando apenas dos novos parâmetros.
+ * Como os valores são sempre passados como parâmetros, o texto do SQL também se mantém o mesmo entre as execuções, permitindo
+ * que o SQLite reaproveite o comando já preparado na conexão ao invés de compilá-lo novamente.<br>
+ * <br>
+ * Cada DAO possui o seu próprio cache, cujas estatísticas de acerto podem ser obtidas através dos métodos
+ * {@link #hitCount()} e {@link #missCount()}.
+ *
+ * @see MobileBeanQueryBuilder
+ *
+ * @author Thiago Gesser
+ */
+public final class CompiledQueryCache extends LruCache<String, CompiledQueryCache.CompiledQuery> {
+
+	/**
+	 * Cria um CompiledQueryCache de acordo com a quantidade máxima de queries.
+	 *
+	 * @param maxSize a quantidade máxima de queries do cache.
+	 */
+	public CompiledQueryCache(int maxSize) {
+		super(maxSize);
+	}
+
+
+	/**
+	 * Query compilada, contendo o SQL gerado e os parâmetros que dependem apenas do formato da query (como os nomes
+	 * dos campos utilizados nos JOINs). Estes parâmetros ficam entre os parâmetros da restrição da fonte de dados
+	 * e os das condições da query.
+	 */
+	public static final class CompiledQuery {
+
+		private final String sql;
+		private final String[] fixedParameters;
+
+		CompiledQuery(String sql, String[] fixedParameters) {
+			this.sql = sql;
+			this.fixedParameters = fixedParameters;
+		}
+
+		public String getSQL() {
+			return sql;
+		}
+
+		public String[] getFixedParameters() {
+			return fixedParameters;
+		}
+	}
+}
@@ -0,0 +1,221 @@
+package br.com.zalem.ymir.client.android.entity.data.openmobster.query;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObject;
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObjectDatabase;
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObjectDatabase.IMobileObjectDatabaseListener;
+import org.openmobster.core.mobileCloud.android.service.Registry;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import br.com.zalem.ymir.client.android.entity.data.IEntityDataManager.AbstractQueryObserver;
+
+/**
+ * Gerenciador das observações de queries ({@link MobileBeanSelectQuery}).<br>
+ * Após o início do OpenMobster, acompanha os eventos de criação/atualização/exclusão de objetos, o que abrange tanto as alterações
+ * feitas pelos DAOs quanto as provenientes da sincronização com a nuvem. Cada alteração é considerada apenas pelas observações
+ * cujas queries leem o canal alterado, sendo acumulada até que não ocorram novas alterações durante um breve período (ou até
+ * que seja atingido o tempo máximo de espera, no caso de alterações contínuas). Desta forma, uma rajada de alterações gera apenas
+ * uma notificação para cada observador.<br>
+ * <br>
+ * As notificações são feitas em uma Thread de background própria do gerenciador.
+ *
+ * @see org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObjectDatabase
+ *
+ * @author Thiago Gesser
+ */
+public final class EntityQueryObserverManager implements IMobileObjectDatabaseListener {
+
+	//Tempo sem novas alterações aguardado antes de notificar os observadores.
+	private static final long NOTIFICATION_DELAY = 300;
+	//Tempo máximo que uma alteração pode aguardar pela notificação, para que alterações contínuas não a adiem indefinidamente.
+	private static final long MAX_NOTIFICATION_DELAY = 2000;
+
+	//As observações podem ser adicionadas e encerradas enquanto os eventos do OpenMobster são recebidos.
+	private final List<QueryObservation> observations;
+	private final Handler handler;
+
+	public EntityQueryObserverManager() {
+		observations = new CopyOnWriteArrayList<>();
+
+		HandlerThread notificationThread = new HandlerThread(EntityQueryObserverManager.class.getSimpleName(), Process.THREAD_PRIORITY_BACKGROUND);
+		notificationThread.start();
+		handler = new Handler(notificationThread.getLooper());
+	}
+
+	/**
+	 * Inicia o acompanhamento das alterações. Se o OpenMobster ainda não foi iniciado, o acompanhamento começará logo após o seu início.
+	 */
+	public void start() {
+		if (Registry.isActiveAndStarted()) {
+			register();
+		} else {
+			Registry.executeAfterStart(new Runnable() {
+				@Override
+				public void run() {
+					register();
+				}
+			}, true);
+		}
+	}
+
+	/**
+	 * Passa a observar as alterações nos canais lidos pela query.
+	 *
+	 * @param query a query que será observada.
+	 * @param observer o observador que será notificado sobre as alterações.
+	 * @throws IllegalStateException se o observador já foi encerrado.
+	 */
+	public void observe(MobileBeanSelectQuery query, AbstractQueryObserver observer) {
+		if (observer.isStopped()) {
+			throw new IllegalStateException("The observer is already stopped.");
+		}
+
+		observations.add(new QueryObservation(query, observer));
+	}
+
+
+	@Override
+	public void onMobileObjectCreated(MobileObject mo, String id) {
+		onChange(mo.getStorageId(), id);
+	}
+
+	@Override
+	public void onMobileObjectUpdated(MobileObject mo) {
+		onChange(mo.getStorageId(), mo.getRecordId());
+	}
+
+	@Override
+	public void onMobileObjectDeleted(MobileObject mo) {
+		onChange(mo.getStorageId(), mo.getRecordId());
+	}
+
+	@Override
+	public void onAllMobileObjectsDeleted(String channel) {
+		onChange(channel, null);
+	}
+
+	@Override
+	public void beforeMobileObjectCreated(MobileObject mobileObject) {
+	}
+
+	@Override
+	public void beforeMobileObjectDeleted(MobileObject mobileObject) {
+	}
+
+	@Override
+	public void beforeMobileObjectUpdated(MobileObject mobileObject) {
+	}
+
+
+	/*
+	 * Métodos/classes auxiliares
+	 */
+
+	private void register() {
+		MobileObjectDatabase moDB = MobileObjectDatabase.getInstance();
+		//Pode ser chamado a cada início do OpenMobster, então garante que não será registrado mais de uma vez.
+		moDB.removeListener(this);
+		moDB.addListener(this);
+	}
+
+	private void onChange(String channel, String recordId) {
+		for (QueryObservation observation : observations) {
+			if (observation.observer.isStopped()) {
+				observations.remove(observation);
+				continue;
+			}
+
+			long notificationTime = observation.addChange(channel, recordId);
+			if (notificationTime < 0) {
+				continue;
+			}
+
+			//Adia a notificação pendente a cada nova alteração, agrupando as alterações próximas.
+			handler.removeCallbacks(observation);
+			handler.postAtTime(observation, notificationTime);
+		}
+	}
+
+
+	/**
+	 * Observação de uma query, responsável por acumular as alterações que a afetam e notificar o observador sobre elas.
+	 */
+	private static final class QueryObservation implements Runnable {
+
+		private final MobileBeanSelectQuery query;
+		private final AbstractQueryObserver observer;
+		private final Set<String> channels;
+		//Os identificadores só são relevantes para o canal da entidade fonte. Registros internos não são identificados pelo canal.
+		private final String sourceChannel;
+
+		private boolean pending;
+		private long firstChangeTime;
+		private Set<Serializable> changedIds;
+
+		QueryObservation(MobileBeanSelectQuery query, AbstractQueryObserver observer) {
+			this.query = query;
+			this.observer = observer;
+
+			String[] queryChannels = query.getChannels();
+			channels = new HashSet<>(Arrays.asList(queryChannels));
+			sourceChannel = query instanceof InternalMobileBeanSelectQuery ? null : queryChannels[0];
+		}
+
+		/**
+		 * Acumula a alteração, se ela afetar a query.
+		 *
+		 * @return o momento em que a notificação deve ser feita (baseado no {@link SystemClock#uptimeMillis()}) ou <code>-1</code>
+		 * se a alteração não afeta a query.
+		 */
+		synchronized long addChange(String channel, String recordId) {
+			if (!channels.contains(channel)) {
+				return -1;
+			}
+
+			long now = SystemClock.uptimeMillis();
+			if (!pending) {
+				pending = true;
+				firstChangeTime = now;
+				changedIds = new HashSet<>();
+			}
+
+			//Qualquer alteração fora dos registros da entidade fonte pode afetar todo o resultado.
+			if (changedIds != null) {
+				if (recordId != null && channel.equals(sourceChannel)) {
+					changedIds.add(recordId);
+				} else {
+					changedIds = null;
+				}
+			}
+
+			return Math.min(now + NOTIFICATION_DELAY, firstChangeTime + MAX_NOTIFICATION_DELAY);
+		}
+
+		@Override
+		public void run() {
+			Set<Serializable> ids;
+			synchronized (this) {
+				if (!pending) {
+					return;
+				}
+				pending = false;
+				ids = changedIds;
+				changedIds = null;
+			}
+
+			if (!observer.isStopped()) {
+				observer.onQueryChanged(query, ids);
+			}
+		}
+	}
+}
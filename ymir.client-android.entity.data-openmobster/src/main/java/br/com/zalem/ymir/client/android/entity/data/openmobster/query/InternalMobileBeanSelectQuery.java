@@ -23,13 +23,14 @@ public final class InternalMobileBeanSelectQuery extends MobileBeanSelectQuery {
 	 * @param parameters parâmetros utilizados na query.
 	 * @param fields campos selecionados na query.
 	 * @param entityName nome da entidade alvo da query.
+	 * @param channels canais lidos pela query.
 	 * @param ownerId identificador do registro dono dos registros internos.
 	 * @param ownerEntityName nome da entidade do registro dono.
 	 * @param relFullname caminho completo até o array (relacionamento) que contém os registros internos, seguindo o {@link InternalMobileBeanEntityRecordSerializer formato do OpenMobster}.
 	 */
-	public InternalMobileBeanSelectQuery(String query, String[] parameters, SelectField[] fields, String entityName,
+	public InternalMobileBeanSelectQuery(String query, String[] parameters, SelectField[] fields, String entityName, String[] channels,
 									 	 String ownerId, String ownerEntityName, String relFullname) {
-		super(query, parameters, fields, entityName);
+		super(query, parameters, fields, entityName, null, channels);
 		this.ownerId = ownerId;
 		this.ownerEntityName = ownerEntityName;
 		this.relFullname = relFullname;
@@ -58,10 +59,14 @@ public final class InternalMobileBeanSelectQuery extends MobileBeanSelectQuery {
 	public static final Creator<InternalMobileBeanSelectQuery> CREATOR = new Creator<InternalMobileBeanSelectQuery>() {
 		@Override
 		public InternalMobileBeanSelectQuery createFromParcel(Parcel source) {
-			return new InternalMobileBeanSelectQuery(source.readString(),
-													 source.createStringArray(),
-													 source.createTypedArray(SelectField.CREATOR),
-													 source.readString(),
+			String query = source.readString();
+			String[] parameters = source.createStringArray();
+			SelectField[] fields = source.createTypedArray(SelectField.CREATOR);
+			String entityName = source.readString();
+			//As queries internas não possuem inclusões, então apenas descarta o valor escrito pela classe pai.
+			readIncludes(source);
+			String[] channels = source.createStringArray();
+			return new InternalMobileBeanSelectQuery(query, parameters, fields, entityName, channels,
 													 source.readString(),
 													 source.readString(),
 													 source.readString());
@@ -14,8 +14,11 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import br.com.zalem.ymir.client.android.entity.data.SyncStatus;
 import br.com.zalem.ymir.client.android.entity.data.cursor.IEntityRecordCursor;
@@ -29,13 +32,18 @@ import br.com.zalem.ymir.client.android.entity.data.openmobster.MobileBeanEntity
 import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityAttribute;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityMetadata;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityRelationship;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.projection.EntityProjection;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.query.CompiledQueryCache.CompiledQuery;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.query.MobileBeanSelectQuery.SelectField;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.query.SQLiteQueryBuilder.CastType;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.query.SQLiteQueryBuilder.LikeType;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.search.EntitySearchIndex;
 import br.com.zalem.ymir.client.android.entity.data.query.IQueryBuilder;
 import br.com.zalem.ymir.client.android.entity.data.query.select.ISelectQuery;
 import br.com.zalem.ymir.client.android.entity.data.query.select.ITerminalStatement;
 import br.com.zalem.ymir.client.android.entity.data.query.select.NonUniqueResultException;
+import br.com.zalem.ymir.client.android.entity.data.query.select.QueryCancellationSignal;
+import br.com.zalem.ymir.client.android.entity.data.query.select.SelectFunction;
 import br.com.zalem.ymir.client.android.entity.data.util.MetadataUtils;
 import br.com.zalem.ymir.client.android.entity.data.view.RelationshipArrayView;
 
@@ -81,7 +89,13 @@ import static br.com.zalem.ymir.client.android.entity.data.openmobster.util.Inte
  * <code>SELECT '0'.value AS Nome, '1'.value AS Idade FROM Pessoa '0' JOIN Pessoa '1' ON '0'.recordid = '1'.recordid WHERE '0'.name = 'Nome' AND '1'.name = 'Idade'</code>
  * </pre>
  * Assim, a seleção é feita de forma que cada linha possua os dados de apenas um registro da entidade. Os dados de
- * relacionamentos (outras tabelas) também são selecionados utilizando o mesmo mecanismo.
+ * relacionamentos (outras tabelas) também são selecionados utilizando o mesmo mecanismo.<br>
+ * <br>
+ * Se a entidade fonte possuir uma projeção pronta ({@link EntityProjection}), os seus campos são obtidos diretamente das colunas
+ * da tabela da projeção, sem a necessidade de JOINs e sem os casts dos valores:
+ * <pre>
+ * <code>SELECT 'p'."Nome" AS Nome, 'p'."Idade" AS Idade FROM "ymir_projection_Pessoa" 'p' WHERE NOT 'p'.recordid ISNULL</code>
+ * </pre>
  * 
  * @see SQLiteQueryBuilder
  * @see MobileBeanSelectQuery
@@ -94,6 +108,8 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 	private static final String RECORDID_COLUMN = "recordid";
 	private static final String NAME_COLUMN = "name";
 	private static final String VALUE_COLUMN = "value";
+	//Alias da tabela da projeção, quando ela é utilizada.
+	private static final String PROJECTION_ALIAS = "'p'";
 	//Expressão de filtro GLOB utilizada para entidades internas.
 	private static final String INTERNAL_ENTITY_INDEX_GLOB_EXPR = globZeroOrMoreCharacters() + globOneCharacterNotDigit() + globZeroOrMoreCharacters();
 	
@@ -105,16 +121,24 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 	private boolean selectDistinct;
 	private String[] curSelectedFieldPath;
 	private boolean curSelectionIsRelationship;
+	private SelectFunction curSelectedFunction;
 	private List<SelectField> selectFields;
 	
 	private EntityMetadata sourceEntity;
+	private EntityProjection projection;
 	private MobileBeanSelectQuery subselect;
 	private RelationshipArrayView dataView;
 	private InternalRelationshipArrayView internalDataView;
 	
+	private SQLiteQueryBuilder groupBuilder;
 	private SQLiteQueryBuilder orderBuilder;
+	private List<OrderField> orderFields;
 	private SQLiteQueryBuilder cndBuilder;
+	private SQLiteQueryBuilder seekBuilder;
     private Integer limit;
+    private Integer offset;
+    private List<String[]> includes;
+	private EntitySearchIndex matchedSearchIndex;
 	private int openScopesCount;
 
 
@@ -143,6 +167,7 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		addCurrentSelectField(null);
 		curSelectedFieldPath = attributePath;
 		curSelectionIsRelationship = false;
+		curSelectedFunction = null;
 		return this;
 	}
 	
@@ -154,9 +179,42 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		addCurrentSelectField(null);
 		curSelectedFieldPath = relationshipPath;
 		curSelectionIsRelationship = true;
+		curSelectedFunction = null;
+		return this;
+	}
+
+	@Override
+	public MobileBeanQueryBuilder count() {
+		checkSelectState();
+
+		addCurrentSelectField(null);
+		//A contagem não é aplicada sobre um campo específico.
+		curSelectedFieldPath = new String[0];
+		curSelectionIsRelationship = false;
+		curSelectedFunction = SelectFunction.COUNT;
 		return this;
 	}
 
+	@Override
+	public MobileBeanQueryBuilder sum(String... attributePath) {
+		return aggregate(SelectFunction.SUM, attributePath);
+	}
+
+	@Override
+	public MobileBeanQueryBuilder min(String... attributePath) {
+		return aggregate(SelectFunction.MIN, attributePath);
+	}
+
+	@Override
+	public MobileBeanQueryBuilder max(String... attributePath) {
+		return aggregate(SelectFunction.MAX, attributePath);
+	}
+
+	@Override
+	public MobileBeanQueryBuilder avg(String... attributePath) {
+		return aggregate(SelectFunction.AVG, attributePath);
+	}
+
 	@Override
 	public MobileBeanQueryBuilder as(String alias) {
 		if (curSelectedFieldPath == null) {
@@ -231,7 +289,7 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		IEntityAttribute attribute = getAttributeFromPath(attributePath);
 		checkAttributeType(attribute);
 		
-		cndBuilder.eq(useField(attributePath), VALUE_COLUMN, toParameterValue(attribute.getType(), value));
+		cndBuilder.eq(useField(attributePath), getValueColumn(attributePath), toParameterValue(attribute.getType(), value));
 		return this;
 	}
 	
@@ -241,7 +299,7 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		String[] attributePath = resolveFieldPath(attrPathOrAlias);
 		EntityAttributeType attributeType = getAttributeFromPath(attributePath).getType();
 		
-		cndBuilder.lt(useField(attributePath), VALUE_COLUMN, toParameterValue(attributeType, value), getCastType(attributeType));
+		cndBuilder.lt(useField(attributePath), getValueColumn(attributePath), toParameterValue(attributeType, value), getFieldCastType(attributePath, attributeType));
 		return this;
 	}
 	
@@ -251,7 +309,7 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		String[] attributePath = resolveFieldPath(attrPathOrAlias);
 		EntityAttributeType attributeType = getAttributeFromPath(attributePath).getType();
 		
-		cndBuilder.gt(useField(attributePath), VALUE_COLUMN, toParameterValue(attributeType, value), getCastType(attributeType));
+		cndBuilder.gt(useField(attributePath), getValueColumn(attributePath), toParameterValue(attributeType, value), getFieldCastType(attributePath, attributeType));
 		return this;
 	}
 	
@@ -261,7 +319,7 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		String[] attributePath = resolveFieldPath(attrPathOrAlias);
 		EntityAttributeType attributeType = getAttributeFromPath(attributePath).getType();
 		
-		cndBuilder.le(useField(attributePath), VALUE_COLUMN, toParameterValue(attributeType, value), getCastType(attributeType));
+		cndBuilder.le(useField(attributePath), getValueColumn(attributePath), toParameterValue(attributeType, value), getFieldCastType(attributePath, attributeType));
 		return this;
 	}
 	
@@ -271,7 +329,7 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		String[] attributePath = resolveFieldPath(attrPathOrAlias);
 		EntityAttributeType attributeType = getAttributeFromPath(attributePath).getType();
 		
-		cndBuilder.ge(useField(attributePath), VALUE_COLUMN, toParameterValue(attributeType, value), getCastType(attributeType));
+		cndBuilder.ge(useField(attributePath), getValueColumn(attributePath), toParameterValue(attributeType, value), getFieldCastType(attributePath, attributeType));
 		return this;
 	}
 	
@@ -285,7 +343,7 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		for (int i = 0; i < valuesParams.length; i++) { 
 			valuesParams[i] = toParameterValue(attributeType, values[i]);
 		}
-		cndBuilder.in(useField(attributePath), VALUE_COLUMN, valuesParams, getCastType(attributeType));
+		cndBuilder.in(useField(attributePath), getValueColumn(attributePath), valuesParams, getFieldCastType(attributePath, attributeType));
 		return this;
 	}
 	
@@ -295,7 +353,7 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		String[] attributePath = resolveFieldPath(attrPathOrAlias);
 		EntityAttributeType attributeType = getAttributeFromPath(attributePath).getType();
 		
-		cndBuilder.between(useField(attributePath), VALUE_COLUMN, toParameterValue(attributeType, value1), toParameterValue(attributeType, value2), getCastType(attributeType));
+		cndBuilder.between(useField(attributePath), getValueColumn(attributePath), toParameterValue(attributeType, value1), toParameterValue(attributeType, value2), getFieldCastType(attributePath, attributeType));
 		return this;
 	}
 	
@@ -305,7 +363,7 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		String[] attributePath = resolveFieldPath(attrPathOrAlias);
 		checkAttributeType(getAttributeFromPath(attributePath));
 		
-		cndBuilder.like(useField(attributePath), VALUE_COLUMN, text, LikeType.CONTAINS);
+		cndBuilder.like(useField(attributePath), getValueColumn(attributePath), text, LikeType.CONTAINS);
 		return this;
 	}
 	
@@ -315,7 +373,7 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		String[] attributePath = resolveFieldPath(attrPathOrAlias);
 		checkAttributeType(getAttributeFromPath(attributePath));
 		
-		cndBuilder.like(useField(attributePath), VALUE_COLUMN, text, LikeType.STARTS_WITH);
+		cndBuilder.like(useField(attributePath), getValueColumn(attributePath), text, LikeType.STARTS_WITH);
 		return this;
 	}
 	
@@ -325,7 +383,7 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		String[] attributePath = resolveFieldPath(attrPathOrAlias);
 		checkAttributeType(getAttributeFromPath(attributePath));
 
-		cndBuilder.like(useField(attributePath), VALUE_COLUMN, text, LikeType.ENDS_WITH);
+		cndBuilder.like(useField(attributePath), getValueColumn(attributePath), text, LikeType.ENDS_WITH);
 		return this;
 	}
 	
@@ -335,7 +393,7 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		String[] attributePath = resolveFieldPath(attrPathOrAlias);
 		checkAttributeType(attributePath);
 		
-		cndBuilder.isNull(useField(attributePath), VALUE_COLUMN);
+		cndBuilder.isNull(useField(attributePath), getValueColumn(attributePath));
 		return this;
 	}
 	
@@ -346,7 +404,7 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		String[] relationshipPath = resolveFieldPath(relPathOrAlias);
 		checkRelationshipType(relationshipPath);
 		
-		cndBuilder.eq(useField(relationshipPath), VALUE_COLUMN, id.toString());
+		cndBuilder.eq(useField(relationshipPath), getValueColumn(relationshipPath), id.toString());
 		return this;
 	}
 	
@@ -356,7 +414,7 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		String[] relationshipPath = resolveFieldPath(relPathOrAlias);
 		checkRelationshipType(relationshipPath);
 		
-		addIdInRestriction(ids, useField(relationshipPath), VALUE_COLUMN);
+		addIdInRestriction(ids, useField(relationshipPath), getValueColumn(relationshipPath));
 		return this;
 	}
 	
@@ -366,7 +424,7 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		String[] relationshipPath = resolveFieldPath(relPathOrAlias);
 		checkRelationshipType(relationshipPath);
 		
-		cndBuilder.isNull(useField(relationshipPath), VALUE_COLUMN);
+		cndBuilder.isNull(useField(relationshipPath), getValueColumn(relationshipPath));
 		return this;
 	}
 	
@@ -441,6 +499,32 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		return this;
 	}
 	
+	@Override
+	public MobileBeanQueryBuilder matches(String text) {
+		checkWhereState();
+		checkIsNotInternalEntity(sourceEntity);
+		EntitySearchIndex searchIndex = sourceEntity.getSearchIndex();
+		if (searchIndex == null) {
+			throw new IllegalStateException("The search is not enabled for the entity: " + sourceEntity.getName());
+		}
+		
+		List<String> terms = EntitySearchIndex.tokenize(text);
+		if (terms.isEmpty()) {
+			//Sem termos, todos os registros atendem à busca.
+			cndBuilder.not().isNull(getDefaultOwnerAlias(), RECORDID_COLUMN);
+			return this;
+		}
+		
+		if (searchIndex.isReady()) {
+			cndBuilder.in(getDefaultOwnerAlias(), RECORDID_COLUMN, searchIndex.getMatchSubselect(), null, EntitySearchIndex.toMatchExpression(terms));
+			matchedSearchIndex = searchIndex;
+		} else {
+			//Enquanto o índice não está pronto, busca cada termo diretamente nos atributos pesquisáveis.
+			addSearchFallbackRestriction(searchIndex.getAttributesPaths(), terms);
+		}
+		return this;
+	}
+	
 
 	@Override
 	public MobileBeanQueryBuilder not() {
@@ -492,13 +576,33 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		
 		String[] attributePath = resolveFieldPath(attrPathOrAlias);
 		IEntityAttribute attribute = getAttributeFromPath(attributePath);
-		CastType castType = getOrderCastType(attribute.getType());
+		CastType castType = getOrderCastType(attributePath, attribute.getType());
 
-		if (orderBuilder == null) {
-			orderBuilder = new SQLiteQueryBuilder();
-			orderBuilder.orderBy();
+		addOrderField(new OrderField(useField(attributePath), getValueColumn(attributePath), attribute.getType(), asc, castType));
+		return this;
+	}
+
+	@Override
+	public MobileBeanQueryBuilder groupBy(String... attrPathOrAlias) {
+		checkFromState(true);
+
+		String[] attributePath = resolveFieldPath(attrPathOrAlias);
+		checkAttributeType(attributePath);
+
+		if (groupBuilder == null) {
+			groupBuilder = new SQLiteQueryBuilder();
+			groupBuilder.groupBy();
 		}
-		orderBuilder.orderByColumn(useField(attributePath), VALUE_COLUMN, asc, castType);
+		groupBuilder.groupByColumn(useField(attributePath), getValueColumn(attributePath));
+		return this;
+	}
+
+	@Override
+	public MobileBeanQueryBuilder orderById(boolean asc) {
+		checkFromState(true);
+		checkIsNotInternalEntity(sourceEntity);
+
+		addOrderField(new OrderField(getDefaultOwnerAlias(), RECORDID_COLUMN, null, asc, null));
 		return this;
 	}
 
@@ -513,6 +617,94 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
         return this;
     }
 
+    @Override
+    public ITerminalStatement offset(int number) {
+        checkFromState(true);
+        if (number < 0) {
+            throw new IllegalArgumentException("Offset number < 0");
+        }
+
+        offset = number;
+        return this;
+    }
+
+    @Override
+    public ITerminalStatement seekAfter(Serializable id, Object... orderValues) {
+        checkFromState(true);
+        if (orderFields == null || !orderFields.get(orderFields.size()-1).isId()) {
+            throw new IllegalStateException("\"orderById\" must be called before and it must be the last order criterion.");
+        }
+        if (orderValues.length != orderFields.size()-1) {
+            throw new IllegalArgumentException(String.format("Incorrect number of order values. %d were expected, but %d were received.", orderFields.size()-1, orderValues.length));
+        }
+        if (id == null) {
+            throw new IllegalArgumentException("id == null");
+        }
+
+        //Obtém os parâmetros de cada critério de ordenação, sendo que o último é sempre o identificador.
+        String[] valuesParams = new String[orderFields.size()];
+        for (int i = 0; i < orderValues.length; i++) {
+            Object value = orderValues[i];
+            if (value != null) {
+                valuesParams[i] = toParameterValue(orderFields.get(i).getAttributeType(), value);
+            }
+        }
+        valuesParams[orderValues.length] = id.toString();
+
+        /*
+         * Os registros posteriores são aqueles que possuem um valor posterior em algum critério e valores iguais nos critérios anteriores.
+         * Ex: (a > ?) OR (a = ? AND b > ?) OR (a = ? AND b = ? AND recordid > ?)
+         */
+        seekBuilder = new SQLiteQueryBuilder();
+        seekBuilder.o();
+        boolean firstTerm = true;
+        for (int i = 0; i < valuesParams.length; i++) {
+            OrderField field = orderFields.get(i);
+            //Os valores nulos ficam no final da ordenação descendente, então não há valores posteriores a eles.
+            if (valuesParams[i] == null && !field.isAsc()) {
+                continue;
+            }
+
+            if (firstTerm) {
+                firstTerm = false;
+            } else {
+                seekBuilder.or();
+            }
+            seekBuilder.o();
+            for (int j = 0; j < i; j++) {
+                appendOrderEq(seekBuilder, orderFields.get(j), valuesParams[j]);
+                seekBuilder.and();
+            }
+            appendOrderAfter(seekBuilder, field, valuesParams[i]);
+            seekBuilder.c();
+        }
+        seekBuilder.c();
+        return this;
+    }
+
+    @Override
+    public ITerminalStatement include(String... relationshipPath) {
+        checkFromState(true);
+        checkSelectFieldPath(relationshipPath);
+        if (!selectFields.isEmpty()) {
+            throw new IllegalStateException("\"include\" can only be used in the selection of whole records.");
+        }
+
+        //Os registros relacionados são obtidos através dos DAOs, então nenhuma entidade do caminho pode ser interna.
+        EntityMetadata entity = sourceEntity;
+        checkIsNotInternalEntity(entity);
+        for (String relationshipName : relationshipPath) {
+            entity = entity.getRelationship(relationshipName).getTarget();
+            checkIsNotInternalEntity(entity);
+        }
+
+        if (includes == null) {
+            includes = new ArrayList<>();
+        }
+        includes.add(relationshipPath);
+        return this;
+    }
+
     @Override
     public MobileBeanQueryBuilder condition() {
         if (cndBuilder == null) {
@@ -526,20 +718,42 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 
     @Override
 	public ISelectQuery toQuery() {
-        SQLiteQueryBuilder sqliteQuery = toSQLiteQuery();
+		prepareBuild();
+		//Obtém a restrição do from antecipadamente pois ela pode afetar os campos utilizados.
+		SQLiteQueryBuilder fromRestriction = getFromRestriction();
+
+		String queryStr;
+		String[] parameters;
+		if (internalDataView != null) {
+			//As queries de registros internos se baseiam no registro dono e sua entidade não possui DAO próprio, então não passam pelo cache.
+			SQLiteQueryBuilder sqliteQuery = buildSQLiteQuery(fromRestriction);
+			queryStr = sqliteQuery.toString();
+			parameters = sqliteQuery.getParameters();
+		} else {
+			//Reutiliza o SQL gerado anteriormente para o mesmo formato de query, se houver.
+			CompiledQueryCache queryCache = entityManager.getEntityDAO(sourceEntity.getName()).getQueryCache();
+			String shapeKey = getShapeKey(fromRestriction);
+			CompiledQuery compiledQuery = queryCache.get(shapeKey);
+			if (compiledQuery == null) {
+				compiledQuery = compile(fromRestriction);
+				queryCache.put(shapeKey, compiledQuery);
+			}
+			queryStr = compiledQuery.getSQL();
+			parameters = bindParameters(compiledQuery, fromRestriction);
+		}
 
 		//Cria o objeto que representa a query, armazenando todos os dados necessários para que a query seja executada.
-		String queryStr = sqliteQuery.toString();
-		String[] parameters = sqliteQuery.getParameters();
 		SelectField[] selectFieldsArray = selectFields.toArray(new SelectField[selectFields.size()]);
 		String sourceEntityName = sourceEntity.getName();
+		String[] channels = getUsedChannels();
 		
 		if (internalDataView != null) {
 			MobileBeanEntityRecord owner = internalDataView.getOwner();
-			return new InternalMobileBeanSelectQuery(queryStr, parameters, selectFieldsArray, sourceEntityName,
+			return new InternalMobileBeanSelectQuery(queryStr, parameters, selectFieldsArray, sourceEntityName, channels,
 													 owner.getBeanId(), owner.getEntityMetadata().getName(), internalDataView.getRelFullname());
 		}
-		return new MobileBeanSelectQuery(queryStr, parameters, selectFieldsArray, sourceEntityName);
+		String[][] includesArray = includes == null ? null : includes.toArray(new String[includes.size()][]);
+		return new MobileBeanSelectQuery(queryStr, parameters, selectFieldsArray, sourceEntityName, includesArray, channels);
 	}
 
 	@Override
@@ -563,22 +777,69 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		return dao.executeCursorSelect(query);
 	}
 
+	@Override
+	public <T> List<T> listResult(QueryCancellationSignal cancellationSignal) {
+		ISelectQuery query = toQuery();
+		MobileBeanEntityDAO dao = entityManager.getEntityDAO(sourceEntity.getName());
+		return dao.executeListSelect(query, cancellationSignal);
+	}
+
+	@Override
+	public IEntityRecordCursor cursorResult(QueryCancellationSignal cancellationSignal) {
+		ISelectQuery query = toQuery();
+		MobileBeanEntityDAO dao = entityManager.getEntityDAO(sourceEntity.getName());
+		return dao.executeCursorSelect(query, cancellationSignal);
+	}
+
     /**
-     * Cria a query para SQLite.
+     * Cria a query para SQLite.<br>
+     * A query é sempre gerada por completo, sem passar pelo cache de queries compiladas do DAO.
      *
      * @return a query criada.
      */
     public SQLiteQueryBuilder toSQLiteQuery() {
-        checkSelectState();
-        checkFromState(true);
-        if (openScopesCount > 0) {
-            throw new IllegalStateException("There are still open scopes. Call c() to close them.");
-        }
-        adjustInternalRecordsSelection();
+        prepareBuild();
 
         //Obtém a restrição do from antecipadamente pois ela pode afetar os campos utilizados.
-        SQLiteQueryBuilder fromRestriction = getFromRestriction();
+        return buildSQLiteQuery(getFromRestriction());
+    }
+
+	
+	/**
+	 * Verifica se o campo é suportado pelo construtor de queries.
+	 * 
+	 * @param attribute o atributo que será verificado.
+	 * @return <code>true</code> se for suportado e <code>false</code> caso contrário.
+	 */
+	public static boolean isSupportedAttribute(IEntityAttribute attribute) {
+		return getAttributeValueType(attribute.getType()) != null;
+	}
+	
+	/**
+	 * Verifica se o relacionamento é suportado pelo construtor de queries.
+	 * 
+	 * @param relationship o relacionamento que será verificado.
+	 * @return <code>true</code> se for suportado e <code>false</code> caso contrário.
+	 */
+	public static boolean isSupportedRelationship(EntityRelationship relationship) {
+		return MetadataUtils.isSingleRelationship(relationship) && !relationship.getTarget().isInternal();
+	}
+	
 
+	/*
+	 * Métodos auxiliares de construção da query.
+	 */
+
+	private void prepareBuild() {
+		checkSelectState();
+		checkFromState(true);
+		if (openScopesCount > 0) {
+			throw new IllegalStateException("There are still open scopes. Call c() to close them.");
+		}
+		adjustInternalRecordsSelection();
+	}
+
+    private SQLiteQueryBuilder buildSQLiteQuery(SQLiteQueryBuilder fromRestriction) {
         //Obtém a lista com todos os campos utilizados na query (seleção, filtro, ordenação, etc.).
         List<UsedField> fields = getUsedFieldsList(rootFields);
 
@@ -612,21 +873,19 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 
                 //Se não usou nenhum campo no final das contas (para filtro, ordenação, etc.), constrói uma query bem simplificada.
                 if (fields.isEmpty()) {
-                    qb.from(sourceEntity.getChannel(), defaultAlias);
+                    qb.from(getSourceTableName(), defaultAlias);
 
                     qb.where();
                     if (fromRestriction != null) {
                         qb.append(fromRestriction).and();
                     }
-                    //Cada registro real possui apenas uma linha com este campo especial.
-                    qb.eq(null, NAME_COLUMN, "om:json");
+                    appendRecordRowCondition(qb, null);
                     appendConditions(qb);
+                    appendSeekCondition(qb);
 
                     appendOrderBy(qb);
 
-                    if (limit != null) {
-                        qb.limit(limit);
-                    }
+                    appendLimit(qb);
                     return qb;
                 }
             }
@@ -635,10 +894,22 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
             //Ex: SELECT 'x'.value AS nomeDoCampo FROM Entidade 'x' ...
             for (int i = 0; i < selectFields.size(); i++) {
                 SelectField selectField = selectFields.get(i);
-                String[] fieldPath = selectField.getPath();
+                SelectFunction function = selectField.getFunction();
+                //A contagem é feita sobre as linhas resultantes, então não depende de nenhum campo.
+                if (function == SelectFunction.COUNT) {
+                    qb.selectCount(selectField.getAlias());
+                    continue;
+                }
 
+                String[] fieldPath = selectField.getPath();
                 UsedField usedField = getUsedField(fieldPath);
-                qb.selectColumn(getFieldOwnerAlias(usedField), VALUE_COLUMN, selectField.getAlias());
+                if (function == null) {
+                    qb.selectColumn(getFieldOwnerAlias(usedField), getFieldValueColumn(usedField), selectField.getAlias());
+                } else {
+                    //Os valores são armazenados como texto, então precisam do cast para serem agregados de acordo com o seu tipo.
+                    CastType castType = getFieldCastType(fieldPath, getAttributeFromPath(fieldPath).getType());
+                    qb.selectAggregate(function.name(), getFieldOwnerAlias(usedField), getFieldValueColumn(usedField), castType, selectField.getAlias());
+                }
             }
         }
 
@@ -650,6 +921,13 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
         SQLiteQueryBuilder fieldsCndBuilder = new SQLiteQueryBuilder();
         if (internalDataView != null) {
             appendInternalRelationshipFieldsSources(fields, qb, fieldsCndBuilder);
+        } else if (fields.isEmpty()) {
+            //Se apenas a contagem foi selecionada, utiliza apenas a linha que representa cada registro.
+            String defaultAlias = getDefaultOwnerAlias();
+            qb.from(getSourceTableName(), defaultAlias);
+            appendRecordRowCondition(fieldsCndBuilder, defaultAlias);
+        } else if (projection != null) {
+            appendProjectionFieldsSources(fields, qb, fieldsCndBuilder);
         } else {
             appendNormalFieldsSources(fields, qb, fieldsCndBuilder);
         }
@@ -663,43 +941,101 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
         }
         qb.append(fieldsCndBuilder);
         appendConditions(qb);
+        appendSeekCondition(qb);
+
+		/*
+		 * Group by
+		 */
+        if (groupBuilder != null) {
+            qb.append(groupBuilder);
+        }
 
 		/*
 		 * Order by
 		 */
         appendOrderBy(qb);
 
-        if (limit != null) {
-            qb.limit(limit);
-        }
+        appendLimit(qb);
         return qb;
     }
 
-	
-	/**
-	 * Verifica se o campo é suportado pelo construtor de queries.
-	 * 
-	 * @param attribute o atributo que será verificado.
-	 * @return <code>true</code> se for suportado e <code>false</code> caso contrário.
-	 */
-	public static boolean isSupportedAttribute(IEntityAttribute attribute) {
-		return getAttributeValueType(attribute.getType()) != null;
+
+	private CompiledQuery compile(SQLiteQueryBuilder fromRestriction) {
+		SQLiteQueryBuilder sqliteQuery = buildSQLiteQuery(fromRestriction);
+
+		//Os parâmetros que não vêm da restrição da fonte, das condições ou do limite dependem apenas do formato da query.
+		String[] parameters = sqliteQuery.getParameters();
+		int fixedStart = getParametersCount(fromRestriction);
+		int fixedEnd = parameters.length - getParametersCount(cndBuilder) - getParametersCount(seekBuilder) - getLimitParameters().length;
+		CompiledQuery compiledQuery = new CompiledQuery(sqliteQuery.toString(), Arrays.copyOfRange(parameters, fixedStart, fixedEnd));
+
+		if (BuildConfig.DEBUG && !Arrays.equals(parameters, bindParameters(compiledQuery, fromRestriction))) {
+			throw new AssertionError();
+		}
+		return compiledQuery;
 	}
-	
-	/**
-	 * Verifica se o relacionamento é suportado pelo construtor de queries.
-	 * 
-	 * @param relationship o relacionamento que será verificado.
-	 * @return <code>true</code> se for suportado e <code>false</code> caso contrário.
-	 */
-	public static boolean isSupportedRelationship(EntityRelationship relationship) {
-		return MetadataUtils.isSingleRelationship(relationship) && !relationship.getTarget().isInternal();
+
+	private String[] bindParameters(CompiledQuery compiledQuery, SQLiteQueryBuilder fromRestriction) {
+		//Segue a mesma ordem em que as partes são colocadas na query.
+		List<String> parameters = new ArrayList<>();
+		addParameters(parameters, fromRestriction);
+		Collections.addAll(parameters, compiledQuery.getFixedParameters());
+		addParameters(parameters, cndBuilder);
+		addParameters(parameters, seekBuilder);
+		Collections.addAll(parameters, getLimitParameters());
+		return parameters.toArray(new String[parameters.size()]);
 	}
-	
 
-	/*
-	 * Métodos auxiliares de construção da query.
-	 */
+	private String getShapeKey(SQLiteQueryBuilder fromRestriction) {
+		//O formato é composto pelas partes que definem o SQL gerado. Os valores não fazem parte dele pois são colocados como parâmetros.
+		StringBuilder keyBuilder = new StringBuilder();
+		keyBuilder.append(selectDistinct).append('|');
+		for (SelectField selectField : selectFields) {
+			keyBuilder.append(selectField.getFunction()).append(':').
+					   append(Arrays.toString(selectField.getPath())).append(':').
+					   append(selectField.isRelationship()).append(':').
+					   append(selectField.getAlias()).append(',');
+		}
+		keyBuilder.append('|').append(projection != null).append('|');
+		appendUsedFieldsKey(keyBuilder, rootFields);
+		keyBuilder.append('|').append(fromRestriction).
+				   append('|').append(cndBuilder).
+				   append('|').append(seekBuilder).
+				   append('|').append(groupBuilder).
+				   append('|').append(orderBuilder).
+				   append('|').append(limit != null).append(offset != null);
+		return keyBuilder.toString();
+	}
+
+	private static void appendUsedFieldsKey(StringBuilder keyBuilder, Map<String, UsedField> fields) {
+		//Os aliases dos campos se baseiam nos índices, então eles precisam fazer parte do formato junto com os nomes.
+		for (UsedField field : getUsedFieldsList(fields)) {
+			keyBuilder.append(field.getName()).append('#').append(field.getIndex());
+			Map<String, UsedField> subFields = field.getSubFields();
+			if (subFields != null) {
+				keyBuilder.append('(');
+				appendUsedFieldsKey(keyBuilder, subFields);
+				keyBuilder.append(')');
+			}
+			keyBuilder.append(',');
+		}
+	}
+
+	private String[] getLimitParameters() {
+		SQLiteQueryBuilder limitBuilder = new SQLiteQueryBuilder();
+		appendLimit(limitBuilder);
+		return limitBuilder.getParameters();
+	}
+
+	private static int getParametersCount(SQLiteQueryBuilder sb) {
+		return sb == null ? 0 : sb.getParameters().length;
+	}
+
+	private static void addParameters(List<String> parameters, SQLiteQueryBuilder sb) {
+		if (sb != null) {
+			Collections.addAll(parameters, sb.getParameters());
+		}
+	}
 
 	private void appendNormalFieldsSources(List<UsedField> fields, SQLiteQueryBuilder mainBuilder, SQLiteQueryBuilder fieldsCndBuilder) {
 		for (int i = 0; i < fields.size(); i++) {
@@ -719,13 +1055,53 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 			}
 			
 			//Monta a parte do WHERE para o campo.
-			fieldsCndBuilder.eq(fieldOwnerAlias, NAME_COLUMN, field.getName());
+			appendFieldNameCondition(fieldsCndBuilder, fieldOwnerAlias, sourceEntity, field.getName());
 			
 			//Apenda os joins dos subFields, se houverem.
 			appendSubFieldsSources(field, mainBuilder, fieldsCndBuilder);
 		}
 	}
 	
+	private void appendProjectionFieldsSources(List<UsedField> fields, SQLiteQueryBuilder mainBuilder, SQLiteQueryBuilder fieldsCndBuilder) {
+		if (BuildConfig.DEBUG && projection == null) {
+			throw new AssertionError();
+		}
+
+		//Os campos projetados são obtidos diretamente da linha do registro na tabela da projeção, evitando os JOINs.
+		mainBuilder.from(projection.getTableName(), PROJECTION_ALIAS);
+		appendRecordRowCondition(fieldsCndBuilder, PROJECTION_ALIAS);
+		for (UsedField field : fields) {
+			//Os demais campos (como os de relacionamentos internos) continuam sendo obtidos do canal, através do JOIN com a projeção.
+			if (!isProjectedField(field)) {
+				String fieldOwnerAlias = getFieldOwnerAlias(field);
+				mainBuilder.join(sourceEntity.getChannel(), fieldOwnerAlias, RECORDID_COLUMN, PROJECTION_ALIAS, EntityProjection.RECORDID_COLUMN);
+				appendFieldNameCondition(fieldsCndBuilder.and(), fieldOwnerAlias, sourceEntity, field.getName());
+			}
+
+			//Apenda os joins dos subFields, se houverem.
+			appendSubFieldsSources(field, mainBuilder, fieldsCndBuilder);
+		}
+	}
+	
+	private static void appendFieldNameCondition(SQLiteQueryBuilder sb, String fieldOwnerAlias, EntityMetadata fieldEntity, String fieldName) {
+		//Os índices dos campos são parciais (restritos ao nome do campo), então o SQLite só consegue utilizá-los se o nome estiver literalmente na query.
+		if (fieldEntity.isIndexedField(fieldName)) {
+			sb.eqLiteral(fieldOwnerAlias, NAME_COLUMN, fieldName);
+		} else {
+			sb.eq(fieldOwnerAlias, NAME_COLUMN, fieldName);
+		}
+	}
+	
+	private void appendRecordRowCondition(SQLiteQueryBuilder sb, String tableAlias) {
+		if (projection != null) {
+			//A projeção possui apenas uma linha por registro, então a condição serve apenas para compor o WHERE.
+			sb.not().isNull(tableAlias, EntityProjection.RECORDID_COLUMN);
+		} else {
+			//Cada registro real possui apenas uma linha com este campo especial.
+			sb.eq(tableAlias, NAME_COLUMN, "om:json");
+		}
+	}
+	
 	private void appendInternalRelationshipFieldsSources(List<UsedField> fields, SQLiteQueryBuilder mainBuilder, SQLiteQueryBuilder fieldsCndBuilder) {
 		if (BuildConfig.DEBUG && internalDataView == null) {
 			throw new AssertionError();
@@ -804,13 +1180,14 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		return fnSubstr(nameCol, startIndex, numberOfDigits);
 	}
 	
-	private static void appendSubFieldsSources(UsedField field, SQLiteQueryBuilder mainBuilder, SQLiteQueryBuilder fieldsCndBuilder) {
+	private void appendSubFieldsSources(UsedField field, SQLiteQueryBuilder mainBuilder, SQLiteQueryBuilder fieldsCndBuilder) {
 		Map<String, UsedField> subFields = field.getSubFields();
 		if (subFields == null) {
 			return;
 		}
 		
 		String fieldOwnerAlias = getFieldOwnerAlias(field);
+		String fieldValueColumn = getFieldValueColumn(field);
 		EntityMetadata fieldEntity = field.getEntity();
 		List<UsedField> subFieldsList = getUsedFieldsList(subFields);
 		
@@ -819,10 +1196,10 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		for (UsedField subField : subFieldsList) {
 			//Apenda o join do subField.
 			String subFieldOwnerAlias = getFieldOwnerAlias(subField);
-			mainBuilder.join(fieldEntity.getChannel(), subFieldOwnerAlias, RECORDID_COLUMN, fieldOwnerAlias, VALUE_COLUMN);
+			mainBuilder.join(fieldEntity.getChannel(), subFieldOwnerAlias, RECORDID_COLUMN, fieldOwnerAlias, fieldValueColumn);
 			
 			//Apenda a parte do WHERE do subField.
-			fieldsCndBuilder.and().eq(subFieldOwnerAlias, NAME_COLUMN, subField.getName());
+			appendFieldNameCondition(fieldsCndBuilder.and(), subFieldOwnerAlias, fieldEntity, subField.getName());
 			
 			//Apenda os joins dos subFields do subField, se houverem.
 			appendSubFieldsSources(subField, mainBuilder, fieldsCndBuilder);
@@ -837,6 +1214,23 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		}
 	}
 	
+	private void appendSeekCondition(SQLiteQueryBuilder sb) {
+		if (seekBuilder != null) {
+			sb.and().append(seekBuilder);
+		}
+	}
+	
+	private MobileBeanQueryBuilder aggregate(SelectFunction function, String... attributePath) {
+		checkSelectState();
+		checkSelectFieldPath(attributePath);
+		
+		addCurrentSelectField(null);
+		curSelectedFieldPath = attributePath;
+		curSelectionIsRelationship = false;
+		curSelectedFunction = function;
+		return this;
+	}
+	
 	private void appendOrderBy(SQLiteQueryBuilder sb) {
 		if (orderBuilder == null) {
 			return;
@@ -844,6 +1238,82 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		sb.append(orderBuilder);
 	}
 	
+	private void appendLimit(SQLiteQueryBuilder sb) {
+		if (offset != null) {
+			//O SQLite só aceita o OFFSET junto com o LIMIT, sendo que um limite negativo representa a ausência de limite.
+			sb.limit(limit != null ? limit : -1).offset(offset);
+		} else if (limit != null) {
+			sb.limit(limit);
+		}
+	}
+	
+	private void addOrderField(OrderField field) {
+		if (orderBuilder == null) {
+			orderBuilder = new SQLiteQueryBuilder();
+			orderBuilder.orderBy();
+			orderFields = new ArrayList<>();
+		}
+		orderBuilder.orderByColumn(field.getTableAlias(), field.getColName(), field.isAsc(), field.getCastType(), field.isId());
+		orderFields.add(field);
+	}
+	
+	private static void appendOrderEq(SQLiteQueryBuilder sb, OrderField field, String valueParam) {
+		if (valueParam == null) {
+			sb.isNull(field.getTableAlias(), field.getColName());
+		} else {
+			sb.orderEq(field.getTableAlias(), field.getColName(), valueParam, field.getCastType(), field.isId());
+		}
+	}
+	
+	private static void appendOrderAfter(SQLiteQueryBuilder sb, OrderField field, String valueParam) {
+		//Os valores nulos ficam no início da ordenação ascendente e no final da descendente.
+		if (valueParam == null) {
+			if (BuildConfig.DEBUG && !field.isAsc()) {
+				throw new AssertionError();
+			}
+			sb.not().isNull(field.getTableAlias(), field.getColName());
+		} else if (field.isAsc()) {
+			sb.orderAfter(field.getTableAlias(), field.getColName(), valueParam, true, field.getCastType(), field.isId());
+		} else {
+			sb.o().orderAfter(field.getTableAlias(), field.getColName(), valueParam, false, field.getCastType(), field.isId()).or().isNull(field.getTableAlias(), field.getColName()).c();
+		}
+	}
+	
+	private String[] getUsedChannels() {
+		//O canal fonte vem primeiro. Os registros internos ficam armazenados no canal do registro dono.
+		Set<String> channels = new LinkedHashSet<>();
+		if (internalDataView != null) {
+			channels.add(internalDataView.getOwner().getEntityMetadata().getChannel());
+		} else {
+			channels.add(sourceEntity.getChannel());
+		}
+		
+		addUsedFieldsChannels(rootFields, channels);
+		if (subselect != null) {
+			Collections.addAll(channels, subselect.getChannels());
+		}
+		//O índice de busca é mantido a partir dos canais dos atributos pesquisáveis, então as alterações neles também afetam a query.
+		if (matchedSearchIndex != null) {
+			channels.addAll(matchedSearchIndex.getChannels());
+		}
+		return channels.toArray(new String[channels.size()]);
+	}
+	
+	private static void addUsedFieldsChannels(Map<String, UsedField> fields, Set<String> channels) {
+		for (UsedField field : fields.values()) {
+			//Apenas os campos com navegação possuem entidade, que é a entidade alcançada por eles.
+			EntityMetadata fieldEntity = field.getEntity();
+			if (fieldEntity != null && !fieldEntity.isInternal()) {
+				channels.add(fieldEntity.getChannel());
+			}
+			
+			Map<String, UsedField> subFields = field.getSubFields();
+			if (subFields != null) {
+				addUsedFieldsChannels(subFields, channels);
+			}
+		}
+	}
+	
 	private SQLiteQueryBuilder getFromRestriction() {
 		//Se há uma visão de dados de um relacionamento do tipo array, obtém as restrições necessárias aqui para aplicá-las no WHERE. 
 		SQLiteQueryBuilder relArrayRestriction = getRelationshipArrayViewRestriction();
@@ -880,7 +1350,7 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 			} else {
 				//Se é relacionado pelos registros alvos, restringe através do relacionamento do mappedBy, que deve apontar para a fonte.
 				String fieldAlias = useField(relationship.getMappedBy());
-				sb.eq(fieldAlias, VALUE_COLUMN, record.getBeanId());
+				sb.eq(fieldAlias, getValueColumn(relationship.getMappedBy()), record.getBeanId());
 			}
 			return sb;
 		}
@@ -927,7 +1397,7 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 	//Ajuste para a situação de seleção de registros internos inteiros onde não há nenhum campo sendo utilizado.
 	//Isto é necessário pq o registro interno será obtido pelo índice contido no nome do campo, então é obrigado a selecionar no mínimo um campo.
 	private void adjustInternalRecordsSelection() {
-		if (internalDataView == null || !selectFields.isEmpty() || !rootFields.isEmpty()) {
+		if (internalDataView == null || !rootFields.isEmpty()) {
 			return;
 		}
 		
@@ -947,19 +1417,20 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		}
 
 		String tagOwnerAlias = useField(MobileBeanEntityRecord.TAGS_PROPERTY_NAME);
+		String tagColumn = getValueColumn(MobileBeanEntityRecord.TAGS_PROPERTY_NAME);
 		
 		//O campo tags com o valor nulo pode representar um resultado, então tem que ser considerado.
 		if (orNull) {
 			cndBuilder.o();
-			cndBuilder.isNull(tagOwnerAlias, VALUE_COLUMN);
+			cndBuilder.isNull(tagOwnerAlias, tagColumn);
 			cndBuilder.or();
 		}
 		
 		//Se for apenas um resultado, usa o "=", se não usa o "IN".
 		if (results.length == 1) {
-			cndBuilder.bitwiseEq(tagOwnerAlias, VALUE_COLUMN, tagsMask, results[0]);
+			cndBuilder.bitwiseEq(tagOwnerAlias, tagColumn, tagsMask, results[0]);
 		} else {
-			cndBuilder.bitwiseIn(tagOwnerAlias, VALUE_COLUMN, tagsMask, results);
+			cndBuilder.bitwiseIn(tagOwnerAlias, tagColumn, tagsMask, results);
 		}
 		
 		//Fecha a verificação de nulo, se necessário.
@@ -968,6 +1439,27 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		}
 	}
 	
+	private void addSearchFallbackRestriction(String[][] attributesPaths, List<String> terms) {
+		//Cada termo deve estar contido em pelo menos um dos atributos.
+		cndBuilder.o();
+		for (int i = 0; i < terms.size(); i++) {
+			if (i > 0) {
+				cndBuilder.and();
+			}
+			
+			cndBuilder.o();
+			for (int j = 0; j < attributesPaths.length; j++) {
+				if (j > 0) {
+					cndBuilder.or();
+				}
+				String[] attributePath = attributesPaths[j];
+				cndBuilder.like(useField(attributePath), getValueColumn(attributePath), terms.get(i), LikeType.CONTAINS);
+			}
+			cndBuilder.c();
+		}
+		cndBuilder.c();
+	}
+	
 	private void addIdInRestriction(Serializable[] ids, String tableAlias, String colName) {
 		String[] valuesParams = new String[ids.length];
 		for (int i = 0; i < valuesParams.length; i++) {
@@ -1137,10 +1629,45 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		return fields;
 	}
 	
-	private static String getFieldOwnerAlias(UsedField field) {
+	private String getFieldOwnerAlias(UsedField field) {
+		//Os campos projetados pertencem à tabela da projeção.
+		if (isProjectedField(field)) {
+			return PROJECTION_ALIAS;
+		}
 		return "'" + getFieldOwnerName(field) + "'";
 	}
 	
+	private String getFieldValueColumn(UsedField field) {
+		if (isProjectedField(field)) {
+			return projection.getColumnName(field.getName());
+		}
+		return VALUE_COLUMN;
+	}
+	
+	//Obtém a coluna que contém o valor do campo, que pode ser uma coluna da projeção ou a coluna de valor do canal.
+	private String getValueColumn(String... fieldPath) {
+		if (isProjectedField(fieldPath)) {
+			return projection.getColumnName(fieldPath[0]);
+		}
+		return VALUE_COLUMN;
+	}
+	
+	//Apenas os campos diretos da entidade fonte podem estar na projeção.
+	private boolean isProjectedField(String... fieldPath) {
+		return projection != null && fieldPath.length == 1 && projection.hasColumn(fieldPath[0]);
+	}
+	
+	private boolean isProjectedField(UsedField field) {
+		return projection != null && field.getSuperField() == null && projection.hasColumn(field.getName());
+	}
+	
+	private String getSourceTableName() {
+		if (projection != null) {
+			return projection.getTableName();
+		}
+		return sourceEntity.getChannel();
+	}
+	
 	private static String getFieldOwnerName(UsedField field) {
 		UsedField superField = field.getSuperField();
 		if (superField != null) {
@@ -1150,6 +1677,27 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		return String.valueOf(field.getIndex());
 	}
 	
+	private static String getSelectFieldAlias(String[] fieldPath, SelectFunction function) {
+		if (function == null) {
+			return getSelectFieldAlias(fieldPath);
+		}
+		if (function == SelectFunction.COUNT) {
+			return "count";
+		}
+		
+		//Ex: sum(atributo)
+		return function.name().toLowerCase(Locale.US) + "(" + getSelectFieldAlias(fieldPath) + ")";
+	}
+	
+	private boolean isSelectFieldAlias(String alias) {
+		for (SelectField selectField : selectFields) {
+			if (selectField.getAlias().equals(alias)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	private static String getSelectFieldAlias(String[] fieldPath) {
 		if (fieldPath.length == 1) {
 			return fieldPath[0];
@@ -1167,6 +1715,11 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 	
 	//Utilizado para evitar a ambiguidade de campos (por exemplo, o recordid, que é o mesmo em todos os JOIN).
 	private String getDefaultOwnerAlias() {
+		//Na projeção, o recordid sempre é obtido da sua tabela.
+		if (projection != null) {
+			return PROJECTION_ALIAS;
+		}
+		
 		//O HashMap gera o Values apenas uma vez, então chamá-lo aqui apenas antecipará sua criação normal.
 		Collection<UsedField> values = rootFields.values();
 		if (values.isEmpty()) {
@@ -1183,13 +1736,17 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		
 		if (alias == null) {
 			//Se não foi definido alias através do "as", usa o padrão.
-			alias = getSelectFieldAlias(curSelectedFieldPath);
+			alias = getSelectFieldAlias(curSelectedFieldPath, curSelectedFunction);
 		}
-		if (fieldsByAlias.put(alias, curSelectedFieldPath) != null) {
+		if (isSelectFieldAlias(alias)) {
 			throw new IllegalArgumentException(String.format("There is already a field with the alias \"%s\". Field path = %s.", alias, Arrays.toString(curSelectedFieldPath)));
 		}
+		//Os valores agregados não podem ser utilizados nas demais partes da query, então seus aliases não são mapeados para os caminhos.
+		if (curSelectedFunction == null) {
+			fieldsByAlias.put(alias, curSelectedFieldPath);
+		}
 		
-		SelectField selectField = new SelectField(curSelectedFieldPath, alias, curSelectionIsRelationship);
+		SelectField selectField = new SelectField(curSelectedFieldPath, alias, curSelectionIsRelationship, curSelectedFunction);
 		selectFields.add(selectField);
 		
 		curSelectedFieldPath = null;
@@ -1201,15 +1758,28 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		}
 		
 		this.sourceEntity = sourceEntity;
+		//Utiliza a projeção apenas se ela estiver pronta, caso contrário a query é feita diretamente sobre o canal.
+		EntityProjection projection = sourceEntity.getProjection();
+		if (projection != null && projection.isReady()) {
+			this.projection = projection;
+		}
 		configureSelectFields();
 	}
 	
 	private void configureSelectFields() {
 		for (SelectField field : selectFields) {
+			//A contagem não é aplicada sobre um campo específico.
+			SelectFunction function = field.getFunction();
+			if (function == SelectFunction.COUNT) {
+				continue;
+			}
+
 			//Verifica o tipo do SelectField aqui pq no momento em que ele foi inserido ainda n havia o sourceEntity. 
 			String[] fieldPath = field.getPath();
 			if (field.isRelationship()) {
 				checkRelationshipType(fieldPath);
+			} else if (function != null) {
+				checkAggregateAttributeType(function, fieldPath);
 			} else {
 				checkAttributeType(fieldPath);
 			}
@@ -1294,12 +1864,21 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		return value.toString();
 	}
 	
-	private CastType getOrderCastType(EntityAttributeType attrType) {
+	private CastType getOrderCastType(String[] fieldPath, EntityAttributeType attrType) {
 		//O order by também suporta booleano, ao contrário das demais operações tipadas.
 		if (attrType == EntityAttributeType.BOOLEAN) {
 			return null;
 		}
-		return getCastType(attrType);
+		return getFieldCastType(fieldPath, attrType);
+	}
+	
+	private CastType getFieldCastType(String[] fieldPath, EntityAttributeType attrType) {
+		CastType castType = getCastType(attrType);
+		//As colunas da projeção já possuem as afinidades dos tipos, então não precisam do cast (o que também permite o uso dos índices).
+		if (isProjectedField(fieldPath)) {
+			return null;
+		}
+		return castType;
 	}
 	
 	//Obtém o CastType para ser utilizado em operações como >, <, order by, etc.
@@ -1420,6 +1999,23 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		checkAttributeType(getAttributeFromPath(attributePath));
 	}
 	
+	private void checkAggregateAttributeType(SelectFunction function, String... attributePath) {
+		EntityAttributeType attributeType = getAttributeFromPath(attributePath).getType();
+		switch (function) {
+			case SUM:
+			case AVG:
+				if (attributeType != EntityAttributeType.INTEGER && attributeType != EntityAttributeType.DECIMAL) {
+					throw new IllegalArgumentException(String.format("Invalid attribute type for the %s function, only numeric attributes are allowed: %s.", function, attributeType));
+				}
+				break;
+				
+			default:
+				//Lança exceção se o tipo de atributo não suportar comparações.
+				getCastType(attributeType);
+				break;
+		}
+	}
+	
 	private static void checkAttributeType(IEntityAttribute attribute) {
 		if (!isSupportedAttribute(attribute)) {
 			throw new IllegalArgumentException(String.format("Invalid attribute type: %s.", attribute.getType()));	
@@ -1486,6 +2082,51 @@ public final class MobileBeanQueryBuilder implements IQueryBuilder {
 		}
 	}
 	
+	/**
+	 * Representa um critério de ordenação da query. Mantém os dados necessários para a montagem da restrição do {@link MobileBeanQueryBuilder#seekAfter(Serializable, Object...)}.
+	 */
+	private static final class OrderField {
+		
+		private final String tableAlias;
+		private final String colName;
+		private final EntityAttributeType attributeType;
+		private final boolean asc;
+		private final CastType castType;
+		
+		public OrderField(String tableAlias, String colName, EntityAttributeType attributeType, boolean asc, CastType castType) {
+			this.tableAlias = tableAlias;
+			this.colName = colName;
+			this.attributeType = attributeType;
+			this.asc = asc;
+			this.castType = castType;
+		}
+		
+		public String getTableAlias() {
+			return tableAlias;
+		}
+		
+		public String getColName() {
+			return colName;
+		}
+		
+		public EntityAttributeType getAttributeType() {
+			return attributeType;
+		}
+		
+		public boolean isAsc() {
+			return asc;
+		}
+		
+		public CastType getCastType() {
+			return castType;
+		}
+		
+		//Os identificadores são comparados considerando a caixa, assim como na sua unicidade e no índice do canal.
+		public boolean isId() {
+			return attributeType == null;
+		}
+	}
+	
 	/**
 	 * Representa uma visão de dados baseada em um relacionamento para uma entidade interna.
 	 * É gerada a partir de um {@link RelationshipArrayView} no momento de sua configuração. 
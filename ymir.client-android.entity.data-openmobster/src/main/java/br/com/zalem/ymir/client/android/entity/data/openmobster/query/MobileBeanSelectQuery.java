@@ -9,6 +9,7 @@ import br.com.zalem.ymir.client.android.entity.data.IEntityDAO;
 import br.com.zalem.ymir.client.android.entity.data.cursor.IEntityRecordCursor;
 import br.com.zalem.ymir.client.android.entity.data.query.select.ISelectQuery;
 import br.com.zalem.ymir.client.android.entity.data.query.select.NonUniqueResultException;
+import br.com.zalem.ymir.client.android.entity.data.query.select.SelectFunction;
 
 /**
  * Query de seleção de dados baseado no OpenMobster.
@@ -23,12 +24,16 @@ public class MobileBeanSelectQuery implements ISelectQuery {
 	private final String[] parameters;
 	private final SelectField[] fields;
 	private final String entityName;
+	private final String[][] includes;
+	private final String[] channels;
 
-	public MobileBeanSelectQuery(String query, String[] parameters, SelectField[] fields, String entityName) {
+	public MobileBeanSelectQuery(String query, String[] parameters, SelectField[] fields, String entityName, String[][] includes, String[] channels) {
 		this.query = query;
 		this.parameters = parameters;
 		this.fields = fields;
 		this.entityName = entityName; 
+		this.includes = includes;
+		this.channels = channels;
 	}
 	
 	@Override
@@ -62,6 +67,25 @@ public class MobileBeanSelectQuery implements ISelectQuery {
 	public final String getEntityName() {
 		return entityName;
 	}
+
+	/**
+	 * Obtém os caminhos de relacionamentos cujos registros devem ser obtidos antecipadamente junto com os resultados da query.
+	 *
+	 * @return os caminhos obtidos ou <code>null</code> se não há inclusões.
+	 */
+	public final String[][] getIncludes() {
+		return includes;
+	}
+
+	/**
+	 * Obtém os canais do OpenMobster lidos pela query, ou seja, os canais cujas alterações podem afetar o seu resultado.
+	 * O primeiro canal é sempre o da entidade fonte (ou o do registro dono, no caso de entidades internas).
+	 *
+	 * @return os canais obtidos.
+	 */
+	public final String[] getChannels() {
+		return channels;
+	}
 	
 	@Override
 	public int describeContents() {
@@ -74,6 +98,15 @@ public class MobileBeanSelectQuery implements ISelectQuery {
 		dest.writeStringArray(parameters);
 		dest.writeTypedArray(fields, flags);
 		dest.writeString(entityName);
+		if (includes == null) {
+			dest.writeInt(-1);
+		} else {
+			dest.writeInt(includes.length);
+			for (String[] include : includes) {
+				dest.writeStringArray(include);
+			}
+		}
+		dest.writeStringArray(channels);
 	}
 	
 	public static final Creator<MobileBeanSelectQuery> CREATOR = new Creator<MobileBeanSelectQuery>() {
@@ -82,7 +115,9 @@ public class MobileBeanSelectQuery implements ISelectQuery {
 			return new MobileBeanSelectQuery(source.readString(),
 											 source.createStringArray(),
 											 source.createTypedArray(SelectField.CREATOR),
-											 source.readString());
+											 source.readString(),
+											 readIncludes(source),
+											 source.createStringArray());
 		}
 		
 		@Override
@@ -93,8 +128,21 @@ public class MobileBeanSelectQuery implements ISelectQuery {
 	
 	
 	/*
-	 * Classes auxiliares.
+	 * Métodos/classes auxiliares.
 	 */
+
+	static String[][] readIncludes(Parcel source) {
+		int count = source.readInt();
+		if (count < 0) {
+			return null;
+		}
+
+		String[][] includes = new String[count][];
+		for (int i = 0; i < count; i++) {
+			includes[i] = source.createStringArray();
+		}
+		return includes;
+	}
 	
 	/**
 	 * Representa um campo selecionado da query.
@@ -104,11 +152,13 @@ public class MobileBeanSelectQuery implements ISelectQuery {
 		private final String[] path;
 		private final boolean isRelationship;
 		private final String alias;
+		private final SelectFunction function;
 		
-		SelectField(String[] path, String alias, boolean isRelationship) {
+		SelectField(String[] path, String alias, boolean isRelationship, SelectFunction function) {
 			this.path = path;
 			this.alias = alias;
 			this.isRelationship = isRelationship;
+			this.function = function;
 		}
 
 		@Override
@@ -126,6 +176,11 @@ public class MobileBeanSelectQuery implements ISelectQuery {
 			return isRelationship;
 		}
 
+		@Override
+		public SelectFunction getFunction() {
+			return function;
+		}
+
 		@Override
 		public int describeContents() {
 			return 0;
@@ -136,12 +191,17 @@ public class MobileBeanSelectQuery implements ISelectQuery {
 			dest.writeStringArray(path);
 			dest.writeString(alias);
 			AndroidBugsUtils.applyWorkaroundForBug5973_write(dest, isRelationship);
+			dest.writeString(function == null ? null : function.name());
 		}
 		
 		public static final Creator<SelectField> CREATOR = new Creator<SelectField>() {
 			@Override
 			public SelectField createFromParcel(Parcel source) {
-				return new SelectField(source.createStringArray(), source.readString(), AndroidBugsUtils.applyWorkaroundForBug5973_read(source));
+				String[] path = source.createStringArray();
+				String alias = source.readString();
+				boolean isRelationship = AndroidBugsUtils.applyWorkaroundForBug5973_read(source);
+				String functionName = source.readString();
+				return new SelectField(path, alias, isRelationship, functionName == null ? null : SelectFunction.valueOf(functionName));
 			}
 			
 			@Override
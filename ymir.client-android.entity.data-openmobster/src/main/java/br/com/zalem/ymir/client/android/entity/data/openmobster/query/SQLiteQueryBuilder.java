@@ -107,6 +107,30 @@ public final class SQLiteQueryBuilder {
 		return this;
 	}
 
+	/**
+	 * Adiciona a seleção da quantidade de linhas (<code>count(*)</code>) na query.
+	 * 
+	 * @param alias o alias da expressão ou <code>null</code> se não houver.
+	 * @return o próprio construtor.
+	 */
+	public SQLiteQueryBuilder selectCount(String alias) {
+		return selectExpr("count(*)", alias);
+	}
+	
+	/**
+	 * Adiciona a seleção de uma função de agregação aplicada sobre uma coluna na query.
+	 * 
+	 * @param function o nome da função de agregação (<code>sum</code>, <code>min</code>, <code>max</code>, etc).
+	 * @param tableAlias o alias da tabela ou <code>null</code> se não houver.
+	 * @param colName o nome da coluna.
+	 * @param castType tipo de cast que deve ser feito na coluna ou <code>null</code> se nenhum cast precisar ser feito.
+	 * @param alias o alias da expressão ou <code>null</code> se não houver.
+	 * @return o próprio construtor.
+	 */
+	public SQLiteQueryBuilder selectAggregate(String function, String tableAlias, String colName, CastType castType, String alias) {
+		return selectExpr(String.format("%s(%s)", function, getColFullname(tableAlias, colName, castType)), alias);
+	}
+
     /**
      * Adiciona um comando <code>SELECT *</code> na query.
      *
@@ -192,6 +216,21 @@ public final class SQLiteQueryBuilder {
 		return this;
 	}
 	
+	/**
+	 * Adiciona a condição de <code>coluna igual ao valor</code> na query, colocando o valor literalmente ao invés de utilizar
+	 * um parâmetro. Deve ser utilizado quando o valor precisa estar presente na própria query, como para permitir o uso de
+	 * índices parciais cuja condição se baseia no valor.
+	 * 
+	 * @param tableAlias o alias da tabela ou <code>null</code> se não houver.
+	 * @param colName o nome da coluna.
+	 * @param value o valor que será colocado literalmente.
+	 * @return o próprio construtor.
+	 */
+	public SQLiteQueryBuilder eqLiteral(String tableAlias, String colName, String value) {
+		appendRestriction(tableAlias, colName, "=", literal(value), null);
+		return this;
+	}
+	
 	/**
 	 * Adiciona a condição de <code>coluna menor que o valor</code> na query.
 	 * 
@@ -415,6 +454,39 @@ public final class SQLiteQueryBuilder {
 		return this;
 	}
 	
+	/**
+	 * Adiciona a condição de <code>coluna igual ao valor</code> na query, comparando os valores da mesma forma que a
+	 * ordenação feita através do {@link #orderByColumn(String, String, boolean, CastType, boolean)}.
+	 *
+	 * @param tableAlias o alias da tabela ou <code>null</code> se não houver.
+	 * @param colName o nome da coluna.
+	 * @param valueParam o valor que será colocado como parâmetro.
+	 * @param castType tipo de cast que deve ser feito na coluna/valor ou <code>null</code> se nenhum cast precisar ser feito.
+	 * @param caseSensitive <code>true</code> se os textos devem ser comparados considerando a caixa e <code>false</code> caso contrário.
+	 * @return o próprio construtor.
+	 */
+	public SQLiteQueryBuilder orderEq(String tableAlias, String colName, String valueParam, CastType castType, boolean caseSensitive) {
+		appendRestriction(getOrderColFullname(tableAlias, colName, castType, caseSensitive), "=", addParameter(valueParam));
+		return this;
+	}
+
+	/**
+	 * Adiciona a condição de <code>coluna posterior ao valor</code> na query, de acordo com a direção da ordenação.
+	 * Os valores são comparados da mesma forma que a ordenação feita através do {@link #orderByColumn(String, String, boolean, CastType, boolean)}.
+	 *
+	 * @param tableAlias o alias da tabela ou <code>null</code> se não houver.
+	 * @param colName o nome da coluna.
+	 * @param valueParam o valor que será colocado como parâmetro.
+	 * @param asc <code>true</code> se a ordenação for ascendente e <code>false</code> caso contrário.
+	 * @param castType tipo de cast que deve ser feito na coluna/valor ou <code>null</code> se nenhum cast precisar ser feito.
+	 * @param caseSensitive <code>true</code> se os textos devem ser comparados considerando a caixa e <code>false</code> caso contrário.
+	 * @return o próprio construtor.
+	 */
+	public SQLiteQueryBuilder orderAfter(String tableAlias, String colName, String valueParam, boolean asc, CastType castType, boolean caseSensitive) {
+		appendRestriction(getOrderColFullname(tableAlias, colName, castType, caseSensitive), asc ? ">" : "<", addParameter(valueParam));
+		return this;
+	}
+
 	/**
 	 * Adiciona um comando <code>NOT</code> na query.
 	 * 
@@ -465,6 +537,31 @@ public final class SQLiteQueryBuilder {
 		return this;
 	}
 
+	/**
+	 * Adiciona um comando <code>GROUP BY</code> na query.
+	 * 
+	 * @return o próprio construtor.
+	 */
+	public SQLiteQueryBuilder groupBy() {
+		sb.append(" GROUP BY ");
+		startColList();
+		return this;
+	}
+	
+	/**
+	 * Adiciona uma coluna de agrupamento na query.
+	 * 
+	 * @param tableAlias o alias da tabela ou <code>null</code> se não houver.
+	 * @param colName o nome da coluna.
+	 * @return o próprio construtor.
+	 */
+	public SQLiteQueryBuilder groupByColumn(String tableAlias, String colName) {
+		newColItem();
+		
+		sb.append(getColFullname(tableAlias, colName));
+		return this;
+	}
+	
 	/**
 	 * Adiciona um comando <code>ORDER BY</code> na query.
 	 * 
@@ -483,17 +580,13 @@ public final class SQLiteQueryBuilder {
 	 * @param colName o nome da coluna.
 	 * @param asc <code>true</code> se a ordem for ascendente ou <code>false</code> se for descendente.
 	 * @param castType tipo de cast que deve ser feito na coluna ou <code>null</code> se nenhum cast precisar ser feito.
+	 * @param caseSensitive <code>true</code> se os textos devem ser ordenados considerando a caixa e <code>false</code> caso contrário.
 	 * @return o próprio construtor.
 	 */
-	public SQLiteQueryBuilder orderByColumn(String tableAlias, String colName, boolean asc, CastType castType) {
+	public SQLiteQueryBuilder orderByColumn(String tableAlias, String colName, boolean asc, CastType castType, boolean caseSensitive) {
 		newColItem();
 		
-		sb.append(getColFullname(tableAlias, colName, castType));
-		
-		//Especifica o NOCASE para que a ordenação por texto não seja case sensitive.
-		if (castType == null) {
-			sb.append(" COLLATE NOCASE");
-		}
+		sb.append(getOrderColFullname(tableAlias, colName, castType, caseSensitive));
 		
 		if (asc) {
 			sb.append(" ASC");
@@ -514,12 +607,25 @@ public final class SQLiteQueryBuilder {
     }
 
     /**
-     * Adiciona um limitador de regisros retornados pela query.
+     * Adiciona um limitador de regisros retornados pela query. O limite é colocado como parâmetro, mantendo o mesmo
+     * texto da query para limites diferentes.
      *
      * @return o próprio construtor.
      */
     public SQLiteQueryBuilder limit(int limit) {
-        sb.append(" LIMIT ").append(limit);
+        sb.append(" LIMIT ").append(addParameter(String.valueOf(limit)));
+        return this;
+    }
+
+    /**
+     * Adiciona um deslocamento dos registros retornados pela query. Deve ser chamado logo após o {@link #limit(int)},
+     * pois o SQLite só aceita o <code>OFFSET</code> junto com o <code>LIMIT</code> (um limite negativo representa a ausência de limite).
+     * Assim como o limite, o deslocamento é colocado como parâmetro.
+     *
+     * @return o próprio construtor.
+     */
+    public SQLiteQueryBuilder offset(int offset) {
+        sb.append(" OFFSET ").append(addParameter(String.valueOf(offset)));
         return this;
     }
 	
@@ -664,6 +770,27 @@ public final class SQLiteQueryBuilder {
 		return String.format("substr(%s, %s, %s)", strExpr, indexExpr, countExpr);
 	}
 	
+	/**
+	 * Cria uma conversão de tipo da expressão, no mesmo formato utilizado pelas condições e ordenações tipadas deste construtor.
+	 * 
+	 * @param expr expressão ou coluna que será convertida.
+	 * @param castType tipo da conversão.
+	 * @return a conversão criada.
+	 */
+	public static String fnCast(String expr, CastType castType) {
+		return cast(expr, castType);
+	}
+	
+	/**
+	 * Cria um valor de texto literal, escapando as aspas simples presentes no valor.
+	 * 
+	 * @param value o valor.
+	 * @return o literal criado.
+	 */
+	public static String literal(String value) {
+		return "'" + value.replace("'", "''") + "'";
+	}
+	
 	
 	/*
 	 * Métodos auxiliares
@@ -727,6 +854,15 @@ public final class SQLiteQueryBuilder {
 		return fullName;
 	}
 	
+	private static String getOrderColFullname(String tableAlias, String colName, CastType castType, boolean caseSensitive) {
+		String fullName = getColFullname(tableAlias, colName, castType);
+		//Especifica o NOCASE para que a ordenação por texto não seja case sensitive.
+		if (castType == null && !caseSensitive) {
+			fullName += " COLLATE NOCASE";
+		}
+		return fullName;
+	}
+	
 	private static String cast(String value, CastType castType) {
 		return String.format("cast(%s as %s)", value, castType.getSQLName());
 	}
@@ -10,6 +10,7 @@ import br.com.zalem.ymir.client.android.entity.data.query.select.ISelectBuilder;
 import br.com.zalem.ymir.client.android.entity.data.query.select.ISelectQuery;
 import br.com.zalem.ymir.client.android.entity.data.query.select.ITerminalStatement;
 import br.com.zalem.ymir.client.android.entity.data.query.select.NonUniqueResultException;
+import br.com.zalem.ymir.client.android.entity.data.query.select.QueryCancellationSignal;
 import br.com.zalem.ymir.client.android.entity.data.view.RelationshipArrayView;
 
 /**
@@ -68,6 +69,36 @@ public final class SelectFromQueryBuilder implements ISelectBuilder {
 		query.relationship(relationshipPath);
 		return this;
 	}
+
+	@Override
+	public ISelectBuilder count() {
+		query.count();
+		return this;
+	}
+
+	@Override
+	public ISelectBuilder sum(String... attributePath) {
+		query.sum(attributePath);
+		return this;
+	}
+
+	@Override
+	public ISelectBuilder min(String... attributePath) {
+		query.min(attributePath);
+		return this;
+	}
+
+	@Override
+	public ISelectBuilder max(String... attributePath) {
+		query.max(attributePath);
+		return this;
+	}
+
+	@Override
+	public ISelectBuilder avg(String... attributePath) {
+		query.avg(attributePath);
+		return this;
+	}
 	
 	@Override
 	public ISelectBuilder as(String alias) {
@@ -180,6 +211,11 @@ public final class SelectFromQueryBuilder implements ISelectBuilder {
         return query.idIn(ids);
     }
 
+    @Override
+    public ISelectBuilder matches(String text) {
+        return query.matches(text);
+    }
+
     @Override
     public ISelectBuilder o() {
         return query.o();
@@ -212,6 +248,20 @@ public final class SelectFromQueryBuilder implements ISelectBuilder {
 		return query.orderBy(asc, attributePath);
 	}
 
+	@Override
+	public ISelectBuilder orderById(boolean asc) {
+		tryApplyFrom();
+
+		return query.orderById(asc);
+	}
+
+	@Override
+	public ISelectBuilder groupBy(String... attrPathOrAlias) {
+		tryApplyFrom();
+
+		return query.groupBy(attrPathOrAlias);
+	}
+
     @Override
     public ITerminalStatement limit(int number) {
 		tryApplyFrom();
@@ -219,6 +269,27 @@ public final class SelectFromQueryBuilder implements ISelectBuilder {
         return query.limit(number);
     }
 
+    @Override
+    public ITerminalStatement offset(int number) {
+		tryApplyFrom();
+
+        return query.offset(number);
+    }
+
+    @Override
+    public ITerminalStatement seekAfter(Serializable id, Object... orderValues) {
+		tryApplyFrom();
+
+        return query.seekAfter(id, orderValues);
+    }
+
+    @Override
+    public ITerminalStatement include(String... relationshipPath) {
+		tryApplyFrom();
+
+        return query.include(relationshipPath);
+    }
+
     @Override
 	public ISelectQuery toQuery() {
 		tryApplyFrom();
@@ -247,6 +318,20 @@ public final class SelectFromQueryBuilder implements ISelectBuilder {
 		return query.cursorResult();
 	}
 
+	@Override
+	public <T> List<T> listResult(QueryCancellationSignal cancellationSignal) {
+		tryApplyFrom();
+
+		return query.listResult(cancellationSignal);
+	}
+
+	@Override
+	public IEntityRecordCursor cursorResult(QueryCancellationSignal cancellationSignal) {
+		tryApplyFrom();
+
+		return query.cursorResult(cancellationSignal);
+	}
+
 	
 	/*
 	 * Métodos auxiliares
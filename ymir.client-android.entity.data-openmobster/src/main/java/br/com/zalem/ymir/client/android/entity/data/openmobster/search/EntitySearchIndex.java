@@ -0,0 +1,370 @@
+package br.com.zalem.ymir.client.android.entity.data.openmobster.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityAttribute;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityMetadata;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityRelationship;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.query.MobileBeanQueryBuilder;
+
+import static br.com.zalem.ymir.client.android.entity.data.openmobster.query.SQLiteQueryBuilder.literal;
+import static br.com.zalem.ymir.client.android.entity.data.openmobster.util.OpenMobsterUtils.quote;
+
+/**
+ * Índice de busca textual dos registros de uma entidade, baseado em uma tabela virtual FTS4 do SQLite.<br>
+ * A tabela possui uma linha por registro, contendo o seu identificador e o texto de todos os atributos pesquisáveis concatenados.
+ * Os atributos pesquisáveis podem pertencer diretamente à entidade ou serem alcançados através de relacionamentos singulares
+ * (por exemplo, <code>["produto", "nome"]</code>). Desta forma, uma busca é resolvida através de uma única consulta ao índice,
+ * ao invés de um <code>LIKE '%texto%'</code> sobre cada atributo, que exige a varredura de todos os registros.<br>
+ * <br>
+ * O texto buscado é quebrado em termos e cada termo é buscado como um prefixo das palavras indexadas. Um registro é encontrado
+ * apenas se todos os termos forem encontrados em algum de seus atributos pesquisáveis. A tabela é mantida sincronizada com os dados
+ * dos canais pelo {@link EntitySearchManager} e só deve ser utilizada nas queries quando o índice estiver pronto ({@link #isReady()}).
+ *
+ * @author Thiago Gesser
+ */
+public final class EntitySearchIndex {
+
+	public static final String RECORDID_COLUMN = "recordid";
+	public static final String CONTENT_COLUMN = "content";
+	public static final String SIMPLE_TOKENIZER = "simple";
+	public static final String UNICODE_TOKENIZER = "unicode61";
+	private static final String TABLE_NAME_PREFIX = "ymir_search_";
+
+	private final EntityMetadata entity;
+	private final String tableName;
+	private final String[][] attributesPaths;
+	//Entidades navegadas por cada caminho, sendo que a primeira sempre é a própria entidade do índice.
+	private final EntityMetadata[][] pathsEntities;
+	private volatile boolean ready;
+
+	public EntitySearchIndex(EntityMetadata entity, String[]... attributesPaths) {
+		if (entity.isInternal()) {
+			throw new IllegalArgumentException("Internal entities cannot have search indexes: " + entity.getName());
+		}
+		if (attributesPaths.length == 0) {
+			throw new IllegalArgumentException("attributesPaths is empty");
+		}
+
+		this.entity = entity;
+		this.tableName = TABLE_NAME_PREFIX + entity.getChannel();
+		this.attributesPaths = attributesPaths;
+
+		pathsEntities = new EntityMetadata[attributesPaths.length][];
+		for (int i = 0; i < attributesPaths.length; i++) {
+			pathsEntities[i] = resolvePathEntities(entity, attributesPaths[i]);
+		}
+	}
+
+	/**
+	 * Obtém a entidade indexada.
+	 *
+	 * @return a entidade obtida.
+	 */
+	public EntityMetadata getEntity() {
+		return entity;
+	}
+
+	/**
+	 * Obtém os caminhos para os atributos pesquisáveis.
+	 *
+	 * @return os caminhos obtidos.
+	 */
+	public String[][] getAttributesPaths() {
+		return attributesPaths;
+	}
+
+	/**
+	 * Obtém o subselect que retorna os identificadores dos registros que atendem a uma busca. O subselect possui um único parâmetro,
+	 * que deve ser preenchido com a expressão gerada pelo {@link #toMatchExpression(List)}.
+	 *
+	 * @return o subselect obtido.
+	 */
+	public String getMatchSubselect() {
+		//A busca é restrita à coluna de conteúdo para que os identificadores dos registros não sejam considerados.
+		return "SELECT " + RECORDID_COLUMN + " FROM " + getTableName() + " WHERE " + CONTENT_COLUMN + " MATCH ?";
+	}
+
+	/**
+	 * Indica se a tabela do índice está criada e sincronizada com os dados dos canais, podendo ser utilizada nas queries.
+	 *
+	 * @return <code>true</code> se o índice está pronto e <code>false</code> caso contrário.
+	 */
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * Obtém os canais de todas as entidades envolvidas no índice, incluindo o da própria entidade indexada.
+	 *
+	 * @return os canais obtidos.
+	 */
+	public Set<String> getChannels() {
+		Set<String> channels = new HashSet<>();
+		for (EntityMetadata[] pathEntities : pathsEntities) {
+			for (EntityMetadata pathEntity : pathEntities) {
+				channels.add(pathEntity.getChannel());
+			}
+		}
+		return channels;
+	}
+
+
+	/**
+	 * Quebra o texto de uma busca nos termos que serão buscados no índice. Os termos são formados apenas por letras e dígitos,
+	 * da mesma forma que as palavras indexadas.<br>
+	 * Apenas as letras ASCII são convertidas para minúsculas, assim como faz o tokenizer {@value #SIMPLE_TOKENIZER} nas palavras indexadas.
+	 * O tokenizer {@value #UNICODE_TOKENIZER} normaliza os termos da expressão de busca da mesma forma que as palavras indexadas,
+	 * então a conversão não interfere nele.
+	 *
+	 * @param text texto da busca.
+	 * @return os termos obtidos, podendo ser uma lista vazia se o texto não possuir nenhuma letra ou dígito.
+	 */
+	public static List<String> tokenize(String text) {
+		List<String> terms = new ArrayList<>();
+		int termStart = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			boolean termChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+			if (termChar) {
+				if (termStart < 0) {
+					termStart = i;
+				}
+			} else if (termStart >= 0) {
+				terms.add(toLowerCaseASCII(text.substring(termStart, i)));
+				termStart = -1;
+			}
+		}
+		return terms;
+	}
+
+	/**
+	 * Gera a expressão <code>MATCH</code> que busca os termos como prefixos das palavras indexadas. Cada termo é colocado entre aspas
+	 * para que não seja interpretado como um operador da sintaxe de busca do FTS (<code>AND</code>, <code>OR</code>, <code>NOT</code>, etc).<br>
+	 * Ex: <code>"caf*" "exp*"</code>
+	 *
+	 * @param terms termos da busca, obtidos através do {@link #tokenize(String)}.
+	 * @return a expressão gerada.
+	 */
+	public static String toMatchExpression(List<String> terms) {
+		StringBuilder sb = new StringBuilder();
+		for (String term : terms) {
+			if (sb.length() > 0) {
+				sb.append(' ');
+			}
+			sb.append('"').append(term).append("*\"");
+		}
+		return sb.toString();
+	}
+
+
+	/*
+	 * Métodos utilizados pelo EntitySearchManager.
+	 */
+
+	void setReady(boolean ready) {
+		this.ready = ready;
+	}
+
+	String getTableName() {
+		return quote(tableName);
+	}
+
+	String getRawTableName() {
+		return tableName;
+	}
+
+	/*
+	 * Obtém a definição do índice, utilizada para identificar se a tabela existente foi criada a partir da configuração atual.
+	 * Ex: Despesa|observacoes|produto.nome|unicode61
+	 */
+	String getDefinition(String tokenizer) {
+		StringBuilder sb = new StringBuilder(entity.getChannel());
+		for (String[] attributePath : attributesPaths) {
+			sb.append('|');
+			for (int i = 0; i < attributePath.length; i++) {
+				if (i > 0) {
+					sb.append('.');
+				}
+				sb.append(attributePath[i]);
+			}
+		}
+		return sb.append('|').append(tokenizer).toString();
+	}
+
+	/*
+	 * Ex: CREATE VIRTUAL TABLE IF NOT EXISTS "ymir_search_X" USING fts4(recordid, content, tokenize=unicode61, prefix="2,3")
+	 * O índice de prefixos acelera a busca de termos curtos, que são os mais comuns durante a digitação.
+	 */
+	String getCreateTableSQL(boolean prefixIndex, String tokenizer) {
+		StringBuilder sb = new StringBuilder("CREATE VIRTUAL TABLE IF NOT EXISTS ").append(getTableName());
+		sb.append(" USING fts4(").append(RECORDID_COLUMN).append(", ").append(CONTENT_COLUMN);
+		sb.append(", tokenize=").append(tokenizer);
+		if (prefixIndex) {
+			sb.append(", prefix=\"2,3\"");
+		}
+		return sb.append(")").toString();
+	}
+
+	String getDropTableSQL() {
+		return "DROP TABLE IF EXISTS " + getTableName();
+	}
+
+	String getDeleteAllSQL() {
+		return "DELETE FROM " + getTableName();
+	}
+
+	//Os parâmetros devem ser os mesmos do subselect de registros passado.
+	String getDeleteSQL(String recordsSubselect) {
+		return "DELETE FROM " + getTableName() + " WHERE " + RECORDID_COLUMN + " IN (" + recordsSubselect + ")";
+	}
+
+	/*
+	 * Obtém o comando que copia os textos dos atributos pesquisáveis dos registros para o índice. Cada atributo é obtido através de
+	 * uma subquery nos canais, navegando pelos relacionamentos quando necessário. Os atributos cujo caminho passa por um canal que
+	 * ainda não possui tabela são considerados nulos. Os parâmetros devem ser os mesmos do subselect de registros passado.
+	 * Ex: INSERT INTO "ymir_search_X" (recordid, content) SELECT r.recordid, ifnull((SELECT f0.value FROM "X" f0 WHERE f0.recordid = r.recordid AND f0.name = 'obs'), '') FROM "X" r WHERE r.name = 'om:json' AND r.recordid IN (?)
+	 */
+	String getFillSQL(Collection<String> existingChannels, String recordsSubselect) {
+		StringBuilder sb = new StringBuilder("INSERT INTO ").append(getTableName());
+		sb.append(" (").append(RECORDID_COLUMN).append(", ").append(CONTENT_COLUMN).append(") SELECT r.").append(RECORDID_COLUMN).append(", ");
+		for (int i = 0; i < attributesPaths.length; i++) {
+			if (i > 0) {
+				sb.append(" || ' ' || ");
+			}
+			sb.append("ifnull(").append(getAttributeValueExpr(i, existingChannels)).append(", '')");
+		}
+		sb.append(" FROM ").append(quote(entity.getChannel())).append(" r WHERE r.name = 'om:json'");
+		if (recordsSubselect != null) {
+			sb.append(" AND r.recordid IN (").append(recordsSubselect).append(")");
+		}
+		return sb.toString();
+	}
+
+	/*
+	 * Obtém o subselect dos registros da entidade indexada que são afetados por uma alteração em um registro do canal, ou seja,
+	 * os registros que alcançam o registro alterado através dos relacionamentos dos caminhos pesquisáveis. Cada parte do subselect
+	 * possui um parâmetro que deve ser preenchido com o identificador do registro alterado (ver getAffectedRecordsParameters).
+	 * Retorna null se nenhum caminho passa pelo canal.
+	 * Ex: SELECT f0.recordid FROM "X" f0 WHERE f0.name = 'produto' AND f0.value IN (?)
+	 */
+	String getAffectedRecordsSubselect(String channel, Collection<String> existingChannels) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < pathsEntities.length; i++) {
+			EntityMetadata[] pathEntities = pathsEntities[i];
+			String[] attributePath = attributesPaths[i];
+			//A primeira entidade é a própria entidade indexada, cujo as alterações são tratadas diretamente.
+			for (int j = 1; j < pathEntities.length; j++) {
+				if (!pathEntities[j].getChannel().equals(channel) || !existsChannels(pathEntities, j, existingChannels)) {
+					continue;
+				}
+
+				//Navega de volta pelos relacionamentos, partindo do registro alterado até os registros da entidade indexada.
+				String idsExpr = "?";
+				for (int k = j-1; k >= 0; k--) {
+					String alias = "f" + k;
+					idsExpr = String.format("SELECT %1$s.recordid FROM %2$s %1$s WHERE %1$s.name = %3$s AND %1$s.value IN (%4$s)", alias, quote(pathEntities[k].getChannel()), literal(attributePath[k]), idsExpr);
+				}
+				if (sb.length() > 0) {
+					sb.append(" UNION ");
+				}
+				sb.append(idsExpr);
+			}
+		}
+		return sb.length() == 0 ? null : sb.toString();
+	}
+
+	//O subselect de registros afetados possui um parâmetro por parte, todos com o identificador do registro alterado.
+	static String[] getAffectedRecordsParameters(String affectedRecordsSubselect, String recordId) {
+		int count = 0;
+		for (int i = 0; i < affectedRecordsSubselect.length(); i++) {
+			if (affectedRecordsSubselect.charAt(i) == '?') {
+				count++;
+			}
+		}
+		String[] parameters = new String[count];
+		Arrays.fill(parameters, recordId);
+		return parameters;
+	}
+
+
+	/*
+	 * Métodos auxiliares
+	 */
+
+	private String getAttributeValueExpr(int pathIndex, Collection<String> existingChannels) {
+		EntityMetadata[] pathEntities = pathsEntities[pathIndex];
+		if (!existsChannels(pathEntities, pathEntities.length, existingChannels)) {
+			return "NULL";
+		}
+
+		//Parte do registro da entidade indexada e navega pelos relacionamentos até o atributo.
+		String[] attributePath = attributesPaths[pathIndex];
+		String valueExpr = "r.recordid";
+		for (int i = 0; i < attributePath.length; i++) {
+			String alias = "f" + i;
+			valueExpr = String.format("(SELECT %1$s.value FROM %2$s %1$s WHERE %1$s.recordid = %3$s AND %1$s.name = %4$s)", alias, quote(pathEntities[i].getChannel()), valueExpr, literal(attributePath[i]));
+		}
+		return valueExpr;
+	}
+
+	private static boolean existsChannels(EntityMetadata[] pathEntities, int count, Collection<String> existingChannels) {
+		for (int i = 0; i < count; i++) {
+			if (!existingChannels.contains(pathEntities[i].getChannel())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static EntityMetadata[] resolvePathEntities(EntityMetadata entity, String[] attributePath) {
+		if (attributePath == null || attributePath.length == 0) {
+			throw new IllegalArgumentException("Invalid attribute path, it cannot be null or empty: " + Arrays.toString(attributePath));
+		}
+
+		EntityMetadata[] pathEntities = new EntityMetadata[attributePath.length];
+		EntityMetadata curEntity = entity;
+		int lastIndex = attributePath.length-1;
+		for (int i = 0; i < lastIndex; i++) {
+			pathEntities[i] = curEntity;
+
+			//Apenas os relacionamentos armazenados na própria entidade (sem mappedBy) podem ser navegados a partir dos seus valores.
+			EntityRelationship relationship = curEntity.getRelationshipsMap().get(attributePath[i]);
+			if (relationship == null || !MobileBeanQueryBuilder.isSupportedRelationship(relationship) || !relationship.isRelatedBySource()) {
+				throw new IllegalArgumentException(String.format("Invalid search path, only single relationships related by source and targeting non-internal entities can be navigated: %s. Entity = %s.", Arrays.toString(attributePath), entity.getName()));
+			}
+			curEntity = relationship.getTarget();
+		}
+		pathEntities[lastIndex] = curEntity;
+
+		EntityAttribute attribute = curEntity.getAttributesMap().get(attributePath[lastIndex]);
+		if (attribute == null) {
+			throw new IllegalArgumentException(String.format("Invalid search path, no attribute found: %s. Entity = %s.", Arrays.toString(attributePath), entity.getName()));
+		}
+		switch (attribute.getType()) {
+			case TEXT:
+			case CHARACTER:
+				break;
+
+			default:
+				//Os demais tipos não são armazenados na forma textual em que são apresentados, então não faz sentido buscá-los.
+				throw new IllegalArgumentException(String.format("Invalid search path, only TEXT and CHARACTER attributes can be searched: %s. Entity = %s.", Arrays.toString(attributePath), entity.getName()));
+		}
+		return pathEntities;
+	}
+
+	private static String toLowerCaseASCII(String term) {
+		char[] chars = term.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			char c = chars[i];
+			if (c >= 'A' && c <= 'Z') {
+				chars[i] = (char) (c + ('a' - 'A'));
+			}
+		}
+		return new String(chars);
+	}
+}
@@ -0,0 +1,294 @@
+package br.com.zalem.ymir.client.android.entity.data.openmobster.search;
+
+import android.database.Cursor;
+
+import org.openmobster.android.api.sync.MobileBean;
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObject;
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObjectDatabase;
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObjectDatabase.IMobileObjectDatabaseListener;
+import org.openmobster.core.mobileCloud.android.service.Registry;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import br.com.zalem.ymir.client.android.entity.data.openmobster.util.OpenMobsterUtils;
+
+import static br.com.zalem.ymir.client.android.entity.data.openmobster.util.OpenMobsterUtils.executeSQL;
+
+/**
+ * Gerenciador dos índices de busca das entidades ({@link EntitySearchIndex}).<br>
+ * Após o início do OpenMobster, garante que as tabelas dos índices existam de acordo com a definição atual, reconstruindo-as
+ * a partir dos dados dos canais quando os atributos pesquisáveis foram alterados. A partir daí, mantém os índices sincronizados
+ * através dos eventos de criação/atualização/exclusão de objetos do OpenMobster, o que abrange tanto as alterações feitas pelos DAOs
+ * quanto as provenientes da sincronização com a nuvem. As alterações nos registros alcançados através dos relacionamentos também
+ * são refletidas nos registros que os referenciam.<br>
+ * <br>
+ * Os índices podem ser adicionados a qualquer momento, pois normalmente são definidos a partir das configurações de interface.
+ * As definições dos índices existentes são mantidas na tabela <code>ymir_search_definition</code>.
+ *
+ * @see org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObjectDatabase
+ *
+ * @author Thiago Gesser
+ */
+public final class EntitySearchManager implements IMobileObjectDatabaseListener {
+
+	private static final String DEFINITIONS_TABLE = "ymir_search_definition";
+
+	//Os índices podem ser adicionados enquanto os eventos do OpenMobster são recebidos, então as estruturas precisam ser concorrentes.
+	private final Map<String, EntitySearchIndex> indexesByChannel;
+	//Canais que já possuem tabela. Os caminhos que passam por canais sem tabela são considerados nulos.
+	private final Set<String> existingChannels;
+	private volatile boolean started;
+	private boolean prefixIndex;
+	private String tokenizer;
+
+	public EntitySearchManager() {
+		indexesByChannel = new ConcurrentHashMap<>();
+		existingChannels = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	}
+
+	/**
+	 * Inicia o gerenciamento dos índices. Se o OpenMobster ainda não foi iniciado, os índices serão preparados
+	 * logo após o seu início. Até lá, os índices não estarão prontos e as buscas serão feitas diretamente sobre os canais.
+	 */
+	public void start() {
+		if (Registry.isActiveAndStarted()) {
+			initialize();
+		} else {
+			Registry.executeAfterStart(new Runnable() {
+				@Override
+				public void run() {
+					initialize();
+				}
+			}, true);
+		}
+	}
+
+	/**
+	 * Adiciona um índice ao gerenciador. Se o gerenciador já foi iniciado, o índice é preparado imediatamente.
+	 *
+	 * @param index o índice que será adicionado.
+	 * @throws IllegalStateException se já há um índice para a entidade.
+	 */
+	public void addIndex(EntitySearchIndex index) {
+		String channel = index.getEntity().getChannel();
+		if (indexesByChannel.containsKey(channel)) {
+			throw new IllegalStateException("The entity already has a search index: " + index.getEntity().getName());
+		}
+
+		if (!started) {
+			indexesByChannel.put(channel, index);
+			return;
+		}
+
+		//Só passa a tratar os eventos do índice depois que a sua tabela estiver preparada.
+		MobileBean.beginTransaction();
+		try {
+			loadExistingChannels(index);
+			prepare(index);
+			indexesByChannel.put(channel, index);
+
+			MobileBean.setTransactionSuccessful();
+		} finally {
+			MobileBean.endTransaction();
+		}
+		index.setReady(true);
+	}
+
+	/**
+	 * Reconstrói o índice a partir dos dados atuais dos canais.<br>
+	 * Normalmente não é necessário chamar este método, pois os índices são mantidos sincronizados automaticamente.
+	 *
+	 * @param index o índice que será reconstruído.
+	 */
+	public void rebuild(EntitySearchIndex index) {
+		if (indexesByChannel.get(index.getEntity().getChannel()) != index) {
+			throw new IllegalArgumentException("The search index is not managed by this manager. Entity = " + index.getEntity().getName());
+		}
+		if (!started) {
+			throw new IllegalStateException("The OpenMobster is not started yet.");
+		}
+
+		//Enquanto o índice é reconstruído, as buscas voltam a ser feitas sobre os canais.
+		index.setReady(false);
+		MobileBean.beginTransaction();
+		try {
+			executeSQL(index.getDeleteAllSQL());
+			fill(index);
+
+			MobileBean.setTransactionSuccessful();
+		} finally {
+			MobileBean.endTransaction();
+		}
+		index.setReady(true);
+	}
+
+
+	@Override
+	public void onMobileObjectCreated(MobileObject mo, String id) {
+		//O primeiro objeto criado em um canal também cria a sua tabela.
+		String channel = mo.getStorageId();
+		existingChannels.add(channel);
+
+		update(channel, id);
+	}
+
+	@Override
+	public void onMobileObjectUpdated(MobileObject mo) {
+		update(mo.getStorageId(), mo.getRecordId());
+	}
+
+	@Override
+	public void onMobileObjectDeleted(MobileObject mo) {
+		String channel = mo.getStorageId();
+		String recordId = mo.getRecordId();
+		for (EntitySearchIndex index : indexesByChannel.values()) {
+			if (index.getEntity().getChannel().equals(channel)) {
+				executeSQL(index.getDeleteSQL("?"), recordId);
+			}
+
+			//Os registros que alcançavam o registro excluído passam a ter os seus atributos como nulos.
+			refillAffected(index, channel, recordId);
+		}
+	}
+
+	@Override
+	public void onAllMobileObjectsDeleted(String channel) {
+		for (EntitySearchIndex index : indexesByChannel.values()) {
+			if (index.getEntity().getChannel().equals(channel)) {
+				executeSQL(index.getDeleteAllSQL());
+			} else if (index.getChannels().contains(channel)) {
+				//Todos os registros podem ter sido afetados, então reconstrói o índice inteiro.
+				MobileBean.beginTransaction();
+				try {
+					executeSQL(index.getDeleteAllSQL());
+					fill(index);
+
+					MobileBean.setTransactionSuccessful();
+				} finally {
+					MobileBean.endTransaction();
+				}
+			}
+		}
+	}
+
+	@Override
+	public void beforeMobileObjectCreated(MobileObject mobileObject) {
+	}
+
+	@Override
+	public void beforeMobileObjectDeleted(MobileObject mobileObject) {
+	}
+
+	@Override
+	public void beforeMobileObjectUpdated(MobileObject mobileObject) {
+	}
+
+
+	/*
+	 * Métodos auxiliares
+	 */
+
+	private void initialize() {
+		prefixIndex = OpenMobsterUtils.isSQLiteVersionAtLeast(3, 7, 9);
+		//O tokenizer "simple" só trata a caixa dos caracteres ASCII, então o "unicode61" é utilizado sempre que disponível.
+		tokenizer = OpenMobsterUtils.isSQLiteVersionAtLeast(3, 7, 13) ? EntitySearchIndex.UNICODE_TOKENIZER : EntitySearchIndex.SIMPLE_TOKENIZER;
+
+		MobileObjectDatabase moDB = MobileObjectDatabase.getInstance();
+		//Pode ser chamado a cada início do OpenMobster, então garante que não será registrado mais de uma vez.
+		moDB.removeListener(this);
+
+		//Prepara os índices e registra o listener na mesma transação para que nenhuma alteração nos canais seja perdida.
+		MobileBean.beginTransaction();
+		try {
+			executeSQL("CREATE TABLE IF NOT EXISTS " + DEFINITIONS_TABLE + " (tablename TEXT PRIMARY KEY, definition TEXT)");
+			for (EntitySearchIndex index : indexesByChannel.values()) {
+				index.setReady(false);
+				loadExistingChannels(index);
+				prepare(index);
+			}
+			moDB.addListener(this);
+
+			MobileBean.setTransactionSuccessful();
+		} finally {
+			MobileBean.endTransaction();
+		}
+
+		started = true;
+		for (EntitySearchIndex index : indexesByChannel.values()) {
+			index.setReady(true);
+		}
+	}
+
+	private void prepare(EntitySearchIndex index) {
+		//Se os atributos pesquisáveis ou o tokenizer mudaram, recria a tabela do zero.
+		String tableName = index.getRawTableName();
+		String definition = index.getDefinition(tokenizer);
+		if (definition.equals(getStoredDefinition(tableName)) && OpenMobsterUtils.existsTable(tableName)) {
+			return;
+		}
+
+		executeSQL(index.getDropTableSQL());
+		executeSQL(index.getCreateTableSQL(prefixIndex, tokenizer));
+		fill(index);
+		executeSQL("INSERT OR REPLACE INTO " + DEFINITIONS_TABLE + " (tablename, definition) VALUES (?, ?)", tableName, definition);
+	}
+
+	private void update(String channel, String recordId) {
+		for (EntitySearchIndex index : indexesByChannel.values()) {
+			if (index.getEntity().getChannel().equals(channel)) {
+				refill(index, "?", recordId);
+			}
+
+			refillAffected(index, channel, recordId);
+		}
+	}
+
+	private void refillAffected(EntitySearchIndex index, String channel, String recordId) {
+		String affectedRecordsSubselect = index.getAffectedRecordsSubselect(channel, existingChannels);
+		if (affectedRecordsSubselect != null) {
+			refill(index, affectedRecordsSubselect, EntitySearchIndex.getAffectedRecordsParameters(affectedRecordsSubselect, recordId));
+		}
+	}
+
+	private void refill(EntitySearchIndex index, String recordsSubselect, String... parameters) {
+		//As tabelas FTS não possuem chave primária além do rowid, então as linhas dos registros são excluídas e inseridas novamente.
+		MobileBean.beginTransaction();
+		try {
+			executeSQL(index.getDeleteSQL(recordsSubselect), parameters);
+			executeSQL(index.getFillSQL(existingChannels, recordsSubselect), parameters);
+
+			MobileBean.setTransactionSuccessful();
+		} finally {
+			MobileBean.endTransaction();
+		}
+	}
+
+	private void fill(EntitySearchIndex index) {
+		//Se o canal ainda não possui tabela (não recebeu dados), não há dados a serem indexados.
+		if (!existingChannels.contains(index.getEntity().getChannel())) {
+			return;
+		}
+
+		executeSQL(index.getFillSQL(existingChannels, null));
+	}
+
+	private void loadExistingChannels(EntitySearchIndex index) {
+		for (String channel : index.getChannels()) {
+			if (!existingChannels.contains(channel) && OpenMobsterUtils.existsTable(channel)) {
+				existingChannels.add(channel);
+			}
+		}
+	}
+
+	private static String getStoredDefinition(String tableName) {
+		Cursor cursor = MobileBean.rawQuery("SELECT definition FROM " + DEFINITIONS_TABLE + " WHERE tablename = ?", new String[] {tableName});
+		try {
+			return cursor.moveToFirst() ? cursor.getString(0) : null;
+		} finally {
+			cursor.close();
+		}
+	}
+}
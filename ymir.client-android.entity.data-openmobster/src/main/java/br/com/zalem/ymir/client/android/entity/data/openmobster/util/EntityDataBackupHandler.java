@@ -1,6 +1,7 @@
 package br.com.zalem.ymir.client.android.entity.data.openmobster.util;
 
 import android.content.Context;
+import android.database.Cursor;
 
 import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonGenerator;
@@ -9,8 +10,11 @@ import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.openmobster.android.api.sync.MobileBean;
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObject;
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObjectDatabase;
 import org.openmobster.core.mobileCloud.android.storage.DBException;
 import org.openmobster.core.mobileCloud.android.storage.Database;
+import org.openmobster.core.mobileCloud.android.storage.Record;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -23,6 +27,9 @@ import java.util.HashMap;
 import java.util.Map;
 
 import br.com.zalem.ymir.client.android.entity.data.openmobster.MobileBeanEntityDataManager;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.blob.EntityBlobStore;
+
+import static br.com.zalem.ymir.client.android.entity.data.openmobster.util.OpenMobsterUtils.quote;
 
 /**
  * Auxiliar na criação/recuperação de backups dos dados das entidades baseados em {@link MobileBean}.
@@ -31,7 +38,15 @@ import br.com.zalem.ymir.client.android.entity.data.openmobster.MobileBeanEntity
  * A parte de dados agrega todos os registros das entidades definidas para o backup, permitindo sua recuperação posterior.<br>
  * <br>
  * Os dados do backup são salvos através de algoritmos versionados. Desta forma, não importa o quão evoluído esteja o algoritmo atual de
- * salvamento dos registros, sempre será possivel recuperar backups antigos através dos algoritmos de versões anteriores.
+ * salvamento dos registros, sempre será possivel recuperar backups antigos através dos algoritmos de versões anteriores.<br>
+ * <br>
+ * A partir da versão 2, os registros são gravados e recuperados um a um, sem que todos os dados de um canal precisem ser carregados na memória.
+ * Desta forma, o consumo de memória se mantém constante independente do tamanho do backup. O andamento da criação/recuperação pode ser
+ * acompanhado através de um {@link IBackupProgressListener}.<br>
+ * <br>
+ * A partir da versão 3, se o gerenciador possuir um {@link EntityBlobStore armazenamento de blobs}, os blobs referenciados pelos registros
+ * são gravados entre o cabeçalho e os dados. Cada blob é transmitido diretamente entre o seu arquivo e o backup, sem ser carregado na memória,
+ * e é recuperado antes dos registros que o referenciam.
  *
  * @see MobileBeanJsonSerializer
  *
@@ -40,10 +55,23 @@ import br.com.zalem.ymir.client.android.entity.data.openmobster.MobileBeanEntity
 public final class EntityDataBackupHandler {
 
     private static final String HEADER_FIELD = "header";
+    private static final String BLOBS_FIELD = "blobs";
     private static final String DATA_FIELD = "data";
 
+    private static final String BLOB_HASH_FIELD = "hash";
+    private static final String BLOB_DATA_FIELD = "data";
+
+    private static final String ENTITY_FIELD = "entity";
+    private static final String CHANNEL_FIELD = "channelName";
+    private static final String RECORDS_FIELD = "records";
+
     private static final String BACKUP_VERSION_1 = "1";
-    private static final String CURRENT_BACKUP_VERSION = BACKUP_VERSION_1;
+    private static final String BACKUP_VERSION_2 = "2";
+    private static final String BACKUP_VERSION_3 = "3";
+    private static final String CURRENT_BACKUP_VERSION = BACKUP_VERSION_3;
+
+    //Intervalo de notificação do andamento, em quantidade de registros.
+    private static final int BATCH_SIZE = 200;
 
     private final Context context;
     private final MobileBeanEntityDataManager dataManager;
@@ -68,9 +96,22 @@ public final class EntityDataBackupHandler {
      * @throws DBException se houve algum problema na leitura dos dados.
      */
     public void createBackup(File file, String... entities) throws IOException, DBException {
+        createBackup(file, null, entities);
+    }
+
+    /**
+     * Cria um backup no arquivo a partir dos registros atuais das entidades, notificando o andamento da gravação.
+     *
+     * @param file arquivo em que o backup será salvo.
+     * @param listener ouvinte do andamento da gravação. <b>parâmetro opcional</b>.
+     * @param entities entidades cujo os dados serão salvos.
+     * @throws IOException se houve algum problema na gravação do arquivo.
+     * @throws DBException se houve algum problema na leitura dos dados.
+     */
+    public void createBackup(File file, IBackupProgressListener listener, String... entities) throws IOException, DBException {
         FileOutputStream out = new FileOutputStream(file);
         try {
-            createBackup(out, entities);
+            createBackup(out, listener, entities);
         } finally {
             out.close();
         }
@@ -85,9 +126,22 @@ public final class EntityDataBackupHandler {
      * @throws DBException se houve algum problema na leitura dos registros.
      */
     public void createBackup(OutputStream out, String... entities) throws IOException, DBException {
+        createBackup(out, null, entities);
+    }
+
+    /**
+     * Cria um backup na saída de dados a partir dos registros atuais das entidades, notificando o andamento da gravação.
+     *
+     * @param out saida de dados.
+     * @param listener ouvinte do andamento da gravação. <b>parâmetro opcional</b>.
+     * @param entities entidades cujo os dados serão salvos.
+     * @throws IOException se houve algum problema na gravação do arquivo.
+     * @throws DBException se houve algum problema na leitura dos registros.
+     */
+    public void createBackup(OutputStream out, IBackupProgressListener listener, String... entities) throws IOException, DBException {
         JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
         generator.writeStartObject();
-        writeBackup(generator, CURRENT_BACKUP_VERSION, entities);
+        writeBackup(generator, CURRENT_BACKUP_VERSION, listener, entities);
         generator.writeEndObject();
         generator.close();
     }
@@ -101,9 +155,22 @@ public final class EntityDataBackupHandler {
      * @throws DBException se houve algum problema na substituição dos registros.
      */
     public void restoreBackup(File file) throws IOException, DBException {
+        restoreBackup(file, null);
+    }
+
+    /**
+     * Recupera um backup do arquivo, substituindo os registros atuais das entidades definidas no backup pelos contidos nele.
+     * O andamento da recuperação é notificado ao ouvinte.
+     *
+     * @param file arquivo que contém o backup.
+     * @param listener ouvinte do andamento da recuperação. <b>parâmetro opcional</b>.
+     * @throws IOException se houve algum problema na leitura do arquivo.
+     * @throws DBException se houve algum problema na substituição dos registros.
+     */
+    public void restoreBackup(File file, IBackupProgressListener listener) throws IOException, DBException {
         FileInputStream in = new FileInputStream(file);
         try {
-            restoreBackup(in);
+            restoreBackup(in, listener);
         } finally {
             in.close();
         }
@@ -117,6 +184,21 @@ public final class EntityDataBackupHandler {
      * @throws DBException se houve algum problema na substituição dos registros.
      */
     public void restoreBackup(InputStream in) throws IOException, DBException {
+        restoreBackup(in, null);
+    }
+
+    /**
+     * Recupera um backup da entrada de dados, substituindo os registros atuais das entidades definidas no backup pelos contidos nele.
+     * O andamento da recuperação é notificado ao ouvinte.<br>
+     * Os registros são substituídos em uma única transação, então se houver algum problema no meio da recuperação, os registros
+     * atuais são mantidos.
+     *
+     * @param in entrada de dados.
+     * @param listener ouvinte do andamento da recuperação. <b>parâmetro opcional</b>.
+     * @throws IOException se houve algum problema na leitura do arquivo.
+     * @throws DBException se houve algum problema na substituição dos registros.
+     */
+    public void restoreBackup(InputStream in, IBackupProgressListener listener) throws IOException, DBException {
         JsonParser parser = objectMapper.getFactory().createParser(in);
         try {
             MobileBeanBackupHeader header = null;
@@ -129,6 +211,11 @@ public final class EntityDataBackupHandler {
                     header = objectMapper.readValue(parser, MobileBeanBackupHeader.class);
                 }
 
+                if (BLOBS_FIELD.equals(fieldName)) {
+                    parser.nextToken();
+                    restoreBackupBlobs(parser);
+                }
+
                 if (DATA_FIELD.equals(fieldName)) {
                     if (header == null) {
                         throw new IOException(String.format("No %s found before %s declaration.", HEADER_FIELD, DATA_FIELD));
@@ -139,6 +226,11 @@ public final class EntityDataBackupHandler {
                         case BACKUP_VERSION_1:
                             restoreBackupData_v1(parser);
                             break;
+                        case BACKUP_VERSION_2:
+                        case BACKUP_VERSION_3:
+                            //A versão 3 apenas adicionou os blobs, mantendo o formato dos dados.
+                            restoreBackupData_v2(parser, header, listener);
+                            break;
 
                         default:
                             throw new IllegalArgumentException("Unsupported backup version: " + header.getVersion());
@@ -201,7 +293,7 @@ public final class EntityDataBackupHandler {
      * Métodos auxiliares
      */
 
-    private void writeBackup(JsonGenerator generator, String version, String... entities) throws IOException, DBException {
+    private void writeBackup(JsonGenerator generator, String version, IBackupProgressListener listener, String... entities) throws IOException, DBException {
         Map<String, Integer> entitiesTotals = new HashMap<>();
         Database database = Database.getInstance(context);
         String[] channels = new String[entities.length];
@@ -220,12 +312,23 @@ public final class EntityDataBackupHandler {
         MobileBeanBackupHeader header = new MobileBeanBackupHeader(version, entitiesTotals);
         objectMapper.writeValue(generator, header);
 
+        //Blobs
+        EntityBlobStore blobStore = dataManager.getBlobStore();
+        if (blobStore != null && !BACKUP_VERSION_1.equals(version) && !BACKUP_VERSION_2.equals(version)) {
+            generator.writeFieldName(BLOBS_FIELD);
+            writeBackupBlobs(generator, blobStore, channels);
+        }
+
         //Data
         generator.writeFieldName(DATA_FIELD);
         switch (version) {
             case BACKUP_VERSION_1:
                 writeBackupData_v1(generator, channels);
                 break;
+            case BACKUP_VERSION_2:
+            case BACKUP_VERSION_3:
+                writeBackupData_v2(generator, entities, channels, entitiesTotals, listener);
+                break;
 
             default:
                 throw new IllegalArgumentException("Unsupported backup version: " + version);
@@ -263,10 +366,230 @@ public final class EntityDataBackupHandler {
     }
 
 
+    /*
+     * Algoritmos da versão 2 de serialização/deserialização de dados.
+     */
+
+    private void writeBackupData_v2(JsonGenerator generator, String[] entities, String[] channels, Map<String, Integer> entitiesTotals,
+                                    IBackupProgressListener listener) throws IOException {
+        generator.writeStartArray();
+        for (int i = 0; i < channels.length; i++) {
+            String entity = entities[i];
+            String channel = channels[i];
+            int total = entitiesTotals.get(entity);
+
+            generator.writeStartObject();
+            generator.writeStringField(ENTITY_FIELD, entity);
+            generator.writeStringField(CHANNEL_FIELD, channel);
+            generator.writeArrayFieldStart(RECORDS_FIELD);
+            //O OpenMobster só cria a tabela do canal quando ele recebe o primeiro registro.
+            if (OpenMobsterUtils.existsTable(channel)) {
+                writeChannelRecords_v2(generator, entity, channel, total, listener);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    private void writeChannelRecords_v2(JsonGenerator generator, String entity, String channel, int total, IBackupProgressListener listener) throws IOException {
+        //Percorre as linhas de nome/valor ordenadas pelo registro, gravando cada registro assim que todas as suas linhas forem lidas.
+        Cursor cursor = MobileBean.rawQuery("SELECT recordid, name, value FROM " + quote(channel) + " ORDER BY recordid", new String[0]);
+        try {
+            String currentRecordId = null;
+            int count = 0;
+            while (cursor.moveToNext()) {
+                String recordId = cursor.getString(0);
+                if (!recordId.equals(currentRecordId)) {
+                    if (currentRecordId != null) {
+                        generator.writeEndObject();
+                        if (++count % BATCH_SIZE == 0) {
+                            notifyProgress(listener, entity, count, total);
+                        }
+                    }
+                    generator.writeStartObject();
+                    currentRecordId = recordId;
+                }
+                generator.writeStringField(cursor.getString(1), cursor.getString(2));
+            }
+            if (currentRecordId != null) {
+                generator.writeEndObject();
+                count++;
+            }
+            notifyProgress(listener, entity, count, total);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void restoreBackupData_v2(JsonParser parser, MobileBeanBackupHeader header, IBackupProgressListener listener) throws IOException, DBException {
+        //A exclusão e a recuperação dos registros de todos os canais ficam na mesma transação para que uma falha no meio da recuperação
+        //não deixe os canais vazios ou parcialmente recuperados.
+        Database db = Database.getInstance(context);
+        db.beginTransaction();
+        try {
+            restoreChannels_v2(parser, header, listener);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private void restoreChannels_v2(JsonParser parser, MobileBeanBackupHeader header, IBackupProgressListener listener) throws IOException, DBException {
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            String entity = null;
+            String channel = null;
+            while (parser.nextToken() != JsonToken.END_OBJECT) {
+                String fieldName = parser.getCurrentName();
+                parser.nextToken();
+
+                switch (fieldName) {
+                    case ENTITY_FIELD:
+                        entity = parser.getText();
+                        break;
+                    case CHANNEL_FIELD:
+                        channel = parser.getText();
+                        break;
+                    case RECORDS_FIELD:
+                        if (channel == null) {
+                            throw new IOException(String.format("No %s found before %s declaration.", CHANNEL_FIELD, RECORDS_FIELD));
+                        }
+                        restoreChannelRecords_v2(parser, entity, channel, getTotal(header, entity), listener);
+                        break;
+
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private void restoreChannelRecords_v2(JsonParser parser, String entity, String channel, int total, IBackupProgressListener listener) throws IOException, DBException {
+        MobileObjectDatabase objDB = MobileObjectDatabase.getInstance();
+        objDB.deleteAll(channel);
+
+        int count = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            Map<String, String> recordValues = new HashMap<>();
+            while (parser.nextToken() != JsonToken.END_OBJECT) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                recordValues.put(name, parser.getValueAsString());
+            }
+
+            //Salva a partir de MobileObject ao invés de Record para utilizar o contorno para o problema de valores nulos do OpenMobster.
+            objDB.create(new MobileObject(new Record(recordValues)));
+
+            if (++count % BATCH_SIZE == 0) {
+                notifyProgress(listener, entity, count, total);
+            }
+        }
+        notifyProgress(listener, entity, count, total);
+    }
+
+
+    /*
+     * Algoritmos de serialização/deserialização dos blobs, a partir da versão 3.
+     */
+
+    private void writeBackupBlobs(JsonGenerator generator, EntityBlobStore blobStore, String[] channels) throws IOException {
+        generator.writeStartArray();
+        for (String hash : blobStore.getReferencedHashes(channels)) {
+            //O blob pode estar faltando se ainda não foi transferido para este dispositivo.
+            File file = blobStore.getFile(hash);
+            if (!file.exists()) {
+                continue;
+            }
+
+            generator.writeStartObject();
+            generator.writeStringField(BLOB_HASH_FIELD, hash);
+            generator.writeFieldName(BLOB_DATA_FIELD);
+            InputStream in = blobStore.open(hash);
+            try {
+                generator.writeBinary(in, (int) file.length());
+            } finally {
+                in.close();
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    private void restoreBackupBlobs(JsonParser parser) throws IOException {
+        EntityBlobStore blobStore = dataManager.getBlobStore();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (blobStore == null) {
+                throw new IOException("The backup contains blobs, but there is no blob store defined.");
+            }
+
+            String hash = null;
+            while (parser.nextToken() != JsonToken.END_OBJECT) {
+                String fieldName = parser.getCurrentName();
+                parser.nextToken();
+
+                switch (fieldName) {
+                    case BLOB_HASH_FIELD:
+                        hash = parser.getText();
+                        break;
+                    case BLOB_DATA_FIELD:
+                        if (hash == null) {
+                            throw new IOException(String.format("No %s found before %s declaration.", BLOB_HASH_FIELD, BLOB_DATA_FIELD));
+                        }
+                        //Os blobs já armazenados não precisam ser gravados novamente, pois o conteúdo é o mesmo.
+                        if (blobStore.contains(hash)) {
+                            break;
+                        }
+                        OutputStream out = blobStore.openOutput(hash);
+                        try {
+                            parser.readBinaryValue(out);
+                        } finally {
+                            out.close();
+                        }
+                        break;
+
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private static int getTotal(MobileBeanBackupHeader header, String entity) {
+        Map<String, Integer> totals = header.getTotals();
+        if (entity == null || totals == null) {
+            return -1;
+        }
+        Integer total = totals.get(entity);
+        return total == null ? -1 : total;
+    }
+
+    private static void notifyProgress(IBackupProgressListener listener, String entity, int count, int total) {
+        if (listener != null) {
+            listener.onProgress(entity, count, total);
+        }
+    }
+
+
     /*
      * Classe auxiliares.
      */
 
+    /**
+     * Ouvinte do andamento da criação/recuperação de um backup.<br>
+     * As notificações ocorrem na mesma thread da criação/recuperação, então o ouvinte não deve realizar processamentos demorados.
+     */
+    public interface IBackupProgressListener {
+
+        /**
+         * Chamado periodicamente durante a gravação/recuperação dos registros de uma entidade e uma última vez quando todos os seus registros foram processados.
+         *
+         * @param entity nome da entidade cujo os registros estão sendo processados. Pode ser <code>null</code> em backups que não declaram as entidades.
+         * @param count quantidade de registros da entidade processados até o momento.
+         * @param total quantidade total de registros da entidade ou <code>-1</code> se ela não for conhecida.
+         */
+        void onProgress(String entity, int count, int total);
+    }
+
     /**
      * Representa o cabeçalho de um backup de Mobile Beans.
      */
@@ -0,0 +1,115 @@
+package br.com.zalem.ymir.client.android.entity.data.openmobster.util;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+/**
+ * Utilitário para a obtenção de imagens em tamanhos reduzidos.<br>
+ * As imagens podem ser reduzidas de duas formas: através de miniaturas (<code>thumbnails</code>) geradas previamente, cujo
+ * tamanho corresponde ao maior lado da imagem, ou através da decodificação com amostragem ({@link BitmapFactory.Options#inSampleSize}),
+ * que descarta pixels durante a própria decodificação. Em ambos os casos, a imagem reduzida nunca é menor do que o tamanho alvo,
+ * a não ser que a própria imagem original seja menor.
+ *
+ * @author Thiago Gesser
+ */
+public final class ImageUtils {
+
+	private ImageUtils() {}
+
+	/**
+	 * Obtém o tamanho da menor miniatura que atende ao tamanho alvo, ou seja, cujas dimensões são maiores ou iguais às dimensões alvo.
+	 *
+	 * @param thumbnails tamanhos das miniaturas disponíveis, ordenados do menor para o maior.
+	 * @param width largura da imagem original.
+	 * @param height altura da imagem original.
+	 * @param targetWidth largura alvo.
+	 * @param targetHeight altura alvo.
+	 * @return o tamanho da miniatura obtida ou <code>-1</code> se nenhuma miniatura menor que a imagem original atende ao tamanho alvo.
+	 */
+	public static int getThumbnailSize(int[] thumbnails, int width, int height, int targetWidth, int targetHeight) {
+		int maxSide = Math.max(width, height);
+		for (int size : thumbnails) {
+			//Miniaturas do tamanho da imagem ou maiores não trazem ganho.
+			if (size >= maxSide) {
+				break;
+			}
+
+			if ((long) width * size >= (long) targetWidth * maxSide && (long) height * size >= (long) targetHeight * maxSide) {
+				return size;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Calcula a maior amostragem (potência de 2) com a qual a imagem decodificada continua maior ou igual ao tamanho alvo.
+	 *
+	 * @param width largura da imagem original.
+	 * @param height altura da imagem original.
+	 * @param targetWidth largura alvo.
+	 * @param targetHeight altura alvo.
+	 * @return a amostragem calculada, sendo <code>1</code> se a imagem não pode ser reduzida.
+	 */
+	public static int calculateInSampleSize(int width, int height, int targetWidth, int targetHeight) {
+		int sampleSize = 1;
+		while (width / (sampleSize * 2) >= targetWidth && height / (sampleSize * 2) >= targetHeight) {
+			sampleSize *= 2;
+		}
+		return sampleSize;
+	}
+
+	/**
+	 * Decodifica a imagem com a maior amostragem possível para o tamanho alvo.
+	 *
+	 * @param data dados da imagem.
+	 * @param targetWidth largura alvo.
+	 * @param targetHeight altura alvo.
+	 * @return a imagem decodificada ou <code>null</code> se os dados não representam uma imagem válida.
+	 */
+	public static Bitmap decodeSampledImage(byte[] data, int targetWidth, int targetHeight) {
+		//Obtém apenas as dimensões primeiro, sem alocar os pixels da imagem.
+		BitmapFactory.Options options = new BitmapFactory.Options();
+		options.inJustDecodeBounds = true;
+		BitmapFactory.decodeByteArray(data, 0, data.length, options);
+		if (options.outWidth <= 0 || options.outHeight <= 0) {
+			return null;
+		}
+
+		options.inJustDecodeBounds = false;
+		options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, targetWidth, targetHeight);
+		return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+	}
+
+	/**
+	 * Cria a miniatura da imagem, mantendo as suas proporções.
+	 *
+	 * @param image a imagem.
+	 * @param size tamanho da miniatura, correspondente ao seu maior lado.
+	 * @return a miniatura criada ou a própria imagem se ela não for maior que o tamanho da miniatura.
+	 */
+	public static Bitmap createThumbnail(Bitmap image, int size) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int maxSide = Math.max(width, height);
+		if (maxSide <= size) {
+			return image;
+		}
+
+		int thumbnailWidth = Math.max(1, Math.round((float) width * size / maxSide));
+		int thumbnailHeight = Math.max(1, Math.round((float) height * size / maxSide));
+		return Bitmap.createScaledBitmap(image, thumbnailWidth, thumbnailHeight, true);
+	}
+
+	/**
+	 * Verifica se o tamanho alvo é válido.
+	 *
+	 * @param targetWidth largura alvo.
+	 * @param targetHeight altura alvo.
+	 * @throws IllegalArgumentException se alguma das dimensões não for positiva.
+	 */
+	public static void checkTargetSize(int targetWidth, int targetHeight) {
+		if (targetWidth <= 0 || targetHeight <= 0) {
+			throw new IllegalArgumentException(String.format("The target size must be positive: %dx%d.", targetWidth, targetHeight));
+		}
+	}
+}
@@ -5,20 +5,29 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.content.SharedPreferences.Editor;
 import android.content.res.Resources;
+import android.database.Cursor;
 import android.os.AsyncTask;
 import android.util.Log;
 
+import org.openmobster.android.api.sync.MobileBean;
 import org.openmobster.core.mobileCloud.android.configuration.AppSystemConfig;
 import org.openmobster.core.mobileCloud.android.configuration.Configuration;
+import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObject;
 import org.openmobster.core.mobileCloud.android.module.mobileObject.MobileObjectDatabase;
 import org.openmobster.core.mobileCloud.android.module.sync.SyncException;
 import org.openmobster.core.mobileCloud.android.module.sync.SyncService;
 import org.openmobster.core.mobileCloud.android.storage.DBException;
+import org.openmobster.core.mobileCloud.android.storage.Record;
 import org.openmobster.core.mobileCloud.android_native.framework.CloudService;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import br.com.zalem.ymir.client.android.entity.data.openmobster.util.MobileBeanJsonSerializer.MobileBeanChannelDataInfo;
 
@@ -29,6 +38,16 @@ import br.com.zalem.ymir.client.android.entity.data.openmobster.util.MobileBeanJ
  */
 public final class OpenMobsterUtils {
 
+    /**
+     * Quantidade máxima de ids passados como parâmetros em uma única consulta. O SQLite limita a quantidade de parâmetros por comando
+     * (999 por padrão), então deixa uma margem para os demais parâmetros da consulta.
+     */
+    public static final int MAX_IDS_PER_QUERY = 900;
+
+    private static Constructor<MobileBean> mobileBeanConstructor;
+    private static boolean mobileBeanConstructorResolved;
+    private static final List<ChannelsBootListener> channelsBootListeners = new CopyOnWriteArrayList<>();
+
     private OpenMobsterUtils() {
     }
 
@@ -158,12 +177,32 @@ public final class OpenMobsterUtils {
             configuration.setBooted(channel, booted);
         }
         configuration.save(context);
+        notifyChannelsBootChanged();
 
         if (isDeviceActivated()) {
             CloudService.getInstance().backgroundSync();
         }
     }
 
+    /**
+     * Adiciona um listener da inicialização dos canais. Ele é notificado sempre que a inicialização dos canais é alterada por este utilitário,
+     * seja na ativação offline, na atualização dos dados das populações ou através do {@link #bootChannels(Context, boolean, String...)}.
+     *
+     * @param listener o listener que será adicionado.
+     */
+    public static void addChannelsBootListener(ChannelsBootListener listener) {
+        channelsBootListeners.add(listener);
+    }
+
+    /**
+     * Remove um listener da inicialização dos canais adicionado através do {@link #addChannelsBootListener(ChannelsBootListener)}.
+     *
+     * @param listener o listener que será removido.
+     */
+    public static void removeChannelsBootListener(ChannelsBootListener listener) {
+        channelsBootListeners.remove(listener);
+    }
+
     /**
      * Limpa o log de alterações (criações, mudanças e exclusões) nos dados dos canais.
      */
@@ -179,6 +218,111 @@ public final class OpenMobsterUtils {
         }
     }
 
+    /**
+     * Executa um comando SQL que não retorna dados (DDL, INSERT, DELETE, etc.) diretamente no banco do OpenMobster.<br>
+     * O OpenMobster só permite a execução de SQL através do {@link MobileBean#rawQuery(String, String[])}, então o cursor retornado
+     * é percorrido apenas para forçar a execução do comando. A execução é sempre feita dentro de uma transação, garantindo que
+     * o comando seja feito na conexão de escrita do banco.
+     *
+     * @param sql o comando SQL.
+     * @param parameters parâmetros do comando.
+     */
+    public static void executeSQL(String sql, String... parameters) {
+        MobileBean.beginTransaction();
+        try {
+            Cursor cursor = MobileBean.rawQuery(sql, parameters);
+            try {
+                //Os comandos só são executados de fato quando o cursor é percorrido.
+                cursor.moveToFirst();
+            } finally {
+                cursor.close();
+            }
+
+            MobileBean.setTransactionSuccessful();
+        } finally {
+            MobileBean.endTransaction();
+        }
+    }
+
+    /**
+     * Coloca o identificador (nome de tabela ou coluna) entre aspas duplas, escapando as aspas contidas nele, de forma que ele possa
+     * ser utilizado em um comando SQL mesmo que possua caracteres especiais.
+     *
+     * @param identifier o identificador.
+     * @return o identificador entre aspas.
+     */
+    public static String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Verifica se a tabela existe no banco do OpenMobster. As tabelas dos canais só são criadas quando eles recebem seus primeiros dados.
+     *
+     * @param tableName nome da tabela.
+     * @return <code>true</code> se a tabela existe e <code>false</code> caso contrário.
+     */
+    public static boolean existsTable(String tableName) {
+        Cursor cursor = MobileBean.rawQuery("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?", new String[] {tableName});
+        try {
+            return cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Verifica se a versão do SQLite utilizado pelo OpenMobster é igual ou superior à versão definida. A versão do SQLite varia de
+     * acordo com a versão do Android, então este método pode ser utilizado para verificar o suporte a recursos mais recentes.
+     *
+     * @param major número principal da versão.
+     * @param minor número secundário da versão.
+     * @param release número de lançamento da versão.
+     * @return <code>true</code> se a versão do SQLite é igual ou superior e <code>false</code> caso contrário.
+     */
+    public static boolean isSQLiteVersionAtLeast(int major, int minor, int release) {
+        Cursor cursor = MobileBean.rawQuery("SELECT sqlite_version()", new String[0]);
+        try {
+            cursor.moveToFirst();
+            //Ex: 3.8.10.2
+            String[] version = cursor.getString(0).split("\\.");
+            int[] expected = {major, minor, release};
+            for (int i = 0; i < expected.length; i++) {
+                int number = i < version.length ? Integer.parseInt(version[i]) : 0;
+                if (number != expected[i]) {
+                    return number > expected[i];
+                }
+            }
+            return true;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Cria um {@link MobileBean} a partir dos valores de um registro lidos diretamente da tabela do canal, sem precisar
+     * consultar o banco novamente como o {@link MobileBean#readById(String, String)} faz.<br>
+     * O OpenMobster não disponibiliza publicamente a criação de um MobileBean a partir de um {@link MobileObject}, então o
+     * construtor é acessado via reflexão. Se o construtor não estiver disponível ou falhar (como em uma versão diferente do
+     * OpenMobster), a criação deixa de ser tentada e o MobileBean deve ser lido através do {@link MobileBean#readById(String, String)}.
+     *
+     * @param state valores de todas as linhas do registro (inclusive a <code>om:json</code>), indexados pelo nome.
+     * @return o MobileBean criado ou <code>null</code> se ele não pode ser criado desta forma.
+     */
+    public static MobileBean newMobileBean(Map<String, String> state) {
+        Constructor<MobileBean> constructor = getMobileBeanConstructor();
+        if (constructor == null) {
+            return null;
+        }
+
+        try {
+            return constructor.newInstance(new MobileObject(new Record(state)));
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException | RuntimeException e) {
+            Log.w(OpenMobsterUtils.class.getSimpleName(), "Error creating a MobileBean from its rows, falling back to MobileBean.readById.", e);
+            disableMobileBeanConstructor();
+            return null;
+        }
+    }
+
 
 	/*
 	 * Métodos/classes auxiliares
@@ -189,6 +333,30 @@ public final class OpenMobsterUtils {
         return context.getSharedPreferences("OfflinePopulationsVersions", Context.MODE_PRIVATE);
     }
 
+    private static synchronized Constructor<MobileBean> getMobileBeanConstructor() {
+        if (!mobileBeanConstructorResolved) {
+            mobileBeanConstructorResolved = true;
+            try {
+                Constructor<MobileBean> constructor = MobileBean.class.getDeclaredConstructor(MobileObject.class);
+                constructor.setAccessible(true);
+                mobileBeanConstructor = constructor;
+            } catch (NoSuchMethodException | SecurityException e) {
+                Log.w(OpenMobsterUtils.class.getSimpleName(), "MobileBean(MobileObject) constructor not available, falling back to MobileBean.readById.", e);
+            }
+        }
+        return mobileBeanConstructor;
+    }
+
+    private static synchronized void disableMobileBeanConstructor() {
+        mobileBeanConstructor = null;
+    }
+
+    private static void notifyChannelsBootChanged() {
+        for (ChannelsBootListener listener : channelsBootListeners) {
+            listener.onChannelsBootChanged();
+        }
+    }
+
 
     /**
      * Thread que executa o processo de ativação offline do OpenMobster.
@@ -247,6 +415,7 @@ public final class OpenMobsterUtils {
             //Define que a app está pronta para ser utilizada e salva a configuração.
             config.setActive(true);
             config.save(context);
+            notifyChannelsBootChanged();
         }
 
         private void initializeChannel(String channel, Configuration config, MobileObjectDatabase moDB) throws DBException {
@@ -312,6 +481,7 @@ public final class OpenMobsterUtils {
             } finally {
                 //Define que todos os canais já podem ser utilizados normalmente.
                 config.setBooting(false);
+                notifyChannelsBootChanged();
             }
         }
     }
@@ -356,6 +526,17 @@ public final class OpenMobsterUtils {
 		}
 	}
 
+    /**
+     * Listener da alteração na inicialização dos canais, adicionado através do {@link #addChannelsBootListener(ChannelsBootListener)}.
+     */
+    public interface ChannelsBootListener {
+
+        /**
+         * Chamado após a inicialização dos canais ser alterada. Pode ser chamado em qualquer Thread.
+         */
+        void onChannelsBootChanged();
+    }
+
     /**
      * Listener da finalização do processo de ativação (online) do dispositivo no servidor.
      */
@@ -5,6 +5,7 @@ import java.sql.Date;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.text.ParseException;
+import java.util.Calendar;
 
 import org.openmobster.core.mobileCloud.android.util.Base64;
 
@@ -185,6 +186,53 @@ public final class TypeUtils {
 		}
 	}
 
+	/**
+	 * Converte um valor String do tipo <code>data</code>, <code>hora</code> ou <code>data e hora</code> em milissegundos desde a época,
+	 * obtendo o mesmo resultado que o <code>getTime()</code> dos valores retornados por {@link #convertToDate(String)},
+	 * {@link #convertToTime(String)} e {@link #convertToDatetime(String)}.<br>
+	 * Os valores no formato padrão de armazenamento são interpretados diretamente, sem a criação de objetos intermediários.
+	 * Os demais são delegados para os métodos de conversão do tipo.
+	 *
+	 * @param strValue valor string.
+	 * @param type tipo do valor.
+	 * @param calendar calendário que será utilizado no cálculo. Pode ser reutilizado entre as chamadas.
+	 * @return o valor convertido ou <code>0</code> se o valor String for nulo.
+	 * @throws java.text.ParseException se a String não representava um valor de acordo com o seu tipo de campo.
+	 */
+	public static long convertToMillis(String strValue, EntityAttributeType type, Calendar calendar) throws ParseException {
+		if (strValue == null) {
+			return 0;
+		}
+
+		long millis;
+		switch (type) {
+			case DATE:
+				//Ex: 2016-05-31
+				millis = parseMillis(strValue, 0, -1, calendar);
+				if (millis == -1) {
+					return convertToDate(strValue).getTime();
+				}
+				return millis;
+			case TIME:
+				//Ex: 18:30:00
+				millis = parseMillis(strValue, -1, 0, calendar);
+				if (millis == -1) {
+					return convertToTime(strValue).getTime();
+				}
+				return millis;
+			case DATETIME:
+				//Ex: 2016-05-31 18:30:00.0
+				millis = parseMillis(strValue, 0, 11, calendar);
+				if (millis == -1) {
+					return convertToDatetime(strValue).getTime();
+				}
+				return millis;
+
+			default:
+				throw new IllegalArgumentException("Invalid EntityAttributeType: " + type);
+		}
+	}
+
 	/**
 	 * Converte um valor String em um valor do tipo <code>caractere</code>.
 	 * 
@@ -231,4 +279,104 @@ public final class TypeUtils {
 			throw new ParseException(strValue, -1);
 		}
 	}
+
+	/**
+	 * Converte um valor String em um valor do tipo <code>imagem</code>, decodificando-a com a maior amostragem possível para o tamanho alvo.
+	 *
+	 * @param strValue valor string.
+	 * @param targetWidth largura alvo.
+	 * @param targetHeight altura alvo.
+	 * @return o valor convertido.
+	 * @throws java.text.ParseException se a String não representava um valor do tipo <code>imagem</code>.
+	 * @see ImageUtils#decodeSampledImage(byte[], int, int)
+	 */
+	public static Bitmap convertToImage(String strValue, int targetWidth, int targetHeight) throws ParseException {
+		if (strValue == null) {
+			return null;
+		}
+
+		try {
+			byte[] imageBytes = Base64.decode(strValue);
+			Bitmap bitmap = ImageUtils.decodeSampledImage(imageBytes, targetWidth, targetHeight);
+			if (bitmap == null) {
+				throw new ParseException(strValue, -1);
+			}
+
+			return bitmap;
+		} catch (IOException e) {
+			throw new ParseException(strValue, -1);
+		}
+	}
+
+
+	/*
+	 * Métodos auxiliares
+	 */
+
+	private static long parseMillis(String strValue, int datePos, int timePos, Calendar calendar) {
+		int year = 1970, month = 1, day = 1, hour = 0, minute = 0, second = 0, milli = 0;
+		int length = strValue.length();
+		if (datePos != -1) {
+			if (length < datePos + 10 || strValue.charAt(datePos + 4) != '-' || strValue.charAt(datePos + 7) != '-') {
+				return -1;
+			}
+			year = parseDigits(strValue, datePos, datePos + 4);
+			month = parseDigits(strValue, datePos + 5, datePos + 7);
+			day = parseDigits(strValue, datePos + 8, datePos + 10);
+			if (year == -1 || month == -1 || day == -1) {
+				return -1;
+			}
+
+			//Se possui apenas a data, o valor deve terminar nela.
+			if (timePos == -1 && length != datePos + 10) {
+				return -1;
+			}
+			if (timePos != -1 && (length < timePos || strValue.charAt(timePos - 1) != ' ')) {
+				return -1;
+			}
+		}
+
+		if (timePos != -1) {
+			if (length < timePos + 8 || strValue.charAt(timePos + 2) != ':' || strValue.charAt(timePos + 5) != ':') {
+				return -1;
+			}
+			hour = parseDigits(strValue, timePos, timePos + 2);
+			minute = parseDigits(strValue, timePos + 3, timePos + 5);
+			second = parseDigits(strValue, timePos + 6, timePos + 8);
+			if (hour == -1 || minute == -1 || second == -1) {
+				return -1;
+			}
+
+			//A data e hora pode ter a fração de segundos (até nanossegundos), da qual apenas os milissegundos são considerados.
+			int fractionPos = timePos + 9;
+			if (length > timePos + 8) {
+				if (datePos == -1 || strValue.charAt(timePos + 8) != '.' || length == fractionPos || length > fractionPos + 9) {
+					return -1;
+				}
+				if (parseDigits(strValue, fractionPos, length) == -1) {
+					return -1;
+				}
+				for (int i = fractionPos; i < fractionPos + 3; i++) {
+					milli = milli * 10 + (i < length ? strValue.charAt(i) - '0' : 0);
+				}
+			}
+		}
+
+		calendar.clear();
+		calendar.set(year, month - 1, day, hour, minute, second);
+		calendar.set(Calendar.MILLISECOND, milli);
+		return calendar.getTimeInMillis();
+	}
+
+	private static int parseDigits(String strValue, int start, int end) {
+		int value = 0;
+		for (int i = start; i < end; i++) {
+			char c = strValue.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
 }
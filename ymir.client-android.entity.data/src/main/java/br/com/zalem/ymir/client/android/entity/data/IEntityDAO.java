@@ -3,14 +3,18 @@ package br.com.zalem.ymir.client.android.entity.data;
 import android.os.Parcelable;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.List;
 
+import br.com.zalem.ymir.client.android.entity.data.IEntityDataManager.AbstractReadyListener;
 import br.com.zalem.ymir.client.android.entity.data.cursor.IEntityRecordCursor;
 import br.com.zalem.ymir.client.android.entity.data.metadata.IEntityMetadata;
 import br.com.zalem.ymir.client.android.entity.data.query.select.ISelectBuilder;
 import br.com.zalem.ymir.client.android.entity.data.query.select.ISelectFromStatement;
 import br.com.zalem.ymir.client.android.entity.data.query.select.ISelectQuery;
 import br.com.zalem.ymir.client.android.entity.data.query.select.NonUniqueResultException;
+import br.com.zalem.ymir.client.android.entity.data.query.select.QueryCanceledException;
+import br.com.zalem.ymir.client.android.entity.data.query.select.QueryCancellationSignal;
 
 /**
  * Acessor de dados de uma entidade. Provê a obtenção e a manipulação de registros da entidade.
@@ -39,6 +43,15 @@ public interface IEntityDAO {
 	 * @return <code>true</code> se estiverem prontos ou <code>false</code> caso contrário.
 	 */
 	boolean isReady();
+
+	/**
+	 * Aguarda até que os registros da entidade de dados estejam prontos para serem manipulados ({@link #isReady()} == <code>true</code>),
+	 * notificando o listener quando isto ocorrer. Se os registros já estiverem prontos, o listener é notificado imediatamente,
+	 * na própria Thread da chamada. Caso contrário, é notificado em uma Thread de background.
+	 *
+	 * @param listener o listener que será notificado.
+	 */
+	void awaitReady(AbstractReadyListener listener);
 	
 	/**
 	 * Cria um novo registro da entidade de dados, utilizando um identificador gerado autoamticamente.
@@ -70,6 +83,21 @@ public interface IEntityDAO {
 	 * @throws IllegalStateException se os registros da entidade de dados ainda não estiverem prontos para serem manipulados.
 	 */
 	boolean save(IEntityRecord record, boolean sync);
+
+    /**
+     * Salva um lote de registros da entidade de dados em uma única transação, da mesma forma que o {@link #save(IEntityRecord, boolean)}.<br>
+     * Os registros relacionados compartilhados por vários registros do lote são salvos apenas uma vez e, se a sincronização foi ligada,
+     * ela é agendada apenas uma vez para todo o lote.<br>
+     * <br>
+     * Uma falha no salvamento de um registro não interrompe o salvamento dos demais. Os registros que não puderam ser salvos são
+     * retornados ao final, mas os registros relacionados que já haviam sido salvos por eles permanecem salvos.
+     *
+     * @param records os registros que serão salvos.
+     * @param sync define se a sincronização com a fonte de dados será ligada ou não.
+     * @return os registros que não puderam ser salvos ou uma lista vazia se todos foram salvos com sucesso.
+     * @throws IllegalStateException se os registros da entidade de dados ainda não estiverem prontos para serem manipulados.
+     */
+    List<IEntityRecord> saveAll(Collection<? extends IEntityRecord> records, boolean sync);
 	
 	/**
 	 * Exclui o registro da entidade de dados, de forma que ele não possa mais ser recuperado posteriormente.<br>
@@ -86,6 +114,33 @@ public interface IEntityDAO {
      * @throws RelationshipViolationException se o registro não pode ser excluído porque há outros registros que apontam pra ele.
 	 */
 	boolean delete(IEntityRecord record, boolean sync) throws RelationshipViolationException;
+
+    /**
+     * Exclui um conjunto de registros da entidade de dados em uma única transação, da mesma forma que o {@link #delete(IEntityRecord, boolean)}.<br>
+     * A integridade referencial é verificada para o conjunto inteiro de uma vez, considerando também os registros das composições
+     * que serão excluídos. Desta forma, as referências feitas entre os próprios registros excluídos não impedem a exclusão.<br>
+     * Se algum registro não puder ser excluído, nenhum registro será excluído.
+     *
+     * @param records os registros que serão excluídos.
+     * @param sync define se a sincronização com a fonte de dados será ligada ou não.
+     * @return <code>true</code> se os registros foram excluídos com sucesso e <code>false</code> caso contrário.
+     * @throws IllegalStateException se os registros da entidade de dados ainda não estiverem prontos para serem manipulados.
+     * @throws RelationshipViolationException se algum registro não pode ser excluído porque há outros registros que apontam pra ele.
+     */
+    boolean deleteAll(Collection<? extends IEntityRecord> records, boolean sync) throws RelationshipViolationException;
+
+    /**
+     * Exclui os registros da entidade de dados que atendem à query, da mesma forma que o {@link #deleteAll(Collection, boolean)}.<br>
+     * A query deve selecionar os registros inteiros desta entidade, sem campos definidos.
+     *
+     * @param query a query que define os registros que serão excluídos.
+     * @param sync define se a sincronização com a fonte de dados será ligada ou não.
+     * @return <code>true</code> se os registros foram excluídos com sucesso e <code>false</code> caso contrário.
+     * @throws IllegalArgumentException se a query selecionar campos ou se ela não for desta entidade.
+     * @throws IllegalStateException se os registros da entidade de dados ainda não estiverem prontos para serem manipulados.
+     * @throws RelationshipViolationException se algum registro não pode ser excluído porque há outros registros que apontam pra ele.
+     */
+    boolean deleteWhere(ISelectQuery query, boolean sync) throws RelationshipViolationException;
 	
 	/**
 	 * Atualiza os dados do registro de acordo com a sua versão salva mais recente.<br>
@@ -139,7 +194,26 @@ public interface IEntityDAO {
      * @throws IllegalStateException se os registros da entidade de dados ainda não estiverem prontos para serem manipulados.
      */
     boolean isEmpty();
-	
+
+    /**
+     * Habilita a busca textual nos registros da entidade, através da restrição {@link br.com.zalem.ymir.client.android.entity.data.query.select.IConditionStatement#matches(String)}.<br>
+     * Os textos dos atributos pesquisáveis são mantidos em um índice de busca, atualizado automaticamente conforme os registros
+     * são salvos ou sincronizados. Desta forma, a busca não precisa percorrer os valores de todos os registros.
+     *
+     * @param attributesPaths caminhos para os atributos pesquisáveis. Cada caminho pode ser diretamente um atributo da entidade
+     * ou um caminho que parte dela, navega por relacionamentos singulares e chega no atributo desejado.
+     * @throws IllegalArgumentException se algum caminho não levar a um atributo de texto.
+     * @throws IllegalStateException se a busca já foi habilitada para a entidade.
+     */
+    void enableSearch(String[]... attributesPaths);
+
+    /**
+     * Verifica se a busca textual foi habilitada para a entidade através do {@link #enableSearch(String[]...)}.
+     *
+     * @return <code>true</code> se a busca foi habilitada e <code>false</code> caso contrário.
+     */
+    boolean isSearchEnabled();
+
 	/**
 	 * Chama o método {@link #select(boolean)} passando <code>false</code> como parâmetro.
 	 * 
@@ -207,6 +281,17 @@ public interface IEntityDAO {
 	 * @return os resultados da execução em uma lista.
 	 */
 	<T> List<T> executeListSelect(ISelectQuery query);
+
+	/**
+	 * Executa a query de seleção de dados da mesma forma que o {@link #executeListSelect(ISelectQuery)}, mas permitindo
+	 * que a execução seja interrompida através do sinal de cancelamento.
+	 *
+	 * @param query a query que será executada.
+	 * @param cancellationSignal sinal de cancelamento da execução. Pode ser <code>null</code>.
+	 * @return os resultados da execução em uma lista.
+	 * @throws QueryCanceledException se o sinal foi cancelado durante a execução.
+	 */
+	<T> List<T> executeListSelect(ISelectQuery query, QueryCancellationSignal cancellationSignal);
 	
 	/**
 	 * Executa a query de seleção de dados e retorna um cursor para a manipulação dos resultados.<br>
@@ -215,6 +300,17 @@ public interface IEntityDAO {
 	 * @return o cursor de manipulação dos resultados.
 	 */
 	IEntityRecordCursor executeCursorSelect(ISelectQuery query);
+
+	/**
+	 * Executa a query de seleção de dados da mesma forma que o {@link #executeCursorSelect(ISelectQuery)}, mas permitindo
+	 * que a execução e a obtenção dos registros do cursor sejam interrompidas através do sinal de cancelamento.
+	 *
+	 * @param query a query que será executada.
+	 * @param cancellationSignal sinal de cancelamento da execução. Pode ser <code>null</code>.
+	 * @return o cursor de manipulação dos resultados.
+	 * @throws QueryCanceledException se o sinal foi cancelado durante a execução.
+	 */
+	IEntityRecordCursor executeCursorSelect(ISelectQuery query, QueryCancellationSignal cancellationSignal);
 	
 	/**
 	 * Obtém o estado atual de um registro e salvo-o em um objeto {@link android.os.Parcelable}.<br>
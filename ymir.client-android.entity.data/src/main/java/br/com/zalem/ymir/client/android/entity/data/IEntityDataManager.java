@@ -1,8 +1,12 @@
 package br.com.zalem.ymir.client.android.entity.data;
 
+import java.io.Serializable;
+import java.util.Set;
+
 import br.com.zalem.ymir.client.android.entity.data.metadata.IEntityMetadata;
 import br.com.zalem.ymir.client.android.entity.data.query.IQueryBuilder;
 import br.com.zalem.ymir.client.android.entity.data.query.IQueryStatement;
+import br.com.zalem.ymir.client.android.entity.data.query.select.ISelectQuery;
 import br.com.zalem.ymir.client.android.entity.data.view.RelationshipArrayView;
 
 /**
@@ -10,7 +14,8 @@ import br.com.zalem.ymir.client.android.entity.data.view.RelationshipArrayView;
  * Possui o registro das entidades suportadas, disponibilizando meios para obter
  * seus metadados através do método {@link #getEntityMetadata(String)} e seus acessores de dados através do método
  * {@link #getEntityDAO(String)}.<br>
- * Também permite a criação de queries a partir do método {@link #query()}.
+ * Também permite a criação de queries a partir do método {@link #query()} e a observação das alterações nos seus dados
+ * através do método {@link #observe(ISelectQuery, AbstractQueryObserver)}.
  *
  * @author Thiago Gesser
  */
@@ -71,6 +76,32 @@ public interface IEntityDataManager {
      */
     IQueryBuilder newQueryBuilder();
 
+    /**
+     * Passa a observar as alterações nos dados lidos pela query, notificando o observador quando elas ocorrerem. São consideradas
+     * tanto as alterações feitas através dos DAOs quanto as provenientes da sincronização com a nuvem.<br>
+     * As alterações são agrupadas: o observador só é notificado após um breve período sem novas alterações, de forma que uma
+     * rajada de alterações (como a chegada de vários registros na sincronização) gere apenas uma notificação. As notificações são feitas
+     * em uma Thread de background e a observação continua até a chamada do {@link AbstractQueryObserver#stop()}.<br>
+     * Queries que não leem a fonte de dados deste gerenciador (como as de DAOs em memória) são aceitas, mas nunca geram notificações.
+     *
+     * @param query a query que será observada.
+     * @param observer o observador que será notificado sobre as alterações.
+     */
+    void observe(ISelectQuery query, AbstractQueryObserver observer);
+
+    /**
+     * Aguarda até que os registros das entidades especificadas estejam prontos para serem manipulados ({@link IEntityDAO#isReady()} == <code>true</code>),
+     * notificando o listener quando isto ocorrer. A prontidão é avaliada a partir dos eventos da fonte de dados (como a inicialização dos dados),
+     * sem a necessidade de verificações periódicas por parte de quem aguarda.<br>
+     * Se os registros já estiverem prontos, o listener é notificado imediatamente, na própria Thread da chamada. Caso contrário, é notificado
+     * em uma Thread de background. A espera pode ser cancelada através do {@link AbstractReadyListener#cancel()}.
+     *
+     * @param listener o listener que será notificado.
+     * @param entitiesNames nomes das entidades aguardadas. Se nenhum nome for definido, todas as entidades do gerenciador são aguardadas.
+     * @throws IllegalArgumentException se não houver uma entidade registrada com algum dos nomes.
+     */
+    void awaitReady(AbstractReadyListener listener, String... entitiesNames);
+
 
     /**
      * Exclui todos os registros das entidades especificadas.<br>
@@ -148,4 +179,77 @@ public interface IEntityDataManager {
             this.finishing = finishing;
         }
     }
-}
+
+
+    /**
+     * Observador das alterações nos dados de uma query, utilizado no método {@link #observe(ISelectQuery, AbstractQueryObserver)}.<br>
+     * A observação pode ser encerrada a qualquer momento através do método {@link #stop()}, sendo que nenhuma notificação
+     * é feita a partir daí.
+     */
+    abstract class AbstractQueryObserver {
+
+        private boolean stopped;
+
+        /**
+         * Chamado quando os dados lidos pela query foram alterados. Executado em uma Thread de background.<br>
+         * Se as alterações se restringem aos registros da entidade fonte da query, seus identificadores são informados (incluindo os dos
+         * registros criados e excluídos), permitindo que apenas estes registros sejam verificados. Caso contrário, como nas alterações
+         * dos registros relacionados, qualquer registro do resultado pode ter sido afetado.
+         *
+         * @param query a query observada.
+         * @param changedIds identificadores dos registros da entidade fonte que foram alterados ou <code>null</code> se todo o resultado
+         * da query pode ter sido afetado.
+         */
+        public abstract void onQueryChanged(ISelectQuery query, Set<Serializable> changedIds);
+
+
+        /**
+         * Encerra a observação da query.
+         */
+        public synchronized final void stop() {
+            stopped = true;
+        }
+
+        /**
+         * Indica se a observação da query foi encerrada.
+         *
+         * @return <code>true</code> se a observação foi encerrada e <code>false</code> caso contrário.
+         */
+        public synchronized final boolean isStopped() {
+            return stopped;
+        }
+    }
+
+
+    /**
+     * Listener da prontidão dos registros de entidades, utilizado nos métodos {@link #awaitReady(AbstractReadyListener, String...)} e
+     * {@link IEntityDAO#awaitReady(AbstractReadyListener)}.<br>
+     * A espera pode ser cancelada a qualquer momento através do método {@link #cancel()}, sendo que nenhuma notificação é feita a partir daí.
+     */
+    abstract class AbstractReadyListener {
+
+        private boolean canceled;
+
+        /**
+         * Chamado uma única vez, quando os registros das entidades aguardadas estiverem prontos para serem manipulados.
+         */
+        public abstract void onReady();
+
+
+        /**
+         * Cancela a espera pela prontidão dos registros.
+         */
+        public synchronized final void cancel() {
+            canceled = true;
+        }
+
+        /**
+         * Indica se a espera pela prontidão dos registros foi cancelada.
+         *
+         * @return <code>true</code> se a espera foi cancelada e <code>false</code> caso contrário.
+         */
+        public synchronized final boolean isCanceled() {
+            return canceled;
+        }
+    }
+}
\ No newline at end of file
@@ -203,6 +203,37 @@ public interface IEntityRecord {
 	 * @throws IllegalArgumentException se a entidade não possuir o atributo ou se o valor não era um <code>imagem</code>.
 	 */
 	Bitmap getImageValue(String attribute, boolean fromCache);
+
+	/**
+	 * Obtém um valor do tipo <code>imagem</code> do registro de acordo com o nome do atributo, reduzido para o tamanho alvo.
+	 * A imagem obtida pode ser uma miniatura gerada previamente ou a própria imagem decodificada com amostragem, mas nunca
+	 * é menor do que o tamanho alvo (a não ser que a imagem original seja menor). Desta forma, se a imagem for exibida em
+	 * tamanho reduzido, apenas os pixels necessários são decodificados.<br>
+	 * Assim como o {@link #getImageValue(String)}, tenta obter a imagem primeiramente do <code>cache de imagens</code>.
+	 *
+	 * @param attribute nome do atributo.
+	 * @param targetWidth largura alvo, em pixels.
+	 * @param targetHeight altura alvo, em pixels.
+	 * @return o valor obtido ou <code>null</code> se não havia valor designado para o atributo.
+	 * @throws IllegalArgumentException se a entidade não possuir o atributo, se o valor não era um <code>imagem</code> ou se o tamanho alvo não for positivo.
+	 */
+	Bitmap getImageValue(String attribute, int targetWidth, int targetHeight);
+
+	/**
+	 * Obtém um valor do tipo <code>imagem</code> do registro de acordo com o nome do atributo, reduzido para o tamanho alvo,
+	 * escolhendo se ele vai ser obtido do <code>cache de imagens</code> ou dos dados do registro.<br>
+	 * As recomendações de uso são as mesmas do {@link #getImageValue(String, boolean)}.
+	 *
+	 * @param attribute nome do atributo.
+	 * @param targetWidth largura alvo, em pixels.
+	 * @param targetHeight altura alvo, em pixels.
+	 * @param fromCache <code>true</code> se for para obter a imagem do cache e <code>false</code> se for para obtê-la dos dados do registro.
+	 * @return <code>fromCache = true</code>: a imagem obtida ou <code>null</code> caso ela não esteja no cache.<br>
+	 * 		   <code>fromCache = false</code>: a imagem obtida ou <code>null</code> se não havia valor designado para o atributo.
+	 * @throws IllegalArgumentException se a entidade não possuir o atributo, se o valor não era um <code>imagem</code> ou se o tamanho alvo não for positivo.
+	 * @see #getImageValue(String, int, int)
+	 */
+	Bitmap getImageValue(String attribute, int targetWidth, int targetHeight, boolean fromCache);
 	
 	/**
 	 * Obtém um valor do tipo <code>registro de entidade</code> proveniente de um relacionamento deste registro, de acordo com o nome do relacionamento.
@@ -415,7 +446,8 @@ public interface IEntityRecord {
 	void setCharacterValue(String attribute, Character value);
 	
 	/**
-	 * Define um valor do tipo <code>imagem</code> no registro de acordo com o nome do atributo.
+	 * Define um valor do tipo <code>imagem</code> no registro de acordo com o nome do atributo.<br>
+	 * A imagem pode ser mantida pelo registro até o seu salvamento (adiando a codificação), então ela não deve ser alterada ou reciclada depois de definida.
 	 * 
 	 * @param attribute nome do atributo.
 	 * @param value valor que será definido.
@@ -1,5 +1,6 @@
 package br.com.zalem.ymir.client.android.entity.data.cursor;
 
+import java.io.Serializable;
 import java.sql.Date;
 import java.sql.Time;
 import java.sql.Timestamp;
@@ -144,6 +145,18 @@ public interface IEntityRecordCursor {
      * @return <code>true</code> se o valor é nulo e <code>false</code> caso contrário.
      */
     boolean isNull(int fieldIndex);
+
+    /**
+     * Verifica se o valor do campo que seleciona determinado caminho é nulo. Se mais de um campo seleciona o caminho
+     * (como um atributo e um agregado sobre ele), considera o primeiro.<br>
+     * Em laços sobre muitos resultados, é preferível obter o índice através do {@link #getFieldIndex(String)} uma única
+     * vez e utilizar o {@link #isNull(int)}.
+     *
+     * @param fieldPath caminho do campo, composto pelos nomes dos relacionamentos seguidos pelo nome do atributo.
+     * @return <code>true</code> se o valor é nulo e <code>false</code> caso contrário.
+     * @throws IllegalArgumentException se nenhum campo seleciona o caminho.
+     */
+    boolean isNull(String... fieldPath);
     
     
     /**
@@ -163,6 +176,37 @@ public interface IEntityRecordCursor {
 	 * @throws IllegalArgumentException se o campo não for do tipo <code>decimal</code> ou se o valor não estiver de acordo com o tipo do campo.
 	 */
 	Double getDecimalValue(int fieldIndex);
+
+	/**
+	 * Obtém o valor do tipo <code>inteiro</code> do campo requisitado como um primitivo, sem a criação de objetos.<br>
+	 * Os valores nulos são retornados como <code>0</code>, então devem ser diferenciados através do {@link #isNull(int)}.
+	 *
+	 * @param fieldIndex índice de base zero do campo.
+	 * @return o valor obtido.
+	 * @throws IllegalArgumentException se o campo não for do tipo <code>inteiro</code>.
+	 */
+	int getInt(int fieldIndex);
+
+	/**
+	 * Obtém o valor do tipo <code>inteiro</code> do campo requisitado como um primitivo <code>long</code>, sem a criação de objetos.
+	 * Útil para a obtenção de agregados (como a soma) que podem ultrapassar os limites do <code>int</code>.<br>
+	 * Os valores nulos são retornados como <code>0</code>, então devem ser diferenciados através do {@link #isNull(int)}.
+	 *
+	 * @param fieldIndex índice de base zero do campo.
+	 * @return o valor obtido.
+	 * @throws IllegalArgumentException se o campo não for do tipo <code>inteiro</code>.
+	 */
+	long getLong(int fieldIndex);
+
+	/**
+	 * Obtém o valor do tipo <code>decimal</code> ou <code>inteiro</code> do campo requisitado como um primitivo, sem a criação de objetos.<br>
+	 * Os valores nulos são retornados como <code>0</code>, então devem ser diferenciados através do {@link #isNull(int)}.
+	 *
+	 * @param fieldIndex índice de base zero do campo.
+	 * @return o valor obtido.
+	 * @throws IllegalArgumentException se o campo não for do tipo <code>decimal</code> ou <code>inteiro</code>.
+	 */
+	double getDouble(int fieldIndex);
 	
     /**
 	 * Obtém o valor do tipo <code>texto</code> do campo requisitado.
@@ -209,6 +253,19 @@ public interface IEntityRecordCursor {
      * @throws IllegalArgumentException se o campo não for do tipo <code>data e hora</code> ou se o valor não estiver de acordo com o tipo do campo.
      */
     Timestamp getDatetimeValue(int fieldIndex);
+
+    /**
+     * Obtém o valor do tipo <code>data</code>, <code>hora</code> ou <code>data e hora</code> do campo requisitado como
+     * milissegundos desde a época, da mesma forma que o <code>getTime()</code> dos objetos retornados pelos métodos
+     * {@link #getDateValue(int)}, {@link #getTimeValue(int)} e {@link #getDatetimeValue(int)}, mas sem criá-los.<br>
+     * Os valores nulos são retornados como <code>0</code>, então devem ser diferenciados através do {@link #isNull(int)}.
+     *
+     * @param fieldIndex índice de base zero do campo.
+     * @return o valor obtido.
+     * @throws IllegalArgumentException se o campo não for do tipo <code>data</code>, <code>hora</code> ou <code>data e hora</code>
+     * ou se o valor não estiver de acordo com o tipo do campo.
+     */
+    long getDateMillis(int fieldIndex);
 	
     /**
 	 * Obtém o valor do tipo <code>caractere</code> do campo requisitado.
@@ -244,6 +301,14 @@ public interface IEntityRecordCursor {
 	 * @return o registro obtido ou <code>null</code> caso o registro da posição corrente não exista mais.
 	 */
 	IEntityRecord getEntityRecord();
+
+	/**
+	 * Obtém o identificador do registro completo da posição corrente, sem a necessidade de obter o registro em si.<br>
+	 * Só pode ser utilizado em queries onde não foram selecionados campos específicos.
+	 *
+	 * @return o identificador obtido.
+	 */
+	Serializable getEntityRecordId();
 	
     /**
      * Fecha o cursor, liberando todos os recursos e tornando-o completamente inválido para a obtenção de dados.
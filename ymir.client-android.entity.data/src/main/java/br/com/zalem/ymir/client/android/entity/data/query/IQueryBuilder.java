@@ -87,6 +87,9 @@ public interface IQueryBuilder extends IQueryStatement, ISelectAsStatement, ISel
     @Override
     IQueryBuilder idIn(Serializable... ids);
 
+    @Override
+    IQueryBuilder matches(String text);
+
     @Override
     IQueryBuilder where();
 
@@ -102,12 +105,33 @@ public interface IQueryBuilder extends IQueryStatement, ISelectAsStatement, ISel
     @Override
     IQueryBuilder orderBy(boolean asc, String... attrPathOrAlias);
 
+    @Override
+    IQueryBuilder orderById(boolean asc);
+
+    @Override
+    IQueryBuilder groupBy(String... attrPathOrAlias);
+
     @Override
     IQueryBuilder attribute(String... attributePath);
 
     @Override
     IQueryBuilder relationship(String... relationshipPath);
 
+    @Override
+    IQueryBuilder count();
+
+    @Override
+    IQueryBuilder sum(String... attributePath);
+
+    @Override
+    IQueryBuilder min(String... attributePath);
+
+    @Override
+    IQueryBuilder max(String... attributePath);
+
+    @Override
+    IQueryBuilder avg(String... attributePath);
+
     @Override
     IQueryBuilder from(String entityName);
 
@@ -238,4 +238,21 @@ public interface IConditionStatement {
 	 * @return o {@link IRestrictionStatement} com os métodos disponíveis para continuar a construção da query.
 	 */
 	IRestrictionStatement idIn(Serializable... ids);
+	
+	
+	/*
+	 * Busca textual
+	 */
+	
+	/**
+	 * Adiciona uma restrição de <i>registro atende à busca textual</i> na query.<br>
+	 * O texto é quebrado em termos (sequências de letras e dígitos) e cada termo é buscado como o início de alguma palavra
+	 * dos atributos pesquisáveis da entidade, que são definidos através do {@link br.com.zalem.ymir.client.android.entity.data.IEntityDAO#enableSearch(String[]...)}.
+	 * O registro atende à busca apenas se todos os termos forem encontrados. Se o texto não possuir nenhum termo, todos os registros atendem à busca.
+	 * 
+	 * @param text texto da busca.
+	 * @return o {@link IRestrictionStatement} com os métodos disponíveis para continuar a construção da query.
+	 * @throws IllegalStateException se a busca não foi habilitada para a entidade alvo da query.
+	 */
+	IRestrictionStatement matches(String text);
 }
@@ -81,6 +81,9 @@ public interface ISelectBuilder extends ISelectAsFromStatement, IConditionStatem
     @Override
     ISelectBuilder idIn(Serializable... ids);
 
+    @Override
+    ISelectBuilder matches(String text);
+
     @Override
     ISelectBuilder where();
 
@@ -102,6 +105,27 @@ public interface ISelectBuilder extends ISelectAsFromStatement, IConditionStatem
     @Override
     ISelectBuilder relationship(String... relationshipPath);
 
+    @Override
+    ISelectBuilder count();
+
+    @Override
+    ISelectBuilder sum(String... attributePath);
+
+    @Override
+    ISelectBuilder min(String... attributePath);
+
+    @Override
+    ISelectBuilder max(String... attributePath);
+
+    @Override
+    ISelectBuilder avg(String... attributePath);
+
     @Override
     ISelectBuilder orderBy(boolean asc, String... attrPathOrAlias);
+
+    @Override
+    ISelectBuilder orderById(boolean asc);
+
+    @Override
+    ISelectBuilder groupBy(String... attrPathOrAlias);
 }
@@ -37,4 +37,58 @@ public interface ISelectFromStatement extends IFromStatement {
 	 * @throws IllegalArgumentException se a entidade não possuir o relacionamento ou se o tipo do relacionamento não é suportado.
 	 */
 	ISelectAsFromStatement relationship(String... relationshipPath);
+
+	/**
+	 * Adiciona a seleção da quantidade de registros na query, através da função {@link SelectFunction#COUNT}.<br>
+	 * Se não for definido um alias através do {@link ISelectAsStatement#as(String)}, será utilizado o alias padrão "count".<br>
+	 * Se a query possuir agrupamentos ({@link ITerminalStatement#groupBy(String...)}), a quantidade será obtida por grupo.
+	 * 
+	 * @return o {@link ISelectAsFromStatement} com os métodos disponíveis para continuar a construção da query.
+	 */
+	ISelectAsFromStatement count();
+	
+	/**
+	 * Adiciona a seleção da soma dos valores do atributo na query, através da função {@link SelectFunction#SUM}.<br>
+	 * Se não for definido um alias através do {@link ISelectAsStatement#as(String)}, será utilizado o alias padrão, que é o nome
+	 * da função seguido do caminho do atributo entre parênteses. Por exemplo: caminho = ["relacionamento", "atributo"], alias = "sum(relacionamento-atributo)".
+	 * 
+	 * @param attributePath caminho para o atributo. Pode ser diretamente um atributo da entidade alvo da query ou
+	 * um caminho que parte dela, navega por relacionamentos singulares e chega no atributo desejado.
+	 * @return o {@link ISelectAsFromStatement} com os métodos disponíveis para continuar a construção da query.
+	 * @throws IllegalArgumentException se a entidade não possuir o atributo ou se o atributo não for numérico.
+	 */
+	ISelectAsFromStatement sum(String... attributePath);
+	
+	/**
+	 * Adiciona a seleção do menor valor do atributo na query, através da função {@link SelectFunction#MIN}.<br>
+	 * O alias padrão segue o mesmo formato do {@link #sum(String...)}.
+	 * 
+	 * @param attributePath caminho para o atributo. Pode ser diretamente um atributo da entidade alvo da query ou
+	 * um caminho que parte dela, navega por relacionamentos singulares e chega no atributo desejado.
+	 * @return o {@link ISelectAsFromStatement} com os métodos disponíveis para continuar a construção da query.
+	 * @throws IllegalArgumentException se a entidade não possuir o atributo ou se o tipo do atributo não é suportado.
+	 */
+	ISelectAsFromStatement min(String... attributePath);
+	
+	/**
+	 * Adiciona a seleção do maior valor do atributo na query, através da função {@link SelectFunction#MAX}.<br>
+	 * O alias padrão segue o mesmo formato do {@link #sum(String...)}.
+	 * 
+	 * @param attributePath caminho para o atributo. Pode ser diretamente um atributo da entidade alvo da query ou
+	 * um caminho que parte dela, navega por relacionamentos singulares e chega no atributo desejado.
+	 * @return o {@link ISelectAsFromStatement} com os métodos disponíveis para continuar a construção da query.
+	 * @throws IllegalArgumentException se a entidade não possuir o atributo ou se o tipo do atributo não é suportado.
+	 */
+	ISelectAsFromStatement max(String... attributePath);
+	
+	/**
+	 * Adiciona a seleção da média dos valores do atributo na query, através da função {@link SelectFunction#AVG}.<br>
+	 * O alias padrão segue o mesmo formato do {@link #sum(String...)}.
+	 * 
+	 * @param attributePath caminho para o atributo. Pode ser diretamente um atributo da entidade alvo da query ou
+	 * um caminho que parte dela, navega por relacionamentos singulares e chega no atributo desejado.
+	 * @return o {@link ISelectAsFromStatement} com os métodos disponíveis para continuar a construção da query.
+	 * @throws IllegalArgumentException se a entidade não possuir o atributo ou se o atributo não for numérico.
+	 */
+	ISelectAsFromStatement avg(String... attributePath);
 }
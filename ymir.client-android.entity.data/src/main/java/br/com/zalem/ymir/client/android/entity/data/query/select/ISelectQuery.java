@@ -80,5 +80,13 @@ public interface ISelectQuery extends Parcelable {
 		 * @return <code>true</code> se o campo for um relacionamento e <code>false</code> caso contrário.
 		 */
 		boolean isRelationship();
+
+		/**
+		 * Obtém a função de agregação aplicada ao campo de seleção.<br>
+		 * Campos com a função {@link SelectFunction#COUNT} não possuem caminho.
+		 *
+		 * @return a função obtida ou <code>null</code> se o campo não for agregado.
+		 */
+		SelectFunction getFunction();
 	}
 }
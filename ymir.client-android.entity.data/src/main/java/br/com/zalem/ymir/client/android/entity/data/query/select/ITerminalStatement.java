@@ -1,5 +1,6 @@
 package br.com.zalem.ymir.client.android.entity.data.query.select;
 
+import java.io.Serializable;
 import java.util.List;
 
 import br.com.zalem.ymir.client.android.entity.data.IEntityDAO;
@@ -30,6 +31,27 @@ public interface ITerminalStatement {
 	 */
 	ITerminalStatement orderBy(boolean asc, String... attrPathOrAlias);
 
+	/**
+	 * Adiciona um atributo como um critério de agrupamento para os dados da query. As funções de agregação selecionadas
+	 * (como o {@link ISelectStatement#count()}) passam a ser calculadas para cada grupo, que é representado por um resultado da query.<br>
+	 * Os campos selecionados sem função de agregação devem estar entre os critérios de agrupamento.
+	 *
+	 * @param attrPathOrAlias caminho para o atributo. Pode ser diretamente um atributo da entidade alvo da query ou
+	 * um caminho que parte dela, navega por relacionamentos singulares e chega no atributo desejado.
+	 * @return o próprio ITerminalStatement, para adicionar mais critérios de agrupamento/ordenação ou finalizar a query.
+	 */
+	ITerminalStatement groupBy(String... attrPathOrAlias);
+
+	/**
+	 * Adiciona o identificador dos registros como um critério de ordenação para os dados da query.<br>
+	 * Como o identificador é único, ele garante uma ordenação total quando utilizado como último critério, o que é
+	 * necessário para a paginação através do {@link #seekAfter(Serializable, Object...)}.
+	 *
+	 * @param asc <code>true</code> se o critério for ascendente e <code>false</code> caso contrário.
+	 * @return o próprio ITerminalStatement, para adicionar mais critérios de ordenação ou finalizar a query.
+	 */
+	ITerminalStatement orderById(boolean asc);
+
     /**
      * Adiciona um limitador do número de resultados da query.
      *
@@ -37,6 +59,43 @@ public interface ITerminalStatement {
      * @return o próprio ITerminalStatement, para adicionar mais critérios de ordenação ou finalizar a query.
      */
     ITerminalStatement limit(int number);
+
+    /**
+     * Adiciona um deslocamento nos resultados da query, descartando a quantidade de resultados iniciais.<br>
+     * Os resultados descartados ainda precisam ser percorridos pelo banco de dados, então o custo da query cresce de acordo
+     * com o deslocamento. Para paginar grandes quantidades de registros, o {@link #seekAfter(Serializable, Object...)} é mais indicado.
+     *
+     * @param number o número de resultados descartados.
+     * @return o próprio ITerminalStatement, para adicionar mais critérios de ordenação ou finalizar a query.
+     */
+    ITerminalStatement offset(int number);
+
+    /**
+     * Restringe os resultados da query para os registros posteriores ao registro especificado, de acordo com os critérios de
+     * ordenação definidos (paginação por chave). Ao contrário do {@link #offset(int)}, o custo da query não depende de quantas
+     * páginas já foram percorridas.<br>
+     * Os critérios de ordenação precisam ser definidos antes e o último deles deve ser o {@link #orderById(boolean)}.
+     *
+     * @param id identificador do último registro da página anterior.
+     * @param orderValues valores do último registro da página anterior para cada critério de ordenação que precede
+     * o identificador, na mesma ordem em que foram definidos.
+     * @return o próprio ITerminalStatement, para adicionar mais critérios de ordenação ou finalizar a query.
+     * @throws IllegalStateException se os critérios de ordenação não terminarem com o identificador.
+     * @throws IllegalArgumentException se a quantidade de valores não corresponder aos critérios de ordenação.
+     */
+    ITerminalStatement seekAfter(Serializable id, Object... orderValues);
+
+    /**
+     * Obtém antecipadamente os registros relacionados aos registros resultantes da query, através do caminho de relacionamentos.
+     * Os registros relacionados de todos os resultados são obtidos de uma vez, com uma query por nível do caminho, ficando
+     * disponíveis nos métodos de obtenção de relacionamentos dos registros sem a necessidade de novas consultas.<br>
+     * Só pode ser utilizado em seleções de registros completos, ou seja, que não selecionam campos.
+     *
+     * @param relationshipPath caminho de relacionamentos. Pode ser diretamente um relacionamento da entidade alvo da query ou
+     * um caminho que parte dela e navega pelos relacionamentos das entidades relacionadas.
+     * @return o próprio ITerminalStatement, para adicionar mais inclusões ou finalizar a query.
+     */
+    ITerminalStatement include(String... relationshipPath);
 	
 	/**
 	 * Finaliza a construção da query através da geração de uma instância de {@link ISelectQuery}, sendo possível
@@ -65,6 +124,16 @@ public interface ITerminalStatement {
 	 * @return a lista com os resultados da query.
 	 */
 	<T> List<T> listResult();
+
+	/**
+	 * Versão do {@link #listResult()} que executa a query através do {@link IEntityDAO#executeListSelect(ISelectQuery, QueryCancellationSignal)},
+	 * permitindo que a execução seja interrompida através do sinal de cancelamento.
+	 *
+	 * @param cancellationSignal sinal de cancelamento da execução. Pode ser <code>null</code>.
+	 * @return a lista com os resultados da query.
+	 * @throws QueryCanceledException se o sinal foi cancelado durante a execução.
+	 */
+	<T> List<T> listResult(QueryCancellationSignal cancellationSignal);
 	
 	/**
 	 * Método de conveniência que obtém o {@link IEntityDAO} da entidade alvo da query através
@@ -74,4 +143,14 @@ public interface ITerminalStatement {
 	 * @return o cursor com os resultados da query.
 	 */
 	IEntityRecordCursor cursorResult();
+
+	/**
+	 * Versão do {@link #cursorResult()} que executa a query através do {@link IEntityDAO#executeCursorSelect(ISelectQuery, QueryCancellationSignal)},
+	 * permitindo que a execução e a obtenção dos registros do cursor sejam interrompidas através do sinal de cancelamento.
+	 *
+	 * @param cancellationSignal sinal de cancelamento da execução. Pode ser <code>null</code>.
+	 * @return o cursor com os resultados da query.
+	 * @throws QueryCanceledException se o sinal foi cancelado durante a execução.
+	 */
+	IEntityRecordCursor cursorResult(QueryCancellationSignal cancellationSignal);
 }
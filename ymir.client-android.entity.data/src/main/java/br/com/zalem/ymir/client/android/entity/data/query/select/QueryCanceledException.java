@@ -0,0 +1,14 @@
+package br.com.zalem.ymir.client.android.entity.data.query.select;
+
+/**
+ * Exceção que sinaliza a interrupção da execução de uma query devido ao cancelamento do seu {@link QueryCancellationSignal}.
+ *
+ * @author Thiago Gesser
+ */
+@SuppressWarnings("serial")
+public final class QueryCanceledException extends RuntimeException {
+
+	public QueryCanceledException() {
+		super("The query was canceled.");
+	}
+}
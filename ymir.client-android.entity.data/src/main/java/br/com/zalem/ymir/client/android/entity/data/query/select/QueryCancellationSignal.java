@@ -0,0 +1,43 @@
+package br.com.zalem.ymir.client.android.entity.data.query.select;
+
+/**
+ * Sinal de cancelamento da execução de queries de seleção de dados.<br>
+ * Pode ser passado para os métodos de execução que o suportam (como o {@link ITerminalStatement#listResult(QueryCancellationSignal)})
+ * e cancelado a partir de outra Thread através do {@link #cancel()}. A execução verifica o sinal entre as suas etapas (como a
+ * obtenção dos dados de cada registro) e é interrompida através de um {@link QueryCanceledException} se ele foi cancelado.<br>
+ * <br>
+ * Um sinal cancelado não pode ser reutilizado.
+ *
+ * @author Thiago Gesser
+ */
+public final class QueryCancellationSignal {
+
+	private volatile boolean canceled;
+
+	/**
+	 * Cancela as execuções que utilizam este sinal.
+	 */
+	public void cancel() {
+		canceled = true;
+	}
+
+	/**
+	 * Indica se o sinal foi cancelado.
+	 *
+	 * @return <code>true</code> se o sinal foi cancelado e <code>false</code> caso contrário.
+	 */
+	public boolean isCanceled() {
+		return canceled;
+	}
+
+	/**
+	 * Lança um {@link QueryCanceledException} se o sinal foi cancelado.
+	 *
+	 * @throws QueryCanceledException se o sinal foi cancelado.
+	 */
+	public void throwIfCanceled() {
+		if (canceled) {
+			throw new QueryCanceledException();
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package br.com.zalem.ymir.client.android.entity.data.query.select;
+
+import br.com.zalem.ymir.client.android.entity.data.metadata.EntityAttributeType;
+
+/**
+ * Funções de agregação que podem ser aplicadas aos campos selecionados de uma query de seleção de dados.<br>
+ * Os valores agregados são calculados pelo próprio mecanismo de persistência, sem a necessidade de obter os registros.
+ *
+ * @see ISelectStatement
+ * @see ITerminalStatement#groupBy(String...)
+ *
+ * @author Thiago Gesser
+ */
+public enum SelectFunction {
+	/**
+	 * Quantidade de registros. Não é aplicada sobre um atributo e seu valor é do tipo {@link EntityAttributeType#INTEGER}.
+	 */
+	COUNT,
+	/**
+	 * Soma dos valores de um atributo numérico. O tipo do valor é o mesmo do atributo.
+	 */
+	SUM,
+	/**
+	 * Menor valor de um atributo. O tipo do valor é o mesmo do atributo.
+	 */
+	MIN,
+	/**
+	 * Maior valor de um atributo. O tipo do valor é o mesmo do atributo.
+	 */
+	MAX,
+	/**
+	 * Média dos valores de um atributo numérico. O valor é sempre do tipo {@link EntityAttributeType#DECIMAL}.
+	 */
+	AVG
+}
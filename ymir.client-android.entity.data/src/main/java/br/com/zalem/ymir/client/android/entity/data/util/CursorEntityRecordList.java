@@ -0,0 +1,349 @@
+package br.com.zalem.ymir.client.android.entity.data.util;
+
+import android.util.LruCache;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import br.com.zalem.ymir.client.android.entity.data.IEntityRecord;
+import br.com.zalem.ymir.client.android.entity.data.cursor.IEntityRecordCursor;
+
+/**
+ * Lista de registros baseada em um {@link IEntityRecordCursor} de registros completos, carregando os registros sob demanda.<br>
+ * Apenas uma janela limitada de registros fica carregada em memória. Ao acessar um registro que não está na janela, ele é obtido
+ * através do cursor e os registros acessados há mais tempo são descartados, de acordo com o algoritmo <code>Least Recently Used</code>.<br>
+ * Para que os registros não sejam carregados na Thread de UI, eles podem ser carregados em background através do {@link #prefetch(int, int)}
+ * e acessados apenas se já estiverem em memória através do {@link #getLoaded(int)}. A lista é sincronizada, podendo ser acessada
+ * por diferentes Threads. O carregamento antecipado lê os registros do cursor sem bloquear a lista, de forma que os registros
+ * já carregados continuem acessíveis durante ele.<br>
+ * <br>
+ * Os registros que deixaram de existir após a execução da query são descartados da lista: no {@link #get(int)}, o registro seguinte
+ * passa a ocupar a posição; no {@link #prefetch(int, int)}, eles ficam pendentes até a chamada do {@link #dropMissing()}.<br>
+ * <br>
+ * A lista permite a adição, remoção e substituição de registros. Os registros adicionados ou definidos desta forma não fazem
+ * parte do cursor, então são mantidos em memória enquanto estiverem na lista.<br>
+ * O cursor é de responsabilidade da lista a partir da sua criação, devendo ser fechado através do método {@link #close()}
+ * quando a lista não for mais utilizada.
+ *
+ * @author Thiago Gesser
+ */
+public final class CursorEntityRecordList extends AbstractList<IEntityRecord> {
+
+	private final IEntityRecordCursor cursor;
+	//Lock do acesso ao cursor, separado do monitor da lista para que a leitura do prefetch não bloqueie os demais acessos à lista.
+	private final Object cursorLock = new Object();
+	private final LruCache<Integer, IEntityRecord> window;
+	//Registros que não fazem parte do cursor (adicionados / substituídos na lista).
+	private final List<IEntityRecord> extraRecords;
+	//Posições do cursor cujos registros deixaram de existir após a execução da query.
+	private final Set<Integer> missingPositions;
+	/*
+	 * Mapeia as posições da lista para as posições do cursor. Valores negativos representam registros extras, sendo que o índice
+	 * do registro extra é obtido através de "-(valor + 1)".
+	 */
+	private int[] positions;
+	private int size;
+
+	/**
+	 * Cria uma CursorEntityRecordList.
+	 *
+	 * @param cursor cursor de registros completos.
+	 * @param windowSize quantidade máxima de registros do cursor mantidos em memória.
+	 */
+	public CursorEntityRecordList(IEntityRecordCursor cursor, int windowSize) {
+		if (windowSize <= 0) {
+			throw new IllegalArgumentException("windowSize <= 0");
+		}
+
+		this.cursor = cursor;
+		this.window = new LruCache<>(windowSize);
+		this.extraRecords = new ArrayList<>();
+		this.missingPositions = new HashSet<>();
+
+		size = cursor.getCount();
+		positions = new int[size];
+		for (int i = 0; i < size; i++) {
+			positions[i] = i;
+		}
+	}
+
+	/**
+	 * Obtém o registro da posição, carregando-o através do cursor se ele não estiver em memória.<br>
+	 * Se o registro da posição deixou de existir após a execução da query, ele é descartado da lista e o registro seguinte é
+	 * retornado em seu lugar.
+	 *
+	 * @param location posição do registro na lista.
+	 * @return o registro obtido.
+	 * @throws IndexOutOfBoundsException se a posição for inválida (inclusive após o descarte de registros inexistentes).
+	 */
+	@Override
+	public synchronized IEntityRecord get(int location) {
+		while (true) {
+			checkLocation(location);
+
+			IEntityRecord record = getLoaded(location);
+			if (record != null) {
+				return record;
+			}
+
+			int position = positions[location];
+			if (!missingPositions.contains(position)) {
+				record = loadRecord(position);
+				if (record != null) {
+					return record;
+				}
+			}
+
+			removeLocation(location);
+		}
+	}
+
+	/**
+	 * Obtém o registro da posição apenas se ele já estiver em memória, sem acessar o cursor.
+	 *
+	 * @param location posição do registro na lista.
+	 * @return o registro obtido ou <code>null</code> se ele ainda não foi carregado ou se deixou de existir.
+	 * @throws IndexOutOfBoundsException se a posição for inválida.
+	 */
+	public synchronized IEntityRecord getLoaded(int location) {
+		checkLocation(location);
+
+		int position = positions[location];
+		if (position < 0) {
+			return extraRecords.get(-(position + 1));
+		}
+		return window.get(position);
+	}
+
+	@Override
+	public synchronized int size() {
+		return size;
+	}
+
+	@Override
+	public synchronized void add(int location, IEntityRecord record) {
+		if (location < 0 || location > size) {
+			throw new IndexOutOfBoundsException("Invalid location " + location + ", size is " + size);
+		}
+
+		if (size == positions.length) {
+			positions = Arrays.copyOf(positions, Math.max(size * 2, 8));
+		}
+		System.arraycopy(positions, location, positions, location + 1, size - location);
+		positions[location] = addExtraRecord(record);
+		size++;
+		modCount++;
+	}
+
+	/**
+	 * Substitui o registro da posição. O registro anterior não é carregado através do cursor caso ainda não esteja em memória.
+	 *
+	 * @return o registro anterior ou <code>null</code> se ele não estava em memória.
+	 */
+	@Override
+	public synchronized IEntityRecord set(int location, IEntityRecord record) {
+		IEntityRecord previous = getLoaded(location);
+		positions[location] = addExtraRecord(record);
+		return previous;
+	}
+
+	/**
+	 * Remove o registro da posição. O registro removido não é carregado através do cursor caso ainda não esteja em memória.
+	 *
+	 * @return o registro removido ou <code>null</code> se ele não estava em memória.
+	 */
+	@Override
+	public synchronized IEntityRecord remove(int location) {
+		IEntityRecord previous = getLoaded(location);
+		removeLocation(location);
+		return previous;
+	}
+
+	/**
+	 * Obtém a posição do registro com o identificador, sem carregar os registros que não estão em memória (apenas os seus
+	 * identificadores são obtidos através do cursor).
+	 *
+	 * @param id identificador do registro.
+	 * @return a posição obtida ou <code>-1</code> se o registro não está na lista.
+	 */
+	public synchronized int indexOfId(Serializable id) {
+		for (int i = 0; i < size; i++) {
+			int position = positions[i];
+			Serializable recordId;
+			if (position < 0) {
+				recordId = extraRecords.get(-(position + 1)).getId();
+			} else {
+				IEntityRecord record = window.get(position);
+				if (record != null) {
+					recordId = record.getId();
+				} else {
+					synchronized (cursorLock) {
+						checkNotClosed();
+						moveToPosition(position);
+						recordId = cursor.getEntityRecordId();
+					}
+				}
+			}
+
+			if (id.equals(recordId)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Carrega antecipadamente os registros do intervalo para a janela de registros em memória. Deve ser utilizado em background
+	 * para evitar que os registros sejam carregados na Thread de UI.<br>
+	 * Os registros que deixaram de existir após a execução da query ficam pendentes até a chamada do {@link #dropMissing()}.
+	 * Se a lista foi fechada, não faz nada.
+	 *
+	 * @param start posição inicial do intervalo (inclusiva).
+	 * @param end posição final do intervalo (exclusiva).
+	 */
+	public void prefetch(int start, int end) {
+		//Determina as posições do cursor que ainda precisam ser carregadas.
+		int[] pendingPositions;
+		int count = 0;
+		synchronized (this) {
+			if (cursor.isClosed()) {
+				return;
+			}
+
+			start = Math.max(start, 0);
+			end = Math.min(end, size);
+			pendingPositions = new int[Math.max(end - start, 0)];
+			for (int i = start; i < end; i++) {
+				int position = positions[i];
+				if (position >= 0 && window.get(position) == null && !missingPositions.contains(position)) {
+					pendingPositions[count++] = position;
+				}
+			}
+		}
+		if (count == 0) {
+			return;
+		}
+
+		//Lê os registros sem o monitor da lista, para que a Thread de UI possa continuar acessando os registros já carregados.
+		IEntityRecord[] records = new IEntityRecord[count];
+		synchronized (cursorLock) {
+			if (cursor.isClosed()) {
+				return;
+			}
+			for (int i = 0; i < count; i++) {
+				records[i] = readRecord(pendingPositions[i]);
+			}
+		}
+
+		//As posições do cursor não mudam com as alterações da lista, então os registros lidos podem ser publicados diretamente.
+		synchronized (this) {
+			for (int i = 0; i < count; i++) {
+				publishRecord(pendingPositions[i], records[i]);
+			}
+		}
+	}
+
+	/**
+	 * Descarta da lista os registros que o {@link #prefetch(int, int)} detectou que deixaram de existir após a execução da query.
+	 *
+	 * @return as posições dos registros descartados, em ordem decrescente (de forma que cada posição seja válida no momento do seu descarte).
+	 */
+	public synchronized int[] dropMissing() {
+		if (missingPositions.isEmpty()) {
+			return new int[0];
+		}
+
+		int[] dropped = new int[missingPositions.size()];
+		int count = 0;
+		for (int i = size - 1; i >= 0; i--) {
+			if (missingPositions.contains(positions[i])) {
+				dropped[count++] = i;
+				removeLocation(i);
+			}
+		}
+		missingPositions.clear();
+		return Arrays.copyOf(dropped, count);
+	}
+
+	/**
+	 * Fecha o cursor utilizado pela lista, liberando os seus recursos. Após isto, apenas os registros carregados em memória
+	 * poderão ser acessados.
+	 */
+	public synchronized void close() {
+		synchronized (cursorLock) {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Indica se o cursor utilizado pela lista está fechado.
+	 *
+	 * @return <code>true</code> se o cursor está fechado e <code>false</code> caso contrário.
+	 */
+	public synchronized boolean isClosed() {
+		return cursor.isClosed();
+	}
+
+
+	/*
+	 * Métodos auxiliares
+	 */
+
+	private IEntityRecord loadRecord(int position) {
+		IEntityRecord record;
+		synchronized (cursorLock) {
+			checkNotClosed();
+			record = readRecord(position);
+		}
+		publishRecord(position, record);
+		return record;
+	}
+
+	private IEntityRecord readRecord(int position) {
+		moveToPosition(position);
+		return cursor.getEntityRecord();
+	}
+
+	private void publishRecord(int position, IEntityRecord record) {
+		//Se o registro deixou de existir após a execução da query, não há o que colocar na janela.
+		if (record == null) {
+			missingPositions.add(position);
+		} else {
+			window.put(position, record);
+		}
+	}
+
+	private void moveToPosition(int position) {
+		if (!cursor.moveToPosition(position)) {
+			throw new IllegalStateException("Cursor position not found: " + position);
+		}
+	}
+
+	private void removeLocation(int location) {
+		System.arraycopy(positions, location + 1, positions, location, size - location - 1);
+		size--;
+		modCount++;
+	}
+
+	private int addExtraRecord(IEntityRecord record) {
+		extraRecords.add(record);
+		return -extraRecords.size();
+	}
+
+	private void checkLocation(int location) {
+		if (location < 0 || location >= size) {
+			throw new IndexOutOfBoundsException("Invalid location " + location + ", size is " + size);
+		}
+	}
+
+	private void checkNotClosed() {
+		if (cursor.isClosed()) {
+			throw new IllegalStateException("The cursor of the list is closed.");
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package br.com.zalem.ymir.client.android.entity.data.util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import br.com.zalem.ymir.client.android.entity.data.IEntityRecord;
+import br.com.zalem.ymir.client.android.entity.data.query.select.ITerminalStatement;
+
+/**
+ * Paginador de registros baseado em chaves (<i>keyset pagination</i>).<br>
+ * Cada página é obtida através de uma nova query que busca os registros posteriores ao último registro da página anterior,
+ * de acordo com os critérios de ordenação e o identificador dos registros (através do {@link ITerminalStatement#seekAfter(Serializable, Object...)}).
+ * Desta forma, o custo de obtenção de uma página não depende de quantas páginas já foram percorridas, ao contrário da paginação
+ * através do {@link ITerminalStatement#offset(int)}.<br>
+ * <br>
+ * Os critérios de ordenação devem ser definidos através do {@link #addOrder(boolean, String...)} antes da obtenção da primeira página.
+ * O identificador dos registros é sempre utilizado como último critério de ordenação, garantindo que nenhum registro seja repetido
+ * ou ignorado entre as páginas.
+ *
+ * @author Thiago Gesser
+ */
+public final class KeysetPager {
+
+	private final IQueryFactory queryFactory;
+	private final int pageSize;
+	private final List<OrderCriterion> orderCriteria;
+
+	private Serializable lastId;
+	private Object[] lastOrderValues;
+	private boolean finished;
+
+	/**
+	 * Cria um KeysetPager.
+	 *
+	 * @param queryFactory fábrica das queries utilizadas na obtenção das páginas.
+	 * @param pageSize quantidade máxima de registros por página.
+	 */
+	public KeysetPager(IQueryFactory queryFactory, int pageSize) {
+		if (pageSize <= 0) {
+			throw new IllegalArgumentException("pageSize <= 0");
+		}
+
+		this.queryFactory = queryFactory;
+		this.pageSize = pageSize;
+		this.orderCriteria = new ArrayList<>();
+	}
+
+	/**
+	 * Adiciona um atributo como um critério de ordenação das páginas.
+	 *
+	 * @param asc <code>true</code> se o critério for ascendente e <code>false</code> caso contrário.
+	 * @param attributePath caminho para o atributo. Pode ser diretamente um atributo da entidade alvo da query ou
+	 * um caminho que parte dela, navega por relacionamentos singulares e chega no atributo desejado.
+	 * @return o próprio paginador.
+	 * @throws IllegalStateException se alguma página já foi obtida.
+	 */
+	public KeysetPager addOrder(boolean asc, String... attributePath) {
+		if (lastId != null || finished) {
+			throw new IllegalStateException("The order criteria cannot be changed after the first page. Call reset() before.");
+		}
+		if (attributePath.length == 0) {
+			throw new IllegalArgumentException("attributePath is empty");
+		}
+
+		orderCriteria.add(new OrderCriterion(asc, attributePath));
+		return this;
+	}
+
+	/**
+	 * Obtém a próxima página de registros.
+	 *
+	 * @return os registros da página ou uma lista vazia se não houver mais registros.
+	 */
+	public List<IEntityRecord> nextPage() {
+		if (finished) {
+			return Collections.emptyList();
+		}
+
+		ITerminalStatement query = queryFactory.createQuery();
+		for (OrderCriterion criterion : orderCriteria) {
+			query = query.orderBy(criterion.isAsc(), criterion.getAttributePath());
+		}
+		query = query.orderById(true);
+		if (lastId != null) {
+			query = query.seekAfter(lastId, lastOrderValues);
+		}
+		List<IEntityRecord> page = query.limit(pageSize).listResult();
+
+		//Se a página não foi completa, não há mais registros.
+		if (page.size() < pageSize) {
+			finished = true;
+		}
+		if (!page.isEmpty()) {
+			IEntityRecord lastRecord = page.get(page.size()-1);
+			lastId = lastRecord.getId();
+			lastOrderValues = getOrderValues(lastRecord);
+		}
+		return page;
+	}
+
+	/**
+	 * Indica se ainda pode haver registros a serem obtidos através do {@link #nextPage()}.
+	 *
+	 * @return <code>false</code> se já foi constatado que não há mais registros e <code>true</code> caso contrário.
+	 */
+	public boolean hasNextPage() {
+		return !finished;
+	}
+
+	/**
+	 * Volta o paginador para o início, fazendo com que a próxima página obtida seja a primeira.
+	 */
+	public void reset() {
+		lastId = null;
+		lastOrderValues = null;
+		finished = false;
+	}
+
+
+	/*
+	 * Métodos auxiliares
+	 */
+
+	private Object[] getOrderValues(IEntityRecord record) {
+		Object[] values = new Object[orderCriteria.size()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = getAttributeValue(record, orderCriteria.get(i).getAttributePath());
+		}
+		return values;
+	}
+
+	private static Object getAttributeValue(IEntityRecord record, String[] attributePath) {
+		//Navega pelos relacionamentos singulares até o registro dono do atributo.
+		int lastIndex = attributePath.length-1;
+		for (int i = 0; i < lastIndex; i++) {
+			record = record.getRelationshipValue(attributePath[i]);
+			if (record == null) {
+				return null;
+			}
+		}
+		return record.getAttributeValue(attributePath[lastIndex]);
+	}
+
+
+	/*
+	 * Classes auxiliares
+	 */
+
+	/**
+	 * Fábrica das queries utilizadas pelo {@link KeysetPager}.
+	 */
+	public interface IQueryFactory {
+
+		/**
+		 * Cria uma nova query de seleção de registros completos (sem campos selecionados) da entidade que está sendo paginada.<br>
+		 * A query não deve definir critérios de ordenação nem limite de resultados, pois eles são definidos pelo paginador.
+		 *
+		 * @return a query criada.
+		 */
+		ITerminalStatement createQuery();
+	}
+
+	/**
+	 * Critério de ordenação das páginas.
+	 */
+	private static final class OrderCriterion {
+
+		private final boolean asc;
+		private final String[] attributePath;
+
+		public OrderCriterion(boolean asc, String[] attributePath) {
+			this.asc = asc;
+			this.attributePath = attributePath;
+		}
+
+		public boolean isAsc() {
+			return asc;
+		}
+
+		public String[] getAttributePath() {
+			return attributePath;
+		}
+	}
+}
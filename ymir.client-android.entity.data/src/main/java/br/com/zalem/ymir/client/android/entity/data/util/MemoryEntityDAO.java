@@ -8,12 +8,14 @@ import java.sql.Date;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
 import br.com.zalem.ymir.client.android.entity.data.BuildConfig;
 import br.com.zalem.ymir.client.android.entity.data.IEntityDAO;
 import br.com.zalem.ymir.client.android.entity.data.IEntityDataManager;
+import br.com.zalem.ymir.client.android.entity.data.IEntityDataManager.AbstractReadyListener;
 import br.com.zalem.ymir.client.android.entity.data.IEntityRecord;
 import br.com.zalem.ymir.client.android.entity.data.SyncStatus;
 import br.com.zalem.ymir.client.android.entity.data.cursor.IEntityRecordCursor;
@@ -23,6 +25,7 @@ import br.com.zalem.ymir.client.android.entity.data.query.select.ISelectFromStat
 import br.com.zalem.ymir.client.android.entity.data.query.select.ISelectQuery;
 import br.com.zalem.ymir.client.android.entity.data.query.select.ITerminalStatement;
 import br.com.zalem.ymir.client.android.entity.data.query.select.NonUniqueResultException;
+import br.com.zalem.ymir.client.android.entity.data.query.select.QueryCancellationSignal;
 import br.com.zalem.ymir.client.android.entity.data.view.RelationshipArrayView;
 
 /**
@@ -101,6 +104,14 @@ public final class MemoryEntityDAO implements IEntityDAO {
 	public boolean isReady() {
 		return true;
 	}
+
+	@Override
+	public void awaitReady(AbstractReadyListener listener) {
+		//Os registros em memória estão sempre prontos.
+		if (!listener.isCanceled()) {
+			listener.onReady();
+		}
+	}
 	
 
 	@Override
@@ -123,6 +134,16 @@ public final class MemoryEntityDAO implements IEntityDAO {
         return getRecords().isEmpty();
     }
 
+    @Override
+    public void enableSearch(String[]... attributesPaths) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isSearchEnabled() {
+        return false;
+    }
+
     @Override
 	public ISelectFromStatement select() {
 		return new MemorySelectStament();
@@ -164,10 +185,27 @@ public final class MemoryEntityDAO implements IEntityDAO {
 		return getRecords();
 	}
 
+	@Override
+	public List<IEntityRecord> executeListSelect(ISelectQuery query, QueryCancellationSignal cancellationSignal) {
+		//Os registros já estão em memória, então só há o que interromper antes da execução.
+		if (cancellationSignal != null) {
+			cancellationSignal.throwIfCanceled();
+		}
+		return executeListSelect(query);
+	}
+
 	@Override
 	public IEntityRecordCursor executeCursorSelect(ISelectQuery query) {
 		return new MemoryEntityRecordCursor(getRecords());
 	}
+
+	@Override
+	public IEntityRecordCursor executeCursorSelect(ISelectQuery query, QueryCancellationSignal cancellationSignal) {
+		if (cancellationSignal != null) {
+			cancellationSignal.throwIfCanceled();
+		}
+		return executeCursorSelect(query);
+	}
 	
 	
 	@Override
@@ -185,11 +223,26 @@ public final class MemoryEntityDAO implements IEntityDAO {
 		throw new UnsupportedOperationException();
 	}
 
+	@Override
+	public List<IEntityRecord> saveAll(Collection<? extends IEntityRecord> records, boolean sync) {
+		throw new UnsupportedOperationException();
+	}
+
 	@Override
 	public boolean delete(IEntityRecord record, boolean sync) {
 		throw new UnsupportedOperationException();
 	}
 
+	@Override
+	public boolean deleteAll(Collection<? extends IEntityRecord> records, boolean sync) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean deleteWhere(ISelectQuery query, boolean sync) {
+		throw new UnsupportedOperationException();
+	}
+
 	@Override
 	public boolean refresh(IEntityRecord record) {
 		throw new UnsupportedOperationException();
@@ -265,6 +318,17 @@ public final class MemoryEntityDAO implements IEntityDAO {
 		public IEntityRecordCursor cursorResult() {
 			return executeCursorSelect(toQuery());
 		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public List<IEntityRecord> listResult(QueryCancellationSignal cancellationSignal) {
+			return executeListSelect(toQuery(), cancellationSignal);
+		}
+
+		@Override
+		public IEntityRecordCursor cursorResult(QueryCancellationSignal cancellationSignal) {
+			return executeCursorSelect(toQuery(), cancellationSignal);
+		}
 		
 		
 		/*
@@ -280,6 +344,31 @@ public final class MemoryEntityDAO implements IEntityDAO {
 		public ISelectBuilder relationship(String... relationshipPath) {
 			throw new UnsupportedOperationException();
 		}
+
+		@Override
+		public ISelectBuilder count() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ISelectBuilder sum(String... attributePath) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ISelectBuilder min(String... attributePath) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ISelectBuilder max(String... attributePath) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ISelectBuilder avg(String... attributePath) {
+			throw new UnsupportedOperationException();
+		}
 		
 		@Override
 		public ISelectBuilder as(String alias) {
@@ -416,10 +505,40 @@ public final class MemoryEntityDAO implements IEntityDAO {
 			throw new UnsupportedOperationException();
 		}
 
+		@Override
+		public ISelectBuilder matches(String text) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ISelectBuilder orderById(boolean asc) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ISelectBuilder groupBy(String... attrPathOrAlias) {
+			throw new UnsupportedOperationException();
+		}
+
         @Override
         public ITerminalStatement limit(int number) {
 			throw new UnsupportedOperationException();
         }
+
+        @Override
+        public ITerminalStatement offset(int number) {
+			throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ITerminalStatement seekAfter(Serializable id, Object... orderValues) {
+			throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ITerminalStatement include(String... relationshipPath) {
+			throw new UnsupportedOperationException();
+        }
     }
 	
 	/**
@@ -514,6 +633,11 @@ public final class MemoryEntityDAO implements IEntityDAO {
 			}
 			return records.get(position);
 		}
+
+		@Override
+		public Serializable getEntityRecordId() {
+			return getEntityRecord().getId();
+		}
 		
 		@Override
 		public void close() {
@@ -545,6 +669,11 @@ public final class MemoryEntityDAO implements IEntityDAO {
 			throw new UnsupportedOperationException();
 		}
 
+		@Override
+		public boolean isNull(String... fieldPath) {
+			throw new UnsupportedOperationException();
+		}
+
 		@Override
 		public Integer getIntegerValue(int fieldIndex) {
 			throw new UnsupportedOperationException();
@@ -555,6 +684,21 @@ public final class MemoryEntityDAO implements IEntityDAO {
 			throw new UnsupportedOperationException();
 		}
 
+		@Override
+		public int getInt(int fieldIndex) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public long getLong(int fieldIndex) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public double getDouble(int fieldIndex) {
+			throw new UnsupportedOperationException();
+		}
+
 		@Override
 		public String getTextValue(int fieldIndex) {
 			throw new UnsupportedOperationException();
@@ -580,6 +724,11 @@ public final class MemoryEntityDAO implements IEntityDAO {
 			throw new UnsupportedOperationException();
         }
 
+        @Override
+        public long getDateMillis(int fieldIndex) {
+			throw new UnsupportedOperationException();
+        }
+
         @Override
 		public Character getCharacterValue(int fieldIndex) {
 			throw new UnsupportedOperationException();
@@ -5,6 +5,7 @@ import android.app.SearchableInfo;
 import android.database.Cursor;
 import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
 import android.provider.SearchRecentSuggestions;
 import android.support.v4.app.Fragment;
 import android.support.v4.widget.CursorAdapter;
@@ -31,14 +32,21 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 
 import br.com.zalem.ymir.client.android.entity.data.IEntityDAO;
+import br.com.zalem.ymir.client.android.entity.data.IEntityDataManager.AbstractQueryObserver;
+import br.com.zalem.ymir.client.android.entity.data.IEntityDataManager.AbstractReadyListener;
 import br.com.zalem.ymir.client.android.entity.data.IEntityRecord;
 import br.com.zalem.ymir.client.android.entity.data.SyncStatus;
 import br.com.zalem.ymir.client.android.entity.data.metadata.IEntityMetadata;
 import br.com.zalem.ymir.client.android.entity.data.query.select.ISelectBuilder;
 import br.com.zalem.ymir.client.android.entity.data.query.select.ISelectQuery;
+import br.com.zalem.ymir.client.android.entity.data.query.select.QueryCanceledException;
+import br.com.zalem.ymir.client.android.entity.data.query.select.QueryCancellationSignal;
+import br.com.zalem.ymir.client.android.entity.data.util.CursorEntityRecordList;
 import br.com.zalem.ymir.client.android.entity.ui.BuildConfig;
 import br.com.zalem.ymir.client.android.entity.ui.R;
 import br.com.zalem.ymir.client.android.entity.ui.configuration.field.IFieldMapping;
@@ -53,6 +61,7 @@ import br.com.zalem.ymir.client.android.entity.ui.configuration.view.list.IListO
 import br.com.zalem.ymir.client.android.entity.ui.configuration.view.list.IOrderFieldMapping;
 import br.com.zalem.ymir.client.android.entity.ui.layout.ListLayoutConfigAdapter;
 import br.com.zalem.ymir.client.android.entity.ui.layout.ListLayoutConfigAdapter.IEntityRecordListActionProvider;
+import br.com.zalem.ymir.client.android.entity.ui.layout.RecordListDiff;
 import br.com.zalem.ymir.client.android.entity.ui.search.EntitySearchSuggestionsProvider;
 import br.com.zalem.ymir.client.android.entity.ui.text.EntityAttributeFormatter;
 import br.com.zalem.ymir.client.android.entity.ui.text.EntityAttributeFormatter.TypedFormatter;
@@ -77,7 +86,10 @@ import br.com.zalem.ymir.client.android.util.SafeAsyncTask;
  * A funcionalidade de pesquisa também está preparada para sugerir os termos de pesquisas bem sucedidas recentes. Uma
  * pesquisa bem sucedida é aquela que retornou pelo menos um registro. Para isto, o SearchableInfo deve estar
  * configurado com o <code>Suggest Authority</code> do tipo {@link EntitySearchSuggestionsProvider#AUTHORITY} e o
- * <code>Suggest Selection</code> com o nome da entidade cujo o fragmento está mostrando os registros.
+ * <code>Suggest Selection</code> com o nome da entidade cujo o fragmento está mostrando os registros.<br>
+ * <br>
+ * Se a atualização automática estiver habilitada, o fragmento também observa as alterações nos dados da query da lista
+ * (como as feitas pela sincronização) enquanto estiver visível, atualizando-a uma vez após cada rajada de alterações.
  * 
  * @see ListLayoutConfigAdapter
  * @see IEntityDAO
@@ -98,8 +110,17 @@ public final class EntityListFragment extends AbstractEntityListFragment {
 	 * podendo utilizar filtros de qualquer tipo.
 	 */
 	public static final String SOURCE_QUERY_ARGUMENT = "SOURCE_QUERY_ARGUMENT";
+	/**
+	 * Argumento do tipo <code>int</code> que habilita o carregamento em janela dos registros, definindo a quantidade máxima de
+	 * registros mantidos em memória. Neste modo, os registros são obtidos através de um cursor à medida que a lista é rolada,
+	 * ao invés de serem todos carregados antes da exibição.<br>
+	 * O valor padrão é <code>0</code>, o que significa que todos os registros são carregados de uma vez.
+	 */
+	public static final String WINDOW_SIZE_ARGUMENT = "WINDOW_SIZE_ARGUMENT";
 	
 	private static final String SAVED_SIMPLE_SEARCH_QUERY = "SAVED_SIMPLE_SEARCH_QUERY";
+	//Quantidade de registros carregados em background no modo de janela, para que a primeira tela não os carregue na Thread de UI.
+	private static final int WINDOW_PREFETCH_SIZE = 30;
 	
 	private ILayoutConfig<ListLayoutType> layoutConfig;
 	private IListFilter filter;
@@ -114,6 +135,9 @@ public final class EntityListFragment extends AbstractEntityListFragment {
 
 	//Armazena a task corrente para que ela possa ser cancelada no caso de uma nova task ser iniciada.
 	private AsyncTask<?, ?, ?> currentTask;
+	//Observa a query dos registros listados, enquanto o fragmento estiver visível e com a atualização automática.
+	private ListQueryObserver queryObserver;
+	private boolean pendingRefresh;
 
 	private OnSearchListener searchListener;
 	private String simpleSearchQuery;
@@ -191,9 +215,10 @@ public final class EntityListFragment extends AbstractEntityListFragment {
 	public void onStop() {
 		super.onStop();
 
-		//Se for autoRefresh, para a task atual porque no onStart() será iniciada outra.
+		//Se for autoRefresh, para a task atual porque no onStart() será iniciada outra (que voltará a observar a query).
 		if (recordsLoaded && isAutoRefresh()) {
 			updateCurrentTask(null);
+			stopObservingQuery();
 		}
 	}
 	
@@ -202,6 +227,10 @@ public final class EntityListFragment extends AbstractEntityListFragment {
 		super.onDestroy();
 		
 		updateCurrentTask(null);
+		stopObservingQuery();
+		if (entityListAdapter != null) {
+			closeRecords(entityListAdapter.getRecords());
+		}
 	}
 	
 	/**
@@ -496,6 +525,15 @@ public final class EntityListFragment extends AbstractEntityListFragment {
 		return arguments.getBoolean(AUTO_REFRESH_ARGUMENT, true);
 	}
 	
+	private int getWindowSize() {
+		Bundle arguments = getArguments();
+		if (arguments == null) {
+			return 0;
+		}
+
+		return arguments.getInt(WINDOW_SIZE_ARGUMENT, 0);
+	}
+
 	private boolean isSwipeRefresh() {
 		Bundle arguments = getArguments();
 		if (arguments == null) {
@@ -516,6 +554,8 @@ public final class EntityListFragment extends AbstractEntityListFragment {
 	
 	private void executeListLoadTask(boolean isFull, Runnable completionCallback, String... params) {
 		checkIsReady();
+		//A nova task já obterá os dados atuais.
+		pendingRefresh = false;
 
         ListLoadTask listLoadTask = new ListLoadTask(getSourceQueryArgument(), isFull, completionCallback);
 		//Se o DAO ainda não está pronto, coloca a task de atualização dentro de uma outra task que irá aguardar por isto e que pode ser cancelada.
@@ -535,17 +575,66 @@ public final class EntityListFragment extends AbstractEntityListFragment {
 	private void updateCurrentTask(AsyncTask<?, ?, ?> task) {
 		if (currentTask != null) {
 			currentTask.cancel(true);
+
+			//O cancelamento da task não interrompe a query em execução, então a cancela também. Tasks finalizadas não são
+			//afetadas pois seus registros podem estar em uso (como os carregados em janela a partir do cursor).
+			if (currentTask.getStatus() != AsyncTask.Status.FINISHED) {
+				if (currentTask instanceof ListLoadTask) {
+					((ListLoadTask) currentTask).cancelQuery();
+				} else if (currentTask instanceof WaitForDAOReadyTask) {
+					((WaitForDAOReadyTask) currentTask).cancelQuery();
+				}
+			}
 		}
 		
 		currentTask = task;
 	}
 
+	private void observeQuery(ISelectQuery query) {
+		stopObservingQuery();
+		if (!isAutoRefresh()) {
+			return;
+		}
+
+		queryObserver = new ListQueryObserver();
+		entityDAO.getEntityManager().observe(query, queryObserver);
+
+		//Se houve alterações durante o carregamento, os registros podem não refleti-las.
+		if (pendingRefresh) {
+			pendingRefresh = false;
+			queryObserver.onQueryChanged(query, null);
+		}
+	}
+
+	private void stopObservingQuery() {
+		if (queryObserver != null) {
+			queryObserver.stop();
+			queryObserver = null;
+		}
+	}
+
+    private static void closeRecords(List<IEntityRecord> records) {
+        //Os registros carregados em janela mantém um cursor aberto, o qual precisa ser fechado quando eles não forem mais utilizados.
+        if (records instanceof CursorEntityRecordList) {
+            ((CursorEntityRecordList) records).close();
+        }
+    }
+
     private int findRecordIndex(IEntityRecord record) {
         return findRecordIndex(record, entityListAdapter.getRecords());
     }
 
     private static int findRecordIndex(IEntityRecord record, List<IEntityRecord> listRecords) {
         Serializable recordId = record.getId();
+        //Os registros carregados em janela são buscados pelos identificadores do cursor, evitando carregar todos os registros.
+        if (listRecords instanceof CursorEntityRecordList && recordId != null) {
+            int index = ((CursorEntityRecordList) listRecords).indexOfId(recordId);
+            if (index < 0) {
+                throw new IllegalArgumentException("Record not found in the EntityListFragment: " + recordId);
+            }
+            return index;
+        }
+
         for (int i = 0; i < listRecords.size(); i++) {
             IEntityRecord listRecord = listRecords.get(i);
             if (listRecord == record || (recordId != null && recordId.equals(listRecord.getId()))) {
@@ -709,17 +798,26 @@ public final class EntityListFragment extends AbstractEntityListFragment {
 	}
 
     /**
-     * Engloba um {@link ListLoadTask} e aguarda até o {@link IEntityDAO} do fragmento estar pronto (através do {@link IEntityDAO#isReady()} == <code>true</code>)
-     * para executá-la. Os métodos de controle de UI da <code>AbstractListRefreshTask</code> englobada também são executados por esta classe.<br>
+     * Engloba um {@link ListLoadTask} e aguarda até o {@link IEntityDAO} do fragmento estar pronto (através do {@link IEntityDAO#awaitReady(AbstractReadyListener)})
+     * para executá-la. A espera é feita sem verificações periódicas, sendo liberada assim que o DAO notificar a prontidão ou a task for cancelada. Os métodos de controle de UI da <code>AbstractListRefreshTask</code> englobada também são executados por esta classe.<br>
      * Como o tempo para o <code>IEntityDAO</code> estar pronto é indeterminado, o <code>WaitForDAOReadyTask</code> deve ser executada através
      * do {@link #executeOnExecutor(Executor, Object[])} e deve ser cancelada no <code>onStop</code> do {@link Fragment}.
      */
     private final class WaitForDAOReadyTask extends SafeAsyncTask<String, Void, List<IEntityRecord>> {
 		
 		private final ListLoadTask innerTask;
+		private final CountDownLatch readyLatch;
+		private final AbstractReadyListener readyListener;
 
 		public WaitForDAOReadyTask(ListLoadTask innerTask) {
 			this.innerTask = innerTask;
+			readyLatch = new CountDownLatch(1);
+			readyListener = new AbstractReadyListener() {
+				@Override
+				public void onReady() {
+					readyLatch.countDown();
+				}
+			};
 		}
 		
 		@Override
@@ -733,18 +831,16 @@ public final class EntityListFragment extends AbstractEntityListFragment {
 		@Override
 		protected List<IEntityRecord> safeDoInBackground(String... params) throws ParseException {
 			//Aguarda até o DAO estar pronto para ser acessado.
-			while (!entityDAO.isReady()) {
-				if (isCancelled()) {
-					//Se foi cancelado, interrompe a espera. Pode retornar null mesmo pq o "onPostExecute" não será chamado.
-					return null;
-				}
-				
-				try {
-					Thread.sleep(1000);
-				} catch (InterruptedException e) {
-					//Provavelmente causado pelo cancelamento da task, então apenas ignora.
-					Log.w(ListLoadTask.class.getName(), e);
-				}
+			entityDAO.awaitReady(readyListener);
+			try {
+				readyLatch.await();
+			} catch (InterruptedException e) {
+				//Provavelmente causado pelo cancelamento da task, então apenas ignora.
+				Log.w(ListLoadTask.class.getName(), e);
+			}
+			if (isCancelled()) {
+				//Se foi cancelado, interrompe a espera. Pode retornar null mesmo pq o "onPostExecute" não será chamado.
+				return null;
 			}
 			
 			return innerTask.safeDoInBackground(params);
@@ -756,6 +852,24 @@ public final class EntityListFragment extends AbstractEntityListFragment {
 
             uiManager.finishRefresh();
 		}
+
+		@Override
+		protected void safeOnCancelled(List<IEntityRecord> result) {
+			innerTask.safeOnCancelled(result);
+		}
+
+		@Override
+		protected boolean onError(Exception exception) {
+			return innerTask.onError(exception);
+		}
+
+		void cancelQuery() {
+			//Libera a espera pela prontidão do DAO, se ela ainda estiver ocorrendo.
+			readyListener.cancel();
+			readyLatch.countDown();
+
+			innerTask.cancelQuery();
+		}
 	}
 
 	/**
@@ -771,6 +885,9 @@ public final class EntityListFragment extends AbstractEntityListFragment {
         private final ISelectQuery sourceQuery;
 		private final boolean isFull;
 		private final Runnable completionCallback;
+		private final QueryCancellationSignal cancellationSignal;
+		private ISelectQuery query;
+		private RecordListDiff diff;
 
         /**
          * Cria uma nova task de seleção de dados do fragmento.
@@ -783,11 +900,17 @@ public final class EntityListFragment extends AbstractEntityListFragment {
 			this.sourceQuery = sourceQuery;
 			this.isFull = isFull;
 			this.completionCallback = completionCallback;
+			this.cancellationSignal = new QueryCancellationSignal();
 		}
 
 		@Override
 		protected void onPreExecute() {
 			uiManager.startRefresh(isFull);
+
+			//Nas atualizações parciais, apenas as Views dos registros afetados são atualizadas.
+			if (!isFull) {
+				diff = entityListAdapter.prepareDiff();
+			}
 		}
 		
 		@Override
@@ -798,16 +921,27 @@ public final class EntityListFragment extends AbstractEntityListFragment {
 			if (recordsListener != null) {
 				List<IEntityRecord> newRecords = recordsListener.beforeRecordsChange(EntityListFragment.this, Collections.unmodifiableList(records));
 				if (newRecords != null) {
-					return newRecords;
+					if (newRecords != records) {
+						closeRecords(records);
+					}
+					records = newRecords;
 				}
 			}
 
+			//Os registros carregados sob demanda teriam que ser todos carregados para o cálculo da diferença.
+			if (diff != null && !(records instanceof CursorEntityRecordList)) {
+				diff.calculate(records);
+			}
 			return records;
 		}
 
         @Override
 		protected void safeOnPostExecute(final List<IEntityRecord> result) {
-            entityListAdapter.setRecords(result);
+            List<IEntityRecord> oldRecords = entityListAdapter.getRecords();
+            entityListAdapter.setRecords(result, diff);
+            if (oldRecords != result) {
+                closeRecords(oldRecords);
+            }
 			
 			if (completionCallback != null) {
 				completionCallback.run();
@@ -817,6 +951,26 @@ public final class EntityListFragment extends AbstractEntityListFragment {
 			}
 			
 			uiManager.finishRefresh();
+			observeQuery(query);
+		}
+
+		@Override
+		protected void safeOnCancelled(List<IEntityRecord> result) {
+			//Os registros selecionados não serão mais utilizados.
+			closeRecords(result);
+		}
+
+		@Override
+		protected boolean onError(Exception exception) {
+			//A interrupção da query é consequência do cancelamento da task, então não se trata de um erro.
+			return exception instanceof QueryCanceledException;
+		}
+
+		/**
+		 * Interrompe a query da task, se ela estiver em execução.
+		 */
+		void cancelQuery() {
+			cancellationSignal.cancel();
 		}
 
 
@@ -878,8 +1032,11 @@ public final class EntityListFragment extends AbstractEntityListFragment {
                 }
             }
 
-            //Adiciona os campos filtráveis do layout, se houverem.
-            if (layoutFieldsFilter != null) {
+            //Se a entidade possui busca textual, utiliza o índice de busca em vez dos campos filtráveis do layout.
+            if (layoutFieldsFilter != null && sourceQuery == null && entityDAO.isSearchEnabled()) {
+                q.condition().matches(layoutFieldsFilter);
+            } else if (layoutFieldsFilter != null) {
+                //Adiciona os campos filtráveis do layout, se houverem.
                 List<String[]> attrsPaths = getFilterableAttrsPaths();
                 if (!attrsPaths.isEmpty()) {
                     q.condition().o();
@@ -907,8 +1064,17 @@ public final class EntityListFragment extends AbstractEntityListFragment {
                 }
             }
 
-            //Executa e retorna a lista de resultados.
-            return q.listResult();
+            //Mantém a query gerada para que os seus dados possam ser observados após o carregamento.
+            query = q.toQuery();
+
+            //No modo de janela, os registros são obtidos do cursor sob demanda. Caso contrário, executa e retorna a lista de resultados.
+            int windowSize = getWindowSize();
+            if (windowSize > 0) {
+                CursorEntityRecordList records = new CursorEntityRecordList(entityDAO.executeCursorSelect(query, cancellationSignal), windowSize);
+                records.prefetch(0, Math.min(windowSize, WINDOW_PREFETCH_SIZE));
+                return records;
+            }
+            return entityDAO.executeListSelect(query, cancellationSignal);
         }
 
         private List<String[]> getFilterableAttrsPaths() {
@@ -947,6 +1113,35 @@ public final class EntityListFragment extends AbstractEntityListFragment {
         }
     }
 
+	/**
+	 * Observador da query dos registros listados, responsável por atualizar a lista quando os seus dados forem alterados.<br>
+	 * O gerenciador de dados já agrupa as alterações próximas, então uma rajada de alterações (como as da sincronização) gera
+	 * apenas uma atualização. Se houver um carregamento em andamento, a atualização é feita somente após o seu término.
+	 */
+	private final class ListQueryObserver extends AbstractQueryObserver implements Runnable {
+
+		//Criado na Thread de UI para postar as atualizações nela.
+		private final Handler handler = new Handler();
+
+		@Override
+		public void onQueryChanged(ISelectQuery query, Set<Serializable> changedIds) {
+			handler.post(this);
+		}
+
+		@Override
+		public void run() {
+			if (isStopped()) {
+				return;
+			}
+
+			if (currentTask != null && currentTask.getStatus() != AsyncTask.Status.FINISHED) {
+				pendingRefresh = true;
+				return;
+			}
+			refresh(false, null);
+		}
+	}
+
 	/**
 	 * Responsável por controlar as características visuais deste fragmento durante o progresso das atualizações de dados.
 	 * Não é Thread Safe, mas não apresentará problemas porque o fragmento garante que apenas uma task execute de cada vez (a antiga é cancelada antes de iniciar a nova).
@@ -0,0 +1,384 @@
+package br.com.zalem.ymir.client.android.entity.ui.image;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.widget.ImageView;
+
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import br.com.zalem.ymir.client.android.entity.data.IEntityRecord;
+
+/**
+ * Carregador de imagens de registros de entidades para {@link ImageView ImageViews}.<br>
+ * As imagens são obtidas dos dados dos registros em um conjunto limitado de Threads de background, sendo que as requisições
+ * das Views têm prioridade sobre as de pré-carregamento e, entre as requisições de mesma prioridade, as mais recentes são atendidas primeiro
+ * (durante a rolagem de uma lista, as Views vinculadas por último são as que estão visíveis).<br>
+ * <br>
+ * Cada View fica vinculada a no máximo uma requisição, de forma que uma nova requisição (ou o {@link #cancel(ImageView)}) cancela a anterior.
+ * Requisições da mesma imagem (mesmo registro, atributo e tamanho alvo) são agrupadas em um único carregamento.<br>
+ * <br>
+ * O pré-carregamento apenas obtém as imagens, que ficam disponíveis no <code>cache de imagens</code> da fonte de dados (se houver) para
+ * quando as Views dos registros forem vinculadas.<br>
+ * <br>
+ * Os métodos públicos devem ser chamados na Thread de UI, que também é a Thread na qual os listeners são notificados.
+ *
+ * @author Thiago Gesser
+ */
+public final class ImageLoader {
+
+	private static final int DEFAULT_MAX_PREFETCH_REQUESTS = 12;
+	private static ImageLoader instance;
+
+	private final ThreadPoolExecutor executor;
+	private final Handler mainHandler;
+	private final int maxPrefetchRequests;
+	//Carregamentos pendentes, indexados pela chave da imagem.
+	private final Map<ImageKey, LoadJob> jobs;
+	//Requisição vinculada a cada View. Utiliza referências fracas para não segurar as Views descartadas.
+	private final Map<ImageView, ImageRequest> requests;
+	private long sequence;
+
+	/**
+	 * Cria um ImageLoader.
+	 *
+	 * @param threadCount número de Threads utilizadas nos carregamentos.
+	 * @param maxPrefetchRequests número máximo de requisições de pré-carregamento pendentes. As requisições excedentes são descartadas.
+	 */
+	public ImageLoader(int threadCount, int maxPrefetchRequests) {
+		if (threadCount <= 0) {
+			throw new IllegalArgumentException("threadCount must be positive: " + threadCount);
+		}
+		if (maxPrefetchRequests < 0) {
+			throw new IllegalArgumentException("maxPrefetchRequests can't be negative: " + maxPrefetchRequests);
+		}
+
+		this.maxPrefetchRequests = maxPrefetchRequests;
+		executor = new ThreadPoolExecutor(threadCount, threadCount, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>(), new LoaderThreadFactory());
+		mainHandler = new Handler(Looper.getMainLooper());
+		jobs = new HashMap<>();
+		requests = new WeakHashMap<>();
+	}
+
+	/**
+	 * Obtém o ImageLoader compartilhado pela aplicação, cujo número de Threads é baseado no número de processadores do dispositivo.
+	 *
+	 * @return o ImageLoader obtido.
+	 */
+	public static ImageLoader getInstance() {
+		if (instance == null) {
+			//Deixa ao menos um processador livre para a Thread de UI, mas não mais do que 4 Threads para não disputar o acesso ao banco de dados.
+			int threadCount = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() - 1, 4));
+			instance = new ImageLoader(threadCount, DEFAULT_MAX_PREFETCH_REQUESTS);
+		}
+		return instance;
+	}
+
+	/**
+	 * Carrega a imagem do atributo do registro em background, vinculando a requisição à View. A requisição anterior da View é cancelada.<br>
+	 * O listener é notificado apenas se a View continuar vinculada a esta requisição quando o carregamento terminar.
+	 *
+	 * @param imageView View que receberá a imagem.
+	 * @param record registro base.
+	 * @param attributePath caminho até o atributo de imagem, passando pelos relacionamentos a partir do registro base.
+	 * @param targetSize tamanho alvo (largura e altura) para a obtenção da imagem reduzida ou <code>null</code> para obter a imagem inteira.
+	 * @param listener listener que será notificado sobre o término do carregamento.
+	 */
+	public void load(ImageView imageView, IEntityRecord record, String[] attributePath, int[] targetSize, OnImageLoadedListener listener) {
+		cancel(imageView);
+
+		ImageKey key = new ImageKey(record, attributePath, targetSize);
+		LoadJob job = jobs.get(key);
+		if (job == null) {
+			job = new LoadJob(key, record, attributePath, targetSize, true, ++sequence);
+			jobs.put(key, job);
+			executor.execute(job);
+		} else if (!job.visible && executor.getQueue().remove(job)) {
+			//Um pré-carregamento que ainda não começou passa a ter a prioridade das Views. Precisa sair da fila para ser reposicionado.
+			job.visible = true;
+			job.sequence = ++sequence;
+			executor.execute(job);
+		} else {
+			job.visible = true;
+		}
+
+		ImageRequest request = new ImageRequest(imageView, job, listener);
+		job.requests.add(request);
+		requests.put(imageView, request);
+	}
+
+	/**
+	 * Pré-carrega a imagem do atributo do registro em background, com prioridade menor do que a das requisições das Views.<br>
+	 * Se a imagem já estiver sendo carregada ou se o número máximo de pré-carregamentos pendentes foi atingido, não faz nada.
+	 *
+	 * @param record registro base.
+	 * @param attributePath caminho até o atributo de imagem, passando pelos relacionamentos a partir do registro base.
+	 * @param targetSize tamanho alvo (largura e altura) para a obtenção da imagem reduzida ou <code>null</code> para obter a imagem inteira.
+	 */
+	public void prefetch(IEntityRecord record, String[] attributePath, int[] targetSize) {
+		ImageKey key = new ImageKey(record, attributePath, targetSize);
+		if (jobs.containsKey(key) || getPendingPrefetchCount() >= maxPrefetchRequests) {
+			return;
+		}
+
+		LoadJob job = new LoadJob(key, record, attributePath, targetSize, false, ++sequence);
+		jobs.put(key, job);
+		executor.execute(job);
+	}
+
+	/**
+	 * Cancela a requisição vinculada à View, se houver. O carregamento só é interrompido se não houver outras requisições da mesma imagem.
+	 *
+	 * @param imageView a View.
+	 */
+	public void cancel(ImageView imageView) {
+		ImageRequest request = requests.remove(imageView);
+		if (request == null) {
+			return;
+		}
+
+		LoadJob job = request.job;
+		job.requests.remove(request);
+		if (job.requests.isEmpty()) {
+			//Se já está em execução, apenas o resultado será descartado.
+			job.canceled = true;
+			executor.getQueue().remove(job);
+			jobs.remove(job.key);
+		}
+	}
+
+	/**
+	 * Cancela todos os pré-carregamentos que ainda não começaram, como quando a lista muda de direção ou é descartada.
+	 */
+	public void cancelPrefetches() {
+		for (LoadJob job : new ArrayList<>(jobs.values())) {
+			if (!job.visible && executor.getQueue().remove(job)) {
+				job.canceled = true;
+				jobs.remove(job.key);
+			}
+		}
+	}
+
+
+	/**
+	 * Listener do término do carregamento de uma imagem requisitada por uma View.
+	 */
+	public interface OnImageLoadedListener {
+
+		/**
+		 * Chamado na Thread de UI quando a imagem requisitada pela View foi carregada.
+		 *
+		 * @param imageView a View.
+		 * @param image a imagem carregada ou <code>null</code> se não havia valor para o atributo.
+		 * @param record registro fonte da imagem (no final do caminho de relacionamentos) ou <code>null</code> se algum relacionamento do caminho era nulo.
+		 */
+		void onImageLoaded(ImageView imageView, Bitmap image, IEntityRecord record);
+	}
+
+
+	/*
+	 * Métodos/classes auxiliares
+	 */
+
+	private int getPendingPrefetchCount() {
+		int count = 0;
+		for (LoadJob job : jobs.values()) {
+			if (!job.visible) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private void deliver(LoadJob job, Bitmap image, IEntityRecord record) {
+		if (job.canceled) {
+			return;
+		}
+		jobs.remove(job.key);
+
+		for (ImageRequest request : job.requests) {
+			//A View pode ter sido vinculada a outra requisição ou descartada nesse meio tempo.
+			ImageView imageView = request.imageViewRef.get();
+			if (imageView == null || requests.get(imageView) != request) {
+				continue;
+			}
+
+			requests.remove(imageView);
+			request.listener.onImageLoaded(imageView, image, record);
+		}
+	}
+
+	private static IEntityRecord getSourceRecord(IEntityRecord record, String[] attributePath) {
+		//Vai passando pelos relacionamentos até chegar no registro fonte do valor.
+		for (int i = 0; i < attributePath.length-1; i++) {
+			record = record.getRelationshipValue(attributePath[i]);
+			if (record == null) {
+				return null;
+			}
+		}
+		return record;
+	}
+
+
+	/**
+	 * Carregamento de uma imagem, compartilhado por todas as requisições dela.<br>
+	 * Os campos de prioridade só são alterados enquanto o carregamento está fora da fila do executor.
+	 */
+	private final class LoadJob implements Runnable, Comparable<LoadJob> {
+
+		private final ImageKey key;
+		private final IEntityRecord record;
+		private final String[] attributePath;
+		private final int[] targetSize;
+		private final List<ImageRequest> requests;
+		private volatile boolean visible;
+		private volatile long sequence;
+		private volatile boolean canceled;
+
+		LoadJob(ImageKey key, IEntityRecord record, String[] attributePath, int[] targetSize, boolean visible, long sequence) {
+			this.key = key;
+			this.record = record;
+			this.attributePath = attributePath;
+			this.targetSize = targetSize;
+			this.visible = visible;
+			this.sequence = sequence;
+			this.requests = new ArrayList<>(1);
+		}
+
+		@Override
+		public void run() {
+			if (canceled) {
+				return;
+			}
+
+			Bitmap image = null;
+			IEntityRecord sourceRecord = null;
+			try {
+				sourceRecord = getSourceRecord(record, attributePath);
+				if (sourceRecord != null) {
+					String attribute = attributePath[attributePath.length-1];
+					if (targetSize == null) {
+						image = sourceRecord.getImageValue(attribute, false);
+					} else {
+						image = sourceRecord.getImageValue(attribute, targetSize[0], targetSize[1], false);
+					}
+				}
+			} catch (RuntimeException e) {
+				Log.e(ImageLoader.class.getSimpleName(), "Error loading the image " + Arrays.toString(attributePath) + ".", e);
+			} finally {
+				//Sempre entrega o resultado (mesmo que sem imagem), para que o carregamento não fique para sempre entre os pendentes.
+				final Bitmap result = image;
+				final IEntityRecord resultRecord = sourceRecord;
+				mainHandler.post(new Runnable() {
+					@Override
+					public void run() {
+						deliver(LoadJob.this, result, resultRecord);
+					}
+				});
+			}
+		}
+
+		@Override
+		public int compareTo(LoadJob another) {
+			//As requisições das Views vêm antes dos pré-carregamentos e, dentro da mesma prioridade, as mais recentes vêm primeiro.
+			if (visible != another.visible) {
+				return visible ? -1 : 1;
+			}
+			return sequence > another.sequence ? -1 : (sequence == another.sequence ? 0 : 1);
+		}
+	}
+
+	/**
+	 * Requisição de uma imagem feita por uma View.
+	 */
+	private static final class ImageRequest {
+
+		private final WeakReference<ImageView> imageViewRef;
+		private final LoadJob job;
+		private final OnImageLoadedListener listener;
+
+		ImageRequest(ImageView imageView, LoadJob job, OnImageLoadedListener listener) {
+			this.imageViewRef = new WeakReference<>(imageView);
+			this.job = job;
+			this.listener = listener;
+		}
+	}
+
+	/**
+	 * Chave de uma imagem, utilizada para agrupar as requisições da mesma imagem.<br>
+	 * Registros sem identificador ou com alterações ainda não salvas só são relacionados com eles mesmos, pois os seus valores podem diferir
+	 * dos salvos na fonte de dados.
+	 */
+	private static final class ImageKey {
+
+		private final Object recordKey;
+		private final String[] attributePath;
+		private final int[] targetSize;
+
+		ImageKey(IEntityRecord record, String[] attributePath, int[] targetSize) {
+			Serializable id = record.getId();
+			if (id == null || record.isDirty()) {
+				this.recordKey = record;
+			} else {
+				this.recordKey = Arrays.asList(record.getEntityMetadata().getName(), id);
+			}
+			this.attributePath = attributePath;
+			this.targetSize = targetSize;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+
+			ImageKey imageKey = (ImageKey) o;
+			return recordKey.equals(imageKey.recordKey) && Arrays.equals(attributePath, imageKey.attributePath) &&
+				   Arrays.equals(targetSize, imageKey.targetSize);
+		}
+
+		@Override
+		public int hashCode() {
+			int result = recordKey.hashCode();
+			result = 31 * result + Arrays.hashCode(attributePath);
+			result = 31 * result + Arrays.hashCode(targetSize);
+			return result;
+		}
+	}
+
+	/**
+	 * Cria as Threads de carregamento com prioridade de background, para que não disputem o processador com a Thread de UI.
+	 */
+	private static final class LoaderThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			return new Thread(new Runnable() {
+				@Override
+				public void run() {
+					Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+					runnable.run();
+				}
+			}, ImageLoader.class.getSimpleName() + " #" + count.incrementAndGet());
+		}
+	}
+}
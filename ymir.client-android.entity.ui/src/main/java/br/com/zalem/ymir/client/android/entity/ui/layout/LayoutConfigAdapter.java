@@ -3,7 +3,6 @@ package br.com.zalem.ymir.client.android.entity.ui.layout;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.drawable.Drawable;
-import android.os.AsyncTask;
 import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -14,12 +13,12 @@ import android.widget.TextView;
 import com.amulyakhare.textdrawable.TextDrawable;
 import com.amulyakhare.textdrawable.util.ColorGenerator;
 
-import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Locale;
 
 import br.com.zalem.ymir.client.android.entity.data.IEntityRecord;
+import br.com.zalem.ymir.client.android.entity.data.SyncStatus;
 import br.com.zalem.ymir.client.android.entity.ui.R;
 import br.com.zalem.ymir.client.android.entity.ui.configuration.view.layout.ILayoutConfig;
 import br.com.zalem.ymir.client.android.entity.ui.configuration.view.layout.ILayoutFieldMapping;
@@ -27,6 +26,8 @@ import br.com.zalem.ymir.client.android.entity.ui.configuration.view.layout.ILay
 import br.com.zalem.ymir.client.android.entity.ui.configuration.view.layout.LayoutField;
 import br.com.zalem.ymir.client.android.entity.ui.configuration.view.layout.LayoutFieldType;
 import br.com.zalem.ymir.client.android.entity.ui.configuration.view.layout.LayoutFieldVisibility;
+import br.com.zalem.ymir.client.android.entity.ui.image.ImageLoader;
+import br.com.zalem.ymir.client.android.entity.ui.image.ImageLoader.OnImageLoadedListener;
 import br.com.zalem.ymir.client.android.entity.ui.text.EntityAttributeFormatter;
 import br.com.zalem.ymir.client.android.util.SimpleEnumMap;
 
@@ -60,15 +61,23 @@ import br.com.zalem.ymir.client.android.util.SimpleEnumMap;
  *	}
  * </pre>
  *
+ * As imagens que não estão no <code>cache de imagens</code> são carregadas em background através de um {@link ImageLoader}.
+ *
  * @author Thiago Gesser
  */
 public final class LayoutConfigAdapter {
+
+	//Tamanho alvo utilizado quando as imagens de um campo são obtidas inteiras, já que o tamanho da View não era conhecido.
+	private static final int[] FULL_IMAGE_SIZE = new int[0];
 	
 	private final int layoutResId;
 	private final ILayoutFieldMapping[] fieldMappings;
 	private final EntityAttributeFormatter attributesFormatter;
 	private final boolean useSingleViewHolder;
+	//Último tamanho alvo de cada campo de imagem, utilizado no pré-carregamento.
+	private final SimpleEnumMap<LayoutField, int[]> imageTargetSizes;
 	private LayoutInflater inflater;
+	private ImageLoader imageLoader;
 
 	public LayoutConfigAdapter(Context context, ILayoutConfig<?> layoutConfig, EntityAttributeFormatter fieldFormatter) {
 		this(context, layoutConfig, fieldFormatter, LayoutInflater.from(context));
@@ -92,6 +101,8 @@ public final class LayoutConfigAdapter {
 		}
 		this.layoutResId = layoutResId;
 		this.useSingleViewHolder = layoutConfig.getFields().length == 1;
+		this.imageTargetSizes = new SimpleEnumMap<>(LayoutField.class);
+		this.imageLoader = ImageLoader.getInstance();
 	}
 
 	/**
@@ -236,8 +247,65 @@ public final class LayoutConfigAdapter {
         }
     }
 
+    /**
+     * Calcula a versão do conteúdo que o registro apresenta no layout, baseada no seu status de sincronização, na existência de alterações
+     * e nos valores dos campos visíveis. Registros com a mesma versão resultam em Views iguais (salvo colisões do hash).<br>
+     * Os campos de imagem contribuem apenas com a presença do valor e com o texto substituto, evitando a obtenção das imagens.
+     *
+     * @param entityRecord registro de entidade.
+     * @return a versão calculada.
+     */
+    public int getContentVersion(IEntityRecord entityRecord) {
+        SyncStatus syncStatus = entityRecord.getSyncStatus();
+        int version = 31 + (syncStatus == null ? 0 : syncStatus.ordinal() + 1);
+        version = 31 * version + (entityRecord.isDirty() ? 1 : 0);
+        for (ILayoutFieldMapping fieldMapping : fieldMappings) {
+            if (fieldMapping.getVisibility() == LayoutFieldVisibility.VISIBLE) {
+                version = 31 * version + getFieldValueHash(fieldMapping, entityRecord);
+            }
+        }
+        return version;
+    }
+
 
 
+    /**
+     * Pré-carrega em background as imagens do registro, para que elas já estejam no <code>cache de imagens</code> quando forem vinculadas a uma View.<br>
+     * Apenas os campos de imagem que já foram vinculados a alguma View são considerados, pois é necessário conhecer o tamanho alvo das imagens.
+     *
+     * @param entityRecord registro de entidade.
+     */
+    public void prefetchImages(IEntityRecord entityRecord) {
+        for (ILayoutFieldMapping fieldMapping : fieldMappings) {
+            if (fieldMapping.getVisibility() != LayoutFieldVisibility.VISIBLE || fieldMapping.getLayoutField().getType() != LayoutFieldType.IMAGE) {
+                continue;
+            }
+
+            int[] targetSize = imageTargetSizes.get(fieldMapping.getLayoutField());
+            if (targetSize != null) {
+                imageLoader.prefetch(entityRecord, fieldMapping.getAttribute(), targetSize == FULL_IMAGE_SIZE ? null : targetSize);
+            }
+        }
+    }
+
+    /**
+     * Obtém o {@link ImageLoader} utilizado pelo adapter para carregar as imagens que não estão no <code>cache de imagens</code>.
+     *
+     * @return o carregador obtido.
+     */
+    public ImageLoader getImageLoader() {
+        return imageLoader;
+    }
+
+    /**
+     * Define o {@link ImageLoader} utilizado pelo adapter. Por padrão, é utilizado o {@link ImageLoader#getInstance() carregador compartilhado}.
+     *
+     * @param imageLoader o carregador que será utilizado pelo adapter.
+     */
+    public void setImageLoader(ImageLoader imageLoader) {
+        this.imageLoader = imageLoader;
+    }
+
     /**
      * Obtem o {@link LayoutInflater} utilizado pelo adapter.
      *
@@ -305,6 +373,31 @@ public final class LayoutConfigAdapter {
 		}
 	}
 
+	private static int getFieldValueHash(ILayoutFieldMapping fieldMapping, IEntityRecord record) {
+		//Vai passando pelos relacionamentos até chegar no registro fonte do valor.
+		String[] attributePath = fieldMapping.getAttribute();
+		for (int i = 0; i < attributePath.length-1; i++) {
+			record = record.getRelationshipValue(attributePath[i]);
+			if (record == null) {
+				return 0;
+			}
+		}
+
+		String attribute = attributePath[attributePath.length-1];
+		if (fieldMapping.getLayoutField().getType() == LayoutFieldType.IMAGE) {
+			int hash = record.isNull(attribute) ? 1 : 2;
+			String surrogateAttribute = fieldMapping.getSurrogateAttribute();
+			if (!TextUtils.isEmpty(surrogateAttribute)) {
+				String surrogateValue = record.getTextValue(surrogateAttribute);
+				hash = 31 * hash + (surrogateValue == null ? 0 : surrogateValue.hashCode());
+			}
+			return hash;
+		}
+
+		Object value = record.getAttributeValue(attribute);
+		return value == null ? 0 : value.hashCode();
+	}
+
 	private void setStringFieldValue(View fieldView, ILayoutFieldMapping fieldMapping, IEntityRecord record) {
 		TextView textView;
 		try {
@@ -334,17 +427,41 @@ public final class LayoutConfigAdapter {
 			throw new RuntimeException("Layout fields of the IMAGE type should be mapped to ImageView. View id = " + fieldView.getId());
 		}
 		
-		//Primeiro tenta setar a imagem diretamente do cache.
-		if (setCachedImageValue(imageView, fieldMapping, record, attributesFormatter)) {
+		//Se o tamanho da View já é conhecido, obtém a imagem reduzida para ele, evitando decodificar a imagem inteira.
+		int[] targetSize = getTargetSize(imageView);
+		imageTargetSizes.put(fieldMapping.getLayoutField(), targetSize == null ? FULL_IMAGE_SIZE : targetSize);
+
+		//Primeiro tenta setar a imagem diretamente do cache. A View pode estar sendo reutilizada, então cancela o carregamento anterior dela.
+		if (setCachedImageValue(imageView, fieldMapping, record, targetSize, attributesFormatter)) {
+			imageLoader.cancel(imageView);
 			return;
 		}
 
 		//Se não foi possível setar a imagem a partir do cache, obtém a imagem do campo do registro em background e seta apenas depois disto.
-		//A task roda no AsyncTask.SERIAL_EXECUTOR, de forma que apenas uma imagem é carregada de cada vez.
-		new ImageLoaderTask(imageView, fieldMapping, record, attributesFormatter).execute();
+		//Seta nulo para remover qualquer imagem da view enquanto isto.
+		imageView.setImageDrawable(null);
+		imageLoader.load(imageView, record, fieldMapping.getAttribute(), targetSize, new ImageFieldLoadedListener(fieldMapping, attributesFormatter));
+	}
+
+	private static int[] getTargetSize(ImageView imageView) {
+		//Prioriza o tamanho fixo declarado no layout, pois a View pode ainda não ter sido medida.
+		ViewGroup.LayoutParams layoutParams = imageView.getLayoutParams();
+		int width = layoutParams != null && layoutParams.width > 0 ? layoutParams.width : imageView.getWidth();
+		int height = layoutParams != null && layoutParams.height > 0 ? layoutParams.height : imageView.getHeight();
+		if (width <= 0 || height <= 0) {
+			return null;
+		}
+		return new int[] {width, height};
+	}
+
+	private static Bitmap getImageValue(IEntityRecord record, String attribute, int[] targetSize, boolean fromCache) {
+		if (targetSize == null) {
+			return record.getImageValue(attribute, fromCache);
+		}
+		return record.getImageValue(attribute, targetSize[0], targetSize[1], fromCache);
 	}
 	
-	private static boolean setCachedImageValue(ImageView imageView, ILayoutFieldMapping fieldMapping, IEntityRecord record, EntityAttributeFormatter attributesFormatter) {
+	private static boolean setCachedImageValue(ImageView imageView, ILayoutFieldMapping fieldMapping, IEntityRecord record, int[] targetSize, EntityAttributeFormatter attributesFormatter) {
         String[] attributePath = fieldMapping.getAttribute();
 		//Vai passando pelos relacionamentos até chegar no registro fonte do valor. Se algum relacionamento do caminho for nulo, seta a imagem de valor nulo.
         for (int i = 0; i < attributePath.length-1; i++) {
@@ -357,7 +474,7 @@ public final class LayoutConfigAdapter {
         }
 
         String attribute = attributePath[attributePath.length -1];
-        Bitmap cacheValue = record.getImageValue(attribute, true);
+        Bitmap cacheValue = getImageValue(record, attribute, targetSize, true);
         //Se a imagem não está no cache, ela deve ser carregada diretamente do campo do registro em background.
         //Entretanto, se o valor do campo em si for nulo, pode setar diretamente a imagem de valor nulo, evitando a criação da Task.
         if (cacheValue == null && !record.isNull(attribute)) {
@@ -427,72 +544,21 @@ public final class LayoutConfigAdapter {
 
 	
 	/**
-	 * Carrega uma imagem diretamente do campo do registro, setando a imagem no {@link ImageView} após o carregamento.
+	 * Seta a imagem carregada em background no {@link ImageView} do campo.
 	 */
-	private static final class ImageLoaderTask extends AsyncTask<Void, Void, ImageLoadResult> {
-		
-		private final WeakReference<ImageView> imageViewRef;
+	private static final class ImageFieldLoadedListener implements OnImageLoadedListener {
+
 		private final ILayoutFieldMapping fieldMapping;
-		private final IEntityRecord record;
-        private final EntityAttributeFormatter attributesFormatter;
+		private final EntityAttributeFormatter attributesFormatter;
 
-        public ImageLoaderTask(ImageView imageView, ILayoutFieldMapping fieldMapping, IEntityRecord record, EntityAttributeFormatter attributesFormatter) {
-            this.attributesFormatter = attributesFormatter;
-            this.imageViewRef = new WeakReference<>(imageView);
+		ImageFieldLoadedListener(ILayoutFieldMapping fieldMapping, EntityAttributeFormatter attributesFormatter) {
 			this.fieldMapping = fieldMapping;
-			this.record = record; 
-		}
-		
-		@Override
-		protected void onPreExecute() {
-			//Seta nulo para remover qualquer imagem da view.
-			imageViewRef.get().setImageDrawable(null);
-		}
-		
-		@Override
-		protected ImageLoadResult doInBackground(Void... params) {
-			return getImageValue(fieldMapping.getAttribute(), record);
+			this.attributesFormatter = attributesFormatter;
 		}
-		
+
 		@Override
-		protected void onPostExecute(ImageLoadResult value) {
-			ImageView imageView = imageViewRef.get();
-			if (imageView == null) {
-				return;
-			}
-			setImageViewValue(imageView, value.getImage(), fieldMapping, attributesFormatter, value.getRecord());
+		public void onImageLoaded(ImageView imageView, Bitmap image, IEntityRecord record) {
+			setImageViewValue(imageView, image, fieldMapping, attributesFormatter, record);
 		}
-
-        private static ImageLoadResult getImageValue(String[] attributePath, IEntityRecord record) {
-            for (int i = 0; i < attributePath.length-1; i++) {
-                String relationship = attributePath[i];
-                record = record.getRelationshipValue(relationship);
-                if (record == null) {
-                    return new ImageLoadResult(null, null);
-                }
-            }
-
-            String attribute = attributePath[attributePath.length -1];
-            Bitmap imageValue = record.getImageValue(attribute, false);
-            return new ImageLoadResult(imageValue, record);
-        }
 	}
-
-    private static final class ImageLoadResult {
-        private Bitmap image;
-        private IEntityRecord record;
-
-        public ImageLoadResult(Bitmap image, IEntityRecord record) {
-            this.image = image;
-            this.record = record;
-        }
-
-        public Bitmap getImage() {
-            return image;
-        }
-
-        public IEntityRecord getRecord() {
-            return record;
-        }
-    }
 }
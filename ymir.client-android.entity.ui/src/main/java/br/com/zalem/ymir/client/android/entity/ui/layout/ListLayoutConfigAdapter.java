@@ -3,7 +3,9 @@ package br.com.zalem.ymir.client.android.entity.ui.layout;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.graphics.Rect;
+import android.os.AsyncTask;
 import android.support.annotation.NonNull;
+import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.text.TextUtils;
 import android.view.Gravity;
@@ -22,9 +24,14 @@ import android.widget.Toast;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import br.com.zalem.ymir.client.android.entity.data.IEntityRecord;
+import br.com.zalem.ymir.client.android.entity.data.util.CursorEntityRecordList;
 import br.com.zalem.ymir.client.android.entity.ui.R;
 import br.com.zalem.ymir.client.android.entity.ui.configuration.view.layout.ILayoutConfig;
 import br.com.zalem.ymir.client.android.entity.ui.configuration.view.layout.ListLayoutType;
@@ -41,19 +48,38 @@ import br.com.zalem.ymir.client.android.menu.YmirMenuItem;
  * {@link LayoutConfigAdapter}.<br>
  * <br>
  * O ListLayoutConfigAdapter permite a configuração de ações para as Views geradas dos registros. Mais detalhes podem ser vistos diretamente em
- * {@link #setActionProvider(IEntityRecordListActionProvider)}.
+ * {@link #setActionProvider(IEntityRecordListActionProvider)}.<br>
+ * <br>
+ * Os registros são obtidos da lista apenas no momento em que suas Views são vinculadas, então uma lista que carrega os registros sob demanda
+ * (como a {@link CursorEntityRecordList}) só irá carregar os registros conforme a rolagem. Neste caso, os registros que ainda não estão
+ * em memória são carregados em background por páginas, mantendo as suas Views invisíveis até o fim do carregamento.<br>
+ * <br>
+ * A troca dos registros pode ser feita de forma incremental através de uma {@link RecordListDiff diferença} calculada em background,
+ * atualizando apenas as Views dos registros que foram inseridos, excluídos, movimentados ou alterados.<br>
+ * <br>
+ * Durante a rolagem, as imagens dos registros seguintes aos visíveis são pré-carregadas (ver {@link #setImagePrefetchCount(int)}).
  *
  * @see LayoutConfigAdapter
  * 
  * @author Thiago Gesser
  */
 public final class ListLayoutConfigAdapter extends RecyclerView.Adapter<ListLayoutConfigViewHolder> {
+
+	private static final int DEFAULT_IMAGE_PREFETCH_COUNT = 6;
+	//Quantidade de registros carregados de uma vez em background, no caso da CursorEntityRecordList.
+	private static final int RECORD_PAGE_SIZE = 30;
 	
 	private final Context context;
 	private final LayoutInflater inflater;
 	private final LayoutConfigAdapter layoutAdapter;
+	private final ImagePrefetchScrollListener imagePrefetchListener;
+	private int imagePrefetchCount;
 
 	private List<IEntityRecord> records;
+	//Versões de conteúdo dos registros que já foram vinculados a alguma View, indexadas pela chave do registro.
+	private Map<Object, Integer> boundVersions;
+	//Páginas de registros sendo carregadas em background.
+	private final Set<Integer> loadingPages;
 	private ActionMenuAdapter actionMenuAdapter;
     private OnItemClickListener itemClickListener;
 
@@ -64,8 +90,12 @@ public final class ListLayoutConfigAdapter extends RecyclerView.Adapter<ListLayo
 	public ListLayoutConfigAdapter(Context context, ILayoutConfig<ListLayoutType> layoutConfig, List<IEntityRecord> records, EntityAttributeFormatter fieldFormatter) {
 		this.context = context;
 		this.records = records;
+		this.boundVersions = new HashMap<>();
+		this.loadingPages = new HashSet<>();
 		this.inflater = LayoutInflater.from(context);
 		this.layoutAdapter = new LayoutConfigAdapter(context, layoutConfig, fieldFormatter, inflater);
+		this.imagePrefetchListener = new ImagePrefetchScrollListener();
+		this.imagePrefetchCount = DEFAULT_IMAGE_PREFETCH_COUNT;
 	}
 
     @Override
@@ -77,8 +107,16 @@ public final class ListLayoutConfigAdapter extends RecyclerView.Adapter<ListLayo
 
     @Override
     public void onBindViewHolder(ListLayoutConfigViewHolder viewHolder, int position) {
-		IEntityRecord entityRecord = records.get(position);
+		IEntityRecord entityRecord = getLoadedRecord(position);
+		//Enquanto o registro é carregado em background, a View fica invisível.
+		if (entityRecord == null) {
+			viewHolder.itemView.setVisibility(View.INVISIBLE);
+			return;
+		}
+
+		viewHolder.itemView.setVisibility(View.VISIBLE);
         bindViewHolder(viewHolder, entityRecord);
+        boundVersions.put(RecordListDiff.getKey(entityRecord), layoutAdapter.getContentVersion(entityRecord));
 	}
 
     @Override
@@ -86,6 +124,17 @@ public final class ListLayoutConfigAdapter extends RecyclerView.Adapter<ListLayo
         return records.size();
     }
 
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        recyclerView.addOnScrollListener(imagePrefetchListener);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        recyclerView.removeOnScrollListener(imagePrefetchListener);
+        layoutAdapter.getImageLoader().cancelPrefetches();
+    }
+
 
     /**
      * Cria a View espeficiada pela configuração de layout.
@@ -205,11 +254,54 @@ public final class ListLayoutConfigAdapter extends RecyclerView.Adapter<ListLayo
 	 */
 	public void setRecords(List<IEntityRecord> records, boolean silent) {
 		this.records = records;
+		boundVersions.clear();
+		loadingPages.clear();
+		imagePrefetchListener.reset();
+		//Como todas as Views serão atualizadas, já descarta os registros inexistentes detectados no carregamento antecipado.
+		if (records instanceof CursorEntityRecordList) {
+			((CursorEntityRecordList) records).dropMissing();
+		}
 		
 		if (!silent) {
 			notifyDataSetChanged();
 		}
 	}
+
+	/**
+	 * Atualiza os registros que este adapter utiliza para a criação de Views, avisando apenas sobre as alterações contidas na diferença.<br>
+	 * Se a diferença não foi calculada ou se os registros do adapter foram alterados depois da sua preparação, o aviso é feito da mesma
+	 * forma que no {@link #setRecords(List)}.
+	 *
+	 * @param records novos registros, os mesmos utilizados no cálculo da diferença.
+	 * @param diff diferença entre os registros atuais e os novos ou <code>null</code> se ela não está disponível.
+	 */
+	public void setRecords(List<IEntityRecord> records, RecordListDiff diff) {
+		if (diff == null || !diff.isCalculated() || !diff.isBasedOn(this.records)) {
+			setRecords(records);
+			return;
+		}
+
+		this.records = records;
+		boundVersions = diff.getNewVersions();
+		loadingPages.clear();
+		imagePrefetchListener.reset();
+		diff.dispatchUpdatesTo(this);
+	}
+
+	/**
+	 * Prepara o cálculo da diferença entre os registros atuais e uma nova lista de registros, registrando o estado atual do adapter.
+	 * Deve ser chamado na Thread de UI, mas a diferença pode ser calculada em background através do {@link RecordListDiff#calculate(List)}.
+	 *
+	 * @return a diferença preparada ou <code>null</code> se os registros atuais não suportam o cálculo da diferença.
+	 */
+	public RecordListDiff prepareDiff() {
+		//Os registros carregados sob demanda teriam que ser todos carregados para o cálculo.
+		if (records instanceof CursorEntityRecordList) {
+			return null;
+		}
+
+		return new RecordListDiff(records, boundVersions, layoutAdapter);
+	}
 	
 	/**
 	 * Limpa os registros que este adapter utiliza para a criação de Views. 
@@ -261,6 +353,30 @@ public final class ListLayoutConfigAdapter extends RecyclerView.Adapter<ListLayo
     }
 
 
+    /**
+     * Define quantos registros após os visíveis (na direção da rolagem) terão as suas imagens pré-carregadas.<br>
+     * O pré-carregamento só é feito quando o {@link RecyclerView} utiliza um {@link LinearLayoutManager} (ou derivado).
+     *
+     * @param imagePrefetchCount número de registros, sendo que <code>0</code> desabilita o pré-carregamento.
+     * @throws IllegalArgumentException se o número for negativo.
+     */
+    public void setImagePrefetchCount(int imagePrefetchCount) {
+        if (imagePrefetchCount < 0) {
+            throw new IllegalArgumentException("imagePrefetchCount can't be negative: " + imagePrefetchCount);
+        }
+        this.imagePrefetchCount = imagePrefetchCount;
+    }
+
+    /**
+     * Obtém quantos registros após os visíveis terão as suas imagens pré-carregadas.
+     *
+     * @return o número obtido.
+     */
+    public int getImagePrefetchCount() {
+        return imagePrefetchCount;
+    }
+
+
     /**
      * Registra um listener para clicks nas Views.
      *
@@ -318,10 +434,74 @@ public final class ListLayoutConfigAdapter extends RecyclerView.Adapter<ListLayo
     }
 	
 	
+	/*
+	 * Métodos auxiliares
+	 */
+
+	private IEntityRecord getLoadedRecord(int position) {
+		if (!(records instanceof CursorEntityRecordList)) {
+			return records.get(position);
+		}
+
+		//Não carrega o registro na Thread de UI, apenas solicita o carregamento da sua página em background.
+		CursorEntityRecordList cursorRecords = (CursorEntityRecordList) records;
+		IEntityRecord record = cursorRecords.getLoaded(position);
+		if (record == null) {
+			int page = position / RECORD_PAGE_SIZE;
+			if (loadingPages.add(page)) {
+				//Não utiliza o executor serial padrão para que a página não aguarde as demais tasks da aplicação.
+				new RecordPageLoadTask(cursorRecords, page).executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+			}
+		}
+		return record;
+	}
+
+
 	/*
 	 * Classes auxiliares
 	 */
 
+	/**
+	 * Task de carregamento de uma página de registros da {@link CursorEntityRecordList} em background.<br>
+	 * Ao final, descarta da lista os registros que deixaram de existir e atualiza as Views da página.
+	 */
+	private final class RecordPageLoadTask extends AsyncTask<Void, Void, Void> {
+
+		private final CursorEntityRecordList cursorRecords;
+		private final int page;
+
+		RecordPageLoadTask(CursorEntityRecordList cursorRecords, int page) {
+			this.cursorRecords = cursorRecords;
+			this.page = page;
+		}
+
+		@Override
+		protected Void doInBackground(Void... params) {
+			int start = page * RECORD_PAGE_SIZE;
+			cursorRecords.prefetch(start, start + RECORD_PAGE_SIZE);
+			return null;
+		}
+
+		@Override
+		protected void onPostExecute(Void result) {
+			//Se os registros do adapter foram trocados, a página carregada não é mais relevante.
+			if (cursorRecords != records) {
+				return;
+			}
+			loadingPages.remove(page);
+
+			for (int location : cursorRecords.dropMissing()) {
+				notifyItemRemoved(location);
+			}
+
+			int start = page * RECORD_PAGE_SIZE;
+			int count = Math.min(RECORD_PAGE_SIZE, cursorRecords.size() - start);
+			if (count > 0) {
+				notifyItemRangeChanged(start, count);
+			}
+		}
+	}
+
     /**
      * Listener de clicks ocorridos nos items (Views) gerados pelo adapter.
      * Foi necessário implementar este mecanismo de listener porque o {@link RecyclerView} não possui algo do gênero.
@@ -338,6 +518,60 @@ public final class ListLayoutConfigAdapter extends RecyclerView.Adapter<ListLayo
         void onItemClick(ListLayoutConfigAdapter adapter, View view, int position);
     }
 
+    /**
+     * Pré-carrega as imagens dos registros seguintes aos visíveis, de acordo com a direção da rolagem.<br>
+     * Só pré-carrega quando a borda da área visível muda, evitando obter os mesmos registros a cada pixel rolado.
+     */
+    private final class ImagePrefetchScrollListener extends RecyclerView.OnScrollListener {
+
+        private int lastEdge = RecyclerView.NO_POSITION;
+        private boolean lastForward;
+
+        @Override
+        public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+            if ((dx == 0 && dy == 0) || imagePrefetchCount == 0) {
+                return;
+            }
+
+            RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+            if (!(layoutManager instanceof LinearLayoutManager)) {
+                return;
+            }
+
+            LinearLayoutManager linearLayoutManager = (LinearLayoutManager) layoutManager;
+            boolean forward = dx > 0 || dy > 0;
+            int edge = forward ? linearLayoutManager.findLastVisibleItemPosition() : linearLayoutManager.findFirstVisibleItemPosition();
+            if (edge == RecyclerView.NO_POSITION || (edge == lastEdge && forward == lastForward)) {
+                return;
+            }
+
+            //Se a direção mudou, os pré-carregamentos pendentes da direção anterior não são mais úteis.
+            if (forward != lastForward) {
+                layoutAdapter.getImageLoader().cancelPrefetches();
+            }
+            lastEdge = edge;
+            lastForward = forward;
+
+            int step = forward ? 1 : -1;
+            int itemCount = getItemCount();
+            for (int i = 1; i <= imagePrefetchCount; i++) {
+                int position = edge + i * step;
+                if (position < 0 || position >= itemCount) {
+                    break;
+                }
+                //Os registros que não estão em memória passam a ser carregados em background, sem o pré-carregamento das imagens.
+                IEntityRecord record = getLoadedRecord(position);
+                if (record != null) {
+                    layoutAdapter.prefetchImages(record);
+                }
+            }
+        }
+
+        void reset() {
+            lastEdge = RecyclerView.NO_POSITION;
+        }
+    }
+
     /**
      * Holder que armazena referências para as Views de um item gerado pelo adapter.<br>
      * As referencias das Views do layout configurável são mantidas através do <code>layoutHolder</code>.
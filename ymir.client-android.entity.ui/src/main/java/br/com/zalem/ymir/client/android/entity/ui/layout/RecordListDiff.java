@@ -0,0 +1,296 @@
+package br.com.zalem.ymir.client.android.entity.ui.layout;
+
+import android.support.v7.widget.RecyclerView;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import br.com.zalem.ymir.client.android.entity.data.IEntityRecord;
+
+/**
+ * Diferença entre a lista de registros de um {@link ListLayoutConfigAdapter} e uma nova lista de registros.<br>
+ * Os registros das duas listas são relacionados através de seus identificadores, gerando as operações de exclusão, movimentação e inserção que
+ * transformam a lista antiga na nova. As movimentações são minimizadas mantendo no lugar a maior sequência de registros cuja ordem relativa não mudou.
+ * Os registros mantidos também geram operações de alteração se a {@link LayoutConfigAdapter#getContentVersion(IEntityRecord) versão de conteúdo}
+ * deles mudou. Apenas os registros que já foram vinculados a uma View são verificados, pois os demais ainda serão vinculados quando forem exibidos.<br>
+ * <br>
+ * A diferença é preparada na Thread de UI através do {@link ListLayoutConfigAdapter#prepareDiff()}, que registra o estado atual do adapter. Depois disto,
+ * pode ser calculada em background através do {@link #calculate(List)} e finalmente aplicada na Thread de UI através do
+ * {@link ListLayoutConfigAdapter#setRecords(List, RecordListDiff)}, de forma que apenas as Views dos registros afetados sejam atualizadas.
+ *
+ * @see ListLayoutConfigAdapter
+ *
+ * @author Thiago Gesser
+ */
+public final class RecordListDiff {
+
+	private static final int REMOVE = 0;
+	private static final int INSERT = 1;
+	private static final int MOVE = 2;
+	private static final int CHANGE = 3;
+
+	/*
+	 * Custo máximo das inserções e movimentações, medido em quantidade de inserções/movimentações vezes o tamanho da lista. Cada uma delas
+	 * precisa localizar e deslocar os registros da lista, então acima deste custo é mais barato atualizar o adapter por completo.
+	 */
+	private static final long MAX_REPOSITIONING_COST = 250000;
+
+	private final LayoutConfigAdapter layoutAdapter;
+	private final Object[] oldKeys;
+	private final Map<Object, Integer> oldVersions;
+
+	//Operações no formato: tipo, posição e quantidade (ou a posição de destino, no caso das movimentações).
+	private List<int[]> operations;
+	private Map<Object, Integer> newVersions;
+
+	RecordListDiff(List<IEntityRecord> oldRecords, Map<Object, Integer> boundVersions, LayoutConfigAdapter layoutAdapter) {
+		this.layoutAdapter = layoutAdapter;
+		this.oldVersions = new HashMap<>(boundVersions);
+
+		oldKeys = new Object[oldRecords.size()];
+		for (int i = 0; i < oldKeys.length; i++) {
+			oldKeys[i] = getKey(oldRecords.get(i));
+		}
+	}
+
+	/**
+	 * Calcula a diferença entre os registros do adapter e os novos registros. Pode ser chamado em background, desde que
+	 * os novos registros não sejam alterados durante o cálculo.
+	 *
+	 * @param newRecords os novos registros.
+	 * @return <code>true</code> se a diferença foi calculada e <code>false</code> se os registros não puderam ser relacionados
+	 * (como no caso de identificadores repetidos) ou se há inserções e movimentações demais, situação em que o adapter será atualizado por completo.
+	 */
+	public boolean calculate(List<IEntityRecord> newRecords) {
+		Map<Object, Integer> oldPositions = getPositions(oldKeys);
+		Object[] newKeys = new Object[newRecords.size()];
+		for (int i = 0; i < newKeys.length; i++) {
+			newKeys[i] = getKey(newRecords.get(i));
+		}
+		Map<Object, Integer> newPositions = getPositions(newKeys);
+		if (oldPositions == null || newPositions == null) {
+			return false;
+		}
+
+		List<int[]> operations = new ArrayList<>();
+
+		//Exclusões, de trás para frente para que as posições dos registros anteriores não sejam afetadas.
+		for (int i = oldKeys.length-1; i >= 0; i--) {
+			if (!newPositions.containsKey(oldKeys[i])) {
+				addRangeOperation(operations, REMOVE, i, true);
+			}
+		}
+		List<Object> current = new ArrayList<>(newKeys.length);
+		for (Object oldKey : oldKeys) {
+			if (newPositions.containsKey(oldKey)) {
+				current.add(oldKey);
+			}
+		}
+
+		//Os registros cuja ordem relativa não mudou ficam no lugar. Os demais registros mantidos são movimentados.
+		boolean[] stable = getStablePositions(current, newPositions, newKeys.length);
+		int repositionings = 0;
+		for (boolean isStable : stable) {
+			if (!isStable) {
+				repositionings++;
+			}
+		}
+		if ((long) repositionings * newKeys.length > MAX_REPOSITIONING_COST) {
+			return false;
+		}
+
+		//Inserções e movimentações na ordem da nova lista, posicionando cada registro logo após o seu antecessor.
+		for (int i = 0; i < newKeys.length; i++) {
+			if (stable[i]) {
+				continue;
+			}
+
+			Object key = newKeys[i];
+			if (oldPositions.containsKey(key)) {
+				int from = current.indexOf(key);
+				current.remove(from);
+				int to = i == 0 ? 0 : current.indexOf(newKeys[i-1]) + 1;
+				current.add(to, key);
+				if (from != to) {
+					operations.add(new int[] {MOVE, from, to});
+				}
+			} else {
+				int to = i == 0 ? 0 : current.indexOf(newKeys[i-1]) + 1;
+				current.add(to, key);
+				addRangeOperation(operations, INSERT, to, false);
+			}
+		}
+
+		//Alterações nos registros mantidos que já foram vinculados. As posições já são as da nova lista.
+		Map<Object, Integer> newVersions = new HashMap<>(oldVersions.size());
+		for (Entry<Object, Integer> entry : oldVersions.entrySet()) {
+			Integer newPosition = newPositions.get(entry.getKey());
+			if (newPosition == null) {
+				continue;
+			}
+
+			int newVersion = layoutAdapter.getContentVersion(newRecords.get(newPosition));
+			newVersions.put(entry.getKey(), newVersion);
+			if (newVersion != entry.getValue()) {
+				addChangeOperation(operations, newPosition);
+			}
+		}
+
+		this.operations = operations;
+		this.newVersions = newVersions;
+		return true;
+	}
+
+	/**
+	 * Indica se a diferença já foi calculada com sucesso.
+	 *
+	 * @return <code>true</code> se a diferença foi calculada e <code>false</code> caso contrário.
+	 */
+	public boolean isCalculated() {
+		return operations != null;
+	}
+
+
+	/*
+	 * Métodos utilizados pelo ListLayoutConfigAdapter
+	 */
+
+	static Object getKey(IEntityRecord record) {
+		//Registros sem identificador só podem ser relacionados com eles mesmos.
+		Serializable id = record.getId();
+		return id == null ? record : id;
+	}
+
+	boolean isBasedOn(List<IEntityRecord> records) {
+		//Os registros do adapter podem ter sido alterados depois da preparação da diferença.
+		if (records.size() != oldKeys.length) {
+			return false;
+		}
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (!oldKeys[i].equals(getKey(records.get(i)))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	Map<Object, Integer> getNewVersions() {
+		return newVersions;
+	}
+
+	void dispatchUpdatesTo(RecyclerView.Adapter<?> adapter) {
+		for (int[] operation : operations) {
+			switch (operation[0]) {
+				case REMOVE:
+					adapter.notifyItemRangeRemoved(operation[1], operation[2]);
+					break;
+				case INSERT:
+					adapter.notifyItemRangeInserted(operation[1], operation[2]);
+					break;
+				case MOVE:
+					adapter.notifyItemMoved(operation[1], operation[2]);
+					break;
+				case CHANGE:
+					adapter.notifyItemRangeChanged(operation[1], operation[2]);
+					break;
+
+				default:
+					throw new RuntimeException("Unsupported operation: " + operation[0]);
+			}
+		}
+	}
+
+
+	/*
+	 * Métodos auxiliares
+	 */
+
+	private static Map<Object, Integer> getPositions(Object[] keys) {
+		Map<Object, Integer> positions = new HashMap<>(keys.length);
+		for (int i = 0; i < keys.length; i++) {
+			if (positions.put(keys[i], i) != null) {
+				return null;
+			}
+		}
+		return positions;
+	}
+
+	private static boolean[] getStablePositions(List<Object> keptKeys, Map<Object, Integer> newPositions, int newSize) {
+		//Obtém a maior subsequência crescente das novas posições dos registros mantidos (na ordem antiga).
+		int size = keptKeys.size();
+		int[] positions = new int[size];
+		for (int i = 0; i < size; i++) {
+			positions[i] = newPositions.get(keptKeys.get(i));
+		}
+
+		int[] tails = new int[size];
+		int[] predecessors = new int[size];
+		int length = 0;
+		for (int i = 0; i < size; i++) {
+			int low = 0;
+			int high = length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (positions[tails[middle]] < positions[i]) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+
+			predecessors[i] = low > 0 ? tails[low-1] : -1;
+			tails[low] = i;
+			if (low == length) {
+				length++;
+			}
+		}
+
+		boolean[] stable = new boolean[newSize];
+		for (int i = length > 0 ? tails[length-1] : -1; i >= 0; i = predecessors[i]) {
+			stable[positions[i]] = true;
+		}
+		return stable;
+	}
+
+	private static void addRangeOperation(List<int[]> operations, int type, int position, boolean backwards) {
+		//Agrupa as operações consecutivas do mesmo tipo.
+		if (!operations.isEmpty()) {
+			int[] last = operations.get(operations.size()-1);
+			if (last[0] == type) {
+				if (backwards && position == last[1] - 1) {
+					last[1] = position;
+					last[2]++;
+					return;
+				}
+				if (!backwards && position == last[1] + last[2]) {
+					last[2]++;
+					return;
+				}
+			}
+		}
+		operations.add(new int[] {type, position, 1});
+	}
+
+	private static void addChangeOperation(List<int[]> operations, int position) {
+		//As alterações não seguem a ordem das posições, então só agrupa as posições vizinhas.
+		if (!operations.isEmpty()) {
+			int[] last = operations.get(operations.size()-1);
+			if (last[0] == CHANGE) {
+				if (position == last[1] + last[2]) {
+					last[2]++;
+					return;
+				}
+				if (position == last[1] - 1) {
+					last[1] = position;
+					last[2]++;
+					return;
+				}
+			}
+		}
+		operations.add(new int[] {CHANGE, position, 1});
+	}
+}
@@ -261,6 +261,16 @@ final class EntityEditingRecord implements IEntityRecord {
 		return innerRecord.getImageValue(attribute, fromCache);
 	}
 
+	@Override
+	public Bitmap getImageValue(String attribute, int targetWidth, int targetHeight) {
+		return innerRecord.getImageValue(attribute, targetWidth, targetHeight);
+	}
+
+	@Override
+	public Bitmap getImageValue(String attribute, int targetWidth, int targetHeight, boolean fromCache) {
+		return innerRecord.getImageValue(attribute, targetWidth, targetHeight, fromCache);
+	}
+
 	@Override
 	public IEntityRecord getRelationshipValue(String relationship) {
 		if (relationship.equals(masterRelationship)) {
@@ -31,9 +31,11 @@ import br.com.zalem.ymir.client.android.entity.ui.configuration.json.view.detail
 import br.com.zalem.ymir.client.android.entity.ui.configuration.json.view.detail.JsonDetailTab;
 import br.com.zalem.ymir.client.android.entity.ui.configuration.json.view.layout.JsonLayoutConfig;
 import br.com.zalem.ymir.client.android.entity.ui.configuration.json.view.layout.JsonLayoutFieldMapping;
+import br.com.zalem.ymir.client.android.entity.ui.configuration.json.view.list.JsonListConfig;
 import br.com.zalem.ymir.client.android.entity.ui.configuration.json.view.list.JsonListDisplayConfig;
 import br.com.zalem.ymir.client.android.entity.ui.configuration.json.view.list.JsonListFilter;
 import br.com.zalem.ymir.client.android.entity.ui.configuration.json.view.list.JsonListTab;
+import br.com.zalem.ymir.client.android.entity.ui.configuration.json.view.list.JsonSearchFieldMapping;
 import br.com.zalem.ymir.client.android.entity.ui.configuration.json.view.list.JsonTabbedListDisplayConfig;
 import br.com.zalem.ymir.client.android.entity.ui.configuration.view.detail.IDetailConfig;
 import br.com.zalem.ymir.client.android.entity.ui.configuration.view.list.IListTab;
@@ -83,6 +85,27 @@ public final class JsonEntityUIConfigManager implements IEntityUIConfigManager {
         }
     }
 
+    /**
+     * Habilita a busca textual nas entidades que declararam campos pesquisáveis na configuração de lista, através do {@link JsonListConfig#getSearch()}.
+     *
+     * @param dataManager gerenciador de dados utilizado para obtenção dos DAOs das entidades.
+     */
+    public void applySearchConfigs(IEntityDataManager dataManager) {
+        for (JsonEntityConfig config : entityConfigs.values()) {
+            JsonListConfig listConfig = config.getList();
+            if (listConfig == null || listConfig.getSearch() == null) {
+                continue;
+            }
+
+            JsonSearchFieldMapping[] fields = listConfig.getSearch().getFields();
+            String[][] attributesPaths = new String[fields.length][];
+            for (int i = 0; i < fields.length; i++) {
+                attributesPaths[i] = fields[i].getAttribute();
+            }
+            dataManager.getEntityDAO(config.getName()).enableSearch(attributesPaths);
+        }
+    }
+
 
     /**
      * Adiciona configurações extras de detalhes de entidade: {@link IDetailConfig}.
@@ -10,6 +10,7 @@ import br.com.zalem.ymir.client.android.entity.ui.configuration.view.list.IListC
 public final class JsonListConfig extends JsonTabbedListDisplayConfig implements IListConfig {
 
     private boolean enableDuplicate;
+    private JsonListSearch search;
 
     @Override
     public boolean isEnableDuplicate() {
@@ -19,4 +20,13 @@ public final class JsonListConfig extends JsonTabbedListDisplayConfig implements
     public void setEnableDuplicate(boolean enableDuplicate) {
         this.enableDuplicate = enableDuplicate;
     }
+
+    @Override
+    public JsonListSearch getSearch() {
+        return search;
+    }
+
+    public void setSearch(JsonListSearch search) {
+        this.search = search;
+    }
 }
@@ -0,0 +1,22 @@
+package br.com.zalem.ymir.client.android.entity.ui.configuration.json.view.list;
+
+import br.com.zalem.ymir.client.android.entity.ui.configuration.view.list.IListSearch;
+
+/**
+ * Representação da configuração de busca de lista para JSON.
+ *
+ * @author Thiago Gesser
+ */
+public final class JsonListSearch implements IListSearch {
+
+    private JsonSearchFieldMapping[] fields;
+
+    @Override
+    public JsonSearchFieldMapping[] getFields() {
+        return fields;
+    }
+
+    public void setFields(JsonSearchFieldMapping[] fields) {
+        this.fields = fields;
+    }
+}
@@ -0,0 +1,11 @@
+package br.com.zalem.ymir.client.android.entity.ui.configuration.json.view.list;
+
+import br.com.zalem.ymir.client.android.entity.ui.configuration.json.field.AbstractJsonFieldMapping;
+
+/**
+ * Representação do mapeamento de campo de busca para JSON.
+ *
+ * @author Thiago Gesser
+ */
+public final class JsonSearchFieldMapping extends AbstractJsonFieldMapping {
+}
@@ -23,9 +23,11 @@ import br.com.zalem.ymir.client.android.entity.ui.configuration.view.layout.Layo
 import br.com.zalem.ymir.client.android.entity.ui.configuration.view.layout.LayoutFieldVisibility;
 import br.com.zalem.ymir.client.android.entity.ui.configuration.view.layout.ListLayoutType;
 import br.com.zalem.ymir.client.android.entity.ui.configuration.view.list.IFilterFieldMapping;
+import br.com.zalem.ymir.client.android.entity.ui.configuration.view.list.IListConfig;
 import br.com.zalem.ymir.client.android.entity.ui.configuration.view.list.IListDisplayConfig;
 import br.com.zalem.ymir.client.android.entity.ui.configuration.view.list.IListFilter;
 import br.com.zalem.ymir.client.android.entity.ui.configuration.view.list.IListOrder;
+import br.com.zalem.ymir.client.android.entity.ui.configuration.view.list.IListSearch;
 import br.com.zalem.ymir.client.android.entity.ui.configuration.view.list.IListTab;
 import br.com.zalem.ymir.client.android.entity.ui.configuration.view.list.IOrderFieldMapping;
 import br.com.zalem.ymir.client.android.entity.ui.configuration.view.list.ITabbedListDisplayConfig;
@@ -78,7 +80,11 @@ public final class EntityUIConfigValidator {
 			throw new EntityConfigException(String.format(MISSING_FIELD_ERROR_FORMAT, "name", ""));
 		}
 		
-		validateListConfig(entityConfig.getList(), entityName);
+		IListConfig listConfig = entityConfig.getList();
+		validateListConfig(listConfig, entityName);
+		if (listConfig != null) {
+			validateListSearchConfig(listConfig.getSearch(), entityName);
+		}
 		validateListConfig(entityConfig.getSelection(), entityName);
 		
 		validateDetailConfig(entityConfig.getDetail(), entityName);
@@ -161,6 +167,26 @@ public final class EntityUIConfigValidator {
         }
     }
 
+    private static void validateListSearchConfig(IListSearch search, String entityName) throws EntityConfigException {
+        if (search == null) {
+            return;
+        }
+        IFieldMapping[] fields = search.getFields();
+        if (fields == null || fields.length == 0) {
+            throw new EntityConfigException(String.format(MISSING_FIELD_ERROR_FORMAT, "list.search.fields", entityName));
+        }
+
+        for (int i = 0; i < fields.length; i++) {
+            IFieldMapping field = fields[i];
+            validateFieldMapping(field, "list.search.fields[" + i + "]", entityName);
+
+            //Apenas atributos podem ser pesquisados.
+            if (field.getAttribute() == null) {
+                throw new EntityConfigException(String.format("Only attributes can be searched: list.search.fields[%d]. Entity = %s.", i, entityName));
+            }
+        }
+    }
+
 	private static void validateLayoutConfig(ILayoutConfig<? extends ILayoutType> layoutConfig, String configFieldName, String entityName) throws EntityConfigException {
 		if (layoutConfig == null) {
 			return;
@@ -18,4 +18,14 @@ public interface IListConfig extends ITabbedListDisplayConfig {
      * @return <code>true</code> se a duplicação está habilitada e <code>false</code> caso contrário.
      */
     boolean isEnableDuplicate();
+
+    /**
+     * <b>Configuração opcional.</b><br>
+     * <br>
+     * Obtém a configuração de busca textual da lista. Se não for definida, a pesquisa da lista percorrerá os valores dos campos
+     * exibidos no <code>layout</code> de todos os registros.
+     *
+     * @return a configuração de busca obtida.
+     */
+    IListSearch getSearch();
 }
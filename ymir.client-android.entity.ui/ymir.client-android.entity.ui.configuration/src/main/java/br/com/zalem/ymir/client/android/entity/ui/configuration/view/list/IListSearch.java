@@ -0,0 +1,19 @@
+package br.com.zalem.ymir.client.android.entity.ui.configuration.view.list;
+
+import br.com.zalem.ymir.client.android.entity.ui.configuration.field.IFieldMapping;
+
+/**
+ * Configuração de busca textual na listagem de registros de entidade.<br>
+ * Os campos pesquisáveis são mantidos em um índice de busca, de forma que a pesquisa na lista não precisa percorrer os valores de todos os registros.
+ *
+ * @author Thiago Gesser
+ */
+public interface IListSearch {
+
+    /**
+     * Obtém os campos pesquisáveis da entidade. Apenas atributos de texto podem ser mapeados, diretamente ou através de relacionamentos singulares.
+     *
+     * @return os campos obtidos.
+     */
+    IFieldMapping[] getFields();
+}
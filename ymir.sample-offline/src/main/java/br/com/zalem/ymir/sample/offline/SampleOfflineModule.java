@@ -12,7 +12,7 @@ import java.util.Map;
 
 import br.com.zalem.ymir.client.android.entity.data.IEntityDataManager;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.MobileBeanEntityDataManager;
-import br.com.zalem.ymir.client.android.entity.data.openmobster.cache.impl.LRUImageCache;
+import br.com.zalem.ymir.client.android.entity.data.openmobster.cache.impl.TieredImageCache;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.metadata.EntityMetadataException;
 import br.com.zalem.ymir.client.android.entity.data.openmobster.util.OpenMobsterActivator;
 import br.com.zalem.ymir.client.android.entity.ui.configuration.EntityConfigException;
@@ -59,9 +59,9 @@ public final class SampleOfflineModule extends AbstractModule {
             );
             bind(IEntityDataManager.class).toInstance(dataManager);
 
-            //Configura um cache de imagens com 1/8 da memória total.
+            //Configura um cache de imagens com 1/8 da memória total e 32MB de disco.
             int imageCacheSize = (int) (Runtime.getRuntime().maxMemory() / 8);
-            dataManager.setImageCache(new LRUImageCache(imageCacheSize));
+            dataManager.setImageCache(new TieredImageCache(application, imageCacheSize, 32 * 1024 * 1024));
 
             //Configura o ativador do OpenMobster na aplicação.
             application.registerActivityLifecycleCallbacks(OpenMobsterActivator.createOfflineActivator());
@@ -79,6 +79,8 @@ public final class SampleOfflineModule extends AbstractModule {
 
             //Aplica os valores padrão em cada configuração (definidas nos "fieldsDefaults" de cada entidade).
             configManager.applyFieldsDefaults(dataManager);
+            //Habilita a busca textual nas entidades que declararam campos pesquisáveis (definidos no "list.search" de cada entidade).
+            configManager.applySearchConfigs(dataManager);
 
 
             /*